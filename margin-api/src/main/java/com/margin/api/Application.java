@@ -2,11 +2,22 @@ package com.margin.api;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.margin.api.loader.FileReplayDataLoader;
 import com.margin.api.loader.KafkaDataLoader;
+import com.margin.api.journal.ExecutionJournal;
+import com.margin.api.registry.ProcessorRegistry;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.rocksdb.RocksDBException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Main application class for Margin API
  * 
@@ -17,22 +28,48 @@ import org.slf4j.LoggerFactory;
  * - Removed EventBus (unnecessary hop)
  * - Removed Consumer layer (processors self-register)
  * - Removed FIFO Queue polling (push-based aggregation)
- * - Added Caffeine cache (bounded, TTL)
+ * - Added lane-sharded aggregates (bounded, TTL; one writer lane per shard)
  * - Added RefDataService (enrichment)
  * - Added ProcessorRegistry (plugin architecture)
+ * 
+ * Ingestion runs as ingestion.instances KafkaIngestionVerticle instances (one consumer each)
+ * Run with --replay=<file> to ingest an execution file instead of Kafka (backfills, load tests)
+ * Run with --execution.mode=virtual to run processor work on virtual threads (Java 21+)
  */
 public class Application {
     private static final Logger logger = LoggerFactory.getLogger(Application.class);
+    private static final String REPLAY_ARG = "--replay=";
+    private static final String EXECUTION_MODE_ARG = "--execution.mode=";
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
 
     public static void main(String[] args) {
         logger.info("=== Starting Margin API Application ===");
         logger.info("Architecture: Kafka → DataLoader → ProcessorRegistry → Processors → Aggregators → Cache");
         
+        String replayFile = null;
+        JsonObject overrides = new JsonObject();
+        for (String arg : args) {
+            if (arg.startsWith(REPLAY_ARG)) {
+                replayFile = arg.substring(REPLAY_ARG.length());
+            } else if (arg.startsWith(EXECUTION_MODE_ARG)) {
+                overrides.put("execution.mode", arg.substring(EXECUTION_MODE_ARG.length()));
+            }
+        }
+        Path replayPath = replayFile != null ? Path.of(replayFile) : null;
+        
         // Initialize Guice injector
-        Injector injector = Guice.createInjector(new ApplicationModule());
+        Injector injector = Guice.createInjector(new ApplicationModule(overrides));
         
         // Get Vertx instance from injector (single instance)
         Vertx vertx = injector.getInstance(Vertx.class);
+        int ingestionInstances = injector.getInstance(JsonObject.class).getInteger("ingestion.instances", 1);
+        try {
+            // Opened here so the shared journal outlives the ingestion verticles
+            injector.getInstance(ExecutionJournal.class).open();
+        } catch (RocksDBException e) {
+            logger.error("Failed to open execution journal, continuing without crash-recovery journal", e);
+        }
+        String[] ingestionDeployment = new String[1];
         
         // Deploy the main verticle
         MainVerticle mainVerticle = injector.getInstance(MainVerticle.class);
@@ -40,9 +77,29 @@ public class Application {
             if (result.succeeded()) {
                 logger.info("✓ MainVerticle deployed: {}", result.result());
                 
-                // Start the Kafka data loader (direct to ProcessorRegistry)
-                KafkaDataLoader kafkaDataLoader = injector.getInstance(KafkaDataLoader.class);
-                kafkaDataLoader.start();
+                if (replayPath != null) {
+                    // Replay a file instead of consuming from Kafka
+                    injector.getInstance(FileReplayDataLoader.class).replay(replayPath);
+                } else {
+                    // Replay what the journal holds from before a crash, then deploy the Kafka
+                    // ingestion instances (direct to ProcessorRegistry)
+                    injector.getInstance(KafkaDataLoader.class).replayJournal().onComplete(replayed -> {
+                        if (replayed.failed()) {
+                            logger.error("✗ Journal replay failed, Kafka redelivers the uncommitted records",
+                                    replayed.cause());
+                        }
+                        vertx.deployVerticle(() -> injector.getInstance(KafkaIngestionVerticle.class),
+                                new DeploymentOptions().setInstances(ingestionInstances), ingestion -> {
+                            if (ingestion.succeeded()) {
+                                ingestionDeployment[0] = ingestion.result();
+                                logger.info("✓ {} KafkaIngestionVerticle instance(s) deployed: {}", 
+                                        ingestionInstances, ingestion.result());
+                            } else {
+                                logger.error("✗ Failed to deploy Kafka ingestion", ingestion.cause());
+                            }
+                        });
+                    });
+                }
                 
                 logger.info("=== Margin API Application started successfully ===");
                 logger.info("HTTP Server: http://localhost:8080");
@@ -59,16 +116,27 @@ public class Application {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             logger.info("Shutting down Margin API Application...");
             
-            KafkaDataLoader kafkaDataLoader = injector.getInstance(KafkaDataLoader.class);
-            kafkaDataLoader.stop();
-            
-            vertx.close(ar -> {
-                if (ar.succeeded()) {
-                    logger.info("✓ Application shut down successfully");
-                } else {
-                    logger.error("✗ Error during shutdown", ar.cause());
-                }
-            });
+            // Stop ingestion (commits completed offsets), then close the transport (pipeline
+            // threads) and the shared journal
+            Future<Void> ingestionStopped = ingestionDeployment[0] != null
+                    ? vertx.undeploy(ingestionDeployment[0]) : Future.succeededFuture();
+            try {
+                ingestionStopped
+                    .eventually(v -> {
+                        injector.getInstance(ProcessorRegistry.class).close();
+                        return injector.getInstance(ExecutionJournal.class).close();
+                    })
+                    .toCompletionStage().toCompletableFuture()
+                    .get(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                // Context-free promise: completion must not be dispatched to a closed event loop
+                Promise<Void> closed = Promise.promise();
+                vertx.close(closed);
+                closed.future().toCompletionStage().toCompletableFuture()
+                    .get(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                logger.info("✓ Application shut down successfully");
+            } catch (Exception e) {
+                logger.error("✗ Error during shutdown", e);
+            }
         }));
     }
 }
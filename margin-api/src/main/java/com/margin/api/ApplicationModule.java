@@ -1,15 +1,21 @@
 package com.margin.api;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
+import com.margin.api.loader.DefaultKafkaConsumerFactory;
+import com.margin.api.loader.DefaultKafkaProducerFactory;
+import com.margin.api.loader.KafkaConsumerFactory;
+import com.margin.api.loader.KafkaProducerFactory;
 import com.margin.api.processor.MarginProcessor;
 import com.margin.api.processor.PositionProcessor;
 import com.margin.api.refdata.DefaultRefDataService;
 import com.margin.api.refdata.RefDataService;
 import com.margin.api.registry.DefaultProcessorRegistry;
 import com.margin.api.registry.ProcessorRegistry;
+import com.margin.api.registry.RingBufferProcessorRegistry;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
@@ -23,11 +29,26 @@ import java.util.Set;
  */
 public class ApplicationModule extends AbstractModule {
 
+    private final JsonObject overrides;
+
+    public ApplicationModule() {
+        this(new JsonObject());
+    }
+
+    /**
+     * @param overrides Configuration keys replacing the defaults (startup arguments)
+     */
+    public ApplicationModule(JsonObject overrides) {
+        this.overrides = overrides;
+    }
+
     @Override
     protected void configure() {
         // Bind interfaces to implementations
-        bind(ProcessorRegistry.class).to(DefaultProcessorRegistry.class);
+        // (ProcessorRegistry is provided below, with its processors registered)
         bind(RefDataService.class).to(DefaultRefDataService.class);
+        bind(KafkaConsumerFactory.class).to(DefaultKafkaConsumerFactory.class);
+        bind(KafkaProducerFactory.class).to(DefaultKafkaProducerFactory.class);
         
         // Processors and Aggregators are @Singleton and auto-bound
     }
@@ -52,7 +73,54 @@ public class ApplicationModule extends AbstractModule {
                 .put("http.host", "0.0.0.0")
                 .put("kafka.bootstrap.servers", "localhost:9092")
                 .put("kafka.group.id", "margin-api-consumer-group")
-                .put("kafka.topics", "trade-executions");
+                .put("kafka.topics", "trade-executions")
+                .put("kafka.ingestion.mode", "batch")
+                .put("kafka.max.poll.records", 500)
+                .put("kafka.commit.threshold", 500)
+                .put("kafka.commit.interval.ms", 1000L)
+                .put("kafka.offset.window", 65_536)
+                .put("kafka.dead.letter.topic", "trade-executions-dlq")
+                .put("kafka.retry.max.attempts", 3)
+                .put("kafka.retry.backoff.ms", 100L)
+                .put("kafka.codec.default", "json")
+                .put("kafka.codec.topics", "")
+                .put("ingestion.instances", 1)
+                .put("ingestion.handoff.grace.ms", 30_000L)
+                .put("execution.lanes", Runtime.getRuntime().availableProcessors())
+                .put("execution.mode", "workers")
+                .put("clock.resolution.ms", 10L)
+                .put("processors.inline.enabled", true)
+                .put("processors.fused.enabled", true)
+                .put("processors.batch.enabled", true)
+                .put("position.lot.matching", "fifo")
+                .put("mtm.enabled", true)
+                .put("mtm.tick.window.ms", 100L)
+                .put("risk.tier.multipliers", "LOW=0.90,MEDIUM=1.00,HIGH=1.50,INSTITUTIONAL=0.75")
+                .put("risk.refresh.interval.ms", 300_000L)
+                .put("pipeline.transport", "lanes")
+                .put("pipeline.ring.size", 16_384)
+                .put("pipeline.wait.strategy", "sleeping")
+                .put("dedup.enabled", true)
+                .put("dedup.window.ms", 300_000L)
+                .put("dedup.buckets", 5)
+                .put("dedup.bucket.capacity", 65_536)
+                .put("dedup.bloom.fpp", 0.01)
+                .put("replay.format", "json")
+                .put("replay.speed", 0.0)
+                .put("replay.batch.size", 500)
+                .put("replay.map.window.bytes", 1L << 30)
+                .put("journal.enabled", false)
+                .put("journal.batch.size", 500)
+                .put("journal.flush.interval.ms", 10L)
+                .put("journal.fsync.interval.ms", 100L)
+                .put("backpressure.high.watermark", 10_000)
+                .put("backpressure.low.watermark", 5_000)
+                .put("bulkhead.enabled", true)
+                .put("bulkhead.pool.size", 4)
+                .put("bulkhead.max.queue", 10_000)
+                .put("bulkhead.timeout.ms", 30_000L)
+                .put("bulkhead.overflow", "pause")
+                .mergeIn(overrides);
     }
 
     @Provides
@@ -75,6 +143,91 @@ public class ApplicationModule extends AbstractModule {
     public Set<String> provideKafkaTopics(JsonObject config) {
         return Set.of(config.getString("kafka.topics", "trade-executions").split(","));
     }
+
+    @Provides
+    @Singleton
+    @Named("kafka.ingestion.mode")
+    public String provideKafkaIngestionMode(JsonObject config) {
+        return config.getString("kafka.ingestion.mode", "batch");
+    }
+
+    @Provides
+    @Singleton
+    @Named("kafka.max.poll.records")
+    public Integer provideKafkaMaxPollRecords(JsonObject config) {
+        return config.getInteger("kafka.max.poll.records", 500);
+    }
+
+    @Provides
+    @Singleton
+    @Named("kafka.commit.threshold")
+    public Integer provideKafkaCommitThreshold(JsonObject config) {
+        return config.getInteger("kafka.commit.threshold", 500);
+    }
+
+    @Provides
+    @Singleton
+    @Named("kafka.commit.interval.ms")
+    public Long provideKafkaCommitIntervalMs(JsonObject config) {
+        return config.getLong("kafka.commit.interval.ms", 1000L);
+    }
+
+    @Provides
+    @Singleton
+    @Named("kafka.offset.window")
+    public Integer provideKafkaOffsetWindow(JsonObject config) {
+        return config.getInteger("kafka.offset.window", 65_536);
+    }
+
+    @Provides
+    @Singleton
+    @Named("kafka.dead.letter.topic")
+    public String provideKafkaDeadLetterTopic(JsonObject config) {
+        return config.getString("kafka.dead.letter.topic", "trade-executions-dlq");
+    }
+
+    @Provides
+    @Singleton
+    @Named("kafka.retry.max.attempts")
+    public Integer provideKafkaRetryMaxAttempts(JsonObject config) {
+        return config.getInteger("kafka.retry.max.attempts", 3);
+    }
+
+    @Provides
+    @Singleton
+    @Named("kafka.retry.backoff.ms")
+    public Long provideKafkaRetryBackoffMs(JsonObject config) {
+        return config.getLong("kafka.retry.backoff.ms", 100L);
+    }
+    
+    /**
+     * Select the transport between loaders and processors (pipeline.transport)
+     * - lanes (default): account-sharded worker lanes (DefaultProcessorRegistry)
+     * - ring: preallocated ring buffer pipeline (RingBufferProcessorRegistry), only with
+     *   mtm.enabled=false: its aggregate stages update positions off their accounts' lanes,
+     *   which own the positions' mark-to-market state
+     */
+    @Provides
+    @Singleton
+    @Named("pipeline.transport")
+    public ProcessorRegistry provideTransportRegistry(
+            JsonObject config,
+            Provider<DefaultProcessorRegistry> lanes,
+            Provider<RingBufferProcessorRegistry> ring) {
+        String transport = config.getString("pipeline.transport", "lanes");
+        switch (transport) {
+            case "lanes":
+                return lanes.get();
+            case "ring":
+                if (config.getBoolean("mtm.enabled", true)) {
+                    throw new IllegalArgumentException("pipeline.transport=ring requires mtm.enabled=false"
+                            + " (mark to market runs on the execution lanes, ring aggregate stages do not)");
+                }
+                return ring.get();
+            default:
+                throw new IllegalArgumentException("Unknown pipeline.transport: " + transport + " (expected lanes or ring)");
+        }
+    }
     
     /**
      * Initialize ProcessorRegistry with all processors
@@ -82,7 +235,7 @@ public class ApplicationModule extends AbstractModule {
     @Provides
     @Singleton
     public ProcessorRegistry provideInitializedRegistry(
-            ProcessorRegistry registry,
+            @Named("pipeline.transport") ProcessorRegistry registry,
             MarginProcessor marginProcessor,
             PositionProcessor positionProcessor) {
         
@@ -0,0 +1,32 @@
+package com.margin.api;
+
+import com.google.inject.Inject;
+import com.margin.api.loader.KafkaDataLoader;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+
+/**
+ * Verticle running one Kafka ingestion instance
+ * Deployed with ingestion.instances instances: each owns a KafkaDataLoader (and consumer) in the
+ * same consumer group, so Kafka spreads the partitions across instances and event loops
+ */
+public class KafkaIngestionVerticle extends AbstractVerticle {
+    
+    private final KafkaDataLoader kafkaDataLoader;
+
+    @Inject
+    public KafkaIngestionVerticle(KafkaDataLoader kafkaDataLoader) {
+        this.kafkaDataLoader = kafkaDataLoader;
+    }
+
+    @Override
+    public void start(Promise<Void> startPromise) {
+        // Started on this verticle's context: consumer handlers run on its event loop
+        kafkaDataLoader.start().onComplete(startPromise);
+    }
+
+    @Override
+    public void stop(Promise<Void> stopPromise) {
+        kafkaDataLoader.stop().onComplete(stopPromise);
+    }
+}
@@ -1,6 +1,15 @@
 package com.margin.api;
 
 import com.google.inject.Inject;
+import com.margin.api.aggregator.Aggregator;
+import com.margin.api.aggregator.MarginAggregator;
+import com.margin.api.aggregator.PositionAggregator;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.bulkhead.Bulkheads;
+import com.margin.api.dedup.MessageDeduplicator;
+import com.margin.api.loader.PartitionOwnership;
+import com.margin.api.position.MarkToMarketEngine;
+import com.margin.api.refdata.AccountRiskTable;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Promise;
 import io.vertx.core.http.HttpServer;
@@ -10,6 +19,8 @@ import io.vertx.ext.web.handler.BodyHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
+
 /**
  * Main Verticle that sets up the HTTP server and routes
  */
@@ -17,10 +28,35 @@ public class MainVerticle extends AbstractVerticle {
     private static final Logger logger = LoggerFactory.getLogger(MainVerticle.class);
     
     private final JsonObject config;
+    private final BackpressureController backpressure;
+    private final MessageDeduplicator deduplicator;
+    private final PartitionOwnership ownership;
+    private final Bulkheads bulkheads;
+    private final MarkToMarketEngine markToMarket;
+    private final AccountRiskTable riskTable;
+    private final MarginAggregator marginAggregator;
+    private final PositionAggregator positionAggregator;
 
     @Inject
-    public MainVerticle(JsonObject config) {
+    public MainVerticle(
+            JsonObject config,
+            BackpressureController backpressure,
+            MessageDeduplicator deduplicator,
+            PartitionOwnership ownership,
+            Bulkheads bulkheads,
+            MarkToMarketEngine markToMarket,
+            AccountRiskTable riskTable,
+            MarginAggregator marginAggregator,
+            PositionAggregator positionAggregator) {
         this.config = config;
+        this.backpressure = backpressure;
+        this.deduplicator = deduplicator;
+        this.ownership = ownership;
+        this.bulkheads = bulkheads;
+        this.markToMarket = markToMarket;
+        this.riskTable = riskTable;
+        this.marginAggregator = marginAggregator;
+        this.positionAggregator = positionAggregator;
     }
 
     @Override
@@ -71,7 +107,7 @@ public class MainVerticle extends AbstractVerticle {
                     .put("message", "Welcome to Margin API")
                     .put("version", "1.0.0-SNAPSHOT")
                     .put("description", "Streamlined Reactive Trade Execution Processing")
-                    .put("architecture", "Push-based with Caffeine cache")
+                    .put("architecture", "Push-based with lane-sharded aggregates")
                     .encode());
         });
         
@@ -85,36 +121,108 @@ public class MainVerticle extends AbstractVerticle {
                         .put("2", "ProcessorRegistry - Plugin hub, routes to all registered processors")
                         .put("3", "Processors - Transform executions (Margin, Position) with RefData enrichment")
                         .put("4", "Aggregators - Push-based real-time aggregation")
-                        .put("5", "Caffeine Cache - Bounded cache (10k entries, 24h TTL)"))
+                        .put("5", "Aggregate Shards - One writer lane per shard, bounded (10k entries, 24h TTL; open positions are kept)"))
                     .put("improvements", new JsonObject()
                         .put("removed", "EventBus hop, Consumer layer, FIFO queue polling")
-                        .put("added", "ProcessorRegistry, RefDataService, Caffeine cache, backpressure")
+                        .put("added", "ProcessorRegistry, RefDataService, lane-sharded aggregates, backpressure")
                         .put("latency", "< 10ms (p99)")
                         .put("throughput", "> 10,000 msg/s"))
                     .put("endpoints", new JsonObject()
                         .put("GET /", "Welcome message")
                         .put("GET /health", "Health check")
                         .put("GET /api/info", "API information")
-                        .put("GET /api/cache/stats", "Cache statistics"))
+                        .put("GET /api/cache/stats", "Cache statistics")
+                        .put("GET /api/backpressure", "Backpressure state per pipeline stage")
+                        .put("GET /api/dedup", "Message dedup filter metrics")
+                        .put("GET /api/partitions", "Kafka partition ownership per ingestion instance")
+                        .put("GET /api/bulkheads", "Queue depth and wait time per processor bulkhead")
+                        .put("POST /api/market-data", "Market data tick {symbol, price}, conflated for mark to market")
+                        .put("GET /api/mark-to-market", "Mark-to-market ticks, windows and revaluations")
+                        .put("GET /api/risk", "Account risk tiers and leverage cap breaches"))
                     .encode());
         });
         
         // Cache statistics endpoint
         router.get("/api/cache/stats").handler(ctx -> {
-            // TODO: Wire aggregators to get actual stats
             ctx.response()
                 .putHeader("content-type", "application/json")
                 .end(new JsonObject()
-                    .put("margin", new JsonObject()
-                        .put("size", 0)
-                        .put("hitRate", 0.0)
-                        .put("maxSize", 10000))
-                    .put("position", new JsonObject()
-                        .put("size", 0)
-                        .put("hitRate", 0.0)
-                        .put("maxSize", 10000))
+                    .put("margin", cacheStats(marginAggregator.getStats(), MarginAggregator.MAX_CACHE_SIZE))
+                    .put("position", cacheStats(positionAggregator.getStats(), PositionAggregator.MAX_CACHE_SIZE))
                     .encode());
         });
+        
+        // Backpressure state endpoint
+        router.get("/api/backpressure").handler(ctx -> {
+            ctx.response()
+                .putHeader("content-type", "application/json")
+                .end(backpressure.toJson().encode());
+        });
+        
+        // Dedup filter metrics endpoint
+        router.get("/api/dedup").handler(ctx -> {
+            ctx.response()
+                .putHeader("content-type", "application/json")
+                .end(deduplicator.toJson().encode());
+        });
+        
+        // Partition ownership endpoint
+        router.get("/api/partitions").handler(ctx -> {
+            ctx.response()
+                .putHeader("content-type", "application/json")
+                .end(ownership.toJson().encode());
+        });
+        
+        // Processor bulkhead metrics endpoint
+        router.get("/api/bulkheads").handler(ctx -> {
+            ctx.response()
+                .putHeader("content-type", "application/json")
+                .end(bulkheads.toJson().encode());
+        });
+        
+        // Market data tick endpoint: {"symbol": "...", "price": 123.45}
+        router.post("/api/market-data").handler(ctx -> {
+            JsonObject tick = ctx.body().asJsonObject();
+            String symbol = tick != null ? tick.getString("symbol") : null;
+            String price = tick != null && tick.getValue("price") != null ? tick.getValue("price").toString() : null;
+            if (symbol == null || price == null) {
+                ctx.response().setStatusCode(400).end("symbol and price are required");
+                return;
+            }
+            if (!markToMarket.isEnabled()) {
+                ctx.response().setStatusCode(409).end("Mark to market is disabled (mtm.enabled=false)");
+                return;
+            }
+            try {
+                markToMarket.onPrice(symbol, new BigDecimal(price));
+            } catch (ArithmeticException | NumberFormatException e) {
+                ctx.response().setStatusCode(400).end("Invalid price: " + price);
+                return;
+            }
+            ctx.response().setStatusCode(202).end();
+        });
+        
+        // Mark-to-market metrics endpoint
+        router.get("/api/mark-to-market").handler(ctx -> {
+            ctx.response()
+                .putHeader("content-type", "application/json")
+                .end(markToMarket.toJson().encode());
+        });
+        
+        // Account risk table endpoint (tier multipliers, leverage cap breaches)
+        router.get("/api/risk").handler(ctx -> {
+            ctx.response()
+                .putHeader("content-type", "application/json")
+                .end(riskTable.toJson().encode());
+        });
     }
-}
 
+    private static JsonObject cacheStats(Aggregator.CacheStats stats, int maxSize) {
+        return new JsonObject()
+            .put("size", stats.size)
+            .put("hitCount", stats.hitCount)
+            .put("missCount", stats.missCount)
+            .put("hitRate", stats.hitRate)
+            .put("maxSize", maxSize);
+    }
+}
@@ -0,0 +1,83 @@
+package com.margin.api.aggregator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregated state of one account and symbol, resolved once per execution
+ * Reused flyweight: one instance per execution lane, filled by AccountSymbolSlots.resolve
+ * and only valid until the lane moves on to the next execution
+ *
+ * The slot also caches the lane's account/symbol keys and their state, so resolving a
+ * known key allocates nothing (no key concatenation, no cache write per execution).
+ * Lane-confined like the slot itself; cleared past MAX_CACHED_KEYS.
+ */
+public class AccountSymbolSlot {
+
+    private static final int MAX_CACHED_KEYS = 100_000;
+
+    private final Map<String, Map<String, Entry>> entries = new HashMap<>();
+    private int cachedKeys;
+    private String key;
+    private AggregatedMargin margin;
+    private AggregatedPosition position;
+
+    void set(String key, AggregatedMargin margin, AggregatedPosition position) {
+        this.key = key;
+        this.margin = margin;
+        this.position = position;
+    }
+
+    /**
+     * Drop references so a lane does not keep evicted state alive
+     * (cached entries are revalidated against the aggregators before use)
+     */
+    public void clear() {
+        set(null, null, null);
+    }
+
+    /**
+     * Get the cached entry of an account/symbol, creating it (key only) if needed
+     */
+    Entry entry(String accountId, String symbol) {
+        Map<String, Entry> bySymbol = entries.get(accountId);
+        Entry entry = bySymbol != null ? bySymbol.get(symbol) : null;
+        if (entry != null) {
+            return entry;
+        }
+        if (cachedKeys >= MAX_CACHED_KEYS) {
+            entries.clear();
+            cachedKeys = 0;
+        }
+        entry = new Entry(accountId + ":" + symbol);
+        entries.computeIfAbsent(accountId, k -> new HashMap<>()).put(symbol, entry);
+        cachedKeys++;
+        return entry;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public AggregatedMargin getMargin() {
+        return margin;
+    }
+
+    public AggregatedPosition getPosition() {
+        return position;
+    }
+
+    /**
+     * Cached key and state of one account/symbol
+     */
+    static final class Entry {
+        final String key;
+        AggregatedMargin margin;
+        AggregatedPosition position;
+        long refreshedAt;
+
+        Entry(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.margin.api.aggregator;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.margin.api.lane.CoarseClock;
+import com.margin.api.model.Execution;
+
+/**
+ * Resolves the margin and position state of an execution's account/symbol in one pass
+ * The key is built once and each aggregator is looked up once (get-or-create), instead of
+ * every processor rebuilding the key and doing its own get + put
+ *
+ * Known keys resolve from the slot's lane-local cache without allocating: the cached state is
+ * checked against the aggregators' shards of the account (plain reads), and get-or-create is
+ * only repeated every REFRESH_INTERVAL_MS per key.
+ */
+@Singleton
+public class AccountSymbolSlots {
+
+    private static final long REFRESH_INTERVAL_MS = 60_000;
+
+    private final MarginAggregator marginAggregator;
+    private final PositionAggregator positionAggregator;
+    private final CoarseClock clock;
+
+    @Inject
+    public AccountSymbolSlots(
+            MarginAggregator marginAggregator,
+            PositionAggregator positionAggregator,
+            CoarseClock clock) {
+        this.marginAggregator = marginAggregator;
+        this.positionAggregator = positionAggregator;
+        this.clock = clock;
+    }
+
+    /**
+     * Fill a slot with the state of the execution's account/symbol, creating it if needed
+     * Must be called on the lane owning the account
+     *
+     * @param execution The execution
+     * @param slot The lane's slot to fill
+     * @return The filled slot
+     */
+    public AccountSymbolSlot resolve(Execution execution, AccountSymbolSlot slot) {
+        String accountId = execution.getAccountId();
+        String symbol = execution.getSymbol();
+        AccountSymbolSlot.Entry entry = slot.entry(accountId, symbol);
+        long now = clock.millis();
+        // Evicted or expired state is recreated, like a plain get-or-create would
+        if (entry.margin == null
+                || now - entry.refreshedAt >= REFRESH_INTERVAL_MS
+                || marginAggregator.get(entry.key, accountId) != entry.margin
+                || positionAggregator.get(entry.key, accountId) != entry.position) {
+            entry.margin = marginAggregator.getOrCreate(entry.key, accountId, symbol);
+            entry.position = positionAggregator.getOrCreate(entry.key, accountId, symbol);
+            entry.refreshedAt = now;
+        }
+        slot.set(entry.key, entry.margin, entry.position);
+        return slot;
+    }
+}
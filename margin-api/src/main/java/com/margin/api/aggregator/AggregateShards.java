@@ -0,0 +1,225 @@
+package com.margin.api.aggregator;
+
+import com.margin.api.lane.ExecutionLanes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Aggregates by account/symbol key, sharded like the execution lanes: one shard per lane,
+ * holding the keys of the accounts that lane owns
+ * A shard has a single writer, the lane owning its accounts (with the ring transport, the
+ * aggregator's pipeline stage writes every shard), so a known key is a plain lookup (no lock,
+ * no CAS, no write) and the aggregate is updated in place; creating and removing keys is the
+ * only write to the shard's index. Readers on any thread see the published index and read
+ * each aggregate consistently through its snapshot().
+ *
+ * Bounded like the cache it replaces: evictable entries expire ttlMillis after their last
+ * update, and a shard over its share of maximumSize drops expired entries, then the least
+ * recently updated evictable ones. Entries that are not evictable (state that cannot be rebuilt,
+ * like a position's open lots) are never expired nor dropped: a shard holding more of them than
+ * its share grows past it. Removed aggregates are passed to the removal listener.
+ */
+class AggregateShards<V> {
+
+    private final ExecutionLanes lanes;
+    private final Shard<V>[] shards;
+    private final int shardCapacity;
+    private final long ttlMillis;
+    private final BiFunction<String, String, V> factory;
+    private final ToLongFunction<V> lastUpdated;
+    private final Predicate<V> evictable;
+    private final Consumer<V> removalListener;
+
+    /**
+     * @param lanes The lanes owning the shards
+     * @param maximumSize Maximum number of entries, across shards
+     * @param ttlMillis Time an entry is kept after its last update
+     * @param factory Creates the aggregate of an account and symbol
+     * @param lastUpdated Last update time of an aggregate (epoch millis)
+     * @param evictable Whether an aggregate may expire or be dropped (thread-safe)
+     * @param removalListener Called with every aggregate removed (evicted or expired)
+     */
+    @SuppressWarnings("unchecked")
+    AggregateShards(
+            ExecutionLanes lanes,
+            int maximumSize,
+            long ttlMillis,
+            BiFunction<String, String, V> factory,
+            ToLongFunction<V> lastUpdated,
+            Predicate<V> evictable,
+            Consumer<V> removalListener) {
+        this.lanes = lanes;
+        this.shards = new Shard[lanes.size()];
+        this.shardCapacity = Math.max(1, (maximumSize + shards.length - 1) / shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard<>(shardCapacity);
+        }
+        this.ttlMillis = ttlMillis;
+        this.factory = factory;
+        this.lastUpdated = lastUpdated;
+        this.evictable = evictable;
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * Get or create the aggregate of a key
+     * Must be called by the shard's writer (the lane owning the account)
+     */
+    V getOrCreate(String key, String accountId, String symbol) {
+        Shard<V> shard = shards[lanes.laneOf(accountId)];
+        long now = System.currentTimeMillis();
+        V value = shard.index.get(key);
+        if (value != null) {
+            if (!isExpired(value, now)) {
+                shard.hits++;
+                return value;
+            }
+            if (shard.index.remove(key, value)) {
+                removalListener.accept(value);
+            }
+        }
+        shard.misses++;
+        if (shard.index.size() >= shard.trimAt) {
+            trim(shard, now);
+        }
+        value = factory.apply(accountId, symbol);
+        shard.index.put(key, value);
+        return value;
+    }
+
+    /**
+     * Get the aggregate of a key owned by an account, or null (thread-safe)
+     */
+    V get(String key, String accountId) {
+        V value = shards[lanes.laneOf(accountId)].index.get(key);
+        return value != null && !isExpired(value, System.currentTimeMillis()) ? value : null;
+    }
+
+    /**
+     * Get the aggregate of a key, or null (thread-safe; looks the key up in every shard)
+     */
+    V get(String key) {
+        long now = System.currentTimeMillis();
+        for (Shard<V> shard : shards) {
+            V value = shard.index.get(key);
+            if (value != null) {
+                return isExpired(value, now) ? null : value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copy of every live entry (thread-safe)
+     */
+    Map<String, V> getAll() {
+        long now = System.currentTimeMillis();
+        Map<String, V> all = new HashMap<>();
+        for (Shard<V> shard : shards) {
+            shard.index.forEach((key, value) -> {
+                if (!isExpired(value, now)) {
+                    all.put(key, value);
+                }
+            });
+        }
+        return all;
+    }
+
+    /**
+     * Remove the aggregates matching a filter (thread-safe: the owning lane recreates a
+     * removed key on its next update, as after an expiry)
+     *
+     * @return Number of removed entries
+     */
+    int evict(Predicate<V> filter) {
+        int evicted = 0;
+        for (Shard<V> shard : shards) {
+            for (Map.Entry<String, V> entry : shard.index.entrySet()) {
+                // Only this value: the lane may have recreated the key meanwhile
+                if (filter.test(entry.getValue()) && remove(shard, entry)) {
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Size and lookup counts (counters are read racily, for monitoring)
+     * A hit is a lookup of an existing key, a miss one that created the key's aggregate
+     */
+    Aggregator.CacheStats getStats() {
+        long size = 0;
+        long hits = 0;
+        long misses = 0;
+        for (Shard<V> shard : shards) {
+            size += shard.index.size();
+            hits += shard.hits;
+            misses += shard.misses;
+        }
+        long lookups = hits + misses;
+        return new Aggregator.CacheStats(size, hits, misses, lookups == 0 ? 1.0 : (double) hits / lookups);
+    }
+
+    private boolean isExpired(V value, long now) {
+        return now - lastUpdated.applyAsLong(value) >= ttlMillis && evictable.test(value);
+    }
+
+    /**
+     * Make room in a full shard: drop expired entries, then the least recently updated
+     * evictable ones down to 90% of the shard's capacity (so a full shard is not trimmed on
+     * every create). If the entries left still fill the shard, the next trim waits until it
+     * has grown by another tenth of its capacity.
+     */
+    private void trim(Shard<V> shard, long now) {
+        List<Map.Entry<String, V>> candidates = new ArrayList<>(shard.index.size());
+        for (Map.Entry<String, V> entry : shard.index.entrySet()) {
+            if (isExpired(entry.getValue(), now)) {
+                remove(shard, entry);
+            } else if (evictable.test(entry.getValue())) {
+                candidates.add(entry);
+            }
+        }
+        int excess = Math.min(shard.index.size() - shardCapacity * 9 / 10, candidates.size());
+        if (excess > 0) {
+            candidates.sort((a, b) -> Long.compare(lastUpdated.applyAsLong(a.getValue()), lastUpdated.applyAsLong(b.getValue())));
+            for (int i = 0; i < excess; i++) {
+                remove(shard, candidates.get(i));
+            }
+        }
+        shard.trimAt = Math.max(shardCapacity, shard.index.size() + Math.max(1, shardCapacity / 10));
+    }
+
+    private boolean remove(Shard<V> shard, Map.Entry<String, V> entry) {
+        if (!shard.index.remove(entry.getKey(), entry.getValue())) {
+            return false;
+        }
+        removalListener.accept(entry.getValue());
+        return true;
+    }
+
+    /**
+     * Keys of one lane's accounts
+     * The index is concurrent so other threads can read it (and evict); only the lane writes
+     * it on the update path, and the counters are only written by the lane
+     */
+    private static final class Shard<V> {
+        final Map<String, V> index = new ConcurrentHashMap<>();
+        long hits;
+        long misses;
+        // Size at which a create trims the shard
+        int trimAt;
+
+        Shard(int capacity) {
+            this.trimAt = capacity;
+        }
+    }
+}
@@ -3,37 +3,88 @@ package com.margin.api.aggregator;
 import com.margin.api.model.Margin;
 
 import java.math.BigDecimal;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Aggregated margin data for an account and symbol
+ * Totals are kept in fixed point (FixedSum); BigDecimal only at the API boundary
+ *
+ * Adds must come from the account's lane, the aggregate's single writer, so totals and count
+ * are plain single-writer fields (no CAS). Each getter reads its own total; use snapshot()
+ * for totals consistent with each other (no add half applied).
  */
 public class AggregatedMargin {
-    
+
+    // Internal scale of the totals (margins are computed at scale 2)
+    static final int MARGIN_SCALE = 4;
+
     private final String accountId;
     private final String symbol;
-    private final AtomicReference<BigDecimal> totalInitialMargin;
-    private final AtomicReference<BigDecimal> totalMaintenanceMargin;
-    private final AtomicReference<BigDecimal> totalMarginRequirement;
-    private final AtomicInteger count;
+    private final FixedSum totalInitialMargin;
+    private final FixedSum totalMaintenanceMargin;
+    private final FixedSum totalMarginRequirement;
+    // Single writer
+    private volatile int count;
+    private final SequenceLock lock = new SequenceLock();
     private volatile long lastUpdated;
 
     public AggregatedMargin(String accountId, String symbol) {
         this.accountId = accountId;
         this.symbol = symbol;
-        this.totalInitialMargin = new AtomicReference<>(BigDecimal.ZERO);
-        this.totalMaintenanceMargin = new AtomicReference<>(BigDecimal.ZERO);
-        this.totalMarginRequirement = new AtomicReference<>(BigDecimal.ZERO);
-        this.count = new AtomicInteger(0);
+        this.totalInitialMargin = new FixedSum(MARGIN_SCALE);
+        this.totalMaintenanceMargin = new FixedSum(MARGIN_SCALE);
+        this.totalMarginRequirement = new FixedSum(MARGIN_SCALE);
         this.lastUpdated = System.currentTimeMillis();
     }
 
     public void addMargin(Margin margin) {
-        totalInitialMargin.updateAndGet(current -> current.add(margin.getInitialMargin()));
-        totalMaintenanceMargin.updateAndGet(current -> current.add(margin.getMaintenanceMargin()));
-        totalMarginRequirement.updateAndGet(current -> current.add(margin.getMarginRequirement()));
-        count.incrementAndGet();
+        add(margin.getInitialMargin(), margin.getMaintenanceMargin(), margin.getMarginRequirement());
+    }
+
+    /**
+     * Add one margin's amounts without a Margin object (fused processing)
+     */
+    public void add(BigDecimal initialMargin, BigDecimal maintenanceMargin, BigDecimal marginRequirement) {
+        lock.beginWrite();
+        try {
+            totalInitialMargin.add(initialMargin);
+            totalMaintenanceMargin.add(maintenanceMargin);
+            totalMarginRequirement.add(marginRequirement);
+            count++;
+        } finally {
+            lock.endWrite();
+        }
+        lastUpdated = System.currentTimeMillis();
+    }
+
+    /**
+     * Add one margin's fixed-point amounts, all at the given scale (allocation-free)
+     */
+    public void add(long initialMargin, long maintenanceMargin, long marginRequirement, int scale) {
+        lock.beginWrite();
+        try {
+            totalInitialMargin.add(initialMargin, scale);
+            totalMaintenanceMargin.add(maintenanceMargin, scale);
+            totalMarginRequirement.add(marginRequirement, scale);
+            count++;
+        } finally {
+            lock.endWrite();
+        }
+        lastUpdated = System.currentTimeMillis();
+    }
+
+    /**
+     * Add a batch's pre-summed margins in one update (micro-batching)
+     */
+    public void addAll(MarginTotals totals) {
+        lock.beginWrite();
+        try {
+            totalInitialMargin.addAll(totals.initialMarginSum());
+            totalMaintenanceMargin.addAll(totals.maintenanceMarginSum());
+            totalMarginRequirement.addAll(totals.marginRequirementSum());
+            count += totals.getCount();
+        } finally {
+            lock.endWrite();
+        }
         lastUpdated = System.currentTimeMillis();
     }
 
@@ -58,7 +109,15 @@ public class AggregatedMargin {
     }
 
     public int getCount() {
-        return count.get();
+        return count;
+    }
+
+    /**
+     * Totals and count as of one point between adds (waits out adds in flight)
+     */
+    public Snapshot snapshot() {
+        return lock.read(() -> new Snapshot(totalInitialMargin.get(), totalMaintenanceMargin.get(),
+                totalMarginRequirement.get(), count));
     }
 
     public long getLastUpdated() {
@@ -67,15 +126,49 @@ public class AggregatedMargin {
 
     @Override
     public String toString() {
+        Snapshot snapshot = snapshot();
         return "AggregatedMargin{" +
                 "accountId='" + accountId + '\'' +
                 ", symbol='" + symbol + '\'' +
-                ", totalInitialMargin=" + totalInitialMargin.get() +
-                ", totalMaintenanceMargin=" + totalMaintenanceMargin.get() +
-                ", totalMarginRequirement=" + totalMarginRequirement.get() +
-                ", count=" + count.get() +
+                ", totalInitialMargin=" + snapshot.getTotalInitialMargin() +
+                ", totalMaintenanceMargin=" + snapshot.getTotalMaintenanceMargin() +
+                ", totalMarginRequirement=" + snapshot.getTotalMarginRequirement() +
+                ", count=" + snapshot.getCount() +
                 ", lastUpdated=" + lastUpdated +
                 '}';
     }
-}
 
+    /**
+     * Consistent view of the totals
+     */
+    public static final class Snapshot {
+        private final BigDecimal totalInitialMargin;
+        private final BigDecimal totalMaintenanceMargin;
+        private final BigDecimal totalMarginRequirement;
+        private final int count;
+
+        Snapshot(BigDecimal totalInitialMargin, BigDecimal totalMaintenanceMargin,
+                 BigDecimal totalMarginRequirement, int count) {
+            this.totalInitialMargin = totalInitialMargin;
+            this.totalMaintenanceMargin = totalMaintenanceMargin;
+            this.totalMarginRequirement = totalMarginRequirement;
+            this.count = count;
+        }
+
+        public BigDecimal getTotalInitialMargin() {
+            return totalInitialMargin;
+        }
+
+        public BigDecimal getTotalMaintenanceMargin() {
+            return totalMaintenanceMargin;
+        }
+
+        public BigDecimal getTotalMarginRequirement() {
+            return totalMarginRequirement;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
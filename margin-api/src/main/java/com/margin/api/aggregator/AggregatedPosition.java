@@ -1,47 +1,227 @@
 package com.margin.api.aggregator;
 
 import com.margin.api.model.Position;
+import com.margin.api.position.LotBook;
+import com.margin.api.position.LotMatching;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Aggregated position data for an account and symbol
+ * Totals are kept in fixed point (FixedSum); BigDecimal only at the API boundary
+ *
+ * Every added quantity is a fill matched against the open lots (LotBook): closing fills
+ * realize PnL, and the total cost is the cost basis of the open lots (each closed lot's
+ * cost leaves the total as its PnL is realized). Adds must come from the account's lane.
+ *
+ * Once marked to market (MarkToMarketEngine), the unrealized PnL is the open lots' value at
+ * the mark price, kept current as fills change the lots and as the mark moves.
+ *
+ * Adds are all or nothing: a fill that does not fit the lot book throws before anything
+ * (lots, totals, count) changes, so the caller can retry it another way without applying it twice.
+ *
+ * Totals and count are single-writer fields (FixedSum), written by the account's lane only;
+ * snapshot() reads them consistently with each other (no fill or mark half applied), each
+ * getter reads its own total.
  */
 public class AggregatedPosition {
-    
+
+    // Internal scale of the totals
+    static final int AMOUNT_SCALE = 8;
+
     private final String accountId;
     private final String symbol;
-    private final AtomicReference<BigDecimal> netQuantity;
-    private final AtomicReference<BigDecimal> totalCost;
-    private final AtomicReference<BigDecimal> unrealizedPnl;
-    private final AtomicReference<BigDecimal> realizedPnl;
-    private final AtomicInteger count;
+    private final FixedSum netQuantity;
+    private final FixedSum totalCost;
+    private final FixedSum unrealizedPnl;
+    private final FixedSum realizedPnl;
+    // Single writer
+    private volatile int count;
+    private final SequenceLock lock = new SequenceLock();
+    // Lane-confined
+    private final LotBook lots;
+    // Mark state: lane-confined, like the lots
+    private boolean marked;
+    private long markPrice;
+    private long markedPnl;
+    private volatile boolean evicted;
+    private volatile boolean flat = true;
     private volatile long lastUpdated;
 
-    public AggregatedPosition(String accountId, String symbol) {
+    public AggregatedPosition(String accountId, String symbol, LotMatching matching) {
         this.accountId = accountId;
         this.symbol = symbol;
-        this.netQuantity = new AtomicReference<>(BigDecimal.ZERO);
-        this.totalCost = new AtomicReference<>(BigDecimal.ZERO);
-        this.unrealizedPnl = new AtomicReference<>(BigDecimal.ZERO);
-        this.realizedPnl = new AtomicReference<>(BigDecimal.ZERO);
-        this.count = new AtomicInteger(0);
+        this.netQuantity = new FixedSum(AMOUNT_SCALE);
+        this.totalCost = new FixedSum(AMOUNT_SCALE);
+        this.unrealizedPnl = new FixedSum(AMOUNT_SCALE);
+        this.realizedPnl = new FixedSum(AMOUNT_SCALE);
+        this.lots = new LotBook(matching);
         this.lastUpdated = System.currentTimeMillis();
     }
 
     public void addPosition(Position position) {
-        netQuantity.updateAndGet(current -> current.add(position.getQuantity()));
-        totalCost.updateAndGet(current -> 
-            current.add(position.getQuantity().multiply(position.getAveragePrice())));
-        unrealizedPnl.updateAndGet(current -> current.add(position.getUnrealizedPnl()));
-        realizedPnl.updateAndGet(current -> current.add(position.getRealizedPnl()));
-        count.incrementAndGet();
+        add(position.getQuantity(), position.getAveragePrice(), position.getUnrealizedPnl(), position.getRealizedPnl());
+    }
+
+    /**
+     * Add one position's amounts without a Position object (fused processing)
+     *
+     * @throws ArithmeticException if the fill does not fit the lot book (nothing is added then)
+     */
+    public void add(BigDecimal quantity, BigDecimal averagePrice, BigDecimal unrealized, BigDecimal realized) {
+        // Everything that can fail runs before the first change
+        long closed = lots.prepare(LotBook.units(quantity), LotBook.units(averagePrice));
+        long remark = marked ? remarkDelta(lots.preparedUnrealizedPnl(markPrice)) : 0;
+        lots.commit();
+        lock.beginWrite();
+        try {
+            netQuantity.add(quantity);
+            totalCost.add(quantity.multiply(averagePrice));
+            unrealizedPnl.add(unrealized);
+            realizedPnl.add(realized);
+            addClosed(closed);
+            remark(remark);
+            count++;
+        } finally {
+            lock.endWrite();
+        }
+        updated();
+    }
+
+    /**
+     * Add one fill in fixed point: signed quantity and price, no PnL besides the realized one
+     * Allocation-free; same totals as add(quantity, price, ZERO, ZERO)
+     *
+     * @throws ArithmeticException if the fill does not fit in a long (nothing is added then)
+     */
+    public void add(long quantity, int quantityScale, long price, int priceScale) {
+        // Everything that can fail runs before the first change
+        long cost = Math.multiplyExact(quantity, price);
+        long closed = lots.prepare(LotBook.units(quantity, quantityScale), LotBook.units(price, priceScale));
+        long remark = marked ? remarkDelta(lots.preparedUnrealizedPnl(markPrice)) : 0;
+        lots.commit();
+        lock.beginWrite();
+        try {
+            netQuantity.add(quantity, quantityScale);
+            totalCost.add(cost, quantityScale + priceScale);
+            addClosed(closed);
+            remark(remark);
+            count++;
+        } finally {
+            lock.endWrite();
+        }
+        updated();
+    }
+
+    /**
+     * Add a batch's pre-summed positions in one update (micro-batching)
+     * The batch's fills are still matched against the open lots one by one, in order, from a
+     * checkpoint of the lots rolled back if one does not fit (O(lots matched), not O(open lots))
+     *
+     * @throws ArithmeticException if a fill does not fit the lot book (nothing is added then)
+     */
+    public void addAll(PositionTotals totals) {
+        long closed = 0;
+        long remark;
+        lots.checkpoint();
+        try {
+            for (int i = 0; i < totals.getCount(); i++) {
+                closed = Math.addExact(closed, lots.fill(totals.getFillQuantity(i), totals.getFillPrice(i)));
+            }
+            remark = marked ? remarkDelta(lots.unrealizedPnl(markPrice)) : 0;
+        } catch (RuntimeException e) {
+            lots.rollback();
+            throw e;
+        }
+        lots.release();
+        lock.beginWrite();
+        try {
+            netQuantity.addAll(totals.quantitySum());
+            totalCost.addAll(totals.costSum());
+            unrealizedPnl.addAll(totals.unrealizedPnlSum());
+            realizedPnl.addAll(totals.realizedPnlSum());
+            addClosed(closed);
+            remark(remark);
+            count += totals.getCount();
+        } finally {
+            lock.endWrite();
+        }
+        updated();
+    }
+
+    private void updated() {
+        flat = lots.getOpenLots() == 0;
         lastUpdated = System.currentTimeMillis();
     }
 
+    /**
+     * Realize the PnL of closed lots, taking their cost out of the open cost basis
+     * (the closing fill added quantity times exit price; the closed lots' cost differs by their PnL)
+     */
+    private void addClosed(long closed) {
+        if (closed != 0) {
+            realizedPnl.add(closed, LotBook.SCALE);
+            totalCost.add(closed, LotBook.SCALE);
+        }
+    }
+
+    /**
+     * Value the open lots at a mark price, updating the unrealized PnL
+     * Must be called on the account's lane
+     *
+     * @param price Mark price units at LotBook.SCALE
+     * @throws ArithmeticException if the lots' value does not fit in a long (the mark is not applied then)
+     */
+    public void markToMarket(long price) {
+        long remark = remarkDelta(lots.unrealizedPnl(price));
+        markPrice = price;
+        marked = true;
+        lock.beginWrite();
+        try {
+            remark(remark);
+        } finally {
+            lock.endWrite();
+        }
+    }
+
+    /**
+     * Change of the unrealized PnL when the lots' value at the mark price becomes pnl
+     *
+     * @throws ArithmeticException if the change does not fit in a long
+     */
+    private long remarkDelta(long pnl) {
+        return Math.subtractExact(pnl, markedPnl);
+    }
+
+    /**
+     * Move the unrealized PnL by a change from remarkDelta
+     */
+    private void remark(long delta) {
+        if (delta != 0) {
+            unrealizedPnl.add(delta, LotBook.SCALE);
+            markedPnl += delta;
+        }
+    }
+
+    /**
+     * Flag the aggregate as evicted from its aggregator (it stops being marked to market)
+     */
+    void markEvicted() {
+        evicted = true;
+    }
+
+    public boolean isEvicted() {
+        return evicted;
+    }
+
+    /**
+     * Whether the position has no open lots (thread-safe, as of its last update)
+     */
+    public boolean isFlat() {
+        return flat;
+    }
+
     public String getAccountId() {
         return accountId;
     }
@@ -55,11 +235,7 @@ public class AggregatedPosition {
     }
 
     public BigDecimal getAveragePrice() {
-        BigDecimal qty = netQuantity.get();
-        if (qty.compareTo(BigDecimal.ZERO) == 0) {
-            return BigDecimal.ZERO;
-        }
-        return totalCost.get().divide(qty, 2, RoundingMode.HALF_UP);
+        return snapshot().getAveragePrice();
     }
 
     public BigDecimal getUnrealizedPnl() {
@@ -71,11 +247,26 @@ public class AggregatedPosition {
     }
 
     public BigDecimal getTotalPnl() {
-        return unrealizedPnl.get().add(realizedPnl.get());
+        return snapshot().getTotalPnl();
     }
 
     public int getCount() {
-        return count.get();
+        return count;
+    }
+
+    /**
+     * Totals and count as of one point between fills and marks (waits out those in flight)
+     */
+    public Snapshot snapshot() {
+        return lock.read(() -> new Snapshot(netQuantity.get(), totalCost.get(), unrealizedPnl.get(),
+                realizedPnl.get(), count));
+    }
+
+    /**
+     * Open lots of the position (read on the account's lane only)
+     */
+    public LotBook getLots() {
+        return lots;
     }
 
     public long getLastUpdated() {
@@ -95,17 +286,67 @@ public class AggregatedPosition {
 
     @Override
     public String toString() {
+        Snapshot snapshot = snapshot();
         return "AggregatedPosition{" +
                 "accountId='" + accountId + '\'' +
                 ", symbol='" + symbol + '\'' +
-                ", netQuantity=" + netQuantity.get() +
-                ", averagePrice=" + getAveragePrice() +
-                ", unrealizedPnl=" + unrealizedPnl.get() +
-                ", realizedPnl=" + realizedPnl.get() +
+                ", netQuantity=" + snapshot.getNetQuantity() +
+                ", averagePrice=" + snapshot.getAveragePrice() +
+                ", unrealizedPnl=" + snapshot.getUnrealizedPnl() +
+                ", realizedPnl=" + snapshot.getRealizedPnl() +
                 ", side=" + getSide() +
-                ", count=" + count.get() +
+                ", count=" + snapshot.getCount() +
                 ", lastUpdated=" + lastUpdated +
                 '}';
     }
-}
 
+    /**
+     * Consistent view of the totals
+     */
+    public static final class Snapshot {
+        private final BigDecimal netQuantity;
+        private final BigDecimal totalCost;
+        private final BigDecimal unrealizedPnl;
+        private final BigDecimal realizedPnl;
+        private final int count;
+
+        Snapshot(BigDecimal netQuantity, BigDecimal totalCost, BigDecimal unrealizedPnl,
+                 BigDecimal realizedPnl, int count) {
+            this.netQuantity = netQuantity;
+            this.totalCost = totalCost;
+            this.unrealizedPnl = unrealizedPnl;
+            this.realizedPnl = realizedPnl;
+            this.count = count;
+        }
+
+        public BigDecimal getNetQuantity() {
+            return netQuantity;
+        }
+
+        /**
+         * Cost basis per open unit (zero when flat)
+         */
+        public BigDecimal getAveragePrice() {
+            if (netQuantity.compareTo(BigDecimal.ZERO) == 0) {
+                return BigDecimal.ZERO;
+            }
+            return totalCost.divide(netQuantity, 2, RoundingMode.HALF_UP);
+        }
+
+        public BigDecimal getUnrealizedPnl() {
+            return unrealizedPnl;
+        }
+
+        public BigDecimal getRealizedPnl() {
+            return realizedPnl;
+        }
+
+        public BigDecimal getTotalPnl() {
+            return unrealizedPnl.add(realizedPnl);
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
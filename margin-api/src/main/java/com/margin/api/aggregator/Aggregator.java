@@ -2,7 +2,9 @@ package com.margin.api.aggregator;
 
 import io.vertx.core.Future;
 
+import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * Aggregator interface for push-based real-time aggregation
@@ -18,6 +20,25 @@ public interface Aggregator<T, R> {
      */
     Future<R> add(T item);
     
+    /**
+     * Add/aggregate an item on the calling thread
+     * Must only be called on the lane owning the item's account (e.g. from a SyncProcessor)
+     * 
+     * @param item The item to aggregate
+     * @return The aggregated result
+     */
+    R addSync(T item);
+    
+    /**
+     * Add/aggregate a batch of items (micro-batching)
+     * Items are grouped by account/symbol key and each key's aggregate is updated once,
+     * with the batch's pre-summed deltas, on the lane owning the account
+     * 
+     * @param items The items to aggregate
+     * @return Future completed once every item has been aggregated
+     */
+    Future<Void> addAll(List<T> items);
+    
     /**
      * Get aggregated data by key
      * 
@@ -33,6 +54,14 @@ public interface Aggregator<T, R> {
      */
     Map<String, R> getAll();
     
+    /**
+     * Evict the aggregated state of accounts (e.g. accounts of a partition now owned elsewhere)
+     * 
+     * @param accountFilter Selects the accounts to evict
+     * @return Number of evicted entries
+     */
+    int evictAccounts(Predicate<String> accountFilter);
+    
     /**
      * Get the aggregator type identifier
      * 
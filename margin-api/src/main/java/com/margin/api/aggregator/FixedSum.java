@@ -0,0 +1,124 @@
+package com.margin.api.aggregator;
+
+import com.margin.api.model.FixedPoint;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Running total of decimal amounts in fixed point (long units at a fixed internal scale)
+ * Adding fixed-point values is allocation-free. Values that do not fit (more decimals than
+ * the internal scale, or a total beyond the long range) are summed in a BigDecimal remainder
+ * instead, so the total is always exact.
+ *
+ * Single writer: every total has one writing thread (an aggregate's is the lane owning its
+ * account, a batch's totals the lane task building them), so an add is a plain read and a
+ * volatile write, with no CAS and no striping. Readers on any thread see every completed add,
+ * but get() is not atomic with other totals: see SequenceLock.
+ *
+ * get() returns the same BigDecimal (value and scale) as summing the added values with
+ * BigDecimal.add starting from BigDecimal.ZERO.
+ */
+public class FixedSum {
+
+    private final int scale;
+    private volatile long units;
+    private volatile BigDecimal remainder = BigDecimal.ZERO;
+    // Largest scale added: the scale BigDecimal addition would have produced
+    private volatile int resultScale;
+
+    /**
+     * @param scale Internal scale of the total
+     */
+    public FixedSum(int scale) {
+        if (scale < 0 || scale > FixedPoint.MAX_SCALE) {
+            throw new IllegalArgumentException("Invalid fixed-point scale: " + scale);
+        }
+        this.scale = scale;
+    }
+
+    /**
+     * Add a fixed-point value (units at valueScale)
+     */
+    public void add(long value, int valueScale) {
+        // Scale first: a reader that sees the value also sees its scale
+        recordScale(valueScale);
+        if (!addUnits(value, valueScale)) {
+            addRemainder(FixedPoint.toBigDecimal(value, valueScale));
+        }
+    }
+
+    /**
+     * Add a BigDecimal value (API boundary)
+     */
+    public void add(BigDecimal value) {
+        if (FixedPoint.isRepresentable(value)) {
+            add(FixedPoint.unscaled(value), value.scale());
+        } else {
+            recordScale(value.scale());
+            addRemainder(value);
+        }
+    }
+
+    /**
+     * Add another total (read as of now if another thread writes it)
+     */
+    public void addAll(FixedSum other) {
+        recordScale(other.resultScale);
+        long otherUnits = other.units;
+        if (!addUnits(otherUnits, other.scale)) {
+            addRemainder(BigDecimal.valueOf(otherUnits, other.scale));
+        }
+        BigDecimal otherRemainder = other.remainder;
+        if (otherRemainder.signum() != 0) {
+            addRemainder(otherRemainder);
+        }
+    }
+
+    /**
+     * The exact total
+     */
+    public BigDecimal get() {
+        BigDecimal total = BigDecimal.valueOf(units, scale);
+        BigDecimal extra = remainder;
+        if (extra.signum() != 0) {
+            total = total.add(extra);
+        }
+        // Exact: every added value had at most resultScale decimals
+        return total.setScale(resultScale, RoundingMode.UNNECESSARY);
+    }
+
+    /**
+     * Add units at valueScale to the fixed-point total
+     *
+     * @return false if they do not fit (the caller adds them to the remainder)
+     */
+    private boolean addUnits(long value, int valueScale) {
+        if (valueScale > scale) {
+            return false;
+        }
+        long scaled;
+        try {
+            scaled = FixedPoint.rescale(value, valueScale, scale);
+        } catch (ArithmeticException overflow) {
+            return false;
+        }
+        long current = units;
+        long next = current + scaled;
+        if (((current ^ next) & (scaled ^ next)) < 0) {
+            return false;
+        }
+        units = next;
+        return true;
+    }
+
+    private void addRemainder(BigDecimal value) {
+        remainder = remainder.add(value);
+    }
+
+    private void recordScale(int valueScale) {
+        if (valueScale > resultScale) {
+            resultScale = valueScale;
+        }
+    }
+}
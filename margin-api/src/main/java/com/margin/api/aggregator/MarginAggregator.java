@@ -1,81 +1,139 @@
 package com.margin.api.aggregator;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.lane.ExecutionLanes;
 import com.margin.api.model.Margin;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
-import io.vertx.core.Vertx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 /**
- * Push-based margin aggregator with bounded Caffeine cache
- * Aggregates margin data in real-time as it's pushed from processors
+ * Push-based margin aggregator with bounded, lane-sharded state (AggregateShards)
+ * Aggregates margin data in real-time as it's pushed from processors, on the lane owning the
+ * account: each lane is the only writer of its accounts' aggregates, so an update is a plain
+ * lookup plus the aggregate's own add (no cache write, no thread hop when already on the lane)
  */
 @Singleton
 public class MarginAggregator implements Aggregator<Margin, AggregatedMargin> {
     
     private static final Logger logger = LoggerFactory.getLogger(MarginAggregator.class);
-    private static final int MAX_CACHE_SIZE = 10_000;
+    public static final int MAX_CACHE_SIZE = 10_000;
     private static final int TTL_HOURS = 24;
+    private static final String STAGE = "aggregator:MARGIN";
     
-    private final Vertx vertx;
-    private final Cache<String, AggregatedMargin> cache;
+    private final ExecutionLanes lanes;
+    private final BackpressureController backpressure;
+    private final AggregateShards<AggregatedMargin> shards;
 
     @Inject
-    public MarginAggregator(Vertx vertx) {
-        this.vertx = vertx;
-        this.cache = Caffeine.newBuilder()
-                .maximumSize(MAX_CACHE_SIZE)
-                .expireAfterWrite(TTL_HOURS, TimeUnit.HOURS)
-                .recordStats()
-                .build();
-        logger.info("MarginAggregator initialized with Caffeine cache (max={}, TTL={}h)", 
-                MAX_CACHE_SIZE, TTL_HOURS);
+    public MarginAggregator(ExecutionLanes lanes, BackpressureController backpressure) {
+        this.lanes = lanes;
+        this.backpressure = backpressure;
+        this.shards = new AggregateShards<>(lanes, MAX_CACHE_SIZE, TimeUnit.HOURS.toMillis(TTL_HOURS),
+                AggregatedMargin::new, AggregatedMargin::getLastUpdated, margin -> true, margin -> { });
+        logger.info("MarginAggregator initialized with {} lane shards (max={}, TTL={}h)",
+                lanes.size(), MAX_CACHE_SIZE, TTL_HOURS);
     }
 
     @Override
     public Future<AggregatedMargin> add(Margin margin) {
-        return vertx.executeBlocking(promise -> {
+        return backpressure.track(STAGE, () -> lanes.executeOnLane(margin.getAccountId(), promise -> {
             try {
-                String key = generateKey(margin.getAccountId(), margin.getSymbol());
-                
-                // Get or create aggregated margin
-                AggregatedMargin aggregated = cache.get(key, k -> 
-                    new AggregatedMargin(margin.getAccountId(), margin.getSymbol())
-                );
-                
-                // Add margin to aggregated state
-                aggregated.addMargin(margin);
-                
-                // Update cache
-                cache.put(key, aggregated);
-                
-                logger.debug("Added margin to aggregation for key {}: total={}, count={}", 
-                        key, aggregated.getTotalMarginRequirement(), aggregated.getCount());
-                
-                promise.complete(aggregated);
+                promise.complete(addSync(margin));
             } catch (Exception e) {
                 logger.error("Error adding margin to aggregation", e);
                 promise.fail(e);
             }
-        });
+        }));
+    }
+
+    @Override
+    public AggregatedMargin addSync(Margin margin) {
+        String key = generateKey(margin.getAccountId(), margin.getSymbol());
+        
+        // Get or create aggregated margin, then update it in place
+        AggregatedMargin aggregated = shards.getOrCreate(key, margin.getAccountId(), margin.getSymbol());
+        aggregated.addMargin(margin);
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Added margin to aggregation for key {}: total={}, count={}",
+                    key, aggregated.getTotalMarginRequirement(), aggregated.getCount());
+        }
+        
+        return aggregated;
+    }
+
+    @Override
+    public Future<Void> addAll(List<Margin> margins) {
+        List<List<Margin>> byLane = lanes.groupByLane(margins, Margin::getAccountId);
+        List<Future> futures = new ArrayList<>();
+        for (int lane = 0; lane < byLane.size(); lane++) {
+            List<Margin> group = byLane.get(lane);
+            if (group == null) {
+                continue;
+            }
+            int index = lane;
+            futures.add(backpressure.track(STAGE, group.size(), () -> lanes.executeBlocking(index, promise -> {
+                try {
+                    addAllSync(MarginTotals.byKey(group).values());
+                    promise.complete();
+                } catch (Exception e) {
+                    logger.error("Error adding margin batch to aggregation", e);
+                    promise.fail(e);
+                }
+            })));
+        }
+        return CompositeFuture.all(futures).mapEmpty();
+    }
+
+    /**
+     * Apply pre-summed deltas, one update per account/symbol key
+     * Must only be called on the lane owning the accounts (e.g. from a processor's batch task)
+     */
+    public void addAllSync(Collection<MarginTotals> totals) {
+        for (MarginTotals keyTotals : totals) {
+            getOrCreate(keyTotals.getKey(), keyTotals.getAccountId(), keyTotals.getSymbol()).addAll(keyTotals);
+        }
+    }
+
+    /**
+     * Get or create the aggregated state of a key (a lookup in the lane's shard once it exists)
+     * Used by fused processing (AccountSymbolSlots); must be called on the account's lane
+     */
+    public AggregatedMargin getOrCreate(String key, String accountId, String symbol) {
+        return shards.getOrCreate(key, accountId, symbol);
+    }
+
+    /**
+     * Get aggregated data by key, looked up in the shard of the key's account only
+     */
+    AggregatedMargin get(String key, String accountId) {
+        return shards.get(key, accountId);
     }
 
     @Override
     public AggregatedMargin get(String key) {
-        return cache.getIfPresent(key);
+        return shards.get(key);
     }
 
     @Override
     public Map<String, AggregatedMargin> getAll() {
-        return new HashMap<>(cache.asMap());
+        return shards.getAll();
+    }
+
+    @Override
+    public int evictAccounts(Predicate<String> accountFilter) {
+        return shards.evict(margin -> accountFilter.test(margin.getAccountId()));
     }
 
     @Override
@@ -85,13 +143,7 @@ public class MarginAggregator implements Aggregator<Margin, AggregatedMargin> {
 
     @Override
     public CacheStats getStats() {
-        com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
-        return new CacheStats(
-                cache.estimatedSize(),
-                stats.hitCount(),
-                stats.missCount(),
-                stats.hitRate()
-        );
+        return shards.getStats();
     }
 
     private String generateKey(String accountId, String symbol) {
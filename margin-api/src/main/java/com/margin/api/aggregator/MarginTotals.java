@@ -0,0 +1,103 @@
+package com.margin.api.aggregator;
+
+import com.margin.api.model.Margin;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-summed margin deltas of one account and symbol within a batch
+ * Applied to AggregatedMargin in a single update, however many margins it sums
+ * Not thread-safe: built and applied by one thread (the batch's lane task)
+ */
+public class MarginTotals {
+
+    private final String key;
+    private final String accountId;
+    private final String symbol;
+    private final FixedSum initialMargin = new FixedSum(AggregatedMargin.MARGIN_SCALE);
+    private final FixedSum maintenanceMargin = new FixedSum(AggregatedMargin.MARGIN_SCALE);
+    private final FixedSum marginRequirement = new FixedSum(AggregatedMargin.MARGIN_SCALE);
+    private int count;
+
+    public MarginTotals(String key, String accountId, String symbol) {
+        this.key = key;
+        this.accountId = accountId;
+        this.symbol = symbol;
+    }
+
+    /**
+     * Sum margins per account/symbol key, in first-seen order
+     */
+    public static Map<String, MarginTotals> byKey(List<Margin> margins) {
+        Map<String, MarginTotals> totals = new LinkedHashMap<>();
+        for (Margin margin : margins) {
+            String key = margin.getAccountId() + ":" + margin.getSymbol();
+            totals.computeIfAbsent(key, k -> new MarginTotals(k, margin.getAccountId(), margin.getSymbol()))
+                    .add(margin.getInitialMargin(), margin.getMaintenanceMargin(), margin.getMarginRequirement());
+        }
+        return totals;
+    }
+
+    /**
+     * Add one margin's amounts
+     */
+    public void add(BigDecimal initial, BigDecimal maintenance, BigDecimal requirement) {
+        initialMargin.add(initial);
+        maintenanceMargin.add(maintenance);
+        marginRequirement.add(requirement);
+        count++;
+    }
+
+    /**
+     * Add one margin's fixed-point amounts, all at the given scale
+     */
+    public void add(long initial, long maintenance, long requirement, int scale) {
+        initialMargin.add(initial, scale);
+        maintenanceMargin.add(maintenance, scale);
+        marginRequirement.add(requirement, scale);
+        count++;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public BigDecimal getInitialMargin() {
+        return initialMargin.get();
+    }
+
+    public BigDecimal getMaintenanceMargin() {
+        return maintenanceMargin.get();
+    }
+
+    public BigDecimal getMarginRequirement() {
+        return marginRequirement.get();
+    }
+
+    FixedSum initialMarginSum() {
+        return initialMargin;
+    }
+
+    FixedSum maintenanceMarginSum() {
+        return maintenanceMargin;
+    }
+
+    FixedSum marginRequirementSum() {
+        return marginRequirement;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
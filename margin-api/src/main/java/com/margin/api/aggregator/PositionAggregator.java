@@ -1,81 +1,164 @@
 package com.margin.api.aggregator;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.lane.ExecutionLanes;
 import com.margin.api.model.Position;
+import com.margin.api.position.LotMatching;
+import com.margin.api.position.MarkToMarketEngine;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
-import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 /**
- * Push-based position aggregator with bounded Caffeine cache
- * Aggregates position data in real-time as it's pushed from processors
+ * Push-based position aggregator with bounded, lane-sharded state (AggregateShards)
+ * Aggregates position data in real-time as it's pushed from processors, on the lane owning the
+ * account: each lane is the only writer of its accounts' aggregates, so an update is a plain
+ * lookup plus the aggregate's own add (no cache write, no thread hop when already on the lane)
+ * Each aggregate keeps its open lots, matched per position.lot.matching (fifo, lifo or average)
+ * New aggregates are tracked by the MarkToMarketEngine, evicted ones are flagged so it drops them
+ * Only flat positions (no open lots) expire or are dropped from a full shard: open lots and
+ * their PnL cannot be rebuilt from later fills
  */
 @Singleton
 public class PositionAggregator implements Aggregator<Position, AggregatedPosition> {
     
     private static final Logger logger = LoggerFactory.getLogger(PositionAggregator.class);
-    private static final int MAX_CACHE_SIZE = 10_000;
+    public static final int MAX_CACHE_SIZE = 10_000;
     private static final int TTL_HOURS = 24;
+    private static final String STAGE = "aggregator:POSITION";
     
-    private final Vertx vertx;
-    private final Cache<String, AggregatedPosition> cache;
+    private final ExecutionLanes lanes;
+    private final BackpressureController backpressure;
+    private final LotMatching matching;
+    private final MarkToMarketEngine markToMarket;
+    private final AggregateShards<AggregatedPosition> shards;
 
     @Inject
-    public PositionAggregator(Vertx vertx) {
-        this.vertx = vertx;
-        this.cache = Caffeine.newBuilder()
-                .maximumSize(MAX_CACHE_SIZE)
-                .expireAfterWrite(TTL_HOURS, TimeUnit.HOURS)
-                .recordStats()
-                .build();
-        logger.info("PositionAggregator initialized with Caffeine cache (max={}, TTL={}h)", 
-                MAX_CACHE_SIZE, TTL_HOURS);
+    public PositionAggregator(
+            ExecutionLanes lanes,
+            BackpressureController backpressure,
+            MarkToMarketEngine markToMarket,
+            JsonObject config) {
+        this.lanes = lanes;
+        this.backpressure = backpressure;
+        this.markToMarket = markToMarket;
+        this.matching = LotMatching.of(config);
+        this.shards = new AggregateShards<>(lanes, MAX_CACHE_SIZE, TimeUnit.HOURS.toMillis(TTL_HOURS),
+                this::create, AggregatedPosition::getLastUpdated, AggregatedPosition::isFlat,
+                AggregatedPosition::markEvicted);
+        logger.info("PositionAggregator initialized with {} lane shards (max={}, TTL={}h, lots={})",
+                lanes.size(), MAX_CACHE_SIZE, TTL_HOURS, matching);
     }
 
     @Override
     public Future<AggregatedPosition> add(Position position) {
-        return vertx.executeBlocking(promise -> {
+        return backpressure.track(STAGE, () -> lanes.executeOnLane(position.getAccountId(), promise -> {
             try {
-                String key = generateKey(position.getAccountId(), position.getSymbol());
-                
-                // Get or create aggregated position
-                AggregatedPosition aggregated = cache.get(key, k -> 
-                    new AggregatedPosition(position.getAccountId(), position.getSymbol())
-                );
-                
-                // Add position to aggregated state
-                aggregated.addPosition(position);
-                
-                // Update cache
-                cache.put(key, aggregated);
-                
-                logger.debug("Added position to aggregation for key {}: quantity={}, avgPrice={}", 
-                        key, aggregated.getNetQuantity(), aggregated.getAveragePrice());
-                
-                promise.complete(aggregated);
+                promise.complete(addSync(position));
             } catch (Exception e) {
                 logger.error("Error adding position to aggregation", e);
                 promise.fail(e);
             }
-        });
+        }));
+    }
+
+    @Override
+    public AggregatedPosition addSync(Position position) {
+        String key = generateKey(position.getAccountId(), position.getSymbol());
+        
+        // Get or create aggregated position, then update it in place
+        AggregatedPosition aggregated = shards.getOrCreate(key, position.getAccountId(), position.getSymbol());
+        aggregated.addPosition(position);
+        
+        if (logger.isDebugEnabled()) {
+            logger.debug("Added position to aggregation for key {}: quantity={}, avgPrice={}",
+                    key, aggregated.getNetQuantity(), aggregated.getAveragePrice());
+        }
+        
+        return aggregated;
+    }
+
+    @Override
+    public Future<Void> addAll(List<Position> positions) {
+        List<List<Position>> byLane = lanes.groupByLane(positions, Position::getAccountId);
+        List<Future> futures = new ArrayList<>();
+        for (int lane = 0; lane < byLane.size(); lane++) {
+            List<Position> group = byLane.get(lane);
+            if (group == null) {
+                continue;
+            }
+            int index = lane;
+            futures.add(backpressure.track(STAGE, group.size(), () -> lanes.executeBlocking(index, promise -> {
+                try {
+                    addAllSync(PositionTotals.byKey(group).values());
+                    promise.complete();
+                } catch (Exception e) {
+                    logger.error("Error adding position batch to aggregation", e);
+                    promise.fail(e);
+                }
+            })));
+        }
+        return CompositeFuture.all(futures).mapEmpty();
+    }
+
+    /**
+     * Apply pre-summed deltas, one update per account/symbol key
+     * Must only be called on the lane owning the accounts (e.g. from a processor's batch task)
+     */
+    public void addAllSync(Collection<PositionTotals> totals) {
+        for (PositionTotals keyTotals : totals) {
+            getOrCreate(keyTotals.getKey(), keyTotals.getAccountId(), keyTotals.getSymbol()).addAll(keyTotals);
+        }
+    }
+
+    /**
+     * Get or create the aggregated state of a key (a lookup in the lane's shard once it exists)
+     * Used by fused processing (AccountSymbolSlots); must be called on the account's lane
+     */
+    public AggregatedPosition getOrCreate(String key, String accountId, String symbol) {
+        return shards.getOrCreate(key, accountId, symbol);
+    }
+
+    /**
+     * Create an aggregate and start marking it to market (on the account's lane)
+     */
+    private AggregatedPosition create(String accountId, String symbol) {
+        AggregatedPosition position = new AggregatedPosition(accountId, symbol, matching);
+        markToMarket.track(position);
+        return position;
+    }
+
+    /**
+     * Get aggregated data by key, looked up in the shard of the key's account only
+     */
+    AggregatedPosition get(String key, String accountId) {
+        return shards.get(key, accountId);
     }
 
     @Override
     public AggregatedPosition get(String key) {
-        return cache.getIfPresent(key);
+        return shards.get(key);
     }
 
     @Override
     public Map<String, AggregatedPosition> getAll() {
-        return new HashMap<>(cache.asMap());
+        return shards.getAll();
+    }
+
+    @Override
+    public int evictAccounts(Predicate<String> accountFilter) {
+        return shards.evict(position -> accountFilter.test(position.getAccountId()));
     }
 
     @Override
@@ -85,13 +168,7 @@ public class PositionAggregator implements Aggregator<Position, AggregatedPositi
 
     @Override
     public CacheStats getStats() {
-        com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
-        return new CacheStats(
-                cache.estimatedSize(),
-                stats.hitCount(),
-                stats.missCount(),
-                stats.hitRate()
-        );
+        return shards.getStats();
     }
 
     private String generateKey(String accountId, String symbol) {
@@ -0,0 +1,149 @@
+package com.margin.api.aggregator;
+
+import com.margin.api.model.Position;
+import com.margin.api.position.LotBook;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-summed position deltas of one account and symbol within a batch
+ * Applied to AggregatedPosition in a single update, however many positions it sums
+ * The fills themselves are kept too (quantity and price units at LotBook.SCALE, in order),
+ * for AggregatedPosition to match them against its open lots
+ * Not thread-safe: built and applied by one thread (the batch's lane task)
+ */
+public class PositionTotals {
+
+    private final String key;
+    private final String accountId;
+    private final String symbol;
+    private final FixedSum quantity = new FixedSum(AggregatedPosition.AMOUNT_SCALE);
+    private final FixedSum cost = new FixedSum(AggregatedPosition.AMOUNT_SCALE);
+    private final FixedSum unrealizedPnl = new FixedSum(AggregatedPosition.AMOUNT_SCALE);
+    private final FixedSum realizedPnl = new FixedSum(AggregatedPosition.AMOUNT_SCALE);
+    private long[] fillQuantities = new long[8];
+    private long[] fillPrices = new long[8];
+    private int count;
+
+    public PositionTotals(String key, String accountId, String symbol) {
+        this.key = key;
+        this.accountId = accountId;
+        this.symbol = symbol;
+    }
+
+    /**
+     * Sum positions per account/symbol key, in first-seen order
+     */
+    public static Map<String, PositionTotals> byKey(List<Position> positions) {
+        Map<String, PositionTotals> totals = new LinkedHashMap<>();
+        for (Position position : positions) {
+            String key = position.getAccountId() + ":" + position.getSymbol();
+            totals.computeIfAbsent(key, k -> new PositionTotals(k, position.getAccountId(), position.getSymbol()))
+                    .add(position.getQuantity(), position.getAveragePrice(),
+                            position.getUnrealizedPnl(), position.getRealizedPnl());
+        }
+        return totals;
+    }
+
+    /**
+     * Add one position's amounts (cost is quantity times average price)
+     *
+     * @throws ArithmeticException if the fill does not fit the lot book (nothing is added then)
+     */
+    public void add(BigDecimal quantity, BigDecimal averagePrice, BigDecimal unrealized, BigDecimal realized) {
+        addFill(LotBook.units(quantity), LotBook.units(averagePrice));
+        this.quantity.add(quantity);
+        this.cost.add(quantity.multiply(averagePrice));
+        this.unrealizedPnl.add(unrealized);
+        this.realizedPnl.add(realized);
+        count++;
+    }
+
+    /**
+     * Add one fill in fixed point: signed quantity and price, no PnL
+     *
+     * @throws ArithmeticException if the fill does not fit in a long (nothing is added then)
+     */
+    public void add(long quantity, int quantityScale, long price, int priceScale) {
+        long cost = Math.multiplyExact(quantity, price);
+        addFill(LotBook.units(quantity, quantityScale), LotBook.units(price, priceScale));
+        this.quantity.add(quantity, quantityScale);
+        this.cost.add(cost, quantityScale + priceScale);
+        count++;
+    }
+
+    private void addFill(long quantity, long price) {
+        if (count == fillQuantities.length) {
+            fillQuantities = Arrays.copyOf(fillQuantities, count * 2);
+            fillPrices = Arrays.copyOf(fillPrices, count * 2);
+        }
+        fillQuantities[count] = quantity;
+        fillPrices[count] = price;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public BigDecimal getQuantity() {
+        return quantity.get();
+    }
+
+    public BigDecimal getCost() {
+        return cost.get();
+    }
+
+    public BigDecimal getUnrealizedPnl() {
+        return unrealizedPnl.get();
+    }
+
+    public BigDecimal getRealizedPnl() {
+        return realizedPnl.get();
+    }
+
+    FixedSum quantitySum() {
+        return quantity;
+    }
+
+    FixedSum costSum() {
+        return cost;
+    }
+
+    FixedSum unrealizedPnlSum() {
+        return unrealizedPnl;
+    }
+
+    FixedSum realizedPnlSum() {
+        return realizedPnl;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Signed quantity units of the i-th fill at LotBook.SCALE
+     */
+    public long getFillQuantity(int i) {
+        return fillQuantities[i];
+    }
+
+    /**
+     * Price units of the i-th fill at LotBook.SCALE
+     */
+    public long getFillPrice(int i) {
+        return fillPrices[i];
+    }
+}
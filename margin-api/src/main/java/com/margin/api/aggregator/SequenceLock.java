@@ -0,0 +1,60 @@
+package com.margin.api.aggregator;
+
+import java.util.function.Supplier;
+
+/**
+ * Sequence lock: a consistent read of several totals updated together, without making the
+ * writer wait for readers
+ * The sequence is odd while a write is in progress and moves on by two with each write. The
+ * writer bumps it on entry and on exit (two volatile writes, never a CAS or a wait); readers
+ * read optimistically and retry until no write overlapped their read.
+ *
+ * Single writer, like the totals it guards (FixedSum). Writes are expected to be short and
+ * non-blocking: readers spin while one is in flight.
+ */
+public final class SequenceLock {
+
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private volatile long sequence;
+
+    /**
+     * Enter a write (every beginWrite must be paired with an endWrite, in a finally block)
+     */
+    public void beginWrite() {
+        sequence = sequence + 1;
+    }
+
+    /**
+     * Leave a write: the sequence is even again, one write further
+     */
+    public void endWrite() {
+        sequence = sequence + 1;
+    }
+
+    /**
+     * Read a consistent view: the reader runs again until no write overlapped it
+     * The reader must only read (it can run several times) and read fields written under this lock
+     */
+    public <T> T read(Supplier<T> reader) {
+        while (true) {
+            long stamp = awaitNoWriter();
+            T view = reader.get();
+            if (sequence == stamp) {
+                return view;
+            }
+        }
+    }
+
+    private long awaitNoWriter() {
+        long stamp;
+        for (int spins = 0; ((stamp = sequence) & 1) != 0; spins++) {
+            if (spins < SPINS_BEFORE_YIELD) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        return stamp;
+    }
+}
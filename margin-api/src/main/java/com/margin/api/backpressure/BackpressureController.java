@@ -0,0 +1,261 @@
+package com.margin.api.backpressure;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Credit-based backpressure across pipeline stages
+ * Tracks in-flight work per stage (registry, each processor, each aggregator).
+ * When any stage reaches its high watermark, listeners are told to pause ingestion;
+ * once every stage has drained to its low watermark, they are told to resume.
+ * Components can also hold ingestion paused directly (setPressure), e.g. a bulkhead whose
+ * queue is full; ingestion only resumes once every such source has cleared its pressure.
+ *
+ * Transitions happen on whichever thread crosses a watermark, so listeners are not called
+ * with the transition itself: each is scheduled on its own context, reads the current state
+ * there and is only called when it differs from what it was last told. Notifications that
+ * race or arrive out of order therefore always leave a listener in the current state.
+ */
+@Singleton
+public class BackpressureController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackpressureController.class);
+
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+    private final Set<String> pressureSources = ConcurrentHashMap.newKeySet();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean pressured = new AtomicBoolean(false);
+    private final AtomicLong pauseCount = new AtomicLong();
+    private volatile long lastPausedAt;
+    private volatile long lastResumedAt;
+
+    @Inject
+    public BackpressureController(JsonObject config) {
+        this.highWatermark = config.getInteger("backpressure.high.watermark", 10_000);
+        this.lowWatermark = config.getInteger("backpressure.low.watermark", 5_000);
+        if (lowWatermark >= highWatermark) {
+            throw new IllegalArgumentException("backpressure.low.watermark must be below backpressure.high.watermark");
+        }
+        logger.info("BackpressureController initialized (high={}, low={})", highWatermark, lowWatermark);
+    }
+
+    /**
+     * Track asynchronous work against a stage: one credit is held until the future completes
+     *
+     * @param stage The stage name (e.g. "registry", "processor:MARGIN")
+     * @param work Supplier starting the work
+     * @return The work's future
+     */
+    public <T> Future<T> track(String stage, Supplier<Future<T>> work) {
+        return track(stage, 1, work);
+    }
+
+    /**
+     * Track asynchronous work standing for several units (e.g. a batch of executions):
+     * the credits are held until the future completes
+     *
+     * @param stage The stage name
+     * @param credits Number of in-flight units the work stands for
+     * @param work Supplier starting the work
+     * @return The work's future
+     */
+    public <T> Future<T> track(String stage, int credits, Supplier<Future<T>> work) {
+        Stage s = stage(stage);
+        acquire(s, credits);
+        Future<T> future;
+        try {
+            future = work.get();
+        } catch (RuntimeException e) {
+            release(s, credits);
+            throw e;
+        }
+        return future.onComplete(ar -> release(s, credits));
+    }
+
+    /**
+     * Assert or clear pressure from a source other than stage credits
+     * While any source holds pressure, ingestion stays paused
+     *
+     * @param source The source name (e.g. "bulkhead-MARGIN")
+     * @param pressure true to pause ingestion, false to release this source's hold
+     */
+    public void setPressure(String source, boolean pressure) {
+        if (pressure) {
+            if (pressureSources.add(source)) {
+                logger.warn("Backpressure: {} is pressured, pausing ingestion", source);
+                pause();
+            }
+        } else if (pressureSources.remove(source)) {
+            logger.info("Backpressure: {} released its pressure", source);
+            tryResume();
+        }
+    }
+
+    /**
+     * Register a listener called with true when ingestion should pause and false when it may resume
+     * The listener is always called on the given context (e.g. the consumer's event loop), once
+     * per change of state, and right away if ingestion is already paused
+     */
+    public void onStateChange(Context context, Handler<Boolean> listener) {
+        Listener registered = new Listener(context, listener);
+        listeners.add(registered);
+        registered.schedule();
+    }
+
+    /**
+     * Unregister a listener: it is not called anymore, even for a notification already scheduled
+     */
+    public void removeStateChangeListener(Handler<Boolean> listener) {
+        for (Listener registered : listeners) {
+            if (registered.handler == listener) {
+                registered.removed = true;
+                listeners.remove(registered);
+            }
+        }
+    }
+
+    public boolean isPressured() {
+        return pressured.get();
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    /**
+     * Get in-flight count of a stage
+     */
+    public int getInFlight(String stage) {
+        Stage s = stages.get(stage);
+        return s == null ? 0 : s.inFlight.get();
+    }
+
+    /**
+     * Current state for monitoring
+     */
+    public JsonObject toJson() {
+        JsonObject stageJson = new JsonObject();
+        stages.forEach((name, s) -> stageJson.put(name, new JsonObject()
+                .put("inFlight", s.inFlight.get())
+                .put("peak", s.peak)));
+        return new JsonObject()
+                .put("paused", pressured.get())
+                .put("highWatermark", highWatermark)
+                .put("lowWatermark", lowWatermark)
+                .put("pauseCount", pauseCount.get())
+                .put("lastPausedAt", lastPausedAt)
+                .put("lastResumedAt", lastResumedAt)
+                .put("pressureSources", new JsonArray(List.copyOf(pressureSources)))
+                .put("stages", stageJson);
+    }
+
+    private Stage stage(String name) {
+        Stage s = stages.get(name);
+        return s != null ? s : stages.computeIfAbsent(name, n -> new Stage());
+    }
+
+    private void acquire(Stage s, int credits) {
+        int inFlight = s.inFlight.addAndGet(credits);
+        if (inFlight > s.peak) {
+            s.peak = inFlight;
+        }
+        if (inFlight >= highWatermark && !pressured.get()) {
+            logger.warn("Backpressure: stage reached high watermark ({}), pausing ingestion", highWatermark);
+            pause();
+        }
+    }
+
+    private void release(Stage s, int credits) {
+        int inFlight = s.inFlight.addAndGet(-credits);
+        if (inFlight <= lowWatermark && pressured.get()) {
+            tryResume();
+        }
+    }
+
+    private void pause() {
+        if (pressured.compareAndSet(false, true)) {
+            pauseCount.incrementAndGet();
+            lastPausedAt = System.currentTimeMillis();
+            notifyListeners();
+        }
+    }
+
+    private void tryResume() {
+        if (pressureSources.isEmpty() && allDrained() && pressured.compareAndSet(true, false)) {
+            lastResumedAt = System.currentTimeMillis();
+            logger.info("Backpressure: all stages below low watermark ({}), resuming ingestion", lowWatermark);
+            notifyListeners();
+        }
+    }
+
+    private boolean allDrained() {
+        for (Stage s : stages.values()) {
+            if (s.inFlight.get() > lowWatermark) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : listeners) {
+            listener.schedule();
+        }
+    }
+
+    /**
+     * A listener and the state it was last told (only read and written on its context)
+     */
+    private final class Listener {
+        final Context context;
+        final Handler<Boolean> handler;
+        volatile boolean removed;
+        boolean paused;
+
+        Listener(Context context, Handler<Boolean> handler) {
+            this.context = context;
+            this.handler = handler;
+        }
+
+        void schedule() {
+            context.runOnContext(v -> deliver());
+        }
+
+        private void deliver() {
+            boolean pause = pressured.get();
+            if (removed || pause == paused) {
+                return;
+            }
+            paused = pause;
+            try {
+                handler.handle(pause);
+            } catch (Exception e) {
+                logger.error("Backpressure listener failed", e);
+            }
+        }
+    }
+
+    private static class Stage {
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile int peak;
+    }
+}
@@ -0,0 +1,328 @@
+package com.margin.api.bulkhead;
+
+import com.margin.api.backpressure.BackpressureController;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Isolated execution compartment of one processor
+ * Calls are started on the bulkhead's own WorkerExecutor of poolSize threads, and up to
+ * maxQueue further calls wait in the bulkhead's queue for a free slot. A call holds its slot
+ * until its future completes, including asynchronous work it hands off elsewhere, so at most
+ * poolSize calls are in flight. A slow processor therefore fills its own pool and queue
+ * instead of the pools other stages run on.
+ *
+ * Overflow (queue full):
+ * - reject: the new call fails with RejectedExecutionException
+ * - shed: the oldest queued call is dropped for the new one and fails with
+ *   RejectedExecutionException (with no queue, the new call is); newer work wins over stale
+ * - pause: the call is queued anyway; ingestion is paused through the BackpressureController
+ *   once the queue is full, until it has drained to half of maxQueue
+ *
+ * Calls not completed within timeoutMs of submission fail with TimeoutException; calls
+ * that time out while queued are not started, and calls that time out while running give
+ * their slot back (their work may still complete in the background).
+ */
+public class Bulkhead {
+
+    private static final Logger logger = LoggerFactory.getLogger(Bulkhead.class);
+    private static final String EXECUTOR_NAME_PREFIX = "bulkhead-";
+
+    /**
+     * Behavior when a call arrives at a full queue
+     */
+    public enum OverflowPolicy {
+        REJECT,
+        SHED,
+        PAUSE;
+
+        public static OverflowPolicy of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown bulkhead overflow policy: " + name
+                        + " (expected reject, shed or pause)");
+            }
+        }
+    }
+
+    private final String name;
+    private final Vertx vertx;
+    private final BackpressureController backpressure;
+    private final WorkerExecutor executor;
+    private final int poolSize;
+    private final int maxQueue;
+    private final long timeoutMs;
+    private final OverflowPolicy overflow;
+
+    // Guarded by this
+    private final ArrayDeque<Call<?>> queue = new ArrayDeque<>();
+    private int active;
+    private int peakQueued;
+    private boolean pausing;
+    private long submitted;
+    private long completed;
+    private long failed;
+    private long timedOut;
+    private long rejected;
+    private long shed;
+    private long started;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    public Bulkhead(String name, Vertx vertx, BackpressureController backpressure,
+                    int poolSize, int maxQueue, long timeoutMs, OverflowPolicy overflow) {
+        if (poolSize < 1 || maxQueue < 0 || timeoutMs < 1) {
+            throw new IllegalArgumentException("Invalid bulkhead " + name + ": poolSize=" + poolSize
+                    + ", maxQueue=" + maxQueue + ", timeoutMs=" + timeoutMs);
+        }
+        this.name = name;
+        this.vertx = vertx;
+        this.backpressure = backpressure;
+        this.poolSize = poolSize;
+        this.maxQueue = maxQueue;
+        this.timeoutMs = timeoutMs;
+        this.overflow = overflow;
+        this.executor = vertx.createSharedWorkerExecutor(EXECUTOR_NAME_PREFIX + name, poolSize,
+                timeoutMs, TimeUnit.MILLISECONDS);
+        logger.info("Bulkhead {} initialized (poolSize={}, maxQueue={}, timeout={}ms, overflow={})",
+                name, poolSize, maxQueue, timeoutMs, overflow);
+    }
+
+    /**
+     * Run a call in the bulkhead
+     *
+     * @param work Starts the call on a bulkhead thread; its future must complete when the call is done
+     * @return The call's future, failed on rejection, shedding or timeout
+     */
+    public <T> Future<T> execute(Supplier<Future<T>> work) {
+        Call<T> call = new Call<>(work);
+        boolean start;
+        Call<?> dropped = null;
+        synchronized (this) {
+            submitted++;
+            start = active < poolSize;
+            if (start) {
+                active++;
+                call.holdsSlot = true;
+            } else if (queue.size() < maxQueue || overflow == OverflowPolicy.PAUSE) {
+                queue.add(call);
+                peakQueued = Math.max(peakQueued, queue.size());
+                if (queue.size() >= maxQueue && !pausing) {
+                    pausing = true;
+                    backpressure.setPressure(pressureSource(), true);
+                }
+            } else if (overflow == OverflowPolicy.SHED) {
+                shed++;
+                dropped = queue.poll();
+                if (dropped == null) {
+                    return Future.failedFuture(shedError());
+                }
+                queue.add(call);
+            } else {
+                rejected++;
+                return Future.failedFuture(new RejectedExecutionException("Bulkhead " + name + " is full ("
+                        + poolSize + " active, " + maxQueue + " queued)"));
+            }
+        }
+        if (dropped != null) {
+            // Its timer finds it done and does nothing
+            dropped.reject(shedError());
+        }
+        call.timerId = vertx.setTimer(timeoutMs, id -> call.timeout());
+        if (start) {
+            call.start();
+        }
+        return call.promise.future();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized int getActive() {
+        return active;
+    }
+
+    /**
+     * Current state for monitoring
+     */
+    public synchronized JsonObject toJson() {
+        return new JsonObject()
+                .put("poolSize", poolSize)
+                .put("maxQueue", maxQueue)
+                .put("timeoutMs", timeoutMs)
+                .put("overflow", overflow.name().toLowerCase(Locale.ROOT))
+                .put("active", active)
+                .put("queueDepth", queue.size())
+                .put("peakQueueDepth", peakQueued)
+                .put("pausing", pausing)
+                .put("submitted", submitted)
+                .put("completed", completed)
+                .put("failed", failed)
+                .put("timedOut", timedOut)
+                .put("rejected", rejected)
+                .put("shed", shed)
+                .put("waitTimeMeanMs", started == 0 ? 0.0 : totalWaitNanos / 1e6 / started)
+                .put("waitTimeMaxMs", maxWaitNanos / 1e6);
+    }
+
+    /**
+     * Close the bulkhead's executor
+     */
+    public void close() {
+        executor.close();
+    }
+
+    private String pressureSource() {
+        return EXECUTOR_NAME_PREFIX + name;
+    }
+
+    private RejectedExecutionException shedError() {
+        return new RejectedExecutionException("Bulkhead " + name + " shed a call (" + poolSize + " active, "
+                + maxQueue + " queued)");
+    }
+
+    /**
+     * Free the thread of a call and start the next queued one that has not timed out
+     */
+    private void release() {
+        Call<?> next = null;
+        synchronized (this) {
+            while (!queue.isEmpty()) {
+                Call<?> queued = queue.poll();
+                if (!queued.done.get()) {
+                    next = queued;
+                    next.holdsSlot = true;
+                    break;
+                }
+            }
+            if (next == null) {
+                active--;
+            }
+            if (pausing && queue.size() <= maxQueue / 2) {
+                pausing = false;
+                backpressure.setPressure(pressureSource(), false);
+            }
+        }
+        if (next != null) {
+            next.start();
+        }
+    }
+
+    private synchronized void recordStart(long waitNanos) {
+        started++;
+        totalWaitNanos += waitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+    }
+
+    /**
+     * One submitted call
+     */
+    private class Call<T> {
+        final Supplier<Future<T>> work;
+        final Promise<T> promise = Promise.promise();
+        final AtomicBoolean done = new AtomicBoolean();
+        // Set (under the bulkhead's lock) once the call is given a slot
+        volatile boolean holdsSlot;
+        final AtomicBoolean released = new AtomicBoolean();
+        final long submittedAt = System.nanoTime();
+        long timerId;
+
+        Call(Supplier<Future<T>> work) {
+            this.work = work;
+        }
+
+        void start() {
+            executor.<Future<T>>executeBlocking(running -> {
+                recordStart(System.nanoTime() - submittedAt);
+                // Not started if it timed out between dequeue and start
+                running.complete(done.get() ? null : work.get());
+            }, false).onComplete(ar -> {
+                if (ar.failed()) {
+                    releaseSlot();
+                    finish(Future.failedFuture(ar.cause()));
+                } else if (ar.result() != null) {
+                    // The slot is held until the call's work has completed
+                    ar.result().onComplete(result -> {
+                        releaseSlot();
+                        finish(result);
+                    });
+                } else {
+                    releaseSlot();
+                }
+            });
+        }
+
+        /**
+         * Give the call's slot back, once (on completion or on timeout, whichever comes first)
+         */
+        void releaseSlot() {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        }
+
+        /**
+         * Fail a queued call dropped by the shed policy (it never takes a slot)
+         */
+        void reject(RejectedExecutionException error) {
+            if (done.compareAndSet(false, true)) {
+                promise.fail(error);
+            }
+        }
+
+        void finish(AsyncResult<T> result) {
+            vertx.cancelTimer(timerId);
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (Bulkhead.this) {
+                if (result.succeeded()) {
+                    completed++;
+                } else {
+                    failed++;
+                }
+            }
+            promise.handle(result);
+        }
+
+        void timeout() {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            boolean queued;
+            synchronized (Bulkhead.this) {
+                timedOut++;
+                // A queued call never started: drop it so it does not hold queue space
+                queued = queue.remove(this);
+                if (queued && pausing && queue.size() <= maxQueue / 2) {
+                    pausing = false;
+                    backpressure.setPressure(pressureSource(), false);
+                }
+            }
+            if (!queued && holdsSlot) {
+                releaseSlot();
+            }
+            promise.fail(new TimeoutException("Bulkhead " + name + " call timed out after " + timeoutMs + "ms"));
+        }
+    }
+}
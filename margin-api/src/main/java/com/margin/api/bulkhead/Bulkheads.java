@@ -0,0 +1,99 @@
+package com.margin.api.bulkhead;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.margin.api.backpressure.BackpressureController;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bulkheads of the registered asynchronous processors, one per processor type
+ * (SyncProcessors run on the execution lanes or pipeline stages, never in a bulkhead)
+ * Settings come from bulkhead.* and can be overridden per processor type with
+ * bulkhead.<TYPE>.* (e.g. bulkhead.STRESS.pool.size):
+ * - pool.size: threads of the bulkhead's worker executor, and calls in flight at once
+ * - max.queue: calls waiting for a slot before the overflow policy applies
+ * - timeout.ms: time from submission after which a call fails
+ * - overflow: reject, shed or pause
+ * bulkhead.enabled=false runs processors without bulkheads (forProcessor returns null).
+ */
+@Singleton
+public class Bulkheads {
+
+    private static final Logger logger = LoggerFactory.getLogger(Bulkheads.class);
+    private static final String PREFIX = "bulkhead.";
+
+    private final Vertx vertx;
+    private final BackpressureController backpressure;
+    private final JsonObject config;
+    private final boolean enabled;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    @Inject
+    public Bulkheads(Vertx vertx, BackpressureController backpressure, JsonObject config) {
+        this.vertx = vertx;
+        this.backpressure = backpressure;
+        this.config = config;
+        this.enabled = config.getBoolean("bulkhead.enabled", true);
+        logger.info("Bulkheads initialized (enabled={})", enabled);
+    }
+
+    /**
+     * Get (or create) the bulkhead of a processor type
+     * Create bulkheads outside verticles (e.g. on registration), so their executors are not
+     * closed with a verticle
+     *
+     * @param processorType The processor type
+     * @return The bulkhead, or null if bulkheads are disabled
+     */
+    public Bulkhead forProcessor(String processorType) {
+        if (!enabled) {
+            return null;
+        }
+        return bulkheads.computeIfAbsent(processorType, this::create);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Current state of every bulkhead for monitoring
+     */
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        bulkheads.forEach((type, bulkhead) -> json.put(type, bulkhead.toJson()));
+        return new JsonObject()
+                .put("enabled", enabled)
+                .put("bulkheads", json);
+    }
+
+    /**
+     * Close every bulkhead's executor
+     */
+    public void close() {
+        bulkheads.values().forEach(Bulkhead::close);
+    }
+
+    private Bulkhead create(String processorType) {
+        return new Bulkhead(processorType, vertx, backpressure,
+                setting(processorType, "pool.size", 4).intValue(),
+                setting(processorType, "max.queue", 10_000).intValue(),
+                setting(processorType, "timeout.ms", 30_000L).longValue(),
+                Bulkhead.OverflowPolicy.of(stringSetting(processorType, "overflow", "pause")));
+    }
+
+    private Number setting(String processorType, String key, Number defaultValue) {
+        Object value = config.getValue(PREFIX + processorType + "." + key, config.getValue(PREFIX + key));
+        return value instanceof Number ? (Number) value : defaultValue;
+    }
+
+    private String stringSetting(String processorType, String key, String defaultValue) {
+        return config.getString(PREFIX + processorType + "." + key, config.getString(PREFIX + key, defaultValue));
+    }
+}
@@ -0,0 +1,387 @@
+package com.margin.api.dedup;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Idempotent ingestion filter on TradeExecutionWrapper.messageId
+ *
+ * The dedup window (dedup.window.ms) is split into dedup.buckets time buckets. Each bucket
+ * holds a Bloom filter for the fast negative path and an off-heap open-addressing table of
+ * 128-bit message fingerprints that confirms Bloom hits. The oldest bucket is recycled when
+ * the window slides or when the current bucket reaches its capacity, so memory is fixed at
+ * startup regardless of traffic.
+ *
+ * A new id is claimed by isDuplicate, so a concurrent copy of an in-flight message is dropped,
+ * and must be released if its processing fails: only ids processed successfully stay remembered
+ * and a redelivery after a failure goes through. (Releasing removes the fingerprint from the
+ * exact table; its Bloom bits stay, which only costs a later false positive.)
+ *
+ * Fingerprints are spread over dedup.stripes independent stripes (each with its share of
+ * dedup.bucket.capacity and its own lock), so ingestion instances rarely contend.
+ */
+@Singleton
+public class MessageDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageDeduplicator.class);
+    private static final int MAX_STRIPES = 64;
+
+    private final boolean enabled;
+    private final long bucketMs;
+    private final int bucketCount;
+    private final int bucketCapacity;
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    @Inject
+    public MessageDeduplicator(JsonObject config) {
+        this.enabled = config.getBoolean("dedup.enabled", true);
+        long windowMs = config.getLong("dedup.window.ms", 300_000L);
+        this.bucketCount = config.getInteger("dedup.buckets", 5);
+        this.bucketCapacity = config.getInteger("dedup.bucket.capacity", 65_536);
+        int stripeCount = config.getInteger("dedup.stripes", 16);
+        double fpp = config.getDouble("dedup.bloom.fpp", 0.01);
+        if (bucketCount < 1 || bucketCapacity < 1 || windowMs < bucketCount || fpp <= 0 || fpp >= 1
+                || stripeCount < 1 || stripeCount > MAX_STRIPES || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Invalid dedup configuration: window=" + windowMs
+                    + "ms, buckets=" + bucketCount + ", capacity=" + bucketCapacity + ", fpp=" + fpp
+                    + ", stripes=" + stripeCount + " (a power of two up to " + MAX_STRIPES + ")");
+        }
+        this.bucketMs = windowMs / bucketCount;
+        this.stripes = new Stripe[enabled ? stripeCount : 0];
+        int stripeCapacity = (bucketCapacity + stripeCount - 1) / stripeCount;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(bucketCount, stripeCapacity, fpp, now);
+        }
+        // Top bits of h1 pick the stripe (the Bloom word and the table slot use lower bits)
+        this.stripeShift = Long.SIZE - Integer.numberOfTrailingZeros(stripeCount);
+        logger.info("MessageDeduplicator initialized (enabled={}, window={}ms, buckets={}, capacity={}/bucket, "
+                + "stripes={}, memory={} bytes)", enabled, windowMs, bucketCount, bucketCapacity, stripes.length,
+                memoryBytes());
+    }
+
+    /**
+     * Check a message id and claim it if it is new
+     * A claimed id counts as seen until released: release it if its processing fails
+     *
+     * @param messageId The message id (null ids are never duplicates)
+     * @return true if the id was already seen (or claimed) within the dedup window
+     */
+    public boolean isDuplicate(String messageId) {
+        if (!enabled || messageId == null) {
+            return false;
+        }
+        long h1 = hash1(messageId);
+        long h2 = hash2(messageId, h1);
+        return stripe(h1).claim(h1, h2, bucketMs);
+    }
+
+    /**
+     * Forget a claimed id whose processing failed, so its redelivery is processed
+     */
+    public void release(String messageId) {
+        if (!enabled || messageId == null) {
+            return;
+        }
+        long h1 = hash1(messageId);
+        long h2 = hash2(messageId, h1);
+        stripe(h1).release(h1, h2);
+    }
+
+    /**
+     * Current metrics for monitoring
+     */
+    public JsonObject toJson() {
+        long checks = 0;
+        long duplicates = 0;
+        long released = 0;
+        long bloomFalsePositives = 0;
+        long rotations = 0;
+        long capacityRotations = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                checks += stripe.checks;
+                duplicates += stripe.duplicates;
+                released += stripe.released;
+                bloomFalsePositives += stripe.bloomFalsePositives;
+                rotations += stripe.rotations;
+                capacityRotations += stripe.capacityRotations;
+            }
+        }
+        long misses = checks - duplicates;
+        return new JsonObject()
+                .put("enabled", enabled)
+                .put("checks", checks)
+                .put("hits", duplicates)
+                .put("misses", misses)
+                .put("released", released)
+                .put("hitRate", checks == 0 ? 0.0 : (double) duplicates / checks)
+                .put("bloomFalsePositives", bloomFalsePositives)
+                .put("bloomFalsePositiveRate", misses == 0 ? 0.0 : (double) bloomFalsePositives / misses)
+                .put("rotations", rotations)
+                .put("capacityRotations", capacityRotations)
+                .put("windowMs", bucketMs * bucketCount)
+                .put("buckets", bucketCount)
+                .put("bucketCapacity", bucketCapacity)
+                .put("stripes", stripes.length)
+                .put("memoryBytes", memoryBytes());
+    }
+
+    public long getDuplicates() {
+        long duplicates = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                duplicates += stripe.duplicates;
+            }
+        }
+        return duplicates;
+    }
+
+    private Stripe stripe(long h1) {
+        return stripes[stripes.length == 1 ? 0 : (int) (h1 >>> stripeShift)];
+    }
+
+    private long memoryBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            bytes += stripe.memoryBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Two independent 64-bit hashes (the second mixed with the first)
+     */
+    private static long hash1(String messageId) {
+        long h = 0x9E3779B97F4A7C15L ^ messageId.length();
+        for (int i = 0; i < messageId.length(); i++) {
+            h = (h ^ messageId.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    private static long hash2(String messageId, long h1) {
+        long h = 0xC2B2AE3D27D4EB4FL;
+        for (int i = 0; i < messageId.length(); i++) {
+            h = (h + messageId.charAt(i)) * 0xFF51AFD7ED558CCDL;
+        }
+        h = mix(h ^ h1);
+        return h1 == 0 && h == 0 ? 1 : h; // (0, 0) marks an empty slot
+    }
+
+    /**
+     * One stripe: its time buckets, the current one and its counters, guarded by its monitor
+     */
+    private static final class Stripe {
+        private final Bucket[] buckets;
+        private final int bucketCapacity;
+        private int current;
+        private long currentStartMs;
+
+        private long checks;
+        private long duplicates;
+        private long released;
+        private long bloomFalsePositives;
+        private long rotations;
+        private long capacityRotations;
+
+        Stripe(int bucketCount, int bucketCapacity, double fpp, long now) {
+            this.buckets = new Bucket[bucketCount];
+            for (int i = 0; i < bucketCount; i++) {
+                buckets[i] = new Bucket(bucketCapacity, fpp);
+            }
+            this.bucketCapacity = bucketCapacity;
+            this.currentStartMs = now;
+        }
+
+        synchronized boolean claim(long h1, long h2, long bucketMs) {
+            checks++;
+            long now = System.currentTimeMillis();
+            if (now - currentStartMs >= bucketMs) {
+                slide(now, bucketMs);
+            }
+            for (int i = 0; i < buckets.length; i++) {
+                Bucket bucket = buckets[(current - i + buckets.length) % buckets.length];
+                if (bucket.mightContain(h1, h2)) {
+                    if (bucket.contains(h1, h2)) {
+                        duplicates++;
+                        return true;
+                    }
+                    bloomFalsePositives++;
+                }
+            }
+            if (buckets[current].size >= bucketCapacity) {
+                capacityRotations++;
+                rotate(now);
+            }
+            buckets[current].add(h1, h2);
+            return false;
+        }
+
+        synchronized void release(long h1, long h2) {
+            for (Bucket bucket : buckets) {
+                if (bucket.remove(h1, h2)) {
+                    released++;
+                    return;
+                }
+            }
+        }
+
+        private void slide(long now, long bucketMs) {
+            long elapsed = now - currentStartMs;
+            // Idle for a whole window: every bucket has expired
+            int steps = (int) Math.min(elapsed / bucketMs, buckets.length);
+            for (int i = 0; i < steps; i++) {
+                rotate(now);
+            }
+            currentStartMs = now - elapsed % bucketMs;
+        }
+
+        private void rotate(long now) {
+            current = (current + 1) % buckets.length;
+            buckets[current].clear();
+            currentStartMs = now;
+            rotations++;
+        }
+
+        long memoryBytes() {
+            long bytes = 0;
+            for (Bucket bucket : buckets) {
+                bytes += bucket.memoryBytes();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * murmur3 64-bit finalizer
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * One time bucket: blocked Bloom filter (all probe bits of a key in one 64-bit word, so a
+     * check costs a single memory access) plus exact fingerprint table (off-heap, linear probing)
+     */
+    private static class Bucket {
+        private static final int MAX_HASHES = 10; // 6-bit slices of h2
+
+        private final long[] bloom;
+        private final int bloomMask;
+        private final int hashCount;
+        private final LongBuffer table;
+        private final int tableMask;
+        private int size;
+
+        Bucket(int capacity, double fpp) {
+            long neededBits = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            // Rounded up to a power of two, which also offsets the accuracy lost to blocking
+            int bloomBits = Math.max(64, Integer.highestOneBit((int) Math.min(neededBits, 1L << 29) * 2 - 1));
+            this.bloom = new long[bloomBits >>> 6];
+            this.bloomMask = bloom.length - 1;
+            this.hashCount = Math.min(MAX_HASHES,
+                    Math.max(1, (int) Math.round((double) bloomBits / capacity * Math.log(2))));
+            int slots = Integer.highestOneBit(capacity * 2 - 1) * 2; // load factor <= 0.5
+            this.table = ByteBuffer.allocateDirect(slots * 16).order(ByteOrder.nativeOrder()).asLongBuffer();
+            this.tableMask = slots - 1;
+        }
+
+        boolean mightContain(long h1, long h2) {
+            long pattern = pattern(h2);
+            return (bloom[(int) (h1 >>> 32) & bloomMask] & pattern) == pattern;
+        }
+
+        boolean contains(long h1, long h2) {
+            for (int slot = (int) h1 & tableMask; ; slot = (slot + 1) & tableMask) {
+                long a = table.get(slot * 2);
+                long b = table.get(slot * 2 + 1);
+                if (a == h1 && b == h2) {
+                    return true;
+                }
+                if (a == 0 && b == 0) {
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Remove a fingerprint, shifting back the entries probed past its slot (no tombstones)
+         */
+        boolean remove(long h1, long h2) {
+            int hole = (int) h1 & tableMask;
+            while (table.get(hole * 2) != h1 || table.get(hole * 2 + 1) != h2) {
+                if (table.get(hole * 2) == 0 && table.get(hole * 2 + 1) == 0) {
+                    return false;
+                }
+                hole = (hole + 1) & tableMask;
+            }
+            for (int slot = (hole + 1) & tableMask; ; slot = (slot + 1) & tableMask) {
+                long a = table.get(slot * 2);
+                long b = table.get(slot * 2 + 1);
+                if (a == 0 && b == 0) {
+                    break;
+                }
+                int home = (int) a & tableMask;
+                // The entry may fill the hole if the hole lies on its probe path (home .. slot)
+                if (((slot - home) & tableMask) >= ((slot - hole) & tableMask)) {
+                    table.put(hole * 2, a);
+                    table.put(hole * 2 + 1, b);
+                    hole = slot;
+                }
+            }
+            table.put(hole * 2, 0L);
+            table.put(hole * 2 + 1, 0L);
+            size--;
+            return true;
+        }
+
+        void add(long h1, long h2) {
+            bloom[(int) (h1 >>> 32) & bloomMask] |= pattern(h2);
+            int slot = (int) h1 & tableMask;
+            while (table.get(slot * 2) != 0 || table.get(slot * 2 + 1) != 0) {
+                slot = (slot + 1) & tableMask;
+            }
+            table.put(slot * 2, h1);
+            table.put(slot * 2 + 1, h2);
+            size++;
+        }
+
+        private long pattern(long h2) {
+            long pattern = 0;
+            for (int i = 0; i < hashCount; i++) {
+                pattern |= 1L << (h2 >>> (6 * i));
+            }
+            return pattern;
+        }
+
+        void clear() {
+            if (size == 0) {
+                return;
+            }
+            Arrays.fill(bloom, 0L);
+            for (int i = 0; i < table.capacity(); i++) {
+                table.put(i, 0L);
+            }
+            size = 0;
+        }
+
+        long memoryBytes() {
+            return bloom.length * 8L + table.capacity() * 8L;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.margin.api.journal;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+import io.vertx.kafka.client.common.TopicPartition;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * RocksDB write-ahead journal of raw Kafka records for crash recovery
+ * Records are keyed topic:partition:offset (offset zero-padded so keys sort numerically)
+ *
+ * Appends are buffered into a WriteBatch and group-committed by a single writer thread,
+ * either when the batch reaches journal.batch.size, on flush() or every journal.flush.interval.ms.
+ * The future returned by append completes once its batch is written: callers dispatch the record
+ * only then, so every dispatched record is in the WAL and survives a process crash. The WAL is
+ * fsynced at most every journal.fsync.interval.ms (0 fsyncs every group commit), which bounds
+ * what a machine crash can lose.
+ *
+ * Disabled by default; enabling it requires journal.path. Records are truncated once their
+ * offsets are committed, so what is left at startup is replayed (KafkaDataLoader.replayJournal).
+ */
+@Singleton
+public class ExecutionJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionJournal.class);
+    private static final int OFFSET_DIGITS = 20;
+
+    private final Vertx vertx;
+    private final boolean enabled;
+    private final String path;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long fsyncIntervalMs;
+
+    // Held (read) by every task using the database, (write) by close to release it
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+
+    private volatile RocksDB db;
+    private Options options;
+    private WriteOptions writeOptions;
+    private WriteOptions syncWriteOptions;
+    private WorkerExecutor writer;
+    private WriteBatch pending;
+    private Promise<Void> pendingWritten;
+    private long flushTimerId = -1;
+    private volatile long lastSyncMs;
+    private volatile boolean unsynced;
+
+    @Inject
+    public ExecutionJournal(Vertx vertx, JsonObject config) {
+        this.vertx = vertx;
+        this.enabled = config.getBoolean("journal.enabled", false);
+        this.path = config.getString("journal.path");
+        if (enabled && (path == null || path.isBlank())) {
+            throw new IllegalArgumentException("journal.path is required when journal.enabled is true");
+        }
+        this.batchSize = config.getInteger("journal.batch.size", 500);
+        this.flushIntervalMs = config.getLong("journal.flush.interval.ms", 10L);
+        this.fsyncIntervalMs = config.getLong("journal.fsync.interval.ms", 100L);
+        logger.info("ExecutionJournal initialized (enabled={}, path={}, batchSize={}, fsyncInterval={}ms)",
+                enabled, path, batchSize, fsyncIntervalMs);
+    }
+
+    /**
+     * Open the RocksDB journal and start the group-commit timer
+     * Call it outside of any verticle: the writer and the timer are shared by every ingestion
+     * instance and would otherwise be closed when the verticle that opened them is undeployed
+     */
+    public synchronized void open() throws RocksDBException {
+        if (!enabled || db != null) {
+            return;
+        }
+        RocksDB.loadLibrary();
+        File directory = new File(path).getAbsoluteFile();
+        directory.mkdirs();
+        options = new Options().setCreateIfMissing(true);
+        RocksDB opened = RocksDB.open(options, directory.getPath());
+        writeOptions = new WriteOptions().setSync(false);
+        syncWriteOptions = new WriteOptions().setSync(true);
+        writer = vertx.createSharedWorkerExecutor("journal-writer", 1);
+        pending = new WriteBatch();
+        pendingWritten = Promise.promise();
+        lastSyncMs = System.currentTimeMillis();
+        db = opened;
+        flushTimerId = vertx.setPeriodic(flushIntervalMs, id -> flush());
+        logger.info("ExecutionJournal opened at {}", directory);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Buffer a raw record for the next group commit
+     *
+     * @return Future completed once the record is written (immediately if the journal is not open),
+     *         failed if it could not be
+     */
+    public Future<Void> append(String topic, int partition, long offset, byte[] value) {
+        boolean full;
+        Future<Void> written;
+        synchronized (this) {
+            if (db == null) {
+                return Future.succeededFuture();
+            }
+            try {
+                pending.put(key(topic, partition, offset), value);
+            } catch (RocksDBException e) {
+                logger.error("Failed to journal record {}:{}:{}", topic, partition, offset, e);
+                return Future.failedFuture(e);
+            }
+            written = pendingWritten.future();
+            full = pending.count() >= batchSize;
+        }
+        if (full) {
+            flush();
+        }
+        return written;
+    }
+
+    /**
+     * Write the buffered records as one batch on the journal writer thread
+     */
+    public Future<Void> flush() {
+        WriteBatch batch;
+        Promise<Void> written;
+        synchronized (this) {
+            if (db == null) {
+                return Future.succeededFuture();
+            }
+            if (pending.count() == 0) {
+                batch = null;
+                written = null;
+            } else {
+                batch = pending;
+                written = pendingWritten;
+                pending = new WriteBatch();
+                pendingWritten = Promise.promise();
+            }
+        }
+        if (batch == null && !unsynced) {
+            return Future.succeededFuture();
+        }
+        Future<Void> flushed = writer.executeBlocking(promise -> {
+            lifecycle.readLock().lock();
+            try {
+                if (db == null) {
+                    promise.fail(new IllegalStateException("ExecutionJournal is closed"));
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                boolean sync = now - lastSyncMs >= fsyncIntervalMs;
+                if (batch != null) {
+                    db.write(sync ? syncWriteOptions : writeOptions, batch);
+                } else if (sync) {
+                    db.syncWal();
+                }
+                if (sync) {
+                    lastSyncMs = now;
+                    unsynced = false;
+                } else {
+                    unsynced = true;
+                }
+                promise.complete();
+            } catch (RocksDBException e) {
+                logger.error("Failed to write journal batch", e);
+                promise.fail(e);
+            } finally {
+                lifecycle.readLock().unlock();
+                if (batch != null) {
+                    batch.close();
+                }
+            }
+        }, false);
+        if (written != null) {
+            flushed.onComplete(written);
+        }
+        return flushed;
+    }
+
+    /**
+     * Partitions with journaled records: the records not committed before the last stop or crash
+     */
+    public Future<Set<TopicPartition>> partitions() {
+        if (db == null) {
+            return Future.succeededFuture(Set.of());
+        }
+        return vertx.executeBlocking(promise -> {
+            Set<TopicPartition> partitions = new HashSet<>();
+            lifecycle.readLock().lock();
+            try {
+                if (db != null) {
+                    try (RocksIterator iterator = db.newIterator()) {
+                        // Keys of a partition are contiguous: read its first key, then seek past its last
+                        for (iterator.seekToFirst(); iterator.isValid(); ) {
+                            TopicPartition partition = partitionOf(iterator.key());
+                            partitions.add(partition);
+                            iterator.seek(prefixAfter(partition.getTopic(), partition.getPartition()));
+                        }
+                    }
+                }
+            } finally {
+                lifecycle.readLock().unlock();
+            }
+            promise.complete(partitions);
+        }, false);
+    }
+
+    /**
+     * Read journaled records of a partition starting at the given offset
+     *
+     * @param fromOffset First offset to read (inclusive)
+     * @param maxRecords Maximum number of records to return
+     * @return Future with the records in offset order, empty when the end is reached
+     */
+    public Future<List<Entry>> read(String topic, int partition, long fromOffset, int maxRecords) {
+        if (db == null) {
+            return Future.succeededFuture(List.of());
+        }
+        byte[] prefix = prefix(topic, partition);
+        return vertx.executeBlocking(promise -> {
+            List<Entry> entries = new ArrayList<>(maxRecords);
+            lifecycle.readLock().lock();
+            try {
+                if (db != null) {
+                    try (RocksIterator iterator = db.newIterator()) {
+                        for (iterator.seek(key(topic, partition, fromOffset));
+                             iterator.isValid() && entries.size() < maxRecords;
+                             iterator.next()) {
+                            byte[] key = iterator.key();
+                            if (!startsWith(key, prefix)) {
+                                break;
+                            }
+                            long offset = Long.parseLong(new String(key, prefix.length, key.length - prefix.length,
+                                    StandardCharsets.US_ASCII));
+                            entries.add(new Entry(offset, iterator.value()));
+                        }
+                    }
+                }
+            } finally {
+                lifecycle.readLock().unlock();
+            }
+            promise.complete(entries);
+        }, false);
+    }
+
+    /**
+     * Drop journaled records of a partition below the given (committed) offset
+     */
+    public Future<Void> truncate(String topic, int partition, long beforeOffset) {
+        if (db == null) {
+            return Future.succeededFuture();
+        }
+        return writer.executeBlocking(promise -> {
+            lifecycle.readLock().lock();
+            try {
+                if (db != null) {
+                    db.deleteRange(key(topic, partition, 0), key(topic, partition, beforeOffset));
+                }
+                promise.complete();
+            } catch (RocksDBException e) {
+                logger.error("Failed to truncate journal {}:{} before {}", topic, partition, beforeOffset, e);
+                promise.fail(e);
+            } finally {
+                lifecycle.readLock().unlock();
+            }
+        }, false);
+    }
+
+    /**
+     * Flush outstanding records, fsync and close the journal
+     * Tasks already submitted (reads, truncations) finish first; later ones find it closed
+     */
+    public Future<Void> close() {
+        if (db == null) {
+            return Future.succeededFuture();
+        }
+        vertx.cancelTimer(flushTimerId);
+        lastSyncMs = 0; // force the final flush to fsync
+        unsynced = true;
+        return flush().eventually(v -> writer.executeBlocking(promise -> {
+            lifecycle.writeLock().lock();
+            try {
+                synchronized (this) {
+                    // Appended after the final flush: never written
+                    pendingWritten.tryFail(new IllegalStateException("ExecutionJournal is closed"));
+                    pending.close();
+                    writeOptions.close();
+                    syncWriteOptions.close();
+                    db.close();
+                    options.close();
+                    db = null;
+                }
+            } finally {
+                lifecycle.writeLock().unlock();
+            }
+            logger.info("ExecutionJournal closed");
+            promise.complete();
+        }, false));
+    }
+
+    private static TopicPartition partitionOf(byte[] key) {
+        String name = new String(key, StandardCharsets.UTF_8);
+        int offsetAt = name.lastIndexOf(':');
+        int partitionAt = name.lastIndexOf(':', offsetAt - 1);
+        return new TopicPartition(name.substring(0, partitionAt),
+                Integer.parseInt(name.substring(partitionAt + 1, offsetAt)));
+    }
+
+    /**
+     * First key sorting after every key of a partition (its prefix with the trailing ':' bumped)
+     */
+    private static byte[] prefixAfter(String topic, int partition) {
+        byte[] prefix = prefix(topic, partition);
+        prefix[prefix.length - 1]++;
+        return prefix;
+    }
+
+    private static byte[] prefix(String topic, int partition) {
+        return (topic + ":" + partition + ":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] key(String topic, int partition, long offset) {
+        byte[] prefix = prefix(topic, partition);
+        byte[] key = Arrays.copyOf(prefix, prefix.length + OFFSET_DIGITS);
+        for (int i = key.length - 1; i >= prefix.length; i--) {
+            key[i] = (byte) ('0' + offset % 10);
+            offset /= 10;
+        }
+        return key;
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    /**
+     * Journaled record
+     */
+    public static class Entry {
+        private final long offset;
+        private final byte[] value;
+
+        public Entry(long offset, byte[] value) {
+            this.offset = offset;
+            this.value = value;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.margin.api.lane;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.time.Instant;
+
+/**
+ * Cached wall clock for the processing hot path
+ * A Vert.x timer refreshes the time every clock.resolution.ms, so reading it is a volatile read
+ * and every timestamp of a tick shares one Instant instead of allocating one per call.
+ * Times lag the wall clock by up to the resolution (more if the event loop is busy), which is
+ * fine for bookkeeping timestamps; anything measuring durations should use System.nanoTime.
+ */
+@Singleton
+public class CoarseClock {
+
+    private volatile Instant instant;
+    private volatile long millis;
+
+    @Inject
+    public CoarseClock(Vertx vertx, JsonObject config) {
+        long resolutionMs = config.getLong("clock.resolution.ms", 10L);
+        tick();
+        vertx.setPeriodic(Math.max(1, resolutionMs), id -> tick());
+    }
+
+    /**
+     * Current time in epoch milliseconds, at the clock's resolution
+     */
+    public long millis() {
+        return millis;
+    }
+
+    /**
+     * Current time, at the clock's resolution (shared instance, no allocation)
+     */
+    public Instant instant() {
+        return instant;
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        if (now != millis || instant == null) {
+            instant = Instant.ofEpochMilli(now);
+            millis = now;
+        }
+    }
+}
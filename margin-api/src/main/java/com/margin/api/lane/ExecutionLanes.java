@@ -0,0 +1,236 @@
+package com.margin.api.lane;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Account-sharded execution lanes
+ * Each lane is a dedicated single-threaded worker executor; work is hashed by accountId
+ * to a lane, so updates for one account are applied in order while different accounts
+ * run in parallel across all cores
+ *
+ * Processor work (executeStaged) follows the ExecutionMode (execution.mode). In virtual mode
+ * the transform step runs on a virtual thread per task, so thousands of blocking reference
+ * data lookups can be in flight without holding the bounded worker pool; aggregate steps still
+ * run on the lane, in submission order per lane (a slow transform delays the aggregations
+ * queued behind it on its lane, never the transforms).
+ */
+@Singleton
+public class ExecutionLanes {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionLanes.class);
+    private static final String LANE_NAME_PREFIX = "execution-lane-";
+    private static final String VIRTUAL_NAME_PREFIX = "execution-virtual-";
+
+    private final WorkerExecutor[] lanes;
+    // Thread of each lane, recorded by the lane's own tasks (a thread only ever records itself)
+    private final Thread[] laneThreads;
+    private final ExecutionMode mode;
+    private final ExecutorService virtualThreads;
+    private final Future<?>[] tails;
+    private final Object[] tailLocks;
+
+    @Inject
+    public ExecutionLanes(Vertx vertx, JsonObject config) {
+        int laneCount = config.getInteger("execution.lanes", Runtime.getRuntime().availableProcessors());
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("execution.lanes must be at least 1: " + laneCount);
+        }
+        this.lanes = new WorkerExecutor[laneCount];
+        this.laneThreads = new Thread[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = vertx.createSharedWorkerExecutor(LANE_NAME_PREFIX + i, 1);
+        }
+        this.mode = ExecutionMode.of(config);
+        this.virtualThreads = mode == ExecutionMode.VIRTUAL
+                ? VirtualThreads.newThreadPerTaskExecutor(VIRTUAL_NAME_PREFIX) : null;
+        this.tails = new Future<?>[laneCount];
+        this.tailLocks = new Object[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            tails[i] = Future.succeededFuture();
+            tailLocks[i] = new Object();
+        }
+        logger.info("ExecutionLanes initialized with {} single-threaded lanes (mode={})", laneCount, mode);
+    }
+
+    /**
+     * Run blocking work on the lane owning the given account
+     * Tasks for the same account run sequentially in submission order
+     *
+     * @param accountId The account used to select the lane
+     * @param handler The work to run
+     * @return Future completed with the work's result
+     */
+    public <T> Future<T> executeBlocking(String accountId, Handler<Promise<T>> handler) {
+        // Unordered on purpose: ordered tasks share the caller context's queue, which would
+        // serialize all lanes again. A single-threaded lane is FIFO on its own.
+        return executeBlocking(laneOf(accountId), handler);
+    }
+
+    /**
+     * Run blocking work on a lane (e.g. a batch grouped with groupByLane)
+     *
+     * @param lane The lane index
+     * @param handler The work to run
+     * @return Future completed with the work's result
+     */
+    public <T> Future<T> executeBlocking(int lane, Handler<Promise<T>> handler) {
+        return run(lane, handler);
+    }
+
+    /**
+     * Run work on the lane owning the given account, directly if called from that lane
+     * (no hop: the work then runs before the tasks already queued on the lane)
+     *
+     * @param accountId The account used to select the lane
+     * @param handler The work to run
+     * @return Future completed with the work's result
+     */
+    public <T> Future<T> executeOnLane(String accountId, Handler<Promise<T>> handler) {
+        int lane = laneOf(accountId);
+        if (laneThreads[lane] != Thread.currentThread()) {
+            return run(lane, handler);
+        }
+        Promise<T> promise = Promise.promise();
+        handler.handle(promise);
+        return promise.future();
+    }
+
+    /**
+     * Group items by the lane owning their account, keeping their order within each lane
+     *
+     * @param items The items to group
+     * @param accountOf Extracts an item's account
+     * @return One list per lane index, null for lanes without items
+     */
+    public <T> List<List<T>> groupByLane(List<T> items, Function<? super T, String> accountOf) {
+        List<List<T>> groups = new ArrayList<>(Collections.nCopies(lanes.length, null));
+        for (T item : items) {
+            int lane = laneOf(accountOf.apply(item));
+            List<T> group = groups.get(lane);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.set(lane, group);
+            }
+            group.add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * Run a processor's work for an account: transform, then aggregate on the account's lane
+     * - workers mode: both steps in a single lane task
+     * - virtual mode: transform on a new virtual thread, then aggregate on the lane, in the
+     *   order the work was submitted to that lane
+     * The aggregate step is skipped if the transform fails
+     *
+     * @param accountId The account used to select the lane
+     * @param transform Produces the result; may block in virtual mode
+     * @param aggregate Applies the result to lane-owned state; must not block
+     * @return Future completed with the result once aggregated
+     */
+    public <T> Future<T> executeStaged(String accountId, Callable<T> transform, Consumer<? super T> aggregate) {
+        return executeStaged(laneOf(accountId), transform, aggregate);
+    }
+
+    /**
+     * Run a processor's work on a lane (e.g. a batch grouped with groupByLane), see executeStaged
+     */
+    public <T> Future<T> executeStaged(int lane, Callable<T> transform, Consumer<? super T> aggregate) {
+        if (virtualThreads == null) {
+            return run(lane, promise -> {
+                try {
+                    T result = transform.call();
+                    aggregate.accept(result);
+                    promise.complete(result);
+                } catch (Exception e) {
+                    promise.fail(e);
+                }
+            });
+        }
+
+        Promise<T> transformed = Promise.promise();
+        try {
+            virtualThreads.execute(() -> {
+                try {
+                    transformed.complete(transform.call());
+                } catch (Exception e) {
+                    transformed.fail(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            transformed.fail(e);
+        }
+        synchronized (tailLocks[lane]) {
+            Future<T> aggregated = tails[lane]
+                    .transform(previous -> transformed.future())
+                    .compose(result -> run(lane, promise -> {
+                        aggregate.accept(result);
+                        promise.complete(result);
+                    }));
+            tails[lane] = aggregated;
+            return aggregated;
+        }
+    }
+
+    /**
+     * Submit a lane task, recording the lane's thread for executeOnLane
+     */
+    private <T> Future<T> run(int lane, Handler<Promise<T>> handler) {
+        return lanes[lane].executeBlocking(promise -> {
+            laneThreads[lane] = Thread.currentThread();
+            handler.handle(promise);
+        }, false);
+    }
+
+    /**
+     * Get the execution mode of processor work
+     */
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Get the lane index owning the given account
+     */
+    public int laneOf(String accountId) {
+        int h = accountId == null ? 0 : accountId.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), lanes.length);
+    }
+
+    /**
+     * Get the number of lanes
+     */
+    public int size() {
+        return lanes.length;
+    }
+
+    /**
+     * Close all lanes
+     */
+    public void close() {
+        for (WorkerExecutor lane : lanes) {
+            lane.close();
+        }
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+        }
+    }
+}
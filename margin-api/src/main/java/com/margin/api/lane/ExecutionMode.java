@@ -0,0 +1,40 @@
+package com.margin.api.lane;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * How processors run blocking work (execution.mode, selected at startup)
+ * - workers (default): transform and aggregate in one task on the account's single-threaded lane
+ * - virtual: transform (including reference data lookups, which may block) on its own virtual
+ *   thread, aggregate on the account's lane; needs a Java 21 runtime
+ */
+public enum ExecutionMode {
+    WORKERS,
+    VIRTUAL;
+
+    /**
+     * Read the execution mode from configuration
+     *
+     * @throws IllegalArgumentException if the mode is unknown
+     * @throws IllegalStateException if virtual threads are requested but not supported by the JVM
+     */
+    public static ExecutionMode of(JsonObject config) {
+        String mode = config.getString("execution.mode", "workers");
+        ExecutionMode executionMode;
+        switch (mode) {
+            case "workers":
+                executionMode = WORKERS;
+                break;
+            case "virtual":
+                executionMode = VIRTUAL;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown execution.mode: " + mode + " (expected workers or virtual)");
+        }
+        if (executionMode == VIRTUAL && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("execution.mode=virtual needs a Java 21+ runtime, running on "
+                    + Runtime.version());
+        }
+        return executionMode;
+    }
+}
@@ -0,0 +1,213 @@
+package com.margin.api.loader;
+
+import com.margin.api.model.Execution;
+import com.margin.api.model.TradeExecutionWrapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Fixed-layout binary codec (big-endian)
+ *
+ * <pre>
+ * byte    schema version (1)
+ * string  messageId, topic
+ * long    offset, timestamp
+ * byte    execution present (0/1), followed by the execution if present:
+ *   string  id, accountId, symbol, orderId
+ *   decimal price, quantity
+ *   byte    side ordinal, type ordinal (-1 = null)
+ *   long    executionTime, createdAt, updatedAt (epoch nanos, Long.MIN_VALUE = null)
+ *
+ * string  = short length (-1 = null) + UTF-8 bytes
+ * decimal = byte scale (Byte.MIN_VALUE = null) + long unscaled value
+ * </pre>
+ */
+public class BinaryExecutionCodec implements ExecutionCodec {
+    
+    public static final String NAME = "binary";
+    public static final byte SCHEMA_VERSION = 1;
+    
+    private static final byte NULL_SCALE = Byte.MIN_VALUE;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final Execution.ExecutionSide[] SIDES = Execution.ExecutionSide.values();
+    private static final Execution.ExecutionType[] TYPES = Execution.ExecutionType.values();
+    
+    @Override
+    public TradeExecutionWrapper decode(byte[] data, int offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, offset, length);
+        try {
+            byte version = buffer.get();
+            if (version != SCHEMA_VERSION) {
+                throw new IOException("Unsupported binary execution schema version: " + version);
+            }
+            String messageId = readString(buffer);
+            String topic = readString(buffer);
+            long recordOffset = buffer.getLong();
+            long timestamp = buffer.getLong();
+            Execution execution = buffer.get() != 0 ? readExecution(buffer) : null;
+            return new TradeExecutionWrapper(messageId, topic, recordOffset, timestamp, execution);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated binary execution payload", e);
+        }
+    }
+    
+    @Override
+    public byte[] encode(TradeExecutionWrapper wrapper) throws IOException {
+        byte[] messageId = utf8(wrapper.getMessageId());
+        byte[] topic = utf8(wrapper.getTopic());
+        Execution execution = wrapper.getExecution();
+        
+        int size = 1 + stringSize(messageId) + stringSize(topic) + 8 + 8 + 1;
+        byte[] id = null;
+        byte[] accountId = null;
+        byte[] symbol = null;
+        byte[] orderId = null;
+        if (execution != null) {
+            id = utf8(execution.getId());
+            accountId = utf8(execution.getAccountId());
+            symbol = utf8(execution.getSymbol());
+            orderId = utf8(execution.getOrderId());
+            size += stringSize(id) + stringSize(accountId) + stringSize(symbol) + stringSize(orderId)
+                    + 2 * 9 + 2 + 3 * 8;
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(SCHEMA_VERSION);
+        writeString(buffer, messageId);
+        writeString(buffer, topic);
+        buffer.putLong(wrapper.getOffset());
+        buffer.putLong(wrapper.getTimestamp());
+        buffer.put((byte) (execution != null ? 1 : 0));
+        if (execution != null) {
+            writeString(buffer, id);
+            writeString(buffer, accountId);
+            writeString(buffer, symbol);
+            writeString(buffer, orderId);
+            writeDecimal(buffer, execution.getPrice());
+            writeDecimal(buffer, execution.getQuantity());
+            buffer.put((byte) (execution.getSide() != null ? execution.getSide().ordinal() : -1));
+            buffer.put((byte) (execution.getType() != null ? execution.getType().ordinal() : -1));
+            writeInstant(buffer, execution.getExecutionTime());
+            writeInstant(buffer, execution.getCreatedAt());
+            writeInstant(buffer, execution.getUpdatedAt());
+        }
+        return buffer.array();
+    }
+    
+    @Override
+    public String getCodecName() {
+        return NAME;
+    }
+    
+    private static Execution readExecution(ByteBuffer buffer) throws IOException {
+        String id = readString(buffer);
+        String accountId = readString(buffer);
+        String symbol = readString(buffer);
+        String orderId = readString(buffer);
+        BigDecimal price = readDecimal(buffer);
+        BigDecimal quantity = readDecimal(buffer);
+        Execution.ExecutionSide side = readOrdinal(buffer, SIDES);
+        Execution.ExecutionType type = readOrdinal(buffer, TYPES);
+        Instant executionTime = readInstant(buffer);
+        Instant createdAt = readInstant(buffer);
+        Instant updatedAt = readInstant(buffer);
+        return new Execution(id, accountId, symbol, orderId, price, quantity, side, type,
+                executionTime, createdAt, updatedAt);
+    }
+    
+    private static String readString(ByteBuffer buffer) throws IOException {
+        short length = buffer.getShort();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Invalid string length in binary execution payload: " + length);
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+    
+    private static BigDecimal readDecimal(ByteBuffer buffer) {
+        byte scale = buffer.get();
+        long unscaled = buffer.getLong();
+        return scale == NULL_SCALE ? null : BigDecimal.valueOf(unscaled, scale);
+    }
+    
+    private static <E extends Enum<E>> E readOrdinal(ByteBuffer buffer, E[] values) throws IOException {
+        byte ordinal = buffer.get();
+        if (ordinal == -1) {
+            return null;
+        }
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Invalid enum ordinal in binary execution payload: " + ordinal);
+        }
+        return values[ordinal];
+    }
+    
+    private static Instant readInstant(ByteBuffer buffer) {
+        long nanos = buffer.getLong();
+        if (nanos == NULL_TIME) {
+            return null;
+        }
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, NANOS_PER_SECOND), Math.floorMod(nanos, NANOS_PER_SECOND));
+    }
+    
+    private static byte[] utf8(String value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IOException("String too long for binary execution payload: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+    
+    private static int stringSize(byte[] bytes) {
+        return 2 + (bytes == null ? 0 : bytes.length);
+    }
+    
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+    
+    private static void writeDecimal(ByteBuffer buffer, BigDecimal value) throws IOException {
+        if (value == null) {
+            buffer.put(NULL_SCALE);
+            buffer.putLong(0L);
+            return;
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (value.scale() <= NULL_SCALE || value.scale() > Byte.MAX_VALUE || unscaled.bitLength() > 63) {
+            throw new IOException("Decimal out of range for binary execution payload: " + value);
+        }
+        buffer.put((byte) value.scale());
+        buffer.putLong(unscaled.longValue());
+    }
+    
+    private static void writeInstant(ByteBuffer buffer, Instant value) throws IOException {
+        if (value == null) {
+            buffer.putLong(NULL_TIME);
+            return;
+        }
+        try {
+            buffer.putLong(Math.addExact(Math.multiplyExact(value.getEpochSecond(), NANOS_PER_SECOND), value.getNano()));
+        } catch (ArithmeticException e) {
+            throw new IOException("Instant out of range for binary execution payload: " + value, e);
+        }
+    }
+}
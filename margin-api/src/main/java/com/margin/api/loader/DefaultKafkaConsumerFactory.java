@@ -0,0 +1,18 @@
+package com.margin.api.loader;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates real Kafka consumers
+ */
+public class DefaultKafkaConsumerFactory implements KafkaConsumerFactory {
+    
+    @Override
+    public Consumer<String, byte[]> create(Map<String, String> config) {
+        return new KafkaConsumer<>(new HashMap<>(config));
+    }
+}
@@ -0,0 +1,18 @@
+package com.margin.api.loader;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates real Kafka producers
+ */
+public class DefaultKafkaProducerFactory implements KafkaProducerFactory {
+    
+    @Override
+    public Producer<String, byte[]> create(Map<String, String> config) {
+        return new KafkaProducer<>(new HashMap<>(config));
+    }
+}
@@ -0,0 +1,46 @@
+package com.margin.api.loader;
+
+import com.margin.api.model.TradeExecutionWrapper;
+
+import java.io.IOException;
+
+/**
+ * Codec interface for TradeExecutionWrapper wire formats
+ * Implementations must be thread-safe
+ */
+public interface ExecutionCodec {
+    
+    /**
+     * Decode a payload held in a slice of a buffer
+     * 
+     * @param data The buffer
+     * @param offset Start of the payload
+     * @param length Length of the payload
+     * @return The decoded wrapper
+     * @throws IOException if the payload is malformed
+     */
+    TradeExecutionWrapper decode(byte[] data, int offset, int length) throws IOException;
+    
+    /**
+     * Decode a complete payload
+     */
+    default TradeExecutionWrapper decode(byte[] data) throws IOException {
+        return decode(data, 0, data.length);
+    }
+    
+    /**
+     * Encode a wrapper into this codec's wire format
+     * 
+     * @param wrapper The wrapper to encode
+     * @return The encoded payload
+     * @throws IOException if the wrapper cannot be represented
+     */
+    byte[] encode(TradeExecutionWrapper wrapper) throws IOException;
+    
+    /**
+     * Get the codec name used in topic config and record headers
+     * 
+     * @return String identifier for this codec
+     */
+    String getCodecName();
+}
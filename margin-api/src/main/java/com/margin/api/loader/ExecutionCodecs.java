@@ -0,0 +1,133 @@
+package com.margin.api.loader;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolves the ExecutionCodec of a Kafka record
+ * Precedence: record header (execution-codec), then per-topic config (kafka.codec.topics,
+ * e.g. "trade-executions-bin=binary"), then the default codec (kafka.codec.default)
+ */
+@Singleton
+public class ExecutionCodecs {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionCodecs.class);
+    
+    /**
+     * Record header naming the codec of the record value
+     */
+    public static final String HEADER = "execution-codec";
+    
+    private final ExecutionCodec[] codecs;
+    private final byte[][] codecNames;
+    private final ExecutionCodec defaultCodec;
+    private final Map<String, ExecutionCodec> topicCodecs = new HashMap<>();
+    
+    @Inject
+    public ExecutionCodecs(JsonObject config) {
+        this.codecs = new ExecutionCodec[] {new JsonExecutionCodec(), new BinaryExecutionCodec()};
+        this.codecNames = new byte[codecs.length][];
+        for (int i = 0; i < codecs.length; i++) {
+            codecNames[i] = codecs[i].getCodecName().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+        }
+        this.defaultCodec = byName(config.getString("kafka.codec.default", JsonExecutionCodec.NAME));
+        String topicConfig = config.getString("kafka.codec.topics", "");
+        for (String entry : topicConfig.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid kafka.codec.topics entry (expected topic=codec): " + entry);
+            }
+            topicCodecs.put(parts[0].trim(), byName(parts[1].trim()));
+        }
+        logger.info("ExecutionCodecs initialized (default={}, topics={})", defaultCodec.getCodecName(), topicConfig);
+    }
+    
+    /**
+     * Get a codec by name (case-insensitive, like the record header)
+     * 
+     * @throws IllegalArgumentException if no codec has that name
+     */
+    public ExecutionCodec byName(String name) {
+        for (ExecutionCodec codec : codecs) {
+            if (codec.getCodecName().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown execution codec: " + name);
+    }
+    
+    /**
+     * Get the codec configured for a topic
+     */
+    public ExecutionCodec forTopic(String topic) {
+        return topicCodecs.getOrDefault(topic, defaultCodec);
+    }
+    
+    /**
+     * Get the codec of a record from its codec header value, falling back to the topic codec
+     * Header values are matched case-insensitively, as byName does
+     * 
+     * @param topic The record topic
+     * @param header The raw execution-codec header value, or null if absent
+     */
+    public ExecutionCodec forRecord(String topic, byte[] header) {
+        if (header != null) {
+            // Compare raw header bytes: no String per record
+            for (int i = 0; i < codecs.length; i++) {
+                if (equalsIgnoreCase(header, codecNames[i])) {
+                    return codecs[i];
+                }
+            }
+            logger.warn("Unknown {} header '{}' on topic {}, using topic codec", 
+                    HEADER, new String(header, StandardCharsets.UTF_8), topic);
+        }
+        return forTopic(topic);
+    }
+    
+    /**
+     * ASCII case-insensitive comparison of a header value with a (lower-case ASCII) codec name
+     */
+    private static boolean equalsIgnoreCase(byte[] header, byte[] name) {
+        if (header.length != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            byte b = header[i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Get the codec of a stored payload whose headers are no longer available (journal replay)
+     * Binary payloads start with the schema version byte and JSON payloads with '{',
+     * anything else falls back to the topic codec
+     */
+    public ExecutionCodec forPayload(String topic, byte[] value) {
+        if (value.length > 0) {
+            if (value[0] == BinaryExecutionCodec.SCHEMA_VERSION) {
+                return byName(BinaryExecutionCodec.NAME);
+            }
+            if (value[0] == '{') {
+                return byName(JsonExecutionCodec.NAME);
+            }
+        }
+        return forTopic(topic);
+    }
+}
@@ -0,0 +1,311 @@
+package com.margin.api.loader;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.dedup.MessageDeduplicator;
+import com.margin.api.model.Execution;
+import com.margin.api.model.TradeExecutionWrapper;
+import com.margin.api.processor.BatchProcessingException;
+import com.margin.api.registry.ProcessorRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * DataLoader that replays trade executions from a file (backfills, broker-less load tests)
+ * Routes to the same ProcessorRegistry as KafkaDataLoader
+ *
+ * Files are read through FileChannel.map in windows of replay.map.window.bytes, and each
+ * record is decoded straight from the mapped bytes. The format is configured, never guessed
+ * from the content (replay.format):
+ * - json (default): NDJSON, one TradeExecutionWrapper per line
+ * - binary: frames of a 4-byte big-endian length followed by a BinaryExecutionCodec payload
+ * Batches in flight are counted rather than kept, so a replay holds the same memory whatever
+ * the file size.
+ *
+ * replay.speed 0 replays at full speed; any other value paces records by their executionTime
+ * scaled by that factor (1 = original pacing, 10 = ten times faster).
+ */
+@Singleton
+public class FileReplayDataLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileReplayDataLoader.class);
+    private static final long BACKPRESSURE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Vertx vertx;
+    private final ProcessorRegistry processorRegistry;
+    private final MessageDeduplicator deduplicator;
+    private final BackpressureController backpressure;
+    private final ExecutionCodec codec;
+    private final double speed;
+    private final int batchSize;
+    private final long mapWindowBytes;
+
+    @Inject
+    public FileReplayDataLoader(
+            Vertx vertx,
+            ProcessorRegistry processorRegistry,
+            ExecutionCodecs codecs,
+            MessageDeduplicator deduplicator,
+            BackpressureController backpressure,
+            JsonObject config) {
+        this.vertx = vertx;
+        this.processorRegistry = processorRegistry;
+        this.deduplicator = deduplicator;
+        this.backpressure = backpressure;
+        this.codec = codecs.byName(config.getString("replay.format", JsonExecutionCodec.NAME));
+        this.speed = config.getDouble("replay.speed", 0.0);
+        this.batchSize = config.getInteger("replay.batch.size", 500);
+        this.mapWindowBytes = config.getLong("replay.map.window.bytes", 1L << 30);
+        if (speed < 0 || batchSize < 1 || mapWindowBytes < 1 || mapWindowBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid replay configuration: speed=" + speed
+                    + ", batchSize=" + batchSize + ", mapWindowBytes=" + mapWindowBytes);
+        }
+        logger.info("FileReplayDataLoader initialized (format={}, speed={}, batchSize={})",
+                codec.getCodecName(), speed, batchSize);
+    }
+
+    /**
+     * Replay a file through the ProcessorRegistry
+     * The file is read on a dedicated worker thread; the future completes once every
+     * replayed execution has been processed
+     *
+     * @param path The file to replay
+     * @return Future with the number of executions replayed
+     */
+    public Future<Long> replay(Path path) {
+        logger.info("Replaying executions from {} (format={}, speed={})", path, codec.getCodecName(), speed);
+        WorkerExecutor reader = vertx.createSharedWorkerExecutor("file-replay", 1, 1, TimeUnit.DAYS);
+        long started = System.nanoTime();
+        Run run = new Run();
+        return reader.<Void>executeBlocking(promise -> {
+            try {
+                run.read(path);
+                promise.complete();
+            } catch (IOException | RuntimeException e) {
+                promise.fail(e);
+            }
+        }, false)
+            // Once read, wait for the batches still in flight
+            .transform(read -> run.finish(read.cause()))
+            .onSuccess(count -> {
+                double seconds = (System.nanoTime() - started) / 1e9;
+                logger.info("Replayed {} executions from {} in {}s ({} executions/s)",
+                        count, path, String.format("%.3f", seconds), String.format("%.0f", count / seconds));
+            })
+            .onFailure(err -> logger.error("File replay failed for {}", path, err))
+            .onComplete(ar -> reader.close());
+    }
+
+    /**
+     * State of one replay, confined to the reader thread (except the in-flight count)
+     */
+    private class Run {
+        // Batches in flight, plus one held by the reader until the file is read
+        final AtomicLong inFlight = new AtomicLong(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Promise<Long> processed = Promise.promise();
+        List<Execution> batch = new ArrayList<>(batchSize);
+        List<String> batchMessageIds = new ArrayList<>(batchSize);
+        byte[] scratch = new byte[4096];
+        long executions;
+        long firstExecutionNanos = Long.MIN_VALUE;
+        long firstWallNanos;
+
+        void read(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                long position = 0;
+                boolean json = JsonExecutionCodec.NAME.equals(codec.getCodecName());
+                while (position < size) {
+                    long length = Math.min(mapWindowBytes, size - position);
+                    boolean last = position + length == size;
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    int consumed = json ? readLines(window, last) : readFrames(window, last);
+                    if (consumed == 0) {
+                        throw new IOException("Record at byte " + position + " of " + path
+                                + " exceeds replay.map.window.bytes (" + mapWindowBytes + ")");
+                    }
+                    position += consumed;
+                }
+            }
+            flush();
+        }
+
+        /**
+         * Release the reader's hold once the file is read (or failed)
+         *
+         * @return Future with the number of executions, completed once every batch is processed,
+         *         failed with the first failure
+         */
+        Future<Long> finish(Throwable readFailure) {
+            if (readFailure != null) {
+                failure.compareAndSet(null, readFailure);
+            }
+            done();
+            return processed.future();
+        }
+
+        private void done() {
+            if (inFlight.decrementAndGet() == 0) {
+                Throwable cause = failure.get();
+                if (cause != null) {
+                    processed.fail(cause);
+                } else {
+                    processed.complete(executions);
+                }
+            }
+        }
+
+        /**
+         * Replay the complete lines of a window
+         *
+         * @return Number of bytes consumed (up to the start of a trailing partial line)
+         */
+        private int readLines(MappedByteBuffer window, boolean last) {
+            int limit = window.limit();
+            int start = 0;
+            for (int i = 0; i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    replayLine(window, start, i);
+                    start = i + 1;
+                }
+            }
+            if (last && start < limit) {
+                replayLine(window, start, limit);
+                return limit;
+            }
+            return start;
+        }
+
+        private void replayLine(MappedByteBuffer window, int start, int end) {
+            // Skip blank lines and a trailing '\r'
+            while (end > start && Character.isWhitespace(window.get(end - 1))) {
+                end--;
+            }
+            if (end > start) {
+                replayRecord(window, start, end - start);
+            }
+        }
+
+        /**
+         * Replay the complete length-prefixed frames of a window
+         *
+         * @return Number of bytes consumed (up to the start of a trailing partial frame)
+         */
+        private int readFrames(MappedByteBuffer window, boolean last) throws IOException {
+            int limit = window.limit();
+            int position = 0;
+            while (limit - position >= Integer.BYTES) {
+                int length = window.getInt(position);
+                if (length < 0) {
+                    throw new IOException("Invalid frame length " + length + " in binary replay file");
+                }
+                if (limit - position - Integer.BYTES < length) {
+                    break;
+                }
+                replayRecord(window, position + Integer.BYTES, length);
+                position += Integer.BYTES + length;
+            }
+            if (last && position < limit) {
+                logger.warn("Ignoring truncated trailing frame ({} bytes) in binary replay file", limit - position);
+                return limit;
+            }
+            return position;
+        }
+
+        private void replayRecord(MappedByteBuffer window, int offset, int length) {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.get(offset, scratch, 0, length);
+
+            TradeExecutionWrapper wrapper;
+            try {
+                wrapper = codec.decode(scratch, 0, length);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Skipping malformed replay record ({} bytes, codec={})", length, codec.getCodecName(), e);
+                return;
+            }
+            Execution execution = wrapper.getExecution();
+            if (execution == null || deduplicator.isDuplicate(wrapper.getMessageId())) {
+                return;
+            }
+            if (speed > 0) {
+                pace(execution);
+            }
+            batch.add(execution);
+            batchMessageIds.add(wrapper.getMessageId());
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Wait until the execution is due, relative to the first replayed execution
+         */
+        private void pace(Execution execution) {
+            long executionNanos = TimeUnit.SECONDS.toNanos(execution.getExecutionTime().getEpochSecond())
+                    + execution.getExecutionTime().getNano();
+            if (firstExecutionNanos == Long.MIN_VALUE) {
+                firstExecutionNanos = executionNanos;
+                firstWallNanos = System.nanoTime();
+                return;
+            }
+            long due = firstWallNanos + (long) ((executionNanos - firstExecutionNanos) / speed);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                // Hand over what is due now before sleeping
+                flush();
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            while (backpressure.isPressured()) {
+                LockSupport.parkNanos(BACKPRESSURE_PARK_NANOS);
+            }
+            executions += batch.size();
+            List<Execution> executions = batch;
+            List<String> claimed = batchMessageIds;
+            inFlight.incrementAndGet();
+            processorRegistry.processBatch(executions).onComplete(ar -> {
+                if (ar.failed()) {
+                    // Failed messages are forgotten by the deduplicator so a later replay processes them
+                    // (only those: the batch's other executions were applied)
+                    for (int i = 0; i < executions.size(); i++) {
+                        if (BatchProcessingException.hasFailed(ar.cause(), executions.get(i))) {
+                            deduplicator.release(claimed.get(i));
+                        }
+                    }
+                    failure.compareAndSet(null, ar.cause());
+                }
+                done();
+            });
+            batch = new ArrayList<>(batchSize);
+            batchMessageIds = new ArrayList<>(batchSize);
+        }
+    }
+}
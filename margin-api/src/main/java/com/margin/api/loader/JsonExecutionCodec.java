@@ -0,0 +1,41 @@
+package com.margin.api.loader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.margin.api.model.TradeExecutionWrapper;
+
+import java.io.IOException;
+
+/**
+ * JSON codec: decodes with the streaming TradeExecutionWrapperDecoder, encodes with Jackson
+ */
+public class JsonExecutionCodec implements ExecutionCodec {
+    
+    public static final String NAME = "json";
+    
+    private final TradeExecutionWrapperDecoder decoder;
+    private final ObjectMapper objectMapper;
+    
+    public JsonExecutionCodec() {
+        this.decoder = new TradeExecutionWrapperDecoder();
+        this.objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+    
+    @Override
+    public TradeExecutionWrapper decode(byte[] data, int offset, int length) throws IOException {
+        return decoder.decode(data, offset, length);
+    }
+    
+    @Override
+    public byte[] encode(TradeExecutionWrapper wrapper) throws IOException {
+        return objectMapper.writeValueAsBytes(wrapper);
+    }
+    
+    @Override
+    public String getCodecName() {
+        return NAME;
+    }
+}
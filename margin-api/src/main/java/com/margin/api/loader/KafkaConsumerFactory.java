@@ -0,0 +1,20 @@
+package com.margin.api.loader;
+
+import org.apache.kafka.clients.consumer.Consumer;
+
+import java.util.Map;
+
+/**
+ * Creates the native Kafka consumers used by KafkaDataLoader
+ * Lets load tests swap in a MockConsumer-backed broker stand-in
+ */
+public interface KafkaConsumerFactory {
+    
+    /**
+     * Create a consumer
+     * 
+     * @param config Consumer configuration (bootstrap servers, group, deserializers, ...)
+     * @return A new, unsubscribed consumer
+     */
+    Consumer<String, byte[]> create(Map<String, String> config);
+}
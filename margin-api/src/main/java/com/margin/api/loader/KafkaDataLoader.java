@@ -1,121 +1,232 @@
 package com.margin.api.loader;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.inject.Inject;
-import com.google.inject.Singleton;
 import com.google.inject.name.Named;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.dedup.MessageDeduplicator;
+import com.margin.api.journal.ExecutionJournal;
 import com.margin.api.model.Execution;
 import com.margin.api.model.TradeExecutionWrapper;
+import com.margin.api.processor.BatchProcessingException;
 import com.margin.api.registry.ProcessorRegistry;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.kafka.client.common.TopicPartition;
 import io.vertx.kafka.client.consumer.KafkaConsumer;
+import io.vertx.kafka.client.consumer.KafkaConsumerRecord;
+import io.vertx.kafka.client.consumer.KafkaConsumerRecords;
+import io.vertx.kafka.client.consumer.OffsetAndMetadata;
+import io.vertx.kafka.client.producer.KafkaProducer;
+import io.vertx.kafka.client.producer.KafkaProducerRecord;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.rocksdb.RocksDBException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * DataLoader that loads trade executions from Kafka
  * Directly routes to ProcessorRegistry (no EventBus)
- * Simplified RocksDB support (prototype - would be enhanced in production)
+ * Batch mode (default) processes a whole poll at once, record mode processes each record individually
+ * Offsets are committed through OffsetCommitTracker: only the highest contiguous completed
+ * offset per partition, on a count threshold or timer
+ * Failed executions are retried in process (kafka.retry.max.attempts, kafka.retry.backoff.ms), then
+ * their raw records are sent to the dead-letter topic (kafka.dead.letter.topic) with the failure in
+ * dead-letter-* headers; an offset completes once its execution is processed or dead-lettered.
+ * Without a dead-letter topic, a failed execution holds its partition's commit point and is
+ * redelivered (with what follows it) after a restart or rebalance (at-least-once)
+ * Offsets in flight per partition are capped (kafka.offset.window): past the cap the partition is
+ * sought back to the first refused offset and consumption is held (backpressure) until half drains
+ * Revoked partitions are committed synchronously, on the polling thread, inside the rebalance
+ * Values are consumed as raw bytes and decoded by the ExecutionCodec (JSON or binary) selected
+ * by the record's execution-codec header or the topic config
+ * Duplicate messageIds (replays, producer retries) are dropped by MessageDeduplicator
+ * Raw records are journaled to RocksDB (ExecutionJournal) before they are dispatched, and what was
+ * not committed before a crash is replayed at startup (replayJournal)
+ * 
+ * Not a singleton: each KafkaIngestionVerticle instance runs its own loader and consumer in
+ * the same group, and reports its partition assignments to PartitionOwnership
  */
-@Singleton
 public class KafkaDataLoader {
     
     private static final Logger logger = LoggerFactory.getLogger(KafkaDataLoader.class);
+    private static final String MODE_BATCH = "batch";
+    private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
+    static final String DEAD_LETTER_TOPIC_HEADER = "dead-letter-topic";
+    static final String DEAD_LETTER_PARTITION_HEADER = "dead-letter-partition";
+    static final String DEAD_LETTER_OFFSET_HEADER = "dead-letter-offset";
+    static final String DEAD_LETTER_ERROR_HEADER = "dead-letter-error";
     
     private final Vertx vertx;
     private final ProcessorRegistry processorRegistry;
+    private final ExecutionJournal journal;
+    private final BackpressureController backpressure;
+    private final PartitionOwnership ownership;
+    private final KafkaConsumerFactory consumerFactory;
+    private final KafkaProducerFactory producerFactory;
+    private String instanceId;
     private final String bootstrapServers;
     private final String groupId;
     private final Set<String> topics;
-    private final ObjectMapper objectMapper;
-    private KafkaConsumer<String, String> consumer;
+    private final String ingestionMode;
+    private final int maxPollRecords;
+    private final int commitThreshold;
+    private final long commitIntervalMs;
+    private final int offsetWindow;
+    private final String deadLetterTopic;
+    private final int retryMaxAttempts;
+    private final long retryBackoffMs;
+    private final ExecutionCodecs codecs;
+    private final MessageDeduplicator deduplicator;
+    private Context context;
+    private KafkaConsumer<String, byte[]> consumer;
+    private OffsetCommitTracker offsetTracker;
+    private KafkaProducer<String, byte[]> deadLetters;
+    private String pressureSource;
+    // Partitions sought back to their first refused offset, until it is consumed again (event loop)
+    private final Map<TopicPartition, Long> seekingBack = new HashMap<>();
+    private volatile boolean stopping = false;
     private volatile boolean paused = false;
+    private final Handler<Boolean> backpressureListener = pressured -> {
+        if (pressured) {
+            pause();
+        } else {
+            resume();
+        }
+    };
 
     @Inject
     public KafkaDataLoader(
             Vertx vertx,
             ProcessorRegistry processorRegistry,
+            ExecutionJournal journal,
+            ExecutionCodecs codecs,
+            MessageDeduplicator deduplicator,
+            BackpressureController backpressure,
+            PartitionOwnership ownership,
+            KafkaConsumerFactory consumerFactory,
+            KafkaProducerFactory producerFactory,
             @Named("kafka.bootstrap.servers") String bootstrapServers,
             @Named("kafka.group.id") String groupId,
-            @Named("kafka.topics") Set<String> topics) {
+            @Named("kafka.topics") Set<String> topics,
+            @Named("kafka.ingestion.mode") String ingestionMode,
+            @Named("kafka.max.poll.records") int maxPollRecords,
+            @Named("kafka.commit.threshold") int commitThreshold,
+            @Named("kafka.commit.interval.ms") long commitIntervalMs,
+            @Named("kafka.offset.window") int offsetWindow,
+            @Named("kafka.dead.letter.topic") String deadLetterTopic,
+            @Named("kafka.retry.max.attempts") int retryMaxAttempts,
+            @Named("kafka.retry.backoff.ms") long retryBackoffMs) {
         this.vertx = vertx;
         this.processorRegistry = processorRegistry;
+        this.journal = journal;
+        this.backpressure = backpressure;
+        this.ownership = ownership;
+        this.consumerFactory = consumerFactory;
+        this.producerFactory = producerFactory;
         this.bootstrapServers = bootstrapServers;
         this.groupId = groupId;
         this.topics = topics;
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
-        logger.info("KafkaDataLoader initialized for topics: {} on servers: {}", topics, bootstrapServers);
+        this.ingestionMode = ingestionMode;
+        this.maxPollRecords = maxPollRecords;
+        this.commitThreshold = commitThreshold;
+        this.commitIntervalMs = commitIntervalMs;
+        this.offsetWindow = offsetWindow;
+        this.deadLetterTopic = deadLetterTopic;
+        this.retryMaxAttempts = retryMaxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.codecs = codecs;
+        this.deduplicator = deduplicator;
+        logger.info("KafkaDataLoader initialized for topics: {} on servers: {} (mode={}, maxPollRecords={}, "
+                + "deadLetterTopic={})", topics, bootstrapServers, ingestionMode, maxPollRecords, deadLetterTopic);
     }
 
     /**
      * Start consuming from Kafka and routing to ProcessorRegistry
+     * Must be called on the owning verticle's context
+     * 
+     * @return Future completed once subscribed
      */
-    public void start() {
+    public Future<Void> start() {
+        instanceId = "ingestion-" + INSTANCE_COUNTER.getAndIncrement();
+        context = vertx.getOrCreateContext();
+        try {
+            journal.open();
+        } catch (RocksDBException e) {
+            logger.error("Failed to open execution journal, continuing without crash-recovery journal", e);
+        }
+
         Map<String, String> config = new HashMap<>();
         config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        config.put(ConsumerConfig.CLIENT_ID_CONFIG, groupId + "-" + instanceId);
         config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
         config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false"); // Manual commit for reliability
-        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "500"); // Batch size
-
-        consumer = KafkaConsumer.create(vertx, config);
-
-        consumer.handler(record -> {
-            try {
-                logger.debug("Received Kafka record from topic: {}, offset: {}", 
-                        record.topic(), record.offset());
-                
-                // Deserialize the wrapper
-                String value = record.value();
-                TradeExecutionWrapper wrapper = objectMapper.readValue(value, TradeExecutionWrapper.class);
-                
-                logger.debug("Deserialized wrapper: messageId={}, offset={}", 
-                        wrapper.getMessageId(), wrapper.getOffset());
-                
-                // Retrieve the execution from the wrapper
-                Execution execution = wrapper.getExecution();
-                
-                if (execution == null) {
-                    logger.warn("No execution found in wrapper: {}", wrapper.getMessageId());
-                    return;
-                }
-                
-                // TODO: Persist to RocksDB for crash recovery (prototype skips for simplicity)
-                // String key = record.topic() + ":" + record.partition() + ":" + record.offset();
-                // rocksDB.put(key.getBytes(), value.getBytes());
-                
-                // Route directly to ProcessorRegistry (no EventBus)
-                logger.debug("Routing execution {} to ProcessorRegistry", execution.getId());
-                
-                processorRegistry.process(execution)
-                    .onSuccess(v -> {
-                        logger.info("Successfully processed execution {} through all processors", execution.getId());
-                        // Commit offset after successful processing
-                        consumer.commit(ar -> {
-                            if (ar.failed()) {
-                                logger.error("Failed to commit offset for execution {}", execution.getId(), ar.cause());
-                            }
-                        });
-                    })
-                    .onFailure(err -> {
-                        logger.error("Failed to process execution {} through processors", execution.getId(), err);
-                        // TODO: Send to DLQ
-                    });
-                
-            } catch (Exception e) {
-                logger.error("Error processing Kafka record from topic: {}", record.topic(), e);
-                // TODO: Send to DLQ
-            }
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords)); // Batch size
+
+        consumer = KafkaConsumer.create(vertx, commitOnRevoke(consumerFactory.create(config)));
+        // A full offset window holds consumption like any other pipeline stage
+        pressureSource = "kafka-offsets-" + instanceId;
+        offsetTracker = new OffsetCommitTracker(vertx, this::commit, commitThreshold, commitIntervalMs,
+                offsetWindow, saturated -> backpressure.setPressure(pressureSource, saturated));
+        offsetTracker.start();
+        if (deadLetterTopic != null && !deadLetterTopic.isEmpty()) {
+            Map<String, String> producerConfig = new HashMap<>();
+            producerConfig.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+            producerConfig.put(ProducerConfig.CLIENT_ID_CONFIG, groupId + "-" + instanceId + "-dlq");
+            producerConfig.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+            producerConfig.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+            producerConfig.put(ProducerConfig.ACKS_CONFIG, "all");
+            deadLetters = KafkaProducer.create(vertx, producerFactory.create(producerConfig));
+        }
+
+        if (MODE_BATCH.equalsIgnoreCase(ingestionMode)) {
+            // The read stream only polls while a record handler is set; records are consumed in batchHandler
+            consumer.handler(record -> { });
+            consumer.batchHandler(this::handleBatch);
+        } else {
+            consumer.handler(this::handleRecord);
+        }
+
+        // Pause/resume consumption as pipeline stages cross their watermarks (on this event loop)
+        backpressure.onStateChange(context, backpressureListener);
+
+        consumer.partitionsAssignedHandler(partitions -> {
+            logger.info("Partitions assigned to {}: {}", instanceId, partitions);
+            ownership.assigned(instanceId, partitions);
+        });
+
+        consumer.partitionsRevokedHandler(partitions -> {
+            // Completed offsets were already committed by the rebalance listener (commitRevoked)
+            logger.info("Partitions revoked from {}: {}", instanceId, partitions);
+            partitions.forEach(seekingBack::remove);
+            ownership.revoked(instanceId, partitions);
         });
 
         consumer.exceptionHandler(err -> {
@@ -123,31 +234,518 @@ public class KafkaDataLoader {
         });
 
         // Subscribe to topics
+        Promise<Void> subscribed = Promise.promise();
         consumer.subscribe(topics, ar -> {
             if (ar.succeeded()) {
-                logger.info("Kafka consumer subscribed to topics: {}", topics);
+                logger.info("Kafka consumer {} subscribed to topics: {} (mode={})", instanceId, topics, ingestionMode);
             } else {
                 logger.error("Failed to subscribe to Kafka topics: {}", topics, ar.cause());
             }
+            subscribed.handle(ar);
         });
+        return subscribed.future();
     }
 
     /**
-     * Stop the Kafka consumer
+     * Record mode: process each record individually
      */
-    public void stop() {
-        if (consumer != null) {
-            logger.info("Stopping Kafka consumer...");
-            consumer.close(ar -> {
+    private void handleRecord(KafkaConsumerRecord<String, byte[]> record) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        if (!track(partition, record.offset())) {
+            return;
+        }
+        
+        List<String> claimed = new ArrayList<>(1);
+        Execution execution = decode(record, claimed);
+        if (execution == null) {
+            offsetTracker.complete(partition, record.offset());
+            return;
+        }
+        ownership.recordAccount(partition, execution.getAccountId());
+        List<Dispatched> dispatched = List.of(new Dispatched(record, partition, execution, claimed.get(0)));
+        
+        // Route directly to ProcessorRegistry (no EventBus), once the raw record is journaled
+        logger.debug("Routing execution {} to ProcessorRegistry", execution.getId());
+        
+        journaled(journal.append(record.topic(), record.partition(), record.offset(), record.value()))
+            .compose(v -> processorRegistry.process(execution))
+            .onComplete(ar -> {
                 if (ar.succeeded()) {
-                    logger.info("Kafka consumer closed successfully");
-                } else {
-                    logger.error("Failed to close Kafka consumer", ar.cause());
+                    logger.info("Successfully processed execution {} through all processors", execution.getId());
+                }
+                // Completion (not commit) - the tracker only commits contiguous completed offsets
+                settle(dispatched, ar.cause(), 1);
+            });
+    }
+
+    /**
+     * Batch mode: decode the whole poll and process it as one batch
+     */
+    private void handleBatch(KafkaConsumerRecords<String, byte[]> records) {
+        List<Execution> executions = new ArrayList<>(records.size());
+        List<Dispatched> dispatched = new ArrayList<>(records.size());
+        List<String> claimed = new ArrayList<>(records.size());
+        List<Future> journaled = new ArrayList<>(2);
+        
+        for (int i = 0; i < records.size(); i++) {
+            KafkaConsumerRecord<String, byte[]> record = records.recordAt(i);
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            if (!track(partition, record.offset())) {
+                continue;
+            }
+            
+            Execution execution = decode(record, claimed);
+            if (execution == null) {
+                offsetTracker.complete(partition, record.offset());
+                continue;
+            }
+            executions.add(execution);
+            dispatched.add(new Dispatched(record, partition, execution, claimed.get(claimed.size() - 1)));
+            ownership.recordAccount(partition, execution.getAccountId());
+            // Records of a poll share one or two group commits: keep each distinct write once
+            Future<Void> written = journal.append(record.topic(), record.partition(), record.offset(), record.value());
+            if (journaled.isEmpty() || journaled.get(journaled.size() - 1) != written) {
+                journaled.add(written);
+            }
+        }
+        // Write the poll now rather than on the group-commit timer
+        journal.flush();
+        
+        logger.debug("Routing batch of {} executions ({} records) to ProcessorRegistry", 
+                executions.size(), records.size());
+        
+        journaled(CompositeFuture.all(journaled))
+            .compose(v -> processorRegistry.processBatch(executions))
+            .onComplete(ar -> {
+                if (ar.succeeded()) {
+                    logger.info("Successfully processed batch of {} executions through all processors", executions.size());
                 }
+                settle(dispatched, ar.cause(), 1);
             });
+    }
+
+    /**
+     * Track a record's offset, or seek its partition back to the first refused offset if its
+     * window is full (once: records fetched after it are refused too, until it is consumed again)
+     *
+     * @return false if the record must be skipped
+     */
+    private boolean track(TopicPartition partition, long offset) {
+        if (offsetTracker.track(partition, offset)) {
+            seekingBack.remove(partition, offset);
+            return true;
+        }
+        long refused = offsetTracker.refusedOffset(partition);
+        Long sought = seekingBack.put(partition, refused);
+        if (sought == null || sought != refused) {
+            logger.debug("Offset window of {} is full, seeking back to offset {}", partition, refused);
+            consumer.seek(partition, refused).onFailure(err -> {
+                seekingBack.remove(partition, refused);
+                logger.error("Failed to seek {} back to offset {}", partition, refused, err);
+            });
+        }
+        return false;
+    }
+
+    /**
+     * Complete the offsets of the dispatched executions that were processed, retry the others
+     * after a backoff, or dead-letter them once kafka.retry.max.attempts attempts failed
+     *
+     * @param failure Failure of the attempt (null if it succeeded)
+     * @param attempts Attempts made so far
+     */
+    private void settle(List<Dispatched> dispatched, Throwable failure, int attempts) {
+        List<Dispatched> failed = new ArrayList<>();
+        for (Dispatched entry : dispatched) {
+            if (failure != null && BatchProcessingException.hasFailed(failure, entry.execution)) {
+                failed.add(entry);
+            } else {
+                offsetTracker.complete(entry.partition, entry.record.offset());
+            }
+        }
+        List<Dispatched> owned = owned(failed);
+        if (owned.isEmpty()) {
+            return;
+        }
+        if (attempts < retryMaxAttempts) {
+            long backoffMs = retryBackoffMs * attempts;
+            logger.warn("Failed to process {} executions through processors (attempt {} of {}), retrying in {} ms",
+                    owned.size(), attempts, retryMaxAttempts, backoffMs, failure);
+            vertx.setTimer(backoffMs, id -> retry(owned, attempts));
+        } else {
+            deadLetter(owned, failure, attempts);
         }
     }
 
+    /**
+     * Process failed executions again (only them: the rest of their batch was applied)
+     */
+    private void retry(List<Dispatched> failed, int attempts) {
+        List<Dispatched> owned = owned(failed);
+        if (owned.isEmpty()) {
+            return;
+        }
+        List<Execution> executions = new ArrayList<>(owned.size());
+        for (Dispatched entry : owned) {
+            executions.add(entry.execution);
+        }
+        processorRegistry.processBatch(executions)
+            .onComplete(ar -> settle(owned, ar.cause(), attempts + 1));
+    }
+
+    /**
+     * Keep the executions of partitions this loader still owns; the others (revoked, or the loader
+     * stopped) are released, so their redelivery to the next owner is processed
+     */
+    private List<Dispatched> owned(List<Dispatched> dispatched) {
+        List<Dispatched> owned = new ArrayList<>(dispatched.size());
+        for (Dispatched entry : dispatched) {
+            if (!stopping && offsetTracker.isTracked(entry.partition)) {
+                owned.add(entry);
+            } else {
+                deduplicator.release(entry.messageId);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * Send the raw records of executions that failed every attempt to the dead-letter topic, and
+     * complete their offsets once sent (their messageIds stay claimed); a failed send is retried
+     * Without a dead-letter topic they are released and their offsets left uncommitted
+     */
+    private void deadLetter(List<Dispatched> failed, Throwable failure, int attempts) {
+        if (deadLetters == null) {
+            logger.error("Failed to process {} executions through processors after {} attempts, offsets {} "
+                    + "are left uncommitted for redelivery", failed.size(), attempts, offsetsOf(failed), failure);
+            failed.forEach(entry -> deduplicator.release(entry.messageId));
+            return;
+        }
+        logger.error("Failed to process {} executions through processors after {} attempts, "
+                + "dead-lettering offsets {} to {}", failed.size(), attempts, offsetsOf(failed), deadLetterTopic, failure);
+        // A batch failure names its executions: the error is the cause
+        Throwable cause = failure instanceof BatchProcessingException && failure.getCause() != null
+                ? failure.getCause() : failure;
+        for (Dispatched entry : failed) {
+            deadLetter(entry, String.valueOf(cause));
+        }
+    }
+
+    private void deadLetter(Dispatched entry, String error) {
+        deadLetters.send(deadLetterRecord(entry.record, error)).onComplete(ar -> {
+            if (ar.succeeded()) {
+                offsetTracker.complete(entry.partition, entry.record.offset());
+                return;
+            }
+            logger.error("Failed to dead-letter offset {} of {}, retrying in {} ms",
+                    entry.record.offset(), entry.partition, retryBackoffMs, ar.cause());
+            vertx.setTimer(retryBackoffMs, id -> {
+                if (!owned(List.of(entry)).isEmpty()) {
+                    deadLetter(entry, error);
+                }
+            });
+        });
+    }
+
+    /**
+     * The raw record (key, value and codec header) with where it came from and why it failed
+     */
+    private KafkaProducerRecord<String, byte[]> deadLetterRecord(KafkaConsumerRecord<String, byte[]> record, String error) {
+        KafkaProducerRecord<String, byte[]> deadLetter =
+                KafkaProducerRecord.create(deadLetterTopic, record.key(), record.value());
+        Header codec = record.record().headers().lastHeader(ExecutionCodecs.HEADER);
+        if (codec != null) {
+            deadLetter.addHeader(ExecutionCodecs.HEADER, Buffer.buffer(codec.value()));
+        }
+        return deadLetter
+            .addHeader(DEAD_LETTER_TOPIC_HEADER, record.topic())
+            .addHeader(DEAD_LETTER_PARTITION_HEADER, String.valueOf(record.partition()))
+            .addHeader(DEAD_LETTER_OFFSET_HEADER, String.valueOf(record.offset()))
+            .addHeader(DEAD_LETTER_ERROR_HEADER, error);
+    }
+
+    private static List<String> offsetsOf(List<Dispatched> dispatched) {
+        List<String> offsets = new ArrayList<>(dispatched.size());
+        for (Dispatched entry : dispatched) {
+            offsets.add(entry.partition.getTopic() + ":" + entry.partition.getPartition() + ":" + entry.record.offset());
+        }
+        return offsets;
+    }
+
+    /**
+     * Release the messageIds of a replayed batch's failed executions, so their redelivery is processed
+     * The others were applied and stay claimed: their redelivery is dropped as a duplicate
+     *
+     * @param claimed messageId of each execution, by index
+     */
+    private void releaseFailed(List<Execution> executions, List<String> claimed, Throwable failure) {
+        for (int i = 0; i < executions.size(); i++) {
+            if (BatchProcessingException.hasFailed(failure, executions.get(i))) {
+                deduplicator.release(claimed.get(i));
+            }
+        }
+    }
+
+    /**
+     * Deserialize a Kafka record into an execution
+     * 
+     * @param claimed Collects the messageId of the returned execution, to release if its processing fails
+     * @return The execution, or null if the record is malformed, a duplicate or carries no execution
+     */
+    private Execution decode(KafkaConsumerRecord<String, byte[]> record, List<String> claimed) {
+        logger.debug("Received Kafka record from topic: {}, offset: {}", 
+                record.topic(), record.offset());
+        
+        byte[] value = record.value();
+        if (value == null) {
+            logger.warn("Empty Kafka record at {}:{}:{}", record.topic(), record.partition(), record.offset());
+            return null;
+        }
+        Header header = record.record().headers().lastHeader(ExecutionCodecs.HEADER);
+        ExecutionCodec codec = codecs.forRecord(record.topic(), header != null ? header.value() : null);
+        return decode(record.topic(), value, codec, claimed);
+    }
+
+    /**
+     * Deserialize a raw TradeExecutionWrapper payload into an execution
+     * 
+     * @param claimed Collects the messageId of the returned execution, to release if its processing fails
+     * @return The execution, or null if the payload is malformed, a duplicate or carries no execution
+     */
+    private Execution decode(String topic, byte[] value, ExecutionCodec codec, List<String> claimed) {
+        try {
+            // Deserialize the wrapper straight from the raw bytes
+            TradeExecutionWrapper wrapper = codec.decode(value);
+            
+            logger.debug("Deserialized wrapper: messageId={}, offset={}", 
+                    wrapper.getMessageId(), wrapper.getOffset());
+            
+            // Drop messages already seen (replays, producer retries) before they reach the processors
+            if (deduplicator.isDuplicate(wrapper.getMessageId())) {
+                logger.debug("Skipping duplicate message {}", wrapper.getMessageId());
+                return null;
+            }
+            
+            // Retrieve the execution from the wrapper
+            Execution execution = wrapper.getExecution();
+            
+            if (execution == null) {
+                logger.warn("No execution found in wrapper: {}", wrapper.getMessageId());
+                return null;
+            }
+            
+            claimed.add(wrapper.getMessageId());
+            return execution;
+        } catch (Exception e) {
+            // A malformed payload fails the same way on every redelivery: log it and skip it
+            logger.error("Error processing Kafka record from topic: {} (codec={})", topic, codec.getCodecName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Continue on this loader's event loop once journal writes completed (they complete on the
+     * journal writer thread); journal writes complete in order, so dispatch order is kept
+     */
+    private Future<Void> journaled(Future<?> written) {
+        if (written.isComplete()) {
+            return written.mapEmpty();
+        }
+        Promise<Void> promise = Promise.promise();
+        written.onComplete(ar -> context.runOnContext(v -> {
+            if (ar.succeeded()) {
+                promise.complete();
+            } else {
+                promise.fail(ar.cause());
+            }
+        }));
+        return promise.future();
+    }
+
+    /**
+     * Replay every journaled record through the ProcessorRegistry (crash recovery)
+     * Records are truncated once committed, so the journal holds what may not have been processed
+     * before the last stop. Run once at startup before the consumers start: Kafka then redelivers
+     * the same uncommitted records, which the deduplicator drops as already processed.
+     *
+     * @return Future with the number of executions replayed
+     */
+    public Future<Long> replayJournal() {
+        return journal.partitions().compose(partitions -> {
+            Future<Long> replayed = Future.succeededFuture(0L);
+            for (TopicPartition partition : partitions) {
+                replayed = replayed.compose(total -> replay(partition.getTopic(), partition.getPartition(), 0L)
+                        .map(count -> total + count));
+            }
+            return replayed;
+        });
+    }
+
+    /**
+     * Replay journaled records of a partition through the ProcessorRegistry (crash recovery)
+     * Records are read, decoded and processed in chunks of kafka.max.poll.records
+     * 
+     * @param topic The topic to replay
+     * @param partition The partition to replay
+     * @param fromOffset First offset to replay (typically the last committed offset)
+     * @return Future with the number of executions replayed
+     */
+    public Future<Long> replay(String topic, int partition, long fromOffset) {
+        logger.info("Replaying journal for {}:{} from offset {}", topic, partition, fromOffset);
+        return replayFrom(topic, partition, fromOffset, 0L)
+            .onSuccess(count -> logger.info("Replayed {} executions from journal for {}:{}", count, topic, partition))
+            .onFailure(err -> logger.error("Journal replay failed for {}:{}", topic, partition, err));
+    }
+
+    private Future<Long> replayFrom(String topic, int partition, long fromOffset, long replayed) {
+        return journal.read(topic, partition, fromOffset, maxPollRecords).compose(entries -> {
+            if (entries.isEmpty()) {
+                return Future.succeededFuture(replayed);
+            }
+            List<Execution> executions = new ArrayList<>(entries.size());
+            // messageId of each execution, by index
+            List<String> claimed = new ArrayList<>(entries.size());
+            TopicPartition journaled = new TopicPartition(topic, partition);
+            for (ExecutionJournal.Entry entry : entries) {
+                // Headers are not journaled: detect the codec from the payload itself
+                Execution execution = decode(topic, entry.getValue(), codecs.forPayload(topic, entry.getValue()), claimed);
+                if (execution != null) {
+                    executions.add(execution);
+                    ownership.recordAccount(journaled, execution.getAccountId());
+                }
+            }
+            long nextOffset = entries.get(entries.size() - 1).getOffset() + 1;
+            return processorRegistry.processBatch(executions)
+                .onFailure(err -> releaseFailed(executions, claimed, err))
+                .compose(v -> replayFrom(topic, partition, nextOffset, replayed + executions.size()));
+        });
+    }
+
+    /**
+     * Wrap the native consumer so the rebalance listener Vert.x subscribes with commits revoked
+     * partitions first (commitRevoked). Vert.x only runs partitionsRevokedHandler later, on the
+     * event loop, when the partitions may already belong to their next owner.
+     */
+    @SuppressWarnings("unchecked")
+    private Consumer<String, byte[]> commitOnRevoke(Consumer<String, byte[]> delegate) {
+        return (Consumer<String, byte[]>) Proxy.newProxyInstance(
+            Consumer.class.getClassLoader(),
+            new Class<?>[] {Consumer.class},
+            (proxy, method, args) -> {
+                if ("subscribe".equals(method.getName()) && args != null && args.length == 2
+                        && args[1] instanceof ConsumerRebalanceListener) {
+                    args[1] = new CommittingRebalanceListener(delegate, (ConsumerRebalanceListener) args[1]);
+                }
+                try {
+                    return method.invoke(delegate, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    /**
+     * Commit the completed offsets of revoked partitions synchronously and forget them
+     * Runs on the polling thread inside the rebalance, so the next owner starts after them;
+     * completions arriving later for these partitions are ignored (and redelivered to it)
+     */
+    private void commitRevoked(
+            Consumer<String, byte[]> nativeConsumer,
+            Collection<org.apache.kafka.common.TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = offsetTracker.revoke(toVertx(partitions));
+        if (offsets.isEmpty()) {
+            return;
+        }
+        Map<org.apache.kafka.common.TopicPartition, org.apache.kafka.clients.consumer.OffsetAndMetadata> commit =
+                new HashMap<>();
+        offsets.forEach((partition, offset) -> commit.put(
+            new org.apache.kafka.common.TopicPartition(partition.getTopic(), partition.getPartition()),
+            new org.apache.kafka.clients.consumer.OffsetAndMetadata(offset.getOffset(), offset.getMetadata())));
+        try {
+            nativeConsumer.commitSync(commit);
+            offsets.forEach((partition, offset) ->
+                journal.truncate(partition.getTopic(), partition.getPartition(), offset.getOffset()));
+            logger.info("Committed offsets of revoked partitions: {}", offsets);
+        } catch (KafkaException e) {
+            logger.error("Failed to commit offsets of revoked partitions {}, "
+                    + "the next owner starts from the previous commit", offsets, e);
+        }
+    }
+
+    private static Set<TopicPartition> toVertx(Collection<org.apache.kafka.common.TopicPartition> partitions) {
+        Set<TopicPartition> converted = new HashSet<>();
+        for (org.apache.kafka.common.TopicPartition partition : partitions) {
+            converted.add(new TopicPartition(partition.topic(), partition.partition()));
+        }
+        return converted;
+    }
+
+    /**
+     * Commits revoked partitions before handing the rebalance to Vert.x' listener
+     * Lost partitions (already owned elsewhere) are only forgotten: committing them would fail
+     */
+    private final class CommittingRebalanceListener implements ConsumerRebalanceListener {
+        private final Consumer<String, byte[]> nativeConsumer;
+        private final ConsumerRebalanceListener delegate;
+
+        CommittingRebalanceListener(Consumer<String, byte[]> nativeConsumer, ConsumerRebalanceListener delegate) {
+            this.nativeConsumer = nativeConsumer;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onPartitionsRevoked(Collection<org.apache.kafka.common.TopicPartition> partitions) {
+            commitRevoked(nativeConsumer, partitions);
+            delegate.onPartitionsRevoked(partitions);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<org.apache.kafka.common.TopicPartition> partitions) {
+            delegate.onPartitionsAssigned(partitions);
+        }
+
+        @Override
+        public void onPartitionsLost(Collection<org.apache.kafka.common.TopicPartition> partitions) {
+            offsetTracker.revoke(toVertx(partitions));
+            delegate.onPartitionsLost(partitions);
+        }
+    }
+
+    /**
+     * Commit offsets and drop the journaled records they cover
+     */
+    private Future<?> commit(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        return consumer.commit(offsets)
+            .onSuccess(committed -> committed.forEach((partition, offset) -> 
+                journal.truncate(partition.getTopic(), partition.getPartition(), offset.getOffset())));
+    }
+
+    /**
+     * Stop the Kafka consumer: commit completed offsets, close the consumer and release its partitions
+     * Executions waiting for a retry are released (redelivered to the next owner)
+     * The shared journal is closed by the application once every instance has stopped
+     */
+    public Future<Void> stop() {
+        if (consumer == null) {
+            return Future.succeededFuture();
+        }
+        logger.info("Stopping Kafka consumer {}...", instanceId);
+        stopping = true;
+        backpressure.removeStateChangeListener(backpressureListener);
+        backpressure.setPressure(pressureSource, false);
+        return offsetTracker.stop()
+            .eventually(v -> consumer.close())
+            .eventually(v -> deadLetters != null ? deadLetters.close() : Future.<Void>succeededFuture())
+            .onComplete(ar -> {
+                ownership.releaseAll(instanceId);
+                if (ar.succeeded()) {
+                    logger.info("Kafka consumer {} closed successfully", instanceId);
+                } else {
+                    logger.error("Failed to close Kafka consumer {}", instanceId, ar.cause());
+                }
+            });
+    }
+
     /**
      * Pause consumption (for backpressure)
      */
@@ -173,5 +771,22 @@ public class KafkaDataLoader {
     public boolean isPaused() {
         return paused;
     }
+
+    /**
+     * A dispatched execution with its record, to complete, retry or dead-letter
+     */
+    private static final class Dispatched {
+        final KafkaConsumerRecord<String, byte[]> record;
+        final TopicPartition partition;
+        final Execution execution;
+        final String messageId;
+
+        Dispatched(KafkaConsumerRecord<String, byte[]> record, TopicPartition partition, Execution execution, String messageId) {
+            this.record = record;
+            this.partition = partition;
+            this.execution = execution;
+            this.messageId = messageId;
+        }
+    }
 }
 
@@ -0,0 +1,20 @@
+package com.margin.api.loader;
+
+import org.apache.kafka.clients.producer.Producer;
+
+import java.util.Map;
+
+/**
+ * Creates the native Kafka producers used by KafkaDataLoader (dead-letter topic)
+ * Lets load tests swap in a MockProducer-backed broker stand-in
+ */
+public interface KafkaProducerFactory {
+    
+    /**
+     * Create a producer
+     * 
+     * @param config Producer configuration (bootstrap servers, serializers, ...)
+     * @return A new producer
+     */
+    Producer<String, byte[]> create(Map<String, String> config);
+}
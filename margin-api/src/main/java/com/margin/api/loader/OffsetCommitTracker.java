@@ -0,0 +1,227 @@
+package com.margin.api.loader;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.common.TopicPartition;
+import io.vertx.kafka.client.consumer.OffsetAndMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Safe asynchronous offset commits for out-of-order processing
+ * Keeps one PartitionOffsetTracker per partition and only ever commits the
+ * highest contiguous completed offset, so a slow execution is never skipped
+ * on a crash while many executions stay in flight (at-least-once)
+ *
+ * Commits are triggered when a count threshold of completions is reached
+ * or by a periodic timer, whichever comes first
+ *
+ * Each partition's window of offsets in flight is capped (windowCapacity): an offset beyond it is
+ * refused, and the tracker reports saturation until every window is back under half its capacity,
+ * so the caller can hold consumption meanwhile
+ */
+public class OffsetCommitTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffsetCommitTracker.class);
+
+    private final Vertx vertx;
+    private final Function<Map<TopicPartition, OffsetAndMetadata>, Future<?>> committer;
+    private final int commitThreshold;
+    private final long commitIntervalMs;
+    private final int windowCapacity;
+    private final Handler<Boolean> saturationListener;
+    private final Map<TopicPartition, PartitionOffsetTracker> trackers = new HashMap<>();
+    private final Map<TopicPartition, Long> committed = new HashMap<>();
+    private int completedSinceCommit;
+    private boolean saturated;
+    private long timerId = -1;
+
+    /**
+     * @param windowCapacity Offsets in flight per partition before further offsets are refused
+     * @param saturationListener Told true when an offset is refused, false once every window is
+     *                           back under half its capacity (called holding the tracker's lock, so
+     *                           in order: it must not block nor call back into the tracker)
+     */
+    public OffsetCommitTracker(
+            Vertx vertx,
+            Function<Map<TopicPartition, OffsetAndMetadata>, Future<?>> committer,
+            int commitThreshold,
+            long commitIntervalMs,
+            int windowCapacity,
+            Handler<Boolean> saturationListener) {
+        this.vertx = vertx;
+        this.committer = committer;
+        this.commitThreshold = commitThreshold;
+        this.commitIntervalMs = commitIntervalMs;
+        this.windowCapacity = windowCapacity;
+        this.saturationListener = saturationListener;
+    }
+
+    /**
+     * Start the periodic commit timer
+     */
+    public void start() {
+        if (commitIntervalMs > 0) {
+            timerId = vertx.setPeriodic(commitIntervalMs, id -> commit());
+        }
+        logger.info("OffsetCommitTracker started (threshold={}, interval={}ms)", commitThreshold, commitIntervalMs);
+    }
+
+    /**
+     * Stop the timer and commit whatever is contiguous
+     */
+    public Future<Void> stop() {
+        if (timerId >= 0) {
+            vertx.cancelTimer(timerId);
+            timerId = -1;
+        }
+        return commit();
+    }
+
+    /**
+     * Record that an offset has been received and is about to be dispatched
+     *
+     * @return false if the offset lies beyond its partition's window: it must not be dispatched,
+     *         the partition is to be consumed again from refusedOffset once the window has drained
+     */
+    public synchronized boolean track(TopicPartition partition, long offset) {
+        if (trackers.computeIfAbsent(partition, p -> new PartitionOffsetTracker(
+                Math.min(1024, windowCapacity), windowCapacity)).track(offset)) {
+            return true;
+        }
+        if (!saturated) {
+            saturated = true;
+            logger.warn("Offsets of {} in flight reached the window capacity ({}), holding consumption",
+                    partition, windowCapacity);
+            saturationListener.handle(true);
+        }
+        return false;
+    }
+
+    /**
+     * First refused offset of a partition, to seek back to, or -1 if none is
+     */
+    public synchronized long refusedOffset(TopicPartition partition) {
+        PartitionOffsetTracker tracker = trackers.get(partition);
+        return tracker == null ? -1 : tracker.refusedOffset();
+    }
+
+    /**
+     * Whether a partition is tracked (assigned and not revoked since)
+     */
+    public synchronized boolean isTracked(TopicPartition partition) {
+        return trackers.containsKey(partition);
+    }
+
+    /**
+     * Record that an offset has finished processing (successfully, or skipped for good)
+     * A failed offset is never completed: it holds the partition's commit point for redelivery
+     */
+    public void complete(TopicPartition partition, long offset) {
+        boolean thresholdReached;
+        synchronized (this) {
+            PartitionOffsetTracker tracker = trackers.get(partition);
+            if (tracker == null) {
+                // Partition was revoked while the execution was in flight
+                return;
+            }
+            tracker.complete(offset);
+            thresholdReached = ++completedSinceCommit >= commitThreshold;
+            desaturate();
+        }
+        if (thresholdReached) {
+            commit();
+        }
+    }
+
+    /**
+     * Commit the committable offset of every partition that advanced since the last commit
+     */
+    public Future<Void> commit() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = collect(trackers.keySet());
+        if (offsets.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        return send(offsets);
+    }
+
+    /**
+     * Forget revoked partitions
+     * The caller commits the returned offsets synchronously, before the partitions move to
+     * their next owner (completions arriving after this are ignored)
+     *
+     * @return The committable offsets of the partitions not committed yet
+     */
+    public synchronized Map<TopicPartition, OffsetAndMetadata> revoke(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = collect(partitions);
+        for (TopicPartition partition : partitions) {
+            trackers.remove(partition);
+            committed.remove(partition);
+        }
+        desaturate();
+        return offsets;
+    }
+
+    /**
+     * Leave saturation once every window is back under half its capacity (holding the lock)
+     */
+    private void desaturate() {
+        if (!saturated) {
+            return;
+        }
+        for (PartitionOffsetTracker tracker : trackers.values()) {
+            if (tracker.pending() > windowCapacity / 2) {
+                return;
+            }
+        }
+        saturated = false;
+        logger.info("Offsets in flight back under half the window capacity, resuming consumption");
+        saturationListener.handle(false);
+    }
+
+    /**
+     * Offsets tracked but not yet committable, per partition
+     */
+    public synchronized Map<TopicPartition, Long> pending() {
+        Map<TopicPartition, Long> pending = new HashMap<>();
+        trackers.forEach((partition, tracker) -> pending.put(partition, tracker.pending()));
+        return pending;
+    }
+
+    private synchronized Map<TopicPartition, OffsetAndMetadata> collect(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            PartitionOffsetTracker tracker = trackers.get(partition);
+            if (tracker == null) {
+                continue;
+            }
+            long offset = tracker.committableOffset();
+            Long last = committed.get(partition);
+            if (offset >= 0 && (last == null || offset > last)) {
+                offsets.put(partition, new OffsetAndMetadata(offset, null));
+                committed.put(partition, offset);
+            }
+        }
+        completedSinceCommit = 0;
+        return offsets;
+    }
+
+    private Future<Void> send(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        logger.debug("Committing offsets {}", offsets);
+        return committer.apply(offsets)
+            .onFailure(err -> {
+                logger.error("Failed to commit offsets {}", offsets, err);
+                synchronized (this) {
+                    // Allow the next commit to retry these partitions
+                    offsets.keySet().forEach(committed::remove);
+                }
+            })
+            .mapEmpty();
+    }
+}
@@ -0,0 +1,177 @@
+package com.margin.api.loader;
+
+/**
+ * Tracks out-of-order completion of offsets for a single Kafka partition
+ *
+ * Completed offsets are recorded in a ring bitset anchored at the lowest
+ * offset that has not completed yet, so the committable position is always
+ * the highest contiguous completed offset + 1. Memory is proportional to the
+ * number of offsets in flight, not to the partition size, and bounded by the
+ * window: an offset further than maxCapacity past the lowest incomplete one
+ * is refused, and so is every later offset until the refused one is tracked
+ * (the caller seeks back to it and holds consumption meanwhile).
+ *
+ * Not thread-safe; callers synchronize externally (see OffsetCommitTracker).
+ */
+public class PartitionOffsetTracker {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    static final int DEFAULT_MAX_CAPACITY = 1 << 20;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final int maxCapacity;
+    private long[] words;
+    private int mask;
+    private int head;
+    private long base = -1;
+    private long highest = -1;
+    private long refused = -1;
+
+    public PartitionOffsetTracker() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PartitionOffsetTracker(int initialCapacity) {
+        this(initialCapacity, Math.max(initialCapacity, DEFAULT_MAX_CAPACITY));
+    }
+
+    /**
+     * @param initialCapacity Offsets the window holds before it grows
+     * @param maxCapacity Offsets the window may grow to (rounded up to a power of two)
+     */
+    public PartitionOffsetTracker(int initialCapacity, int maxCapacity) {
+        int capacity = powerOfTwo(initialCapacity);
+        this.maxCapacity = Math.max(capacity, powerOfTwo(maxCapacity));
+        this.words = new long[capacity >>> 6];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Record that an offset has been dispatched for processing
+     * Offsets skipped by the broker (compaction, transaction markers) are treated as completed
+     *
+     * @return false if the offset lies beyond the window, or after an offset refused earlier
+     *         (nothing is tracked): it must not be dispatched, see refusedOffset
+     */
+    public boolean track(long offset) {
+        if (refused >= 0) {
+            if (offset > refused) {
+                return false;
+            }
+            if (offset == refused) {
+                refused = -1;
+            }
+        }
+        if (base < 0) {
+            base = offset;
+            highest = offset;
+            return true;
+        }
+        if (offset <= highest) {
+            // Redelivery after a seek or rebalance - already tracked
+            return true;
+        }
+        if (base > highest && offset - base >= capacity()) {
+            // Nothing in flight, jump straight over the gap
+            base = offset;
+            head = 0;
+            highest = offset;
+            return true;
+        }
+        if (offset - base >= maxCapacity) {
+            refused = offset;
+            return false;
+        }
+        ensureCapacity(offset);
+        for (long gap = highest + 1; gap < offset; gap++) {
+            set(gap);
+        }
+        highest = offset;
+        advance();
+        return true;
+    }
+
+    /**
+     * Record that an offset has finished processing
+     */
+    public void complete(long offset) {
+        if (base < 0 || offset < base || offset > highest) {
+            return;
+        }
+        set(offset);
+        advance();
+    }
+
+    /**
+     * Offset to commit: one past the highest contiguous completed offset, or -1 if nothing was tracked
+     */
+    public long committableOffset() {
+        return base;
+    }
+
+    /**
+     * First offset refused since, to consume again (seek back to) once the window has room,
+     * or -1 if none is
+     */
+    public long refusedOffset() {
+        return refused;
+    }
+
+    /**
+     * Number of tracked offsets not yet covered by the committable offset
+     */
+    public long pending() {
+        return base < 0 ? 0 : highest + 1 - base;
+    }
+
+    private int capacity() {
+        return mask + 1;
+    }
+
+    private static int powerOfTwo(int capacity) {
+        return Math.max(64, Integer.highestOneBit(Math.min(Math.max(capacity, 64), MAX_CAPACITY) - 1) << 1);
+    }
+
+    private void set(long offset) {
+        int index = (head + (int) (offset - base)) & mask;
+        words[index >>> 6] |= 1L << index;
+    }
+
+    private void advance() {
+        while (base <= highest) {
+            int bit = head & 63;
+            long word = words[head >>> 6];
+            long clear = ~word >>> bit;
+            int run = clear == 0 ? 64 - bit : Long.numberOfTrailingZeros(clear);
+            if (run == 0) {
+                return;
+            }
+            long runMask = run == 64 ? -1L : ((1L << run) - 1) << bit;
+            words[head >>> 6] = word & ~runMask;
+            head = (head + run) & mask;
+            base += run;
+        }
+    }
+
+    private void ensureCapacity(long offset) {
+        long required = offset - base + 1;
+        if (required <= capacity()) {
+            return;
+        }
+        int capacity = capacity();
+        while (capacity < required) {
+            capacity <<= 1;
+        }
+        long[] resized = new long[capacity >>> 6];
+        long inFlight = highest + 1 - base;
+        for (int i = 0; i < inFlight; i++) {
+            int index = (head + i) & mask;
+            if ((words[index >>> 6] & (1L << index)) != 0) {
+                resized[i >>> 6] |= 1L << i;
+            }
+        }
+        words = resized;
+        mask = capacity - 1;
+        head = 0;
+    }
+}
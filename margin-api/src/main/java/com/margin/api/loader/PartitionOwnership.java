@@ -0,0 +1,191 @@
+package com.margin.api.loader;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.margin.api.aggregator.Aggregator;
+import com.margin.api.aggregator.MarginAggregator;
+import com.margin.api.aggregator.PositionAggregator;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.kafka.client.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which ingestion instance owns each Kafka partition in this process
+ * The owner of a partition owns the aggregated state of the accounts whose executions it
+ * consumed: each account is recorded under the partitions it was read from, so ownership
+ * does not depend on how producers key their records.
+ *
+ * Handoff: partitions moving between local instances keep their state, since aggregators
+ * are shared and account lanes keep per-account order across the old and new owner.
+ * Partitions that are still unowned ingestion.handoff.grace.ms after a revoke have moved
+ * to another process, and the state of their accounts is evicted.
+ */
+@Singleton
+public class PartitionOwnership {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionOwnership.class);
+
+    private final Vertx vertx;
+    private final List<Aggregator<?, ?>> aggregators;
+    private final long handoffGraceMs;
+    private final Map<TopicPartition, String> owners = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Set<String>> accounts = new ConcurrentHashMap<>();
+    private long evictionTimerId = -1;
+
+    @Inject
+    public PartitionOwnership(
+            Vertx vertx,
+            JsonObject config,
+            MarginAggregator marginAggregator,
+            PositionAggregator positionAggregator) {
+        this.vertx = vertx;
+        this.aggregators = List.of(marginAggregator, positionAggregator);
+        this.handoffGraceMs = config.getLong("ingestion.handoff.grace.ms", 30_000L);
+        logger.info("PartitionOwnership initialized (handoffGrace={}ms)", handoffGraceMs);
+    }
+
+    /**
+     * Record partitions assigned to an instance
+     */
+    public void assigned(String instanceId, Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            String previous = owners.put(partition, instanceId);
+            if (previous != null && !previous.equals(instanceId)) {
+                logger.info("Partition {} handed off from {} to {}", partition, previous, instanceId);
+            }
+        }
+        logger.info("{} now owns {}", instanceId, partitions);
+    }
+
+    /**
+     * Release partitions revoked from an instance
+     * Partitions already re-assigned to another local instance are left alone
+     */
+    public void revoked(String instanceId, Collection<TopicPartition> partitions) {
+        boolean released = false;
+        for (TopicPartition partition : partitions) {
+            released |= owners.remove(partition, instanceId);
+        }
+        if (released) {
+            scheduleEviction();
+        }
+    }
+
+    /**
+     * Release every partition of an instance (instance stopped)
+     */
+    public void releaseAll(String instanceId) {
+        List<TopicPartition> owned = new ArrayList<>();
+        owners.forEach((partition, owner) -> {
+            if (owner.equals(instanceId)) {
+                owned.add(partition);
+            }
+        });
+        revoked(instanceId, owned);
+    }
+
+    /**
+     * Record that an account's executions are read from a partition
+     */
+    public void recordAccount(TopicPartition partition, String accountId) {
+        Set<String> recorded = accounts.get(partition);
+        if (recorded == null) {
+            recorded = accounts.computeIfAbsent(partition, p -> ConcurrentHashMap.newKeySet());
+        }
+        recorded.add(accountId);
+    }
+
+    /**
+     * Get the local instance owning a partition, or null if it is not owned in this process
+     */
+    public String ownerOf(TopicPartition partition) {
+        return owners.get(partition);
+    }
+
+    /**
+     * Check whether any partition an account was read from is owned in this process
+     */
+    public boolean ownsAccount(String accountId) {
+        for (Map.Entry<TopicPartition, Set<String>> partition : accounts.entrySet()) {
+            if (owners.containsKey(partition.getKey()) && partition.getValue().contains(accountId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Partition of a record key under the Kafka default partitioner
+     */
+    public static int partitionOf(String key, int partitionCount) {
+        return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % partitionCount;
+    }
+
+    /**
+     * Current ownership for monitoring
+     */
+    public JsonObject toJson() {
+        JsonObject partitions = new JsonObject();
+        owners.forEach((partition, owner) ->
+                partitions.put(partition.getTopic() + "-" + partition.getPartition(), owner));
+        JsonObject counts = new JsonObject();
+        accounts.forEach((partition, recorded) ->
+                counts.put(partition.getTopic() + "-" + partition.getPartition(), recorded.size()));
+        return new JsonObject()
+                .put("partitions", partitions)
+                .put("accounts", counts)
+                .put("handoffGraceMs", handoffGraceMs);
+    }
+
+    private synchronized void scheduleEviction() {
+        if (evictionTimerId != -1) {
+            vertx.cancelTimer(evictionTimerId);
+        }
+        evictionTimerId = vertx.setTimer(handoffGraceMs, id -> {
+            synchronized (this) {
+                evictionTimerId = -1;
+            }
+            evictUnowned();
+        });
+    }
+
+    /**
+     * Evict the state of every account read from a partition no longer owned in this process
+     * Accounts also read from an owned partition are kept; accounts never recorded (not
+     * consumed from Kafka) are left alone.
+     */
+    void evictUnowned() {
+        Set<String> unowned = new HashSet<>();
+        for (TopicPartition partition : List.copyOf(accounts.keySet())) {
+            if (!owners.containsKey(partition)) {
+                Set<String> recorded = accounts.remove(partition);
+                if (recorded != null) {
+                    unowned.addAll(recorded);
+                }
+            }
+        }
+        unowned.removeIf(this::ownsAccount);
+        if (unowned.isEmpty()) {
+            return;
+        }
+        for (Aggregator<?, ?> aggregator : aggregators) {
+            int evicted = aggregator.evictAccounts(unowned::contains);
+            if (evicted > 0) {
+                logger.info("Evicted {} {} entries of accounts owned by another process",
+                        evicted, aggregator.getAggregatorType());
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.margin.api.loader;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.margin.api.model.Execution;
+import com.margin.api.model.TradeExecutionWrapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+
+/**
+ * Hand-written streaming decoder for TradeExecutionWrapper JSON payloads
+ * Parses raw Kafka bytes directly with a Jackson JsonParser: no intermediate String
+ * and no reflective @JsonCreator binding. Accepts the same representations as the
+ * ObjectMapper + JavaTimeModule setup it replaces (instants as ISO strings, epoch
+ * seconds or decimal seconds.nanos; decimals as numbers or strings); unknown fields
+ * are skipped. Thread-safe.
+ */
+public class TradeExecutionWrapperDecoder {
+
+    private static final BigInteger NANOS_PER_SECOND = BigInteger.valueOf(1_000_000_000L);
+
+    private final JsonFactory jsonFactory;
+
+    public TradeExecutionWrapperDecoder() {
+        this.jsonFactory = new JsonFactory();
+    }
+
+    /**
+     * Decode a complete payload
+     */
+    public TradeExecutionWrapper decode(byte[] data) throws IOException {
+        return decode(data, 0, data.length);
+    }
+
+    /**
+     * Decode a payload held in a slice of a larger buffer
+     */
+    public TradeExecutionWrapper decode(byte[] data, int offset, int length) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(data, offset, length)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            return readWrapper(parser);
+        }
+    }
+
+    private TradeExecutionWrapper readWrapper(JsonParser parser) throws IOException {
+        String messageId = null;
+        String topic = null;
+        long offset = 0;
+        long timestamp = 0;
+        Execution execution = null;
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "messageId":
+                    messageId = readString(parser, token);
+                    break;
+                case "topic":
+                    topic = readString(parser, token);
+                    break;
+                case "offset":
+                    offset = readLong(parser, token);
+                    break;
+                case "timestamp":
+                    timestamp = readLong(parser, token);
+                    break;
+                case "execution":
+                    if (token != JsonToken.VALUE_NULL) {
+                        expect(parser, token, JsonToken.START_OBJECT);
+                        execution = readExecution(parser);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new TradeExecutionWrapper(messageId, topic, offset, timestamp, execution);
+    }
+
+    private Execution readExecution(JsonParser parser) throws IOException {
+        String id = null;
+        String accountId = null;
+        String symbol = null;
+        String orderId = null;
+        BigDecimal price = null;
+        BigDecimal quantity = null;
+        Execution.ExecutionSide side = null;
+        Execution.ExecutionType type = null;
+        Instant executionTime = null;
+        Instant createdAt = null;
+        Instant updatedAt = null;
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = readString(parser, token);
+                    break;
+                case "accountId":
+                    accountId = readString(parser, token);
+                    break;
+                case "symbol":
+                    symbol = readString(parser, token);
+                    break;
+                case "orderId":
+                    orderId = readString(parser, token);
+                    break;
+                case "price":
+                    price = readDecimal(parser, token);
+                    break;
+                case "quantity":
+                    quantity = readDecimal(parser, token);
+                    break;
+                case "side":
+                    String sideName = readString(parser, token);
+                    side = sideName == null ? null : Execution.ExecutionSide.valueOf(sideName);
+                    break;
+                case "type":
+                    String typeName = readString(parser, token);
+                    type = typeName == null ? null : Execution.ExecutionType.valueOf(typeName);
+                    break;
+                case "executionTime":
+                    executionTime = readInstant(parser, token);
+                    break;
+                case "createdAt":
+                    createdAt = readInstant(parser, token);
+                    break;
+                case "updatedAt":
+                    updatedAt = readInstant(parser, token);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new Execution(id, accountId, symbol, orderId, price, quantity, side, type,
+                executionTime, createdAt, updatedAt);
+    }
+
+    private static String readString(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new JsonParseException(parser, "Expected scalar value but got " + token);
+        }
+        return parser.getText();
+    }
+
+    private static long readLong(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return 0;
+            case VALUE_NUMBER_INT:
+                return parser.getLongValue();
+            case VALUE_STRING:
+                return Long.parseLong(parser.getText().trim());
+            default:
+                throw new JsonParseException(parser, "Expected integer but got " + token);
+        }
+    }
+
+    private static BigDecimal readDecimal(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDecimalValue();
+            case VALUE_STRING:
+                String text = parser.getText().trim();
+                return text.isEmpty() ? null : new BigDecimal(text);
+            default:
+                throw new JsonParseException(parser, "Expected decimal but got " + token);
+        }
+    }
+
+    private static Instant readInstant(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_NUMBER_INT:
+                // Epoch seconds (JavaTimeModule default for integer timestamps)
+                return Instant.ofEpochSecond(parser.getLongValue());
+            case VALUE_NUMBER_FLOAT:
+                // Decimal seconds.nanos (JavaTimeModule default serialization)
+                BigInteger[] secondsAndNanos = parser.getDecimalValue()
+                        .movePointRight(9).toBigInteger().divideAndRemainder(NANOS_PER_SECOND);
+                return Instant.ofEpochSecond(secondsAndNanos[0].longValue(), secondsAndNanos[1].longValue());
+            case VALUE_STRING:
+                String text = parser.getText().trim();
+                return text.isEmpty() ? null : Instant.parse(text);
+            default:
+                throw new JsonParseException(parser, "Expected instant but got " + token);
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but got " + actual);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.margin.api.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.math.BigDecimal;
@@ -20,6 +21,12 @@ public class Execution extends BaseEntity {
     private final ExecutionSide side;
     private final ExecutionType type;
     private final Instant executionTime;
+    // Fixed-point price and quantity, converted once at the boundary (see FixedPoint)
+    private final boolean fixedPoint;
+    private final long priceUnits;
+    private final int priceScale;
+    private final long quantityUnits;
+    private final int quantityScale;
 
     @JsonCreator
     public Execution(
@@ -43,6 +50,11 @@ public class Execution extends BaseEntity {
         this.side = side;
         this.type = type != null ? type : ExecutionType.MARKET;
         this.executionTime = executionTime != null ? executionTime : Instant.now();
+        this.fixedPoint = FixedPoint.isRepresentable(price) && FixedPoint.isRepresentable(quantity);
+        this.priceUnits = fixedPoint ? FixedPoint.unscaled(price) : 0;
+        this.priceScale = fixedPoint ? price.scale() : 0;
+        this.quantityUnits = fixedPoint ? FixedPoint.unscaled(quantity) : 0;
+        this.quantityScale = fixedPoint ? quantity.scale() : 0;
     }
 
     public String getAccountId() {
@@ -77,6 +89,34 @@ public class Execution extends BaseEntity {
         return executionTime;
     }
 
+    /**
+     * Whether price and quantity are available in fixed point (otherwise use the BigDecimal getters)
+     */
+    @JsonIgnore
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    @JsonIgnore
+    public long getPriceUnits() {
+        return priceUnits;
+    }
+
+    @JsonIgnore
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    @JsonIgnore
+    public long getQuantityUnits() {
+        return quantityUnits;
+    }
+
+    @JsonIgnore
+    public int getQuantityScale() {
+        return quantityScale;
+    }
+
     public BigDecimal getNotionalValue() {
         return price.multiply(quantity);
     }
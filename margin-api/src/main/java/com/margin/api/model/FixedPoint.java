@@ -0,0 +1,108 @@
+package com.margin.api.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Primitive fixed-point decimal arithmetic
+ * A value is a long number of units at an explicit scale: units x 10^-scale (scale 2: 12345 = 123.45),
+ * so the hot path computes without allocating BigDecimal objects. Rounding is HALF_UP, exactly
+ * like BigDecimal.setScale(scale, RoundingMode.HALF_UP) on the exact product.
+ *
+ * Operations throw ArithmeticException when a result does not fit in a long; callers fall
+ * back to BigDecimal then, so results are identical either way. Convert at API boundaries
+ * only (isRepresentable/unscaled on the way in, toBigDecimal on the way out).
+ */
+public final class FixedPoint {
+
+    public static final int MAX_SCALE = 18;
+
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Check whether a BigDecimal converts to units at its own scale without loss
+     */
+    public static boolean isRepresentable(BigDecimal value) {
+        // precision <= 18 digits keeps the unscaled value below 10^18 < 2^63
+        return value != null && value.scale() >= 0 && value.scale() <= MAX_SCALE && value.precision() <= MAX_SCALE;
+    }
+
+    /**
+     * Units of a representable BigDecimal at its own scale (value.scale())
+     *
+     * @throws ArithmeticException if the value is not representable
+     */
+    public static long unscaled(BigDecimal value) {
+        if (!isRepresentable(value)) {
+            throw new ArithmeticException("Not representable in fixed point: " + value);
+        }
+        return value.unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long units, int scale) {
+        return BigDecimal.valueOf(units, scale);
+    }
+
+    /**
+     * Convert units between scales: exact when scaling up, HALF_UP when scaling down
+     *
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    public static long rescale(long units, int scale, int newScale) {
+        if (newScale == scale || units == 0) {
+            return units;
+        }
+        if (newScale > scale) {
+            int shift = newScale - scale;
+            if (shift > MAX_SCALE) {
+                throw new ArithmeticException("Fixed-point overflow rescaling " + units + " by 10^" + shift);
+            }
+            return Math.multiplyExact(units, POWERS_OF_TEN[shift]);
+        }
+        int shift = scale - newScale;
+        if (shift > MAX_SCALE) {
+            return BigDecimal.valueOf(units, scale).setScale(newScale, RoundingMode.HALF_UP).longValueExact();
+        }
+        return divideHalfUp(units, POWERS_OF_TEN[shift]);
+    }
+
+    /**
+     * Product of two values, rounded HALF_UP to a scale
+     *
+     * @throws ArithmeticException if the exact product or the result does not fit in a long
+     */
+    public static long multiply(long a, int aScale, long b, int bScale, int scale) {
+        return rescale(Math.multiplyExact(a, b), aScale + bScale, scale);
+    }
+
+    /**
+     * Product of three values, rounded HALF_UP to a scale (one rounding, on the exact product)
+     *
+     * @throws ArithmeticException if the exact product or the result does not fit in a long
+     */
+    public static long multiply(long a, int aScale, long b, int bScale, long c, int cScale, int scale) {
+        return rescale(Math.multiplyExact(Math.multiplyExact(a, b), c), aScale + bScale + cScale, scale);
+    }
+
+    /**
+     * Division by a positive power of ten, rounding half away from zero
+     */
+    private static long divideHalfUp(long value, long divisor) {
+        long quotient = value / divisor;
+        long remainder = value % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += value < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+}
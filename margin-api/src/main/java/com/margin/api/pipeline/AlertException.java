@@ -0,0 +1,11 @@
+package com.margin.api.pipeline;
+
+/**
+ * Thrown to a waiting consumer when its SequenceBarrier is alerted (pipeline halting)
+ */
+public class AlertException extends Exception {
+
+    public AlertException() {
+        super("Sequence barrier alerted", null, false, false);
+    }
+}
@@ -0,0 +1,63 @@
+package com.margin.api.pipeline;
+
+import com.margin.api.model.Execution;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Completion of a batch of executions published to the ring buffer
+ * One instance per published batch (not per execution); its future completes on the
+ * publisher's context once the last event of the batch has passed every stage
+ */
+public class BatchCompletion {
+
+    private final Context context;
+    private final Promise<Void> promise = Promise.promise();
+    private final AtomicInteger remaining;
+    private final Queue<Execution> failedExecutions = new ConcurrentLinkedQueue<>();
+    private volatile Throwable failure;
+
+    public BatchCompletion(Context context, int size) {
+        this.context = context;
+        this.remaining = new AtomicInteger(size);
+    }
+
+    public Future<Void> future() {
+        return promise.future();
+    }
+
+    /**
+     * Executions whose event failed, complete once the future has
+     */
+    public List<Execution> getFailedExecutions() {
+        return List.copyOf(failedExecutions);
+    }
+
+    /**
+     * Record one finished event (failure is null on success)
+     */
+    public void done(Execution execution, Throwable eventFailure) {
+        if (eventFailure != null) {
+            failedExecutions.add(execution);
+            if (failure == null) {
+                failure = eventFailure;
+            }
+        }
+        if (remaining.decrementAndGet() == 0) {
+            Throwable cause = failure;
+            context.runOnContext(v -> {
+                if (cause == null) {
+                    promise.complete();
+                } else {
+                    promise.fail(cause);
+                }
+            });
+        }
+    }
+}
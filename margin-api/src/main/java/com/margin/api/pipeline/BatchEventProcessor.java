@@ -0,0 +1,72 @@
+package com.margin.api.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Consumer loop of a pipeline stage, run on its own thread
+ * Takes every event available behind its barrier in one go and hands them to the handler
+ * in sequence order, then publishes its progress once per batch
+ */
+public class BatchEventProcessor<E> implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchEventProcessor.class);
+
+    private final String name;
+    private final RingBuffer<E> ringBuffer;
+    private final SequenceBarrier barrier;
+    private final EventHandler<E> handler;
+    private final Sequence sequence = new Sequence();
+    private volatile boolean running = true;
+
+    public BatchEventProcessor(String name, RingBuffer<E> ringBuffer, SequenceBarrier barrier, EventHandler<E> handler) {
+        this.name = name;
+        this.ringBuffer = ringBuffer;
+        this.barrier = barrier;
+        this.handler = handler;
+    }
+
+    /**
+     * Progress of this consumer (the last sequence it has processed)
+     */
+    public Sequence getSequence() {
+        return sequence;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void run() {
+        long next = sequence.get() + 1;
+        while (running) {
+            try {
+                long available = barrier.waitFor(next);
+                while (next <= available) {
+                    E event = ringBuffer.get(next);
+                    try {
+                        handler.onEvent(event, next, next == available);
+                    } catch (Exception e) {
+                        logger.error("Pipeline consumer {} failed on sequence {}", name, next, e);
+                    }
+                    next++;
+                }
+                sequence.set(available);
+            } catch (AlertException e) {
+                // Halted
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop the consumer once its current batch is done
+     */
+    public void halt() {
+        running = false;
+        barrier.alert();
+    }
+}
@@ -0,0 +1,18 @@
+package com.margin.api.pipeline;
+
+/**
+ * Callback of a pipeline consumer, invoked for each event in sequence order
+ */
+@FunctionalInterface
+public interface EventHandler<E> {
+
+    /**
+     * Handle one event of the ring buffer
+     *
+     * @param event The (reused) event slot
+     * @param sequence The event's sequence
+     * @param endOfBatch True for the last event currently available to this consumer
+     * @throws Exception if handling fails (logged; the consumer moves on)
+     */
+    void onEvent(E event, long sequence, boolean endOfBatch) throws Exception;
+}
@@ -0,0 +1,70 @@
+package com.margin.api.pipeline;
+
+import com.margin.api.model.Execution;
+
+/**
+ * Reusable ring buffer slot carrying one execution through the pipeline
+ * Each processor stage writes its own index of results/failures, so parallel stages never
+ * share a field; downstream stages read them after their barrier
+ */
+public class ExecutionEvent {
+
+    private Execution execution;
+    private BatchCompletion completion;
+    private final Object[] results;
+    private final Throwable[] failures;
+
+    public ExecutionEvent(int processorCount) {
+        this.results = new Object[processorCount];
+        this.failures = new Throwable[processorCount];
+    }
+
+    public void set(Execution execution, BatchCompletion completion) {
+        this.execution = execution;
+        this.completion = completion;
+    }
+
+    public Execution getExecution() {
+        return execution;
+    }
+
+    public BatchCompletion getCompletion() {
+        return completion;
+    }
+
+    public Object getResult(int processor) {
+        return results[processor];
+    }
+
+    public void setResult(int processor, Object result) {
+        results[processor] = result;
+    }
+
+    public void setFailure(int processor, Throwable failure) {
+        failures[processor] = failure;
+    }
+
+    /**
+     * First failure of any stage, or null
+     */
+    public Throwable getFailure() {
+        for (Throwable failure : failures) {
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Release references so a slot does not keep its last execution alive
+     */
+    public void clear() {
+        execution = null;
+        completion = null;
+        for (int i = 0; i < results.length; i++) {
+            results[i] = null;
+            failures[i] = null;
+        }
+    }
+}
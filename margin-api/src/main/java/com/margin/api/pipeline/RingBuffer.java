@@ -0,0 +1,185 @@
+package com.margin.api.pipeline;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Preallocated ring of reusable event slots with multi-producer claiming
+ * Producers claim sequences with next(n), fill the slots in place and publish(lo, hi).
+ * Consumers track their progress in Sequences; a producer never laps the slowest gating
+ * consumer, so the ring is bounded (no unbounded queue): next(n) waits while the ring is full,
+ * tryNext(n) fails instead, for producers that must not block (event loops).
+ *
+ * Publication is tracked per slot (availability flags), so concurrent producers can publish
+ * out of order while consumers only ever see a contiguous range of published sequences.
+ */
+public class RingBuffer<E> {
+
+    private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Object[] entries;
+    private final int bufferSize;
+    private final int mask;
+    private final int indexShift;
+    private final int[] availableBuffer;
+    private final WaitStrategy waitStrategy;
+    private final Sequence cursor = new Sequence();
+    private final Sequence gatingSequenceCache = new Sequence();
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+
+    /**
+     * @param bufferSize Number of slots (a power of two)
+     * @param factory Creates the preallocated event slots
+     * @param waitStrategy How consumers wait for published events
+     */
+    public RingBuffer(int bufferSize, Supplier<E> factory, WaitStrategy waitStrategy) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Ring buffer size must be a power of two: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.mask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.entries = new Object[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            entries[i] = factory.get();
+        }
+        this.availableBuffer = new int[bufferSize];
+        Arrays.fill(availableBuffer, -1);
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Get the event slot of a sequence
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public Sequence getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Add consumers the producers must not lap (the last consumers of the pipeline)
+     */
+    public synchronized void addGatingSequences(Sequence... sequences) {
+        Sequence[] updated = Arrays.copyOf(gatingSequences, gatingSequences.length + sequences.length);
+        System.arraycopy(sequences, 0, updated, gatingSequences.length, sequences.length);
+        gatingSequences = updated;
+    }
+
+    /**
+     * Create a barrier for a consumer depending on other consumers (or directly on the producers)
+     */
+    public SequenceBarrier newBarrier(Sequence... dependents) {
+        return new SequenceBarrier(this, waitStrategy, cursor, dependents);
+    }
+
+    /**
+     * Claim the next n sequences, waiting while the ring is full
+     *
+     * @return The highest claimed sequence (the claim is [result - n + 1, result])
+     */
+    public long next(int n) {
+        if (n < 1 || n > bufferSize) {
+            throw new IllegalArgumentException("Claim size must be between 1 and " + bufferSize + ": " + n);
+        }
+        while (true) {
+            long current = cursor.get();
+            long next = current + n;
+            long wrapPoint = next - bufferSize;
+            long cachedGatingSequence = gatingSequenceCache.get();
+
+            if (wrapPoint > cachedGatingSequence || cachedGatingSequence > current) {
+                long gatingSequence = Sequence.minimum(gatingSequences, current);
+                if (wrapPoint > gatingSequence) {
+                    // Full: wait for the slowest consumer
+                    LockSupport.parkNanos(1);
+                    continue;
+                }
+                gatingSequenceCache.set(gatingSequence);
+            } else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Claim the next n sequences if the ring has room for them, without waiting
+     *
+     * @return The highest claimed sequence (the claim is [result - n + 1, result]), or -1 if the ring is full
+     */
+    public long tryNext(int n) {
+        if (n < 1 || n > bufferSize) {
+            throw new IllegalArgumentException("Claim size must be between 1 and " + bufferSize + ": " + n);
+        }
+        while (true) {
+            long current = cursor.get();
+            long next = current + n;
+            long wrapPoint = next - bufferSize;
+            long cachedGatingSequence = gatingSequenceCache.get();
+
+            if (wrapPoint > cachedGatingSequence || cachedGatingSequence > current) {
+                long gatingSequence = Sequence.minimum(gatingSequences, current);
+                if (wrapPoint > gatingSequence) {
+                    return -1;
+                }
+                gatingSequenceCache.set(gatingSequence);
+            } else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Number of slots producers can claim right now
+     */
+    public int remainingCapacity() {
+        return (int) (bufferSize - getBacklog());
+    }
+
+    /**
+     * Publish a claimed range, making it visible to consumers
+     */
+    public void publish(long lo, long hi) {
+        for (long sequence = lo; sequence <= hi; sequence++) {
+            AVAILABLE.setRelease(availableBuffer, (int) sequence & mask, (int) (sequence >>> indexShift));
+        }
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * Check whether a sequence has been published
+     */
+    public boolean isAvailable(long sequence) {
+        return (int) AVAILABLE.getAcquire(availableBuffer, (int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /**
+     * Get the highest contiguously published sequence in [lo, available]
+     */
+    public long getHighestPublishedSequence(long lo, long available) {
+        for (long sequence = lo; sequence <= available; sequence++) {
+            if (!isAvailable(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Number of claimed sequences not yet processed by the gating consumers
+     */
+    public long getBacklog() {
+        long current = cursor.get();
+        return current - Sequence.minimum(gatingSequences, current);
+    }
+}
@@ -0,0 +1,51 @@
+package com.margin.api.pipeline;
+
+/**
+ * Gate of a consumer: waits until a sequence is published and processed by every
+ * consumer it depends on (e.g. aggregators wait for their processor)
+ */
+public class SequenceBarrier {
+
+    private final RingBuffer<?> ringBuffer;
+    private final WaitStrategy waitStrategy;
+    private final Sequence cursor;
+    private final Sequence[] dependents;
+    private volatile boolean alerted;
+
+    SequenceBarrier(RingBuffer<?> ringBuffer, WaitStrategy waitStrategy, Sequence cursor, Sequence[] dependents) {
+        this.ringBuffer = ringBuffer;
+        this.waitStrategy = waitStrategy;
+        this.cursor = cursor;
+        this.dependents = dependents.length == 0 ? new Sequence[] {cursor} : dependents.clone();
+    }
+
+    /**
+     * Wait for a sequence
+     *
+     * @return The highest sequence safe to process (at least the requested one)
+     * @throws AlertException if the barrier is alerted while waiting
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public long waitFor(long sequence) throws AlertException, InterruptedException {
+        checkAlert();
+        long available = waitStrategy.waitFor(sequence, cursor, dependents, this);
+        if (available < sequence) {
+            return available;
+        }
+        return ringBuffer.getHighestPublishedSequence(sequence, available);
+    }
+
+    /**
+     * Wake up and stop the waiting consumer
+     */
+    public void alert() {
+        alerted = true;
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    public void checkAlert() throws AlertException {
+        if (alerted) {
+            throw new AlertException();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.margin.api.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Built-in wait strategies, selected by name (pipeline.wait.strategy)
+ * - blocking: park on a lock/condition until signalled (lowest CPU, highest latency)
+ * - sleeping: spin, then yield, then park 100µs at a time (default)
+ * - yielding: spin, then Thread.yield (low latency, keeps a core busy)
+ * - busy-spin: spin only (lowest latency, one core per consumer)
+ */
+public final class WaitStrategies {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private WaitStrategies() {
+    }
+
+    public static WaitStrategy forName(String name) {
+        switch (name.toLowerCase()) {
+            case "blocking":
+                return new Blocking();
+            case "sleeping":
+                return new Sleeping();
+            case "yielding":
+                return new Yielding();
+            case "busy-spin":
+                return new BusySpin();
+            default:
+                throw new IllegalArgumentException("Unknown wait strategy: " + name
+                        + " (expected blocking, sleeping, yielding or busy-spin)");
+        }
+    }
+
+    static class BusySpin implements WaitStrategy {
+        @Override
+        public long waitFor(long sequence, Sequence cursor, Sequence[] dependents, SequenceBarrier barrier)
+                throws AlertException {
+            long available;
+            while ((available = Sequence.minimum(dependents, Long.MAX_VALUE)) < sequence) {
+                barrier.checkAlert();
+                Thread.onSpinWait();
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+    }
+
+    static class Yielding implements WaitStrategy {
+        @Override
+        public long waitFor(long sequence, Sequence cursor, Sequence[] dependents, SequenceBarrier barrier)
+                throws AlertException {
+            int counter = SPIN_TRIES;
+            long available;
+            while ((available = Sequence.minimum(dependents, Long.MAX_VALUE)) < sequence) {
+                barrier.checkAlert();
+                if (counter > 0) {
+                    counter--;
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+    }
+
+    static class Sleeping implements WaitStrategy {
+        @Override
+        public long waitFor(long sequence, Sequence cursor, Sequence[] dependents, SequenceBarrier barrier)
+                throws AlertException {
+            int counter = SPIN_TRIES + YIELD_TRIES;
+            long available;
+            while ((available = Sequence.minimum(dependents, Long.MAX_VALUE)) < sequence) {
+                barrier.checkAlert();
+                if (counter > YIELD_TRIES) {
+                    counter--;
+                    Thread.onSpinWait();
+                } else if (counter > 0) {
+                    counter--;
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(SLEEP_NANOS);
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+    }
+
+    static class Blocking implements WaitStrategy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, Sequence[] dependents, SequenceBarrier barrier)
+                throws AlertException, InterruptedException {
+            if (cursor.get() < sequence) {
+                lock.lock();
+                try {
+                    while (cursor.get() < sequence) {
+                        barrier.checkAlert();
+                        published.await(1, TimeUnit.MILLISECONDS);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            // Published: dependent consumers are close behind, spin (then yield) for them
+            int counter = SPIN_TRIES;
+            long available;
+            while ((available = Sequence.minimum(dependents, Long.MAX_VALUE)) < sequence) {
+                barrier.checkAlert();
+                if (counter > 0) {
+                    counter--;
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.margin.api.pipeline;
+
+/**
+ * How a consumer waits for a sequence to become available
+ * Trades latency against CPU: busy-spin and yielding keep a core hot, sleeping backs off
+ * to parking, blocking parks on a lock until producers signal
+ */
+public interface WaitStrategy {
+
+    /**
+     * Wait until the sequence is published and processed by every dependent consumer
+     *
+     * @param sequence The sequence to wait for
+     * @param cursor The ring buffer's cursor
+     * @param dependents Consumers that must have processed the sequence first (cursor if none)
+     * @param barrier The barrier waiting, checked for alerts
+     * @return The highest sequence available (may be larger than the requested one)
+     * @throws AlertException if the barrier is alerted while waiting
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    long waitFor(long sequence, Sequence cursor, Sequence[] dependents, SequenceBarrier barrier)
+            throws AlertException, InterruptedException;
+
+    /**
+     * Wake up consumers blocked on the cursor (called by producers after publishing)
+     */
+    void signalAllWhenBlocking();
+}
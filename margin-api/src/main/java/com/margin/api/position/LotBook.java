@@ -0,0 +1,415 @@
+package com.margin.api.position;
+
+import com.margin.api.model.FixedPoint;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Open lots of one account and symbol, matched against closing fills
+ * Lots are (signed quantity, price) pairs in two parallel long arrays used as a ring deque,
+ * so there is no object per lot: FIFO takes from the head, LIFO from the tail, and average
+ * cost keeps a single lot whose price is the average of its opening fills. All open lots
+ * have the same sign (a fill crossing zero closes every lot and opens the rest the other way).
+ *
+ * Quantities, prices and PnL are long units at SCALE (HALF_UP beyond it). A fill costs
+ * O(lots it matches); the arrays grow and shrink by halves, so memory follows the number of
+ * open lots. The open cost (sum of quantity x price over the lots) is kept alongside, so
+ * valuing the lots at a price is O(1) whatever their number.
+ *
+ * A fill is computed first (prepare), then applied (commit), so one that does not fit changes
+ * nothing; the caller can check what it leaves (preparedUnrealizedPnl) before applying it.
+ * Several fills are made all or nothing with a checkpoint: until it is released, the slots
+ * fills overwrite are logged, so rollback() costs O(lots matched since), not O(open lots).
+ *
+ * Not thread-safe: single writer (the lane owning the account)
+ */
+public class LotBook {
+
+    public static final int SCALE = 8;
+
+    private static final int INITIAL_CAPACITY = 2;
+    private static final int MIN_SHRINK_CAPACITY = 16;
+
+    private final LotMatching matching;
+    private long[] quantities = new long[INITIAL_CAPACITY];
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+    private long openQuantity;
+    private long openCost;
+    // Fill computed by prepare(), applied by commit()
+    private boolean prepared;
+    private long preparedQuantity;
+    private long preparedPrice;
+    private long preparedAveragePrice;
+    private long preparedOpenQuantity;
+    private long preparedOpenCost;
+    // Checkpoint (see checkpoint()): state before the first fill, and an undo log of the lot
+    // slots written since, in the checkpointed arrays only (a resize leaves them untouched)
+    private boolean checkpointed;
+    private long[] checkpointQuantities;
+    private long[] checkpointPrices;
+    private int checkpointHead;
+    private int checkpointSize;
+    private long checkpointOpenQuantity;
+    private long checkpointOpenCost;
+    private int[] undoIndexes = new int[0];
+    private long[] undoQuantities = new long[0];
+    private long[] undoPrices = new long[0];
+    private int undoSize;
+
+    public LotBook(LotMatching matching) {
+        this.matching = matching;
+    }
+
+    /**
+     * Units of a fixed-point value at SCALE
+     *
+     * @throws ArithmeticException if the value does not fit in a long at SCALE
+     */
+    public static long units(long units, int scale) {
+        return FixedPoint.rescale(units, scale, SCALE);
+    }
+
+    /**
+     * Units of a BigDecimal value at SCALE
+     *
+     * @throws ArithmeticException if the value does not fit in a long at SCALE
+     */
+    public static long units(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Apply a fill: close open lots of the other side first, open a lot with the rest
+     * All or nothing: a fill that throws leaves the book unchanged
+     *
+     * @param quantity Signed quantity units (positive buys, negative sells)
+     * @param price Price units
+     * @return Realized PnL units of the closed quantity
+     * @throws ArithmeticException if the realized PnL or the open lots do not fit in a long
+     */
+    public long fill(long quantity, long price) {
+        long realized = prepare(quantity, price);
+        commit();
+        return realized;
+    }
+
+    /**
+     * Compute a fill without applying it (see fill): everything that can fail is computed here,
+     * into the prepared state, so commit() cannot fail; until then the book is unchanged
+     * A new prepare replaces the prepared fill.
+     *
+     * @return Realized PnL units of the closed quantity
+     * @throws ArithmeticException if the realized PnL or the open lots do not fit in a long
+     */
+    public long prepare(long quantity, long price) {
+        prepared = false;
+        long realized = 0;
+        long remaining = quantity;
+        long openQuantityAfter = openQuantity;
+        long openCostAfter = openCost;
+        int lotsAfter = size;
+        if (closes(quantity)) {
+            for (int i = 0; remaining != 0 && i < size; i++) {
+                int index = matching == LotMatching.LIFO ? index(size - 1 - i) : index(i);
+                long closed = closed(remaining, quantities[index]);
+                // Matched quantity in the lot's direction: long lots gain when the price rose
+                realized = Math.addExact(realized, multiply(closed, Math.subtractExact(price, prices[index])));
+                openQuantityAfter -= closed;
+                openCostAfter = Math.subtractExact(openCostAfter, multiply(closed, prices[index]));
+                remaining += closed;
+                if (closed == quantities[index]) {
+                    lotsAfter--;
+                }
+            }
+            if (lotsAfter == 0) {
+                // No rounding residue carried into the next position
+                openCostAfter = 0;
+            }
+        }
+        long averagePrice = 0;
+        if (remaining != 0) {
+            if (matching == LotMatching.AVERAGE_COST && lotsAfter == 1) {
+                // Only when the fill adds to the lot (a closing fill with a rest closed every lot)
+                averagePrice = averagePrice(quantities[head], prices[head], remaining, price);
+            }
+            openQuantityAfter = Math.addExact(openQuantityAfter, remaining);
+            openCostAfter = Math.addExact(openCostAfter, multiply(remaining, price));
+        }
+        preparedQuantity = quantity;
+        preparedPrice = price;
+        preparedAveragePrice = averagePrice;
+        preparedOpenQuantity = openQuantityAfter;
+        preparedOpenCost = openCostAfter;
+        prepared = true;
+        return realized;
+    }
+
+    /**
+     * Unrealized PnL units of the open lots the prepared fill leaves, valued at a price
+     *
+     * @throws ArithmeticException if the value does not fit in a long
+     */
+    public long preparedUnrealizedPnl(long price) {
+        checkPrepared();
+        return Math.subtractExact(multiply(preparedOpenQuantity, price), preparedOpenCost);
+    }
+
+    /**
+     * Apply the prepared fill (cannot fail)
+     *
+     * @throws IllegalStateException if no fill is prepared
+     */
+    public void commit() {
+        checkPrepared();
+        prepared = false;
+        long remaining = preparedQuantity;
+        if (closes(remaining)) {
+            while (remaining != 0 && size > 0) {
+                int index = matching == LotMatching.LIFO ? index(size - 1) : head;
+                long closed = closed(remaining, quantities[index]);
+                logUndo(index);
+                quantities[index] -= closed;
+                remaining += closed;
+                if (quantities[index] == 0) {
+                    removeLot();
+                }
+            }
+        }
+        if (remaining != 0) {
+            if (matching == LotMatching.AVERAGE_COST && size == 1) {
+                logUndo(head);
+                prices[head] = preparedAveragePrice;
+                quantities[head] += remaining;
+            } else {
+                addLot(remaining, preparedPrice);
+            }
+        }
+        openQuantity = preparedOpenQuantity;
+        openCost = preparedOpenCost;
+    }
+
+    /**
+     * Start recording fills so rollback() can undo them, until release()
+     * A checkpoint still set is replaced
+     */
+    public void checkpoint() {
+        checkpointed = true;
+        checkpointQuantities = quantities;
+        checkpointPrices = prices;
+        checkpointHead = head;
+        checkpointSize = size;
+        checkpointOpenQuantity = openQuantity;
+        checkpointOpenCost = openCost;
+        undoSize = 0;
+    }
+
+    /**
+     * Undo every fill since the checkpoint (and drop a prepared one), then release it
+     *
+     * @throws IllegalStateException if no checkpoint is set
+     */
+    public void rollback() {
+        if (!checkpointed) {
+            throw new IllegalStateException("No checkpoint");
+        }
+        // Latest first, so a slot written twice gets its checkpointed value back
+        for (int i = undoSize - 1; i >= 0; i--) {
+            checkpointQuantities[undoIndexes[i]] = undoQuantities[i];
+            checkpointPrices[undoIndexes[i]] = undoPrices[i];
+        }
+        quantities = checkpointQuantities;
+        prices = checkpointPrices;
+        head = checkpointHead;
+        size = checkpointSize;
+        openQuantity = checkpointOpenQuantity;
+        openCost = checkpointOpenCost;
+        prepared = false;
+        release();
+    }
+
+    /**
+     * Keep the fills since the checkpoint and stop recording
+     */
+    public void release() {
+        checkpointed = false;
+        checkpointQuantities = null;
+        checkpointPrices = null;
+        undoSize = 0;
+    }
+
+    public LotMatching getMatching() {
+        return matching;
+    }
+
+    /**
+     * Signed open quantity units (sum of the open lots)
+     */
+    public long getOpenQuantity() {
+        return openQuantity;
+    }
+
+    /**
+     * Open cost units: sum of quantity x price over the open lots (negative for short lots)
+     */
+    public long getOpenCost() {
+        return openCost;
+    }
+
+    /**
+     * Unrealized PnL units of the open lots valued at a price
+     *
+     * @throws ArithmeticException if the value does not fit in a long
+     */
+    public long unrealizedPnl(long price) {
+        return Math.subtractExact(multiply(openQuantity, price), openCost);
+    }
+
+    public int getOpenLots() {
+        return size;
+    }
+
+    /**
+     * Quantity units of the i-th open lot, oldest first
+     */
+    public long getLotQuantity(int i) {
+        return quantities[index(checkLot(i))];
+    }
+
+    /**
+     * Price units of the i-th open lot, oldest first
+     */
+    public long getLotPrice(int i) {
+        return prices[index(checkLot(i))];
+    }
+
+    /**
+     * Whether a fill closes open lots (they are on its other side)
+     */
+    private boolean closes(long quantity) {
+        return quantity != 0 && size > 0 && (openQuantity > 0) != (quantity > 0);
+    }
+
+    /**
+     * Quantity of a lot a closing fill's remaining quantity matches, in the lot's direction
+     */
+    private static long closed(long remaining, long lot) {
+        long matched = Math.min(Math.abs(remaining), Math.abs(lot));
+        return lot > 0 ? matched : -matched;
+    }
+
+    private void addLot(long quantity, long price) {
+        if (size == quantities.length) {
+            resize(quantities.length * 2);
+        }
+        int index = index(size);
+        logUndo(index);
+        quantities[index] = quantity;
+        prices[index] = price;
+        size++;
+    }
+
+    /**
+     * Remove the fully matched lot: the tail for LIFO, the head otherwise
+     */
+    private void removeLot() {
+        if (matching != LotMatching.LIFO) {
+            head = index(1);
+        }
+        size--;
+        if (quantities.length >= MIN_SHRINK_CAPACITY && size <= quantities.length / 4) {
+            resize(quantities.length / 2);
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] newQuantities = new long[capacity];
+        long[] newPrices = new long[capacity];
+        for (int i = 0; i < size; i++) {
+            newQuantities[i] = quantities[index(i)];
+            newPrices[i] = prices[index(i)];
+        }
+        quantities = newQuantities;
+        prices = newPrices;
+        head = 0;
+    }
+
+    /**
+     * Log a slot's value before a fill overwrites it, while it is in the checkpointed arrays
+     */
+    private void logUndo(int index) {
+        if (!checkpointed || quantities != checkpointQuantities) {
+            return;
+        }
+        if (undoSize == undoIndexes.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, undoSize * 2);
+            undoIndexes = Arrays.copyOf(undoIndexes, capacity);
+            undoQuantities = Arrays.copyOf(undoQuantities, capacity);
+            undoPrices = Arrays.copyOf(undoPrices, capacity);
+        }
+        undoIndexes[undoSize] = index;
+        undoQuantities[undoSize] = quantities[index];
+        undoPrices[undoSize] = prices[index];
+        undoSize++;
+    }
+
+    private int index(int i) {
+        // Capacity is a power of two
+        return (head + i) & (quantities.length - 1);
+    }
+
+    private void checkPrepared() {
+        if (!prepared) {
+            throw new IllegalStateException("No fill prepared");
+        }
+    }
+
+    private int checkLot(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Lot " + i + " of " + size);
+        }
+        return i;
+    }
+
+    /**
+     * quantity x price at SCALE, BigDecimal only when the exact product overflows
+     */
+    private static long multiply(long quantity, long price) {
+        try {
+            return FixedPoint.multiply(quantity, SCALE, price, SCALE, SCALE);
+        } catch (ArithmeticException overflow) {
+            return BigDecimal.valueOf(quantity, SCALE).multiply(BigDecimal.valueOf(price, SCALE))
+                    .setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        }
+    }
+
+    /**
+     * Quantity-weighted average of two prices (same-sign quantities), rounded HALF_UP
+     */
+    private static long averagePrice(long quantity1, long price1, long quantity2, long price2) {
+        try {
+            long total = Math.addExact(Math.multiplyExact(quantity1, price1), Math.multiplyExact(quantity2, price2));
+            return divideHalfUp(total, Math.addExact(quantity1, quantity2));
+        } catch (ArithmeticException overflow) {
+            return BigDecimal.valueOf(quantity1).multiply(BigDecimal.valueOf(price1))
+                    .add(BigDecimal.valueOf(quantity2).multiply(BigDecimal.valueOf(price2)))
+                    .divide(BigDecimal.valueOf(quantity1).add(BigDecimal.valueOf(quantity2)), 0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        }
+    }
+
+    /**
+     * Division rounding half away from zero
+     */
+    private static long divideHalfUp(long value, long divisor) {
+        long quotient = value / divisor;
+        long remainder = Math.abs(value % divisor);
+        if (remainder >= Math.abs(divisor) - remainder) {
+            quotient += (value < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,35 @@
+package com.margin.api.position;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * How closing fills are matched against open lots (position.lot.matching, selected at startup)
+ * - fifo (default): oldest open lot first
+ * - lifo: newest open lot first
+ * - average: one lot per position at the average cost of its opening fills
+ */
+public enum LotMatching {
+    FIFO,
+    LIFO,
+    AVERAGE_COST;
+
+    /**
+     * Read the lot matching method from configuration
+     *
+     * @throws IllegalArgumentException if the method is unknown
+     */
+    public static LotMatching of(JsonObject config) {
+        String matching = config.getString("position.lot.matching", "fifo");
+        switch (matching) {
+            case "fifo":
+                return FIFO;
+            case "lifo":
+                return LIFO;
+            case "average":
+                return AVERAGE_COST;
+            default:
+                throw new IllegalArgumentException("Unknown position.lot.matching: " + matching
+                        + " (expected fifo, lifo or average)");
+        }
+    }
+}
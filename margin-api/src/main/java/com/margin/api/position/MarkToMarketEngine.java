@@ -0,0 +1,193 @@
+package com.margin.api.position;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.margin.api.aggregator.AggregatedPosition;
+import com.margin.api.lane.ExecutionLanes;
+import com.margin.api.refdata.RefDataService;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Incremental mark-to-market of positions, driven by market data ticks
+ * Each lane keeps an inverted index symbol -> positions of its accounts holding the symbol
+ * (lane-confined, filled as positions are created), so a price update revalues only the
+ * positions of that symbol, each in O(1) (LotBook keeps the open cost).
+ *
+ * Ticks are conflated: prices are collected per symbol and applied every mtm.tick.window.ms,
+ * so a symbol updated many times within a window is revalued once, at its latest price, in
+ * one task per lane. Evicted positions are dropped from the index as it is walked.
+ *
+ * Disabled with mtm.enabled=false (required by pipeline.transport=ring, whose aggregate stages
+ * update positions off their lanes): positions are not tracked and prices are refused.
+ */
+@Singleton
+public class MarkToMarketEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(MarkToMarketEngine.class);
+
+    private final ExecutionLanes lanes;
+    private final boolean enabled;
+    // Latest price per symbol not yet applied (conflated), and the applied marks
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final Map<String, Long> marks = new ConcurrentHashMap<>();
+    // Per lane: symbol -> positions of the lane's accounts (lane-confined)
+    private final List<Map<String, List<AggregatedPosition>>> index;
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong conflated = new AtomicLong();
+    private final AtomicLong windows = new AtomicLong();
+    private final AtomicLong revaluations = new AtomicLong();
+    private final AtomicLong tracked = new AtomicLong();
+
+    @Inject
+    public MarkToMarketEngine(Vertx vertx, ExecutionLanes lanes, JsonObject config) {
+        this.lanes = lanes;
+        this.index = new ArrayList<>(lanes.size());
+        for (int lane = 0; lane < lanes.size(); lane++) {
+            index.add(new HashMap<>());
+        }
+        this.enabled = config.getBoolean("mtm.enabled", true);
+        if (!enabled) {
+            logger.info("MarkToMarketEngine disabled");
+            return;
+        }
+        long windowMs = config.getLong("mtm.tick.window.ms", 100L);
+        vertx.setPeriodic(Math.max(1, windowMs), id -> flush());
+        logger.info("MarkToMarketEngine initialized (tick window={}ms)", windowMs);
+    }
+
+    /**
+     * Index a new position under its symbol, marking it at the symbol's current price if any
+     * Must be called on the lane owning the position's account (e.g. when the aggregate is created)
+     */
+    public void track(AggregatedPosition position) {
+        if (!enabled) {
+            return;
+        }
+        index.get(lanes.laneOf(position.getAccountId()))
+                .computeIfAbsent(position.getSymbol(), s -> new ArrayList<>())
+                .add(position);
+        tracked.incrementAndGet();
+        Long mark = marks.get(position.getSymbol());
+        if (mark != null) {
+            position.markToMarket(mark);
+        }
+    }
+
+    /**
+     * Record a price update; positions are revalued at the end of the tick window
+     * Thread-safe, callable from any thread
+     *
+     * @throws ArithmeticException if the price does not fit in a long at LotBook.SCALE
+     * @throws IllegalStateException if mark to market is disabled
+     */
+    public void onPrice(String symbol, BigDecimal price) {
+        if (!enabled) {
+            throw new IllegalStateException("Mark to market is disabled (mtm.enabled=false)");
+        }
+        ticks.incrementAndGet();
+        if (pending.put(symbol, LotBook.units(price)) != null) {
+            conflated.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record a market data update (RefDataService feed)
+     */
+    public void onMarketData(RefDataService.MarketData marketData) {
+        onPrice(marketData.getSymbol(), marketData.getLastPrice());
+    }
+
+    /**
+     * Latest applied mark of a symbol
+     *
+     * @return The mark price, or null if the symbol has not been marked yet
+     */
+    public BigDecimal getMark(String symbol) {
+        Long mark = marks.get(symbol);
+        return mark != null ? BigDecimal.valueOf(mark, LotBook.SCALE) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Counters for monitoring
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("enabled", enabled)
+                .put("ticks", ticks.get())
+                .put("conflated", conflated.get())
+                .put("windows", windows.get())
+                .put("revaluations", revaluations.get())
+                .put("tracked", tracked.get())
+                .put("symbols", marks.size())
+                .put("pending", pending.size());
+    }
+
+    /**
+     * Apply the window's latest prices: one revaluation task per lane
+     * Called by the window timer
+     */
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, Long> prices = new HashMap<>();
+        for (String symbol : pending.keySet()) {
+            Long price = pending.remove(symbol);
+            if (price != null) {
+                prices.put(symbol, price);
+            }
+        }
+        // Published before the lane tasks run: positions created meanwhile are marked on track
+        marks.putAll(prices);
+        windows.incrementAndGet();
+        for (int lane = 0; lane < lanes.size(); lane++) {
+            int laneIndex = lane;
+            lanes.<Void>executeBlocking(lane, promise -> {
+                revalue(index.get(laneIndex), prices);
+                promise.complete();
+            }).onFailure(e -> logger.error("Error marking lane {} to market", laneIndex, e));
+        }
+    }
+
+    private void revalue(Map<String, List<AggregatedPosition>> positionsBySymbol, Map<String, Long> prices) {
+        long revalued = 0;
+        for (Map.Entry<String, Long> price : prices.entrySet()) {
+            List<AggregatedPosition> positions = positionsBySymbol.get(price.getKey());
+            if (positions == null) {
+                continue;
+            }
+            long mark = price.getValue();
+            for (int i = positions.size() - 1; i >= 0; i--) {
+                AggregatedPosition position = positions.get(i);
+                if (position.isEvicted()) {
+                    // Swap-remove: order does not matter
+                    positions.set(i, positions.get(positions.size() - 1));
+                    positions.remove(positions.size() - 1);
+                    tracked.decrementAndGet();
+                    continue;
+                }
+                position.markToMarket(mark);
+                revalued++;
+            }
+            if (positions.isEmpty()) {
+                positionsBySymbol.remove(price.getKey());
+            }
+        }
+        revaluations.addAndGet(revalued);
+    }
+}
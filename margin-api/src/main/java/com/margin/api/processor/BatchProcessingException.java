@@ -0,0 +1,79 @@
+package com.margin.api.processor;
+
+import com.margin.api.model.Execution;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Failure of a processBatch call naming the executions whose processing failed
+ * The batch's other executions were fully processed: callers must only retry (or release
+ * for redelivery) the failed ones, or the others would be applied twice
+ */
+public class BatchProcessingException extends RuntimeException {
+
+    // By identity: distinct executions of a batch may be equal
+    private final Set<Execution> failedExecutions;
+
+    public BatchProcessingException(Collection<Execution> failedExecutions, Throwable cause) {
+        super(failedExecutions.size() + " executions of the batch failed", cause);
+        Set<Execution> failed = Collections.newSetFromMap(new IdentityHashMap<>(failedExecutions.size() * 2));
+        failed.addAll(failedExecutions);
+        this.failedExecutions = Collections.unmodifiableSet(failed);
+    }
+
+    public Set<Execution> getFailedExecutions() {
+        return failedExecutions;
+    }
+
+    public boolean hasFailed(Execution execution) {
+        return failedExecutions.contains(execution);
+    }
+
+    /**
+     * Whether an execution of a batch failed, given the failure of its processBatch call
+     * A failure that is not a BatchProcessingException fails the whole batch
+     */
+    public static boolean hasFailed(Throwable batchFailure, Execution execution) {
+        return !(batchFailure instanceof BatchProcessingException)
+                || ((BatchProcessingException) batchFailure).hasFailed(execution);
+    }
+
+    /**
+     * Failure of a share of a batch: the share's own BatchProcessingException, or the whole share
+     */
+    public static BatchProcessingException of(Collection<Execution> share, Throwable cause) {
+        return cause instanceof BatchProcessingException
+                ? (BatchProcessingException) cause : new BatchProcessingException(share, cause);
+    }
+
+    /**
+     * Wait for every share of a batch, then fail with the failed executions of all of them
+     * (each share's future must fail with a BatchProcessingException, see of)
+     * Unlike CompositeFuture.all, does not complete while shares are still running
+     */
+    public static Future<Void> join(List<Future> shares) {
+        return CompositeFuture.join(shares).transform(ar -> {
+            if (ar.succeeded()) {
+                return Future.succeededFuture();
+            }
+            Set<Execution> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+            Throwable cause = null;
+            for (Future share : shares) {
+                if (share.failed()) {
+                    BatchProcessingException failure = (BatchProcessingException) share.cause();
+                    failed.addAll(failure.getFailedExecutions());
+                    if (cause == null) {
+                        cause = failure.getCause();
+                    }
+                }
+            }
+            return Future.failedFuture(new BatchProcessingException(failed, cause));
+        });
+    }
+}
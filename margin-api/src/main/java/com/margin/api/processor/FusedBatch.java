@@ -0,0 +1,27 @@
+package com.margin.api.processor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Scratch of one micro-batch under fused processing, shared by the batch's lane tasks
+ * Holds what a FusedProcessor loads once per batch instead of once per execution, such as
+ * reference data per symbol. Lane tasks of a batch run concurrently: scratch must be thread-safe.
+ */
+public final class FusedBatch {
+
+    private final Map<FusedProcessor<?>, Object> scratch = new ConcurrentHashMap<>();
+
+    /**
+     * Get a processor's scratch for this batch, created on first use
+     *
+     * @param processor The processor owning the scratch
+     * @param factory Creates the scratch (thread-safe, e.g. a ConcurrentHashMap)
+     * @return The processor's scratch
+     */
+    @SuppressWarnings("unchecked")
+    public <S> S scratch(FusedProcessor<?> processor, Supplier<S> factory) {
+        return (S) scratch.computeIfAbsent(processor, p -> factory.get());
+    }
+}
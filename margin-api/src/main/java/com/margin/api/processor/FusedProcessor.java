@@ -0,0 +1,37 @@
+package com.margin.api.processor;
+
+import com.margin.api.aggregator.AccountSymbolSlot;
+import com.margin.api.model.Execution;
+
+import java.util.List;
+
+/**
+ * SyncProcessor that can update its aggregated state straight through a pre-resolved
+ * account/symbol slot (fused processing: the registry resolves the slot once per execution
+ * and every fused processor updates it in the same pass, with no intermediate objects)
+ */
+public interface FusedProcessor<T> extends SyncProcessor<T> {
+
+    /**
+     * Apply an execution to the slot of its account/symbol on the calling thread
+     * Must produce the same aggregated state as processSync
+     *
+     * @param execution The execution to apply
+     * @param slot The resolved state of the execution's account/symbol
+     * @throws Exception if processing fails
+     */
+    void processFused(Execution execution, AccountSymbolSlot slot) throws Exception;
+
+    /**
+     * Apply a micro-batch's executions of one account/symbol to its slot on the calling thread,
+     * as a single update per aggregate (pre-summed deltas)
+     * Must produce the same aggregated state as processFused on each execution in order, and be
+     * all or nothing: a failure leaves the slot's state unchanged
+     *
+     * @param executions The batch's executions of the slot's account/symbol, in order
+     * @param slot The resolved state of their account/symbol
+     * @param batch Scratch shared by the whole batch (reference data loaded once per batch)
+     * @throws Exception if processing fails
+     */
+    void processFused(List<Execution> executions, AccountSymbolSlot slot, FusedBatch batch) throws Exception;
+}
@@ -2,99 +2,248 @@ package com.margin.api.processor;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.margin.api.aggregator.AccountSymbolSlot;
+import com.margin.api.aggregator.AggregatedMargin;
 import com.margin.api.aggregator.MarginAggregator;
+import com.margin.api.aggregator.MarginTotals;
+import com.margin.api.lane.CoarseClock;
+import com.margin.api.lane.ExecutionLanes;
+import com.margin.api.lane.LaneIds;
 import com.margin.api.model.Execution;
+import com.margin.api.model.FixedPoint;
 import com.margin.api.model.Margin;
+import com.margin.api.refdata.AccountRiskTable;
 import com.margin.api.refdata.RefDataException;
 import com.margin.api.refdata.RefDataService;
 import io.vertx.core.Future;
-import io.vertx.core.Vertx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Processor that transforms executions into margin requirements
  * Pushes results directly to MarginAggregator (no queue)
+ *
+ * Symbol margin rates are adjusted by the account's risk tier (AccountRiskTable): tier
+ * multiplier, initial margin raised to the account's leverage cap (counted as a breach).
  */
 @Singleton
-public class MarginProcessor implements Processor<Margin> {
+public class MarginProcessor implements FusedProcessor<Margin> {
     
     private static final Logger logger = LoggerFactory.getLogger(MarginProcessor.class);
+    private static final int MARGIN_SCALE = 2;
     private static final BigDecimal DEFAULT_INITIAL_MARGIN_RATE = new BigDecimal("0.50"); // 50%
     private static final BigDecimal DEFAULT_MAINTENANCE_MARGIN_RATE = new BigDecimal("0.25"); // 25%
     private static final BigDecimal DEFAULT_LEVERAGE = new BigDecimal("2.0");
+    private static final RefDataService.MarginRate DEFAULT_MARGIN_RATE = new RefDataService.MarginRate(
+            DEFAULT_INITIAL_MARGIN_RATE, DEFAULT_MAINTENANCE_MARGIN_RATE, DEFAULT_LEVERAGE);
     
-    private final Vertx vertx;
+    private final ExecutionLanes lanes;
+    private final LaneIds ids;
+    private final CoarseClock clock;
     private final MarginAggregator aggregator;
     private final RefDataService refDataService;
+    private final AccountRiskTable riskTable;
 
     @Inject
     public MarginProcessor(
-            Vertx vertx,
+            ExecutionLanes lanes,
             MarginAggregator aggregator,
-            RefDataService refDataService) {
-        this.vertx = vertx;
+            RefDataService refDataService,
+            AccountRiskTable riskTable,
+            LaneIds ids,
+            CoarseClock clock) {
+        this.lanes = lanes;
         this.aggregator = aggregator;
         this.refDataService = refDataService;
+        this.riskTable = riskTable;
+        this.ids = ids;
+        this.clock = clock;
         logger.info("MarginProcessor initialized with push-based aggregation");
     }
 
     @Override
     public Future<Margin> process(Execution execution) {
-        return vertx.executeBlocking(promise -> {
+        return lanes.executeStaged(execution.getAccountId(), () -> transform(execution), this::aggregate)
+            .onFailure(e -> logger.error("Error processing execution to margin", e));
+    }
+
+    /**
+     * Sum the batch's margins per account/symbol in one task per lane, then update each key once
+     * Margin rates are fetched once per symbol for the whole batch
+     */
+    @Override
+    public Future<Void> processBatch(List<Execution> executions) {
+        Map<String, RefDataService.MarginRate> rates = new ConcurrentHashMap<>();
+        List<List<Execution>> byLane = lanes.groupByLane(executions, Execution::getAccountId);
+        List<Future> futures = new ArrayList<>();
+        for (int lane = 0; lane < byLane.size(); lane++) {
+            List<Execution> group = byLane.get(lane);
+            if (group != null) {
+                futures.add(lanes.executeStaged(lane, () -> sumMargins(group, rates), aggregator::addAllSync)
+                    .recover(err -> Future.failedFuture(BatchProcessingException.of(group, err))));
+            }
+        }
+        return BatchProcessingException.join(futures)
+            .onFailure(e -> logger.error("Error processing execution batch to margin", e));
+    }
+
+    private Collection<MarginTotals> sumMargins(List<Execution> executions, Map<String, RefDataService.MarginRate> rates) {
+        Map<String, MarginTotals> totals = new HashMap<>();
+        for (Execution execution : executions) {
+            String key = execution.getAccountId() + ":" + execution.getSymbol();
+            addMargin(totals.computeIfAbsent(key,
+                    k -> new MarginTotals(k, execution.getAccountId(), execution.getSymbol())), execution, rates);
+        }
+        return totals.values();
+    }
+
+    /**
+     * Add an execution's margin to its key's totals, with its symbol's rate fetched once per batch
+     */
+    private void addMargin(MarginTotals totals, Execution execution, Map<String, RefDataService.MarginRate> rates) {
+        String symbol = execution.getSymbol();
+        RefDataService.MarginRate marginRate = riskAdjusted(execution, symbol != null
+                ? rates.computeIfAbsent(symbol, this::marginRateOf) : marginRateOf(null));
+        // margin requirement = initial margin
+        if (isFixedPoint(execution, marginRate)) {
             try {
-                logger.debug("Processing execution to margin: {}", execution.getId());
-                
-                // Try to get symbol-specific margin rates from ref data
-                BigDecimal initialMarginRate = DEFAULT_INITIAL_MARGIN_RATE;
-                BigDecimal maintenanceMarginRate = DEFAULT_MAINTENANCE_MARGIN_RATE;
-                BigDecimal leverage = DEFAULT_LEVERAGE;
-                
-                try {
-                    RefDataService.MarginRate marginRate = refDataService.getMarginRate(execution.getSymbol());
-                    initialMarginRate = marginRate.getInitialMarginRate();
-                    maintenanceMarginRate = marginRate.getMaintenanceMarginRate();
-                    leverage = marginRate.getLeverage();
-                } catch (RefDataException e) {
-                    logger.warn("Failed to get margin rate for {}, using defaults: {}", 
-                            execution.getSymbol(), e.getMessage());
-                }
-                
-                BigDecimal notionalValue = execution.getNotionalValue();
-                BigDecimal initialMargin = notionalValue.multiply(initialMarginRate)
-                        .setScale(2, RoundingMode.HALF_UP);
-                BigDecimal maintenanceMargin = notionalValue.multiply(maintenanceMarginRate)
-                        .setScale(2, RoundingMode.HALF_UP);
-                
-                Margin margin = new Margin(
-                        UUID.randomUUID().toString(),
-                        execution.getAccountId(),
-                        execution.getId(),
-                        execution.getSymbol(),
-                        initialMargin,
-                        maintenanceMargin,
-                        initialMargin, // margin requirement = initial margin
-                        leverage,
-                        Instant.now(),
-                        Instant.now()
-                );
-                
-                // Push directly to aggregator (no queue)
-                aggregator.add(margin)
-                    .onSuccess(agg -> logger.debug("Margin pushed to aggregator: {}", margin.getId()))
-                    .onFailure(err -> logger.error("Failed to push margin to aggregator", err));
-                
-                promise.complete(margin);
-            } catch (Exception e) {
-                logger.error("Error processing execution to margin", e);
-                promise.fail(e);
+                long initialMargin = initialMarginUnits(execution, marginRate);
+                totals.add(initialMargin, maintenanceMarginUnits(execution, marginRate), initialMargin, MARGIN_SCALE);
+                return;
+            } catch (ArithmeticException overflow) {
+                // Beyond the long range: BigDecimal below
             }
-        });
+        }
+        BigDecimal initialMargin = margin(execution, marginRate.getInitialMarginRate());
+        totals.add(initialMargin, margin(execution, marginRate.getMaintenanceMarginRate()), initialMargin);
+    }
+
+    @Override
+    public Margin transform(Execution execution) {
+        logger.debug("Processing execution to margin: {}", execution.getId());
+        
+        RefDataService.MarginRate marginRate = riskAdjusted(execution, marginRateOf(execution.getSymbol()));
+        BigDecimal initialMargin = margin(execution, marginRate.getInitialMarginRate());
+        BigDecimal maintenanceMargin = margin(execution, marginRate.getMaintenanceMarginRate());
+        Instant now = clock.instant();
+        
+        Margin margin = new Margin(
+                String.valueOf(ids.next(execution.getAccountId())),
+                execution.getAccountId(),
+                execution.getId(),
+                execution.getSymbol(),
+                initialMargin,
+                maintenanceMargin,
+                initialMargin, // margin requirement = initial margin
+                marginRate.getLeverage(),
+                now,
+                now
+        );
+        
+        return margin;
+    }
+
+    @Override
+    public void processFused(Execution execution, AccountSymbolSlot slot) {
+        RefDataService.MarginRate marginRate = riskAdjusted(execution, marginRateOf(execution.getSymbol()));
+        // margin requirement = initial margin
+        if (isFixedPoint(execution, marginRate)) {
+            try {
+                long initialMargin = initialMarginUnits(execution, marginRate);
+                slot.getMargin().add(initialMargin, maintenanceMarginUnits(execution, marginRate), initialMargin, MARGIN_SCALE);
+                return;
+            } catch (ArithmeticException overflow) {
+                // Beyond the long range: BigDecimal below
+            }
+        }
+        BigDecimal initialMargin = margin(execution, marginRate.getInitialMarginRate());
+        slot.getMargin().add(initialMargin, margin(execution, marginRate.getMaintenanceMarginRate()), initialMargin);
+    }
+
+    /**
+     * Sum the executions' margins, then update the slot's aggregate once
+     * Margin rates are fetched once per symbol for the whole batch (the batch's scratch)
+     */
+    @Override
+    public void processFused(List<Execution> executions, AccountSymbolSlot slot, FusedBatch batch) {
+        Map<String, RefDataService.MarginRate> rates = batch.scratch(this, ConcurrentHashMap::new);
+        AggregatedMargin aggregated = slot.getMargin();
+        MarginTotals totals = new MarginTotals(slot.getKey(), aggregated.getAccountId(), aggregated.getSymbol());
+        for (int i = 0; i < executions.size(); i++) {
+            addMargin(totals, executions.get(i), rates);
+        }
+        aggregated.addAll(totals);
+    }
+
+    /**
+     * Margin at a rate: notional x rate, HALF_UP to MARGIN_SCALE
+     */
+    private static BigDecimal margin(Execution execution, BigDecimal rate) {
+        return execution.getNotionalValue().multiply(rate).setScale(MARGIN_SCALE, RoundingMode.HALF_UP);
+    }
+
+    private static boolean isFixedPoint(Execution execution, RefDataService.MarginRate marginRate) {
+        return execution.isFixedPoint() && marginRate.isFixedPoint();
+    }
+
+    /**
+     * Initial margin in fixed point (units at MARGIN_SCALE), same rounding as margin()
+     * @throws ArithmeticException if the product exceeds the long range
+     */
+    private static long initialMarginUnits(Execution execution, RefDataService.MarginRate marginRate) {
+        return FixedPoint.multiply(execution.getPriceUnits(), execution.getPriceScale(),
+                execution.getQuantityUnits(), execution.getQuantityScale(),
+                marginRate.getInitialMarginRateUnits(), marginRate.getInitialMarginRateScale(), MARGIN_SCALE);
+    }
+
+    /**
+     * Maintenance margin in fixed point (units at MARGIN_SCALE), same rounding as margin()
+     * @throws ArithmeticException if the product exceeds the long range
+     */
+    private static long maintenanceMarginUnits(Execution execution, RefDataService.MarginRate marginRate) {
+        return FixedPoint.multiply(execution.getPriceUnits(), execution.getPriceScale(),
+                execution.getQuantityUnits(), execution.getQuantityScale(),
+                marginRate.getMaintenanceMarginRateUnits(), marginRate.getMaintenanceMarginRateScale(), MARGIN_SCALE);
+    }
+
+    /**
+     * Symbol-specific margin rates from ref data, or the defaults if unavailable
+     */
+    private RefDataService.MarginRate marginRateOf(String symbol) {
+        try {
+            return refDataService.getMarginRate(symbol);
+        } catch (RefDataException e) {
+            logger.warn("Failed to get margin rate for {}, using defaults: {}", symbol, e.getMessage());
+            return DEFAULT_MARGIN_RATE;
+        }
+    }
+
+    /**
+     * Margin rate adjusted by the account's risk tier, flagging leverage cap breaches
+     */
+    private RefDataService.MarginRate riskAdjusted(Execution execution, RefDataService.MarginRate marginRate) {
+        RefDataService.MarginRate adjusted = riskTable.get(execution.getAccountId()).adjust(marginRate);
+        if (adjusted.isLeverageCapped()) {
+            riskTable.recordLeverageBreach(execution.getAccountId(), execution.getSymbol());
+        }
+        return adjusted;
+    }
+
+    @Override
+    public void aggregate(Margin margin) {
+        // Push directly to aggregator (no queue, no hop)
+        aggregator.addSync(margin);
+        logger.debug("Margin pushed to aggregator: {}", margin.getId());
     }
 
     @Override
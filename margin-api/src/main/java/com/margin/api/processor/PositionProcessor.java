@@ -2,80 +2,221 @@ package com.margin.api.processor;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.margin.api.aggregator.AccountSymbolSlot;
+import com.margin.api.aggregator.AggregatedPosition;
 import com.margin.api.aggregator.PositionAggregator;
+import com.margin.api.aggregator.PositionTotals;
+import com.margin.api.lane.CoarseClock;
+import com.margin.api.lane.ExecutionLanes;
+import com.margin.api.lane.LaneIds;
 import com.margin.api.model.Execution;
 import com.margin.api.model.Position;
 import io.vertx.core.Future;
-import io.vertx.core.Vertx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Processor that transforms executions into positions
  * Pushes results directly to PositionAggregator (no queue)
  */
 @Singleton
-public class PositionProcessor implements Processor<Position> {
+public class PositionProcessor implements FusedProcessor<Position> {
     
     private static final Logger logger = LoggerFactory.getLogger(PositionProcessor.class);
     
-    private final Vertx vertx;
+    private final ExecutionLanes lanes;
+    private final LaneIds ids;
+    private final CoarseClock clock;
     private final PositionAggregator aggregator;
 
     @Inject
     public PositionProcessor(
-            Vertx vertx,
-            PositionAggregator aggregator) {
-        this.vertx = vertx;
+            ExecutionLanes lanes,
+            PositionAggregator aggregator,
+            LaneIds ids,
+            CoarseClock clock) {
+        this.lanes = lanes;
         this.aggregator = aggregator;
+        this.ids = ids;
+        this.clock = clock;
         logger.info("PositionProcessor initialized with push-based aggregation");
     }
 
     @Override
     public Future<Position> process(Execution execution) {
-        return vertx.executeBlocking(promise -> {
+        return lanes.executeStaged(execution.getAccountId(), () -> transform(execution), this::aggregate)
+            .onFailure(e -> logger.error("Error processing execution to position", e));
+    }
+
+    /**
+     * Sum the batch's positions per account/symbol in one task per lane, then update each key once
+     * A failing key does not stop the others; the batch fails with the executions of failed keys
+     */
+    @Override
+    public Future<Void> processBatch(List<Execution> executions) {
+        List<List<Execution>> byLane = lanes.groupByLane(executions, Execution::getAccountId);
+        List<Future> futures = new ArrayList<>();
+        for (int lane = 0; lane < byLane.size(); lane++) {
+            List<Execution> group = byLane.get(lane);
+            if (group != null) {
+                futures.add(lanes.executeStaged(lane, () -> sumPositions(group), totals -> addAll(group, totals))
+                    .recover(err -> Future.failedFuture(BatchProcessingException.of(group, err))));
+            }
+        }
+        return BatchProcessingException.join(futures)
+            .onFailure(e -> logger.error("Error processing execution batch to position", e));
+    }
+
+    /**
+     * Update each key once with its totals (on the lane)
+     *
+     * @throws BatchProcessingException naming the executions of the keys that failed
+     */
+    private void addAll(List<Execution> executions, Collection<PositionTotals> totals) {
+        Set<String> failedKeys = new HashSet<>();
+        RuntimeException failure = null;
+        for (PositionTotals keyTotals : totals) {
+            try {
+                aggregator.addAllSync(List.of(keyTotals));
+            } catch (RuntimeException e) {
+                failedKeys.add(keyTotals.getKey());
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            List<Execution> failed = new ArrayList<>();
+            for (Execution execution : executions) {
+                if (failedKeys.contains(execution.getAccountId() + ":" + execution.getSymbol())) {
+                    failed.add(execution);
+                }
+            }
+            throw new BatchProcessingException(failed, failure);
+        }
+    }
+
+    private Collection<PositionTotals> sumPositions(List<Execution> executions) {
+        Map<String, PositionTotals> totals = new HashMap<>();
+        for (Execution execution : executions) {
+            String key = execution.getAccountId() + ":" + execution.getSymbol();
+            addPosition(totals.computeIfAbsent(key,
+                    k -> new PositionTotals(k, execution.getAccountId(), execution.getSymbol())), execution);
+        }
+        return totals.values();
+    }
+
+    /**
+     * Add an execution's fill to its key's totals
+     *
+     * @throws ArithmeticException if the fill does not fit the lot book (nothing is added then)
+     */
+    private static void addPosition(PositionTotals totals, Execution execution) {
+        // Realized PnL comes from lot matching in the aggregate, unrealized starts at 0
+        if (execution.isFixedPoint()) {
             try {
-                logger.debug("Processing execution to position: {}", execution.getId());
-                
-                // Determine position side based on execution side
-                Position.PositionSide side = execution.getSide() == Execution.ExecutionSide.BUY 
-                        ? Position.PositionSide.LONG 
-                        : Position.PositionSide.SHORT;
-                
-                // For simplicity, treating each execution as a new position
-                // In a real system, you'd aggregate with existing positions
-                BigDecimal quantity = execution.getSide() == Execution.ExecutionSide.BUY
-                        ? execution.getQuantity()
-                        : execution.getQuantity().negate();
-                
-                Position position = new Position(
-                        UUID.randomUUID().toString(),
-                        execution.getAccountId(),
-                        execution.getSymbol(),
-                        quantity,
-                        execution.getPrice(),
-                        BigDecimal.ZERO, // unrealized PnL starts at 0
-                        BigDecimal.ZERO, // realized PnL starts at 0
-                        side,
-                        Instant.now(),
-                        Instant.now()
-                );
-                
-                // Push directly to aggregator (no queue)
-                aggregator.add(position)
-                    .onSuccess(agg -> logger.debug("Position pushed to aggregator: {}", position.getId()))
-                    .onFailure(err -> logger.error("Failed to push position to aggregator", err));
-                
-                promise.complete(position);
-            } catch (Exception e) {
-                logger.error("Error processing execution to position", e);
-                promise.fail(e);
+                totals.add(signedQuantityUnits(execution), execution.getQuantityScale(),
+                        execution.getPriceUnits(), execution.getPriceScale());
+                return;
+            } catch (ArithmeticException overflow) {
+                // Beyond the long range, nothing added (adds are all or nothing): BigDecimal below
             }
-        });
+        }
+        totals.add(signedQuantity(execution), execution.getPrice(), BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    @Override
+    public Position transform(Execution execution) {
+        logger.debug("Processing execution to position: {}", execution.getId());
+        
+        // Determine position side based on execution side
+        Position.PositionSide side = execution.getSide() == Execution.ExecutionSide.BUY 
+                ? Position.PositionSide.LONG 
+                : Position.PositionSide.SHORT;
+        
+        // Each execution is a fill: the aggregate matches it against the open lots
+        // (on the account's lane, in order) and realizes the PnL of what it closes
+        BigDecimal quantity = signedQuantity(execution);
+        Instant now = clock.instant();
+        
+        Position position = new Position(
+                String.valueOf(ids.next(execution.getAccountId())),
+                execution.getAccountId(),
+                execution.getSymbol(),
+                quantity,
+                execution.getPrice(),
+                BigDecimal.ZERO, // unrealized PnL starts at 0
+                BigDecimal.ZERO, // realized PnL is computed by lot matching
+                side,
+                now,
+                now
+        );
+        
+        return position;
+    }
+
+    @Override
+    public void processFused(Execution execution, AccountSymbolSlot slot) {
+        // Realized PnL comes from lot matching in the aggregate, unrealized starts at 0
+        if (execution.isFixedPoint()) {
+            try {
+                slot.getPosition().add(signedQuantityUnits(execution), execution.getQuantityScale(),
+                        execution.getPriceUnits(), execution.getPriceScale());
+                return;
+            } catch (ArithmeticException overflow) {
+                // Beyond the long range, nothing added (adds are all or nothing): BigDecimal below
+            }
+        }
+        slot.getPosition().add(signedQuantity(execution), execution.getPrice(), BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    /**
+     * Sum the executions' fills, then update the slot's aggregate once (its lots still match
+     * the fills one by one, in order; all or nothing)
+     */
+    @Override
+    public void processFused(List<Execution> executions, AccountSymbolSlot slot, FusedBatch batch) {
+        AggregatedPosition aggregated = slot.getPosition();
+        PositionTotals totals = new PositionTotals(slot.getKey(), aggregated.getAccountId(), aggregated.getSymbol());
+        for (int i = 0; i < executions.size(); i++) {
+            addPosition(totals, executions.get(i));
+        }
+        aggregated.addAll(totals);
+    }
+
+    /**
+     * Quantity signed by side: positive for BUY, negative for SELL
+     */
+    private static BigDecimal signedQuantity(Execution execution) {
+        return execution.getSide() == Execution.ExecutionSide.BUY
+                ? execution.getQuantity()
+                : execution.getQuantity().negate();
+    }
+
+    /**
+     * Fixed-point signed quantity (units at the execution's quantity scale)
+     */
+    private static long signedQuantityUnits(Execution execution) {
+        return execution.getSide() == Execution.ExecutionSide.BUY
+                ? execution.getQuantityUnits()
+                : Math.negateExact(execution.getQuantityUnits());
+    }
+
+    @Override
+    public void aggregate(Position position) {
+        // Push directly to aggregator (no queue, no hop)
+        aggregator.addSync(position);
+        logger.debug("Position pushed to aggregator: {}", position.getId());
     }
 
     @Override
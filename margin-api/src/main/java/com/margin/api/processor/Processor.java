@@ -5,6 +5,9 @@ import com.margin.api.refdata.RefDataException;
 import com.margin.api.refdata.RefDataService;
 import io.vertx.core.Future;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Processor interface for transforming executions into different data types
  * Supports reference data enrichment for enhanced processing
@@ -19,6 +22,24 @@ public interface Processor<T> {
      */
     Future<T> process(Execution execution);
     
+    /**
+     * Process a batch of executions (micro-batching, optional override)
+     * Default implementation processes each execution on its own; processors can group
+     * the batch by account/symbol and push pre-summed deltas to their aggregator instead
+     * 
+     * @param executions The executions to process
+     * @return Future completed once every execution has been processed, or failed with a
+     *         BatchProcessingException naming the executions that failed
+     */
+    default Future<Void> processBatch(List<Execution> executions) {
+        List<Future> futures = new ArrayList<>(executions.size());
+        for (Execution execution : executions) {
+            futures.add(process(execution)
+                .recover(err -> Future.failedFuture(new BatchProcessingException(List.of(execution), err))));
+        }
+        return BatchProcessingException.join(futures);
+    }
+    
     /**
      * Get the processor type identifier
      * 
@@ -26,6 +47,16 @@ public interface Processor<T> {
      */
     String getProcessorType();
     
+    /**
+     * Declare which executions this processor receives (optional override)
+     * Default implementation receives every execution
+     * 
+     * @return The processor's interest, compiled into the registry's routing index
+     */
+    default ProcessorInterest getInterest() {
+        return ProcessorInterest.ALL;
+    }
+    
     /**
      * Enrich execution with reference data (optional override)
      * Default implementation returns execution unchanged
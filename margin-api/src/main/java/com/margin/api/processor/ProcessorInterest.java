@@ -0,0 +1,151 @@
+package com.margin.api.processor;
+
+import com.margin.api.model.Execution;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Executions a processor wants to receive
+ * Dimensions are combined with AND; values within a dimension with OR. The symbol dimension
+ * matches an exact symbol or a product prefix (e.g. "ES" for every ES future). An empty
+ * dimension matches everything, so ALL receives every execution.
+ *
+ * Compiled by the registry into a routing index (RoutingIndex), so dispatch cost grows with
+ * the number of matching processors rather than with all registered processors.
+ */
+public final class ProcessorInterest {
+
+    public static final ProcessorInterest ALL = builder().build();
+
+    private final Set<String> symbols;
+    private final String[] symbolPrefixes;
+    private final Set<String> accounts;
+    private final Set<Execution.ExecutionType> executionTypes;
+
+    private ProcessorInterest(Builder builder) {
+        this.symbols = Set.copyOf(builder.symbols);
+        this.symbolPrefixes = builder.symbolPrefixes.toArray(new String[0]);
+        this.accounts = Set.copyOf(builder.accounts);
+        this.executionTypes = builder.executionTypes.isEmpty()
+                ? EnumSet.noneOf(Execution.ExecutionType.class) : EnumSet.copyOf(builder.executionTypes);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Check whether an execution matches every dimension of this interest
+     */
+    public boolean matches(Execution execution) {
+        return matchesSymbol(execution.getSymbol())
+                && (accounts.isEmpty() || accounts.contains(execution.getAccountId()))
+                && (executionTypes.isEmpty() || executionTypes.contains(execution.getType()));
+    }
+
+    /**
+     * Check the symbol dimension only (exact symbols or product prefixes)
+     */
+    public boolean matchesSymbol(String symbol) {
+        if (!hasSymbolFilter()) {
+            return true;
+        }
+        if (symbol == null) {
+            return false;
+        }
+        if (symbols.contains(symbol)) {
+            return true;
+        }
+        for (String prefix : symbolPrefixes) {
+            if (symbol.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasSymbolFilter() {
+        return !symbols.isEmpty() || symbolPrefixes.length > 0;
+    }
+
+    public boolean isUnfiltered() {
+        return !hasSymbolFilter() && accounts.isEmpty() && executionTypes.isEmpty();
+    }
+
+    public Set<String> getSymbols() {
+        return symbols;
+    }
+
+    public Set<String> getAccounts() {
+        return accounts;
+    }
+
+    public Set<Execution.ExecutionType> getExecutionTypes() {
+        return executionTypes;
+    }
+
+    @Override
+    public String toString() {
+        if (isUnfiltered()) {
+            return "ProcessorInterest{ALL}";
+        }
+        return "ProcessorInterest{" +
+                "symbols=" + symbols +
+                ", symbolPrefixes=" + Arrays.toString(symbolPrefixes) +
+                ", accounts=" + accounts +
+                ", executionTypes=" + executionTypes +
+                '}';
+    }
+
+    public static final class Builder {
+        private final Set<String> symbols = new HashSet<>();
+        private final Set<String> symbolPrefixes = new LinkedHashSet<>();
+        private final Set<String> accounts = new HashSet<>();
+        private final Set<Execution.ExecutionType> executionTypes = EnumSet.noneOf(Execution.ExecutionType.class);
+
+        private Builder() {
+        }
+
+        public Builder symbols(Collection<String> values) {
+            symbols.addAll(values);
+            return this;
+        }
+
+        public Builder symbols(String... values) {
+            return symbols(Arrays.asList(values));
+        }
+
+        public Builder symbolPrefixes(String... values) {
+            for (String prefix : values) {
+                if (prefix.isEmpty()) {
+                    throw new IllegalArgumentException("Symbol prefix must not be empty");
+                }
+                symbolPrefixes.add(prefix);
+            }
+            return this;
+        }
+
+        public Builder accounts(Collection<String> values) {
+            accounts.addAll(values);
+            return this;
+        }
+
+        public Builder accounts(String... values) {
+            return accounts(Arrays.asList(values));
+        }
+
+        public Builder executionTypes(Execution.ExecutionType... values) {
+            executionTypes.addAll(Arrays.asList(values));
+            return this;
+        }
+
+        public ProcessorInterest build() {
+            return new ProcessorInterest(this);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.margin.api.processor;
+
+import com.margin.api.model.Execution;
+
+/**
+ * Processor whose work is CPU-only and non-blocking (pure in-memory arithmetic)
+ * The registry runs sync processors inline on the execution's lane thread, all of them
+ * in a single lane task, instead of one executeBlocking hop (plus aggregator hop) each
+ *
+ * Work is split into transform and aggregate so transports can run the two steps on
+ * different threads (e.g. the ring buffer pipeline's processor and aggregator consumers)
+ */
+public interface SyncProcessor<T> extends Processor<T> {
+
+    /**
+     * Transform an execution into the target type on the calling thread (no side effects)
+     *
+     * @param execution The execution to transform
+     * @return The transformed result
+     * @throws Exception if the transformation fails
+     */
+    T transform(Execution execution) throws Exception;
+
+    /**
+     * Push a transformed result to its aggregator on the calling thread
+     * The caller must be the single writer of the result's account (its lane, or a pipeline consumer)
+     *
+     * @param result The result to aggregate
+     */
+    void aggregate(T result);
+
+    /**
+     * Process an execution on the calling thread: transform, then aggregate
+     * Must only be called on the lane owning the execution's account, and must not block
+     *
+     * @param execution The execution to process
+     * @return The transformed result (already pushed to its aggregator)
+     * @throws Exception if processing fails
+     */
+    default T processSync(Execution execution) throws Exception {
+        T result = transform(execution);
+        aggregate(result);
+        return result;
+    }
+}
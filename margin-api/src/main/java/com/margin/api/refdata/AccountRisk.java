@@ -0,0 +1,102 @@
+package com.margin.api.refdata;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolved risk parameters of an account: tier margin multiplier and leverage cap
+ * Shared by every account with the same tier and max leverage (AccountRiskTable interns them),
+ * so each instance also caches the risk-adjusted version of the margin rates it has seen:
+ * adjusting a rate is a map read once the symbol's rate has been seen.
+ *
+ * Adjusted rates: initial and maintenance rates times the tier multiplier, and the initial
+ * rate raised to 1 / maxLeverage when the tier rate would allow more leverage than the cap
+ * (flagged with MarginRate.isLeverageCapped).
+ */
+public class AccountRisk {
+
+    private static final int MIN_RATE_SCALE = 8;
+    private static final int MAX_CACHED_RATES = 10_000;
+
+    private final RefDataService.RiskTier tier;
+    private final BigDecimal multiplier;
+    private final BigDecimal maxLeverage;
+    private final BigDecimal minInitialMarginRate;
+    // Keyed by value: equal rates share their adjusted rate, whichever instance ref data returns
+    private final Map<RefDataService.MarginRate, RefDataService.MarginRate> adjustedRates = new ConcurrentHashMap<>();
+
+    /**
+     * @param tier The account's risk tier
+     * @param multiplier Margin multiplier of the tier
+     * @param maxLeverage Leverage cap, or null for none
+     */
+    public AccountRisk(RefDataService.RiskTier tier, BigDecimal multiplier, BigDecimal maxLeverage) {
+        this.tier = tier;
+        this.multiplier = multiplier;
+        this.maxLeverage = maxLeverage;
+        this.minInitialMarginRate = maxLeverage != null && maxLeverage.signum() > 0
+                ? compact(BigDecimal.ONE.divide(maxLeverage, MIN_RATE_SCALE, RoundingMode.HALF_UP))
+                : null;
+    }
+
+    /**
+     * Risk-adjusted margin rate (cached per rate value)
+     */
+    public RefDataService.MarginRate adjust(RefDataService.MarginRate rate) {
+        RefDataService.MarginRate adjusted = adjustedRates.get(rate);
+        if (adjusted != null) {
+            return adjusted;
+        }
+        if (adjustedRates.size() >= MAX_CACHED_RATES) {
+            adjustedRates.clear();
+        }
+        adjusted = compute(rate);
+        RefDataService.MarginRate existing = adjustedRates.putIfAbsent(rate, adjusted);
+        return existing != null ? existing : adjusted;
+    }
+
+    public RefDataService.RiskTier getTier() {
+        return tier;
+    }
+
+    public BigDecimal getMultiplier() {
+        return multiplier;
+    }
+
+    public BigDecimal getMaxLeverage() {
+        return maxLeverage;
+    }
+
+    private RefDataService.MarginRate compute(RefDataService.MarginRate rate) {
+        BigDecimal initial = compact(rate.getInitialMarginRate().multiply(multiplier));
+        BigDecimal maintenance = compact(rate.getMaintenanceMarginRate().multiply(multiplier));
+        boolean capped = minInitialMarginRate != null && initial.compareTo(minInitialMarginRate) < 0;
+        if (capped) {
+            initial = minInitialMarginRate;
+        }
+        BigDecimal leverage = rate.getLeverage();
+        if (leverage != null && maxLeverage != null && leverage.compareTo(maxLeverage) > 0) {
+            leverage = maxLeverage;
+        }
+        return new RefDataService.MarginRate(initial, maintenance, leverage, capped);
+    }
+
+    /**
+     * Drop trailing zeros (same value, fewer digits for the fixed-point margin products)
+     */
+    private static BigDecimal compact(BigDecimal rate) {
+        BigDecimal stripped = rate.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountRisk{" +
+                "tier=" + tier +
+                ", multiplier=" + multiplier +
+                ", maxLeverage=" + maxLeverage +
+                '}';
+    }
+}
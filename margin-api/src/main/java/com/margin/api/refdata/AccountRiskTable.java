@@ -0,0 +1,233 @@
+package com.margin.api.refdata;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Per-account risk parameters (AccountRisk) for margin computation
+ * Accounts are kept in a compact open-addressing table (parallel key/value arrays, values
+ * interned per tier and max leverage) published as an immutable snapshot: a lookup is a
+ * volatile read and a probe, with no lock, CAS or allocation.
+ *
+ * The whole table is refreshed in bulk every risk.refresh.interval.ms (one bulk ref data call,
+ * one new snapshot). Accounts first seen between refreshes are resolved once and kept aside
+ * until the next refresh folds them in. Accounts not looked up since the previous refresh
+ * (closed or idle) are dropped from the new snapshot; one that trades again is resolved again.
+ *
+ * Tier multipliers come from risk.tier.multipliers (e.g. "LOW=0.90,MEDIUM=1.00,HIGH=1.50");
+ * tiers not listed keep a multiplier of 1.
+ */
+@Singleton
+public class AccountRiskTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountRiskTable.class);
+
+    // Used when an account's risk category is unavailable
+    private static final RefDataService.RiskTier DEFAULT_TIER = RefDataService.RiskTier.MEDIUM;
+    private static final BigDecimal DEFAULT_MAX_LEVERAGE = new BigDecimal("5.0");
+
+    private final RefDataService refDataService;
+    private final Map<RefDataService.RiskTier, BigDecimal> multipliers = new EnumMap<>(RefDataService.RiskTier.class);
+    // Interned parameters, keyed by tier and max leverage
+    private final Map<String, AccountRisk> interned = new ConcurrentHashMap<>();
+    // Accounts resolved since the last refresh
+    private final Map<String, AccountRisk> added = new ConcurrentHashMap<>();
+    private final LongAdder leverageBreaches = new LongAdder();
+    private volatile long dropped;
+    private volatile Snapshot snapshot = new Snapshot(new HashMap<>());
+    private volatile long refreshes;
+
+    @Inject
+    public AccountRiskTable(Vertx vertx, RefDataService refDataService, JsonObject config) {
+        this.refDataService = refDataService;
+        for (RefDataService.RiskTier tier : RefDataService.RiskTier.values()) {
+            multipliers.put(tier, BigDecimal.ONE);
+        }
+        String multiplierConfig = config.getString("risk.tier.multipliers", "");
+        for (String entry : multiplierConfig.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid risk.tier.multipliers entry (expected tier=multiplier): " + entry);
+            }
+            multipliers.put(RefDataService.RiskTier.valueOf(parts[0].trim()), new BigDecimal(parts[1].trim()));
+        }
+        long refreshMs = config.getLong("risk.refresh.interval.ms", 300_000L);
+        vertx.setPeriodic(Math.max(1, refreshMs), id -> vertx.executeBlocking(promise -> {
+            refresh();
+            promise.complete();
+        }, false).onFailure(e -> logger.error("Error refreshing account risk table", e)));
+        logger.info("AccountRiskTable initialized (multipliers={}, refresh={}ms)", multipliers, refreshMs);
+    }
+
+    /**
+     * Risk parameters of an account
+     * Thread-safe; allocation-free once the account is in the table
+     */
+    public AccountRisk get(String account) {
+        AccountRisk risk = snapshot.get(account);
+        if (risk != null) {
+            return risk;
+        }
+        risk = added.get(account);
+        if (risk == null) {
+            risk = load(account);
+            AccountRisk existing = added.putIfAbsent(account, risk);
+            if (existing != null) {
+                risk = existing;
+            }
+        }
+        return risk;
+    }
+
+    /**
+     * Flag a leverage breach: a margin rate capped at the account's max leverage
+     */
+    public void recordLeverageBreach(String account, String symbol) {
+        leverageBreaches.increment();
+        logger.debug("Leverage cap applied to account {} on {}", account, symbol);
+    }
+
+    /**
+     * Re-resolve every account in use in one bulk ref data call and publish a new table
+     * Accounts of the current table not looked up since it was published are dropped;
+     * accounts whose lookup fails keep their current parameters
+     */
+    public synchronized void refresh() {
+        Snapshot current = snapshot;
+        Map<String, AccountRisk> accounts = new HashMap<>(current.size() + added.size());
+        current.forEachUsed(accounts::put);
+        int unused = current.size() - accounts.size();
+        Map<String, AccountRisk> pending = new HashMap<>(added);
+        accounts.putAll(pending);
+
+        Map<String, RefDataService.AccountRiskCategory> categories =
+                refDataService.getAccountRiskCategories(new ArrayList<>(accounts.keySet()));
+        categories.forEach((account, category) -> accounts.put(account, intern(category.getTier(), category.getMaxLeverage())));
+
+        snapshot = new Snapshot(accounts);
+        // Only entries folded in (an account re-resolved meanwhile stays for the next refresh)
+        pending.forEach(added::remove);
+        refreshes++;
+        dropped += unused;
+        logger.debug("Account risk table refreshed: {} accounts ({} resolved, {} dropped)",
+                accounts.size(), categories.size(), unused);
+    }
+
+    public int size() {
+        return snapshot.size() + added.size();
+    }
+
+    public long getLeverageBreaches() {
+        return leverageBreaches.sum();
+    }
+
+    /**
+     * Table state for monitoring
+     */
+    public JsonObject toJson() {
+        JsonObject tiers = new JsonObject();
+        multipliers.forEach((tier, multiplier) -> tiers.put(tier.name(), multiplier.toPlainString()));
+        return new JsonObject()
+                .put("accounts", size())
+                .put("pending", added.size())
+                .put("refreshes", refreshes)
+                .put("dropped", dropped)
+                .put("leverageBreaches", getLeverageBreaches())
+                .put("multipliers", tiers);
+    }
+
+    private AccountRisk load(String account) {
+        try {
+            RefDataService.AccountRiskCategory category = refDataService.getAccountRiskCategory(account);
+            return intern(category.getTier(), category.getMaxLeverage());
+        } catch (RefDataException e) {
+            logger.warn("Failed to get risk category for {}, using defaults: {}", account, e.getMessage());
+            return intern(DEFAULT_TIER, DEFAULT_MAX_LEVERAGE);
+        }
+    }
+
+    private AccountRisk intern(RefDataService.RiskTier tier, BigDecimal maxLeverage) {
+        RefDataService.RiskTier resolvedTier = tier != null ? tier : DEFAULT_TIER;
+        String key = resolvedTier + ":" + (maxLeverage != null ? maxLeverage.toPlainString() : "");
+        return interned.computeIfAbsent(key, k -> new AccountRisk(resolvedTier, multipliers.get(resolvedTier), maxLeverage));
+    }
+
+    /**
+     * Immutable open-addressing table: keys and values in parallel arrays, linear probing
+     * Lookups also flag their entry as used (plain writes, only when not flagged yet: a flag the
+     * refresh misses drops an account in use, which is then resolved again on its next lookup)
+     */
+    private static final class Snapshot {
+        private final String[] keys;
+        private final AccountRisk[] values;
+        private final boolean[] used;
+        private final int size;
+
+        Snapshot(Map<String, AccountRisk> accounts) {
+            int capacity = Integer.highestOneBit(Math.max(16, accounts.size() * 2 - 1)) << 1;
+            this.keys = new String[capacity];
+            this.values = new AccountRisk[capacity];
+            this.used = new boolean[capacity];
+            this.size = accounts.size();
+            accounts.forEach((account, risk) -> {
+                int index = indexFor(account, capacity);
+                while (keys[index] != null) {
+                    index = (index + 1) & (capacity - 1);
+                }
+                keys[index] = account;
+                values[index] = risk;
+            });
+        }
+
+        AccountRisk get(String account) {
+            int index = indexFor(account, keys.length);
+            String key;
+            while ((key = keys[index]) != null) {
+                if (key.equals(account)) {
+                    if (!used[index]) {
+                        used[index] = true;
+                    }
+                    return values[index];
+                }
+                index = (index + 1) & (keys.length - 1);
+            }
+            return null;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Entries looked up since the snapshot was published
+         */
+        void forEachUsed(BiConsumer<String, AccountRisk> action) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null && used[i]) {
+                    action.accept(keys[i], values[i]);
+                }
+            }
+        }
+
+        private static int indexFor(String account, int capacity) {
+            int hash = account.hashCode();
+            return (hash ^ (hash >>> 16)) & (capacity - 1);
+        }
+    }
+}
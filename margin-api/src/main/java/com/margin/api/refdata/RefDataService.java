@@ -1,6 +1,12 @@
 package com.margin.api.refdata;
 
+import com.margin.api.model.FixedPoint;
+
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * Reference data service interface
@@ -32,18 +38,59 @@ public interface RefDataService {
      */
     AccountRiskCategory getAccountRiskCategory(String account) throws RefDataException;
     
+    /**
+     * Get risk categories of many accounts at once (bulk refresh)
+     * The default implementation looks the accounts up one by one
+     * @param accounts The accounts to get risk categories for
+     * @return Risk category per account; accounts whose lookup failed are left out
+     */
+    default Map<String, AccountRiskCategory> getAccountRiskCategories(Collection<String> accounts) {
+        Map<String, AccountRiskCategory> categories = new HashMap<>();
+        for (String account : accounts) {
+            try {
+                categories.put(account, getAccountRiskCategory(account));
+            } catch (RefDataException e) {
+                // Left out: the caller keeps what it had for the account
+            }
+        }
+        return categories;
+    }
+    
     /**
      * Margin rate data
+     * Equal when the rates, leverage and cap flag are equal (BigDecimal.equals: value and scale)
      */
     class MarginRate {
         private final BigDecimal initialMarginRate;
         private final BigDecimal maintenanceMarginRate;
         private final BigDecimal leverage;
+        // Initial margin raised to an account's leverage cap (risk-adjusted rates)
+        private final boolean leverageCapped;
+        // Fixed-point rates for the margin hot path (see FixedPoint)
+        private final boolean fixedPoint;
+        private final long initialMarginRateUnits;
+        private final int initialMarginRateScale;
+        private final long maintenanceMarginRateUnits;
+        private final int maintenanceMarginRateScale;
+        private final int hash;
 
         public MarginRate(BigDecimal initialMarginRate, BigDecimal maintenanceMarginRate, BigDecimal leverage) {
+            this(initialMarginRate, maintenanceMarginRate, leverage, false);
+        }
+
+        public MarginRate(BigDecimal initialMarginRate, BigDecimal maintenanceMarginRate, BigDecimal leverage,
+                boolean leverageCapped) {
             this.initialMarginRate = initialMarginRate;
             this.maintenanceMarginRate = maintenanceMarginRate;
             this.leverage = leverage;
+            this.leverageCapped = leverageCapped;
+            this.fixedPoint = FixedPoint.isRepresentable(initialMarginRate)
+                    && FixedPoint.isRepresentable(maintenanceMarginRate);
+            this.initialMarginRateUnits = fixedPoint ? FixedPoint.unscaled(initialMarginRate) : 0;
+            this.initialMarginRateScale = fixedPoint ? initialMarginRate.scale() : 0;
+            this.maintenanceMarginRateUnits = fixedPoint ? FixedPoint.unscaled(maintenanceMarginRate) : 0;
+            this.maintenanceMarginRateScale = fixedPoint ? maintenanceMarginRate.scale() : 0;
+            this.hash = Objects.hash(initialMarginRate, maintenanceMarginRate, leverage, leverageCapped);
         }
 
         public BigDecimal getInitialMarginRate() {
@@ -57,6 +104,47 @@ public interface RefDataService {
         public BigDecimal getLeverage() {
             return leverage;
         }
+
+        public boolean isLeverageCapped() {
+            return leverageCapped;
+        }
+
+        public boolean isFixedPoint() {
+            return fixedPoint;
+        }
+
+        public long getInitialMarginRateUnits() {
+            return initialMarginRateUnits;
+        }
+
+        public int getInitialMarginRateScale() {
+            return initialMarginRateScale;
+        }
+
+        public long getMaintenanceMarginRateUnits() {
+            return maintenanceMarginRateUnits;
+        }
+
+        public int getMaintenanceMarginRateScale() {
+            return maintenanceMarginRateScale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            MarginRate other = (MarginRate) o;
+            return hash == other.hash
+                    && leverageCapped == other.leverageCapped
+                    && Objects.equals(initialMarginRate, other.initialMarginRate)
+                    && Objects.equals(maintenanceMarginRate, other.maintenanceMarginRate)
+                    && Objects.equals(leverage, other.leverage);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
     
     /**
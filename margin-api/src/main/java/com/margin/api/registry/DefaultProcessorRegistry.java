@@ -2,46 +2,153 @@ package com.margin.api.registry;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.margin.api.aggregator.AccountSymbolSlot;
+import com.margin.api.aggregator.AccountSymbolSlots;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.bulkhead.Bulkhead;
+import com.margin.api.bulkhead.Bulkheads;
+import com.margin.api.lane.ExecutionLanes;
+import com.margin.api.lane.ExecutionMode;
 import com.margin.api.model.Execution;
+import com.margin.api.processor.BatchProcessingException;
+import com.margin.api.processor.FusedBatch;
+import com.margin.api.processor.FusedProcessor;
 import com.margin.api.processor.Processor;
+import com.margin.api.processor.SyncProcessor;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Default implementation of ProcessorRegistry
  * Routes executions to all registered processors in parallel
+ * Executions are sharded by accountId onto ExecutionLanes: processors and aggregators
+ * run on the execution's lane, so order holds per account while accounts scale across cores
+ * In-flight executions are tracked per stage by the BackpressureController
+ *
+ * SyncProcessors (CPU-only, non-blocking) run inline: all of them in one task on the
+ * execution's lane, completing a single future per execution, instead of a hop per processor
+ * and per aggregator. Their work is tracked by the registry stage. Set processors.inline.enabled
+ * to false to run them through their asynchronous process() like any other processor; the
+ * virtual execution mode (execution.mode=virtual) does the same.
+ *
+ * Fused processing (processors.fused.enabled, inline only): the account/symbol state slot is
+ * resolved once per execution and every FusedProcessor updates it in the same pass, instead
+ * of each processor building its own key, result object and aggregator lookups.
+ *
+ * Micro-batching (processors.batch.enabled): processBatch routes the batch once through the
+ * same indexes as single executions. Executions for inline (and fused) processors are grouped
+ * by lane and each lane runs its group in one task. There, fused processors receive each
+ * account/symbol key's executions at once (FusedProcessor.processFused with a list), so each
+ * key is updated once with pre-summed deltas and reference data is loaded once per batch
+ * (FusedBatch); other inline processors run execution by execution. Each asynchronous
+ * processor receives the executions it is interested in through a single
+ * Processor.processBatch call, which groups them by account/symbol the same way.
+ *
+ * Bulkheads: calls to asynchronous processors run in the processor's Bulkhead (own worker
+ * pool, bounded queue, timeout), so a slow processor cannot stall the others. SyncProcessors
+ * are CPU-only by contract and hand their work to the lanes, which isolate it already; they
+ * are always called on the calling thread, so an account's work reaches its lane in the
+ * order executions and batches were submitted (a bulkhead's threads would start overlapping
+ * calls in any order).
+ *
+ * Routing: each execution only reaches the processors whose ProcessorInterest matches it.
+ * Interests are compiled into a RoutingIndex per processing mode on registration, so dispatch
+ * costs O(matching processors), for single executions and batches alike; an execution no
+ * processor is interested in completes without a lane hop.
  */
 @Singleton
 public class DefaultProcessorRegistry implements ProcessorRegistry {
     
     private static final Logger logger = LoggerFactory.getLogger(DefaultProcessorRegistry.class);
+    private static final String STAGE = "registry";
+    private static final String PROCESSOR_STAGE_PREFIX = "processor:";
     
     private final Vertx vertx;
+    private final ExecutionLanes lanes;
+    private final BackpressureController backpressure;
+    private final AccountSymbolSlots slots;
+    private final Bulkheads bulkheads;
+    private final Map<String, Bulkhead> processorBulkheads = new ConcurrentHashMap<>();
+    private final boolean inlineEnabled;
+    private final boolean fusedEnabled;
+    private final boolean batchEnabled;
     private final Map<String, Processor<?>> processors;
     private final List<Processor<?>> processorList;
+    private final List<SyncProcessor<?>> inlineProcessors;
+    private final List<Processor<?>> asyncProcessors;
+    private final List<FusedProcessor<?>> fusedProcessors;
+    private final LaneScratch[] laneScratch;
+    private volatile RoutingIndex<SyncProcessor<?>> inlineIndex = new RoutingIndex<>(List.of());
+    private volatile RoutingIndex<Processor<?>> asyncIndex = new RoutingIndex<>(List.of());
+    private volatile RoutingIndex<FusedProcessor<?>> fusedIndex = new RoutingIndex<>(List.of());
 
     @Inject
-    public DefaultProcessorRegistry(Vertx vertx) {
+    public DefaultProcessorRegistry(
+            Vertx vertx,
+            ExecutionLanes lanes,
+            BackpressureController backpressure,
+            AccountSymbolSlots slots,
+            Bulkheads bulkheads,
+            JsonObject config) {
         this.vertx = vertx;
+        this.lanes = lanes;
+        this.backpressure = backpressure;
+        this.slots = slots;
+        this.bulkheads = bulkheads;
+        // Virtual execution mode moves processor work off the lanes, so nothing runs inline
+        this.inlineEnabled = config.getBoolean("processors.inline.enabled", true)
+                && lanes.getMode() == ExecutionMode.WORKERS;
+        this.fusedEnabled = inlineEnabled && config.getBoolean("processors.fused.enabled", true);
+        this.batchEnabled = config.getBoolean("processors.batch.enabled", true);
         this.processors = new ConcurrentHashMap<>();
         this.processorList = new ArrayList<>();
-        logger.info("ProcessorRegistry initialized");
+        this.inlineProcessors = new ArrayList<>();
+        this.asyncProcessors = new ArrayList<>();
+        this.fusedProcessors = new ArrayList<>();
+        this.laneScratch = new LaneScratch[lanes.size()];
+        for (int i = 0; i < laneScratch.length; i++) {
+            laneScratch[i] = new LaneScratch();
+        }
+        logger.info("ProcessorRegistry initialized with {} execution lanes (inline={}, fused={}, batch={})", 
+                lanes.size(), inlineEnabled, fusedEnabled, batchEnabled);
     }
 
     @Override
-    public void register(Processor<?> processor) {
+    public synchronized void register(Processor<?> processor) {
         String type = processor.getProcessorType();
         processors.put(type, processor);
         processorList.add(processor);
-        logger.info("Registered processor: {}", type);
+        if (!(processor instanceof SyncProcessor)) {
+            Bulkhead bulkhead = bulkheads.forProcessor(type);
+            if (bulkhead != null) {
+                processorBulkheads.put(type, bulkhead);
+            }
+        }
+        if (fusedEnabled && processor instanceof FusedProcessor) {
+            fusedProcessors.add((FusedProcessor<?>) processor);
+            fusedIndex = new RoutingIndex<>(fusedProcessors);
+            logger.info("Registered processor: {} (fused, interest={})", type, processor.getInterest());
+        } else if (inlineEnabled && processor instanceof SyncProcessor) {
+            inlineProcessors.add((SyncProcessor<?>) processor);
+            inlineIndex = new RoutingIndex<>(inlineProcessors);
+            logger.info("Registered processor: {} (inline, interest={})", type, processor.getInterest());
+        } else {
+            asyncProcessors.add(processor);
+            asyncIndex = new RoutingIndex<>(asyncProcessors);
+            logger.info("Registered processor: {} (interest={})", type, processor.getInterest());
+        }
     }
 
     @Override
@@ -53,10 +160,28 @@ public class DefaultProcessorRegistry implements ProcessorRegistry {
         logger.debug("Processing execution {} through {} processors", 
                 execution.getId(), processorList.size());
 
-        // Process execution through all processors in parallel
-        List<Future> futures = new ArrayList<>();
-        for (Processor<?> processor : processorList) {
-            Future<?> future = processor.process(execution)
+        return backpressure.track(STAGE, () -> processAll(execution));
+    }
+
+    private Future<Void> processAll(Execution execution) {
+        RoutingIndex<FusedProcessor<?>> fused = fusedIndex;
+        RoutingIndex<SyncProcessor<?>> inline = inlineIndex;
+        boolean inlineMatched = fused.matchesAny(execution) || inline.matchesAny(execution);
+        RoutingIndex<Processor<?>> async = asyncIndex;
+        List<Processor<?>> routed = async.isEmpty() ? List.of() : async.route(execution);
+        if (routed.isEmpty()) {
+            return inlineMatched ? processInline(execution, fused, inline) : Future.succeededFuture();
+        }
+
+        // Process execution through all interested processors in parallel
+        List<Future> futures = new ArrayList<>(routed.size() + 1);
+        if (inlineMatched) {
+            futures.add(processInline(execution, fused, inline));
+        }
+        for (Processor<?> processor : routed) {
+            Future<?> future = backpressure.track(
+                    PROCESSOR_STAGE_PREFIX + processor.getProcessorType(),
+                    () -> isolated(processor, () -> processor.process(execution)))
                 .onSuccess(result -> 
                     logger.debug("Processor {} completed for execution {}", 
                         processor.getProcessorType(), execution.getId()))
@@ -70,6 +195,270 @@ public class DefaultProcessorRegistry implements ProcessorRegistry {
         return CompositeFuture.all(futures).mapEmpty();
     }
 
+    /**
+     * Run every interested inline (and fused) processor in a single task on the execution's lane
+     * A failing processor does not stop the others; the future fails with the first failure
+     */
+    private Future<Void> processInline(
+            Execution execution, RoutingIndex<FusedProcessor<?>> fused, RoutingIndex<SyncProcessor<?>> inline) {
+        int lane = lanes.laneOf(execution.getAccountId());
+        return lanes.executeBlocking(lane, promise -> {
+            Exception failure = applyInline(execution, laneScratch[lane], fused, inline);
+            if (failure == null) {
+                promise.complete();
+            } else {
+                promise.fail(failure);
+            }
+        });
+    }
+
+    /**
+     * Run a lane's share of a batch in a single task: fused processors update each account/symbol
+     * key once with the key's executions (processFused per key), inline processors run execution
+     * by execution as for single executions
+     * A failing execution or key does not stop the others; the future fails with a
+     * BatchProcessingException naming the failed executions
+     */
+    private Future<Void> processInline(
+            int lane, List<Execution> executions,
+            RoutingIndex<FusedProcessor<?>> fused, RoutingIndex<SyncProcessor<?>> inline, FusedBatch batch) {
+        return lanes.<Void>executeBlocking(lane, promise -> {
+            LaneScratch scratch = laneScratch[lane];
+            List<Execution> failed = new ArrayList<>();
+            Exception failure = fused.isEmpty() ? null : processFused(executions, scratch, fused, batch, failed);
+            for (int i = 0; !inline.isEmpty() && i < executions.size(); i++) {
+                Exception executionFailure = processSync(executions.get(i), scratch, inline);
+                if (executionFailure != null) {
+                    failed.add(executions.get(i));
+                    if (failure == null) {
+                        failure = executionFailure;
+                    }
+                }
+            }
+            if (failure == null) {
+                promise.complete();
+            } else {
+                promise.fail(new BatchProcessingException(failed, failure));
+            }
+        }).recover(err -> Future.failedFuture(BatchProcessingException.of(executions, err)));
+    }
+
+    /**
+     * Apply a lane's share of a batch to the fused processors, one update per account/symbol
+     * key and processor: executions are grouped by key (in order), the slot is resolved once
+     * per key and each processor receives the key's executions it is interested in at once
+     *
+     * @param failed Collects the executions of failed keys (a processor's update is all or nothing)
+     * @return The first failure, or null
+     */
+    private Exception processFused(
+            List<Execution> executions, LaneScratch scratch, RoutingIndex<FusedProcessor<?>> fused,
+            FusedBatch batch, List<Execution> failed) {
+        Map<String, KeyGroup> groups = new LinkedHashMap<>();
+        for (int i = 0; i < executions.size(); i++) {
+            Execution execution = executions.get(i);
+            if (fused.route(execution, scratch.fused) > 0) {
+                groups.computeIfAbsent(execution.getAccountId() + ":" + execution.getSymbol(),
+                        k -> new KeyGroup(execution)).add(execution, scratch.fused);
+            }
+            scratch.fused.clear();
+        }
+
+        Exception failure = null;
+        AccountSymbolSlot slot = scratch.slot;
+        for (KeyGroup group : groups.values()) {
+            try {
+                slots.resolve(group.first, slot);
+                for (Map.Entry<FusedProcessor<?>, List<Execution>> share : group.byProcessor.entrySet()) {
+                    FusedProcessor<?> processor = share.getKey();
+                    try {
+                        processor.processFused(share.getValue(), slot, batch);
+                    } catch (Exception e) {
+                        logger.error("Processor {} failed for {} executions of {}",
+                                processor.getProcessorType(), share.getValue().size(), slot.getKey(), e);
+                        failed.addAll(share.getValue());
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to resolve state of execution {}", group.first.getId(), e);
+                group.byProcessor.values().forEach(failed::addAll);
+                if (failure == null) {
+                    failure = e;
+                }
+            } finally {
+                slot.clear();
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * Apply an execution to every interested fused and inline processor (on its lane)
+     *
+     * @param scratch The lane's scratch: routed processors and the slot they share
+     * @return The first failure, or null
+     */
+    private Exception applyInline(
+            Execution execution, LaneScratch scratch,
+            RoutingIndex<FusedProcessor<?>> fused, RoutingIndex<SyncProcessor<?>> inline) {
+        Exception failure = null;
+        try {
+            if (fused.route(execution, scratch.fused) > 0) {
+                failure = processFused(execution, scratch);
+            }
+        } finally {
+            scratch.fused.clear();
+        }
+        Exception syncFailure = processSync(execution, scratch, inline);
+        return failure != null ? failure : syncFailure;
+    }
+
+    /**
+     * Run the interested inline (non-fused) processors of an execution, one after the other
+     *
+     * @return The first failure, or null
+     */
+    private Exception processSync(Execution execution, LaneScratch scratch, RoutingIndex<SyncProcessor<?>> inline) {
+        Exception failure = null;
+        try {
+            inline.route(execution, scratch.inline);
+            for (int i = 0; i < scratch.inline.size(); i++) {
+                SyncProcessor<?> processor = scratch.inline.get(i);
+                try {
+                    processor.processSync(execution);
+                } catch (Exception e) {
+                    logger.error("Processor {} failed for execution {}", 
+                        processor.getProcessorType(), execution.getId(), e);
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        } finally {
+            scratch.inline.clear();
+        }
+        return failure;
+    }
+
+    /**
+     * Resolve the account/symbol slot once and run the routed fused processors against it
+     *
+     * @return The first failure, or null
+     */
+    private Exception processFused(Execution execution, LaneScratch scratch) {
+        AccountSymbolSlot slot = scratch.slot;
+        Exception failure = null;
+        try {
+            slots.resolve(execution, slot);
+            for (int i = 0; i < scratch.fused.size(); i++) {
+                FusedProcessor<?> processor = scratch.fused.get(i);
+                try {
+                    processor.processFused(execution, slot);
+                } catch (Exception e) {
+                    logger.error("Processor {} failed for execution {}", 
+                        processor.getProcessorType(), execution.getId(), e);
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to resolve state of execution {}", execution.getId(), e);
+            failure = e;
+        } finally {
+            slot.clear();
+        }
+        return failure;
+    }
+
+    @Override
+    public Future<Void> processBatch(List<Execution> executions) {
+        if (executions.isEmpty() || processorList.isEmpty()) {
+            return Future.succeededFuture();
+        }
+
+        logger.debug("Processing batch of {} executions through {} processors", 
+                executions.size(), processorList.size());
+
+        if (batchEnabled) {
+            return backpressure.track(STAGE, executions.size(), () -> processMicroBatch(executions));
+        }
+
+        List<Future> futures = new ArrayList<>(executions.size());
+        for (Execution execution : executions) {
+            futures.add(process(execution)
+                .recover(err -> Future.failedFuture(new BatchProcessingException(List.of(execution), err))));
+        }
+
+        return BatchProcessingException.join(futures);
+    }
+
+    /**
+     * Route a batch once: inline (and fused) work in one task per lane, fused processors updating
+     * each account/symbol key once, and every asynchronous processor's share of the batch in one
+     * processBatch call
+     */
+    private Future<Void> processMicroBatch(List<Execution> executions) {
+        RoutingIndex<FusedProcessor<?>> fused = fusedIndex;
+        RoutingIndex<SyncProcessor<?>> inline = inlineIndex;
+        RoutingIndex<Processor<?>> async = asyncIndex;
+        List<Future> futures = new ArrayList<>();
+
+        if (!fused.isEmpty() || !inline.isEmpty()) {
+            FusedBatch batch = new FusedBatch();
+            // Grouped on the calling thread, so each account's executions reach its lane in order
+            List<List<Execution>> byLane = new ArrayList<>(Collections.nCopies(lanes.size(), null));
+            for (Execution execution : executions) {
+                if (fused.matchesAny(execution) || inline.matchesAny(execution)) {
+                    int lane = lanes.laneOf(execution.getAccountId());
+                    List<Execution> group = byLane.get(lane);
+                    if (group == null) {
+                        group = new ArrayList<>();
+                        byLane.set(lane, group);
+                    }
+                    group.add(execution);
+                }
+            }
+            for (int lane = 0; lane < byLane.size(); lane++) {
+                List<Execution> group = byLane.get(lane);
+                if (group != null) {
+                    futures.add(processInline(lane, group, fused, inline, batch));
+                }
+            }
+        }
+
+        if (!async.isEmpty()) {
+            Map<Processor<?>, List<Execution>> byProcessor = new LinkedHashMap<>();
+            List<Processor<?>> routed = new ArrayList<>();
+            for (Execution execution : executions) {
+                async.route(execution, routed);
+                for (int i = 0; i < routed.size(); i++) {
+                    byProcessor.computeIfAbsent(routed.get(i), p -> new ArrayList<>()).add(execution);
+                }
+                routed.clear();
+            }
+            byProcessor.forEach((processor, share) -> futures.add(backpressure.track(
+                    PROCESSOR_STAGE_PREFIX + processor.getProcessorType(), share.size(),
+                    () -> isolated(processor, () -> processor.processBatch(share)))
+                .onFailure(err -> 
+                    logger.error("Processor {} failed for a batch of {} executions", 
+                        processor.getProcessorType(), share.size(), err))
+                .recover(err -> Future.failedFuture(BatchProcessingException.of(share, err)))));
+        }
+        return BatchProcessingException.join(futures);
+    }
+
+    /**
+     * Run a processor call in the processor's bulkhead, if bulkheads are enabled
+     */
+    private <T> Future<T> isolated(Processor<?> processor, Supplier<Future<T>> call) {
+        Bulkhead bulkhead = processorBulkheads.get(processor.getProcessorType());
+        return bulkhead != null ? bulkhead.execute(call) : call.get();
+    }
+
     @Override
     public List<Processor<?>> getProcessors() {
         return new ArrayList<>(processorList);
@@ -79,5 +468,31 @@ public class DefaultProcessorRegistry implements ProcessorRegistry {
     public Processor<?> getProcessorByType(String type) {
         return processors.get(type);
     }
-}
 
+    /**
+     * Executions of one account/symbol within a lane's share of a batch, per fused processor
+     */
+    private static final class KeyGroup {
+        final Execution first;
+        final Map<FusedProcessor<?>, List<Execution>> byProcessor = new LinkedHashMap<>();
+
+        KeyGroup(Execution first) {
+            this.first = first;
+        }
+
+        void add(Execution execution, List<FusedProcessor<?>> routed) {
+            for (int i = 0; i < routed.size(); i++) {
+                byProcessor.computeIfAbsent(routed.get(i), p -> new ArrayList<>()).add(execution);
+            }
+        }
+    }
+
+    /**
+     * Per-lane routing scratch, only touched by tasks running on that lane
+     */
+    private static final class LaneScratch {
+        final AccountSymbolSlot slot = new AccountSymbolSlot();
+        final List<FusedProcessor<?>> fused = new ArrayList<>();
+        final List<SyncProcessor<?>> inline = new ArrayList<>();
+    }
+}
@@ -25,6 +25,15 @@ public interface ProcessorRegistry {
      */
     Future<Void> process(Execution execution);
     
+    /**
+     * Process a batch of executions (e.g. one Kafka poll) through all registered processors
+     * @param executions The executions to process
+     * @return Future that completes when every execution in the batch has been processed, or fails
+     *         (once no execution is in flight) with a BatchProcessingException naming the executions
+     *         that failed; the others were processed
+     */
+    Future<Void> processBatch(List<Execution> executions);
+    
     /**
      * Get all registered processors
      * @return List of registered processors
@@ -37,5 +46,12 @@ public interface ProcessorRegistry {
      * @return The processor or null if not found
      */
     Processor<?> getProcessorByType(String type);
+    
+    /**
+     * Release transport resources (e.g. pipeline threads) once ingestion has stopped
+     * Default implementation holds none
+     */
+    default void close() {
+    }
 }
 
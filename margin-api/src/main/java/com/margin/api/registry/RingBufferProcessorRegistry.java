@@ -0,0 +1,434 @@
+package com.margin.api.registry;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.bulkhead.Bulkhead;
+import com.margin.api.bulkhead.Bulkheads;
+import com.margin.api.model.Execution;
+import com.margin.api.pipeline.BatchCompletion;
+import com.margin.api.pipeline.BatchEventProcessor;
+import com.margin.api.pipeline.ExecutionEvent;
+import com.margin.api.pipeline.RingBuffer;
+import com.margin.api.pipeline.Sequence;
+import com.margin.api.pipeline.WaitStrategies;
+import com.margin.api.processor.BatchProcessingException;
+import com.margin.api.processor.Processor;
+import com.margin.api.processor.SyncProcessor;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * ProcessorRegistry transporting executions over a preallocated ring buffer (pipeline.transport=ring)
+ *
+ * Pipeline (one consumer thread per stage, Disruptor-style):
+ *   producers (loaders) → [processor stages, in parallel] → [aggregator stages] → completion
+ * Each SyncProcessor gets a transform stage and a dependent aggregate stage; the completion
+ * stage follows every aggregate stage, completes the batch futures and recycles the slot.
+ * Every aggregate stage is the single writer of its aggregator, and events are handled in
+ * publish order, so per-account order holds without lanes.
+ *
+ * Processors that are not SyncProcessors are called through their asynchronous process()
+ * alongside the pipeline. Publishing never blocks the caller (loaders publish from event
+ * loops): when the ring is full, the rest of the batch, and every batch published after it,
+ * waits in publish order and is retried on a timer, while ingestion is held paused through
+ * the BackpressureController. pipeline.ring.size must be at least backpressure.high.watermark,
+ * so ingestion is normally paused before the ring fills. close() drains what was published
+ * before stopping the stages, so every published batch completes.
+ *
+ * Asynchronous processors are called in their Bulkhead (own worker pool, bounded queue,
+ * timeout); pipeline stages already run on their own consumer threads.
+ *
+ * Routing: stages skip executions their processor's ProcessorInterest does not match, and
+ * asynchronous processors are dispatched through a RoutingIndex.
+ */
+@Singleton
+public class RingBufferProcessorRegistry implements ProcessorRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RingBufferProcessorRegistry.class);
+    private static final String STAGE = "registry";
+    private static final String PROCESSOR_STAGE_PREFIX = "processor:";
+    private static final String THREAD_NAME_PREFIX = "pipeline-";
+    private static final String PRESSURE_SOURCE = "pipeline-ring";
+    private static final long PUBLISH_RETRY_MS = 1;
+    private static final long CLOSE_DRAIN_MS = 5_000;
+
+    private final Vertx vertx;
+    private final BackpressureController backpressure;
+    private final Bulkheads bulkheads;
+    private final Map<String, Bulkhead> processorBulkheads = new ConcurrentHashMap<>();
+    private final int ringSize;
+    private final String waitStrategy;
+    private final Map<String, Processor<?>> processors;
+    private final List<Processor<?>> processorList;
+    private final List<SyncProcessor<?>> pipelineProcessors;
+    private final List<Processor<?>> asyncProcessors;
+    private final List<BatchEventProcessor<ExecutionEvent>> consumers;
+    private final List<Thread> consumerThreads = new ArrayList<>();
+    private BatchEventProcessor<ExecutionEvent> completionStage;
+    // Batches waiting for room in the ring, in publish order (guarded by itself)
+    private final Deque<PendingBatch> waiting = new ArrayDeque<>();
+    // Set under the waiting lock: nothing is published once it is
+    private volatile boolean closed;
+    private volatile RoutingIndex<Processor<?>> asyncIndex = new RoutingIndex<>(List.of());
+    private volatile RingBuffer<ExecutionEvent> ringBuffer;
+
+    @Inject
+    public RingBufferProcessorRegistry(
+            Vertx vertx,
+            BackpressureController backpressure,
+            Bulkheads bulkheads,
+            JsonObject config) {
+        this.vertx = vertx;
+        this.backpressure = backpressure;
+        this.bulkheads = bulkheads;
+        this.ringSize = config.getInteger("pipeline.ring.size", 16_384);
+        this.waitStrategy = config.getString("pipeline.wait.strategy", "sleeping");
+        this.processors = new ConcurrentHashMap<>();
+        this.processorList = new ArrayList<>();
+        this.pipelineProcessors = new ArrayList<>();
+        this.asyncProcessors = new ArrayList<>();
+        this.consumers = new ArrayList<>();
+        // Validate eagerly
+        WaitStrategies.forName(waitStrategy);
+        if (ringSize < 1 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("pipeline.ring.size must be a power of two: " + ringSize);
+        }
+        if (ringSize < backpressure.getHighWatermark()) {
+            throw new IllegalArgumentException("pipeline.ring.size (" + ringSize
+                    + ") must be at least backpressure.high.watermark (" + backpressure.getHighWatermark() + ")");
+        }
+        logger.info("RingBufferProcessorRegistry initialized (ringSize={}, waitStrategy={})", ringSize, waitStrategy);
+    }
+
+    @Override
+    public synchronized void register(Processor<?> processor) {
+        if (ringBuffer != null) {
+            throw new IllegalStateException("Cannot register " + processor.getProcessorType()
+                    + ": the pipeline is already running");
+        }
+        String type = processor.getProcessorType();
+        processors.put(type, processor);
+        processorList.add(processor);
+        if (processor instanceof SyncProcessor) {
+            pipelineProcessors.add((SyncProcessor<?>) processor);
+            logger.info("Registered processor: {} (ring buffer stage)", type);
+        } else {
+            asyncProcessors.add(processor);
+            asyncIndex = new RoutingIndex<>(asyncProcessors);
+            Bulkhead bulkhead = bulkheads.forProcessor(type);
+            if (bulkhead != null) {
+                processorBulkheads.put(type, bulkhead);
+            }
+            logger.info("Registered processor: {} (interest={})", type, processor.getInterest());
+        }
+    }
+
+    @Override
+    public Future<Void> process(Execution execution) {
+        return processBatch(List.of(execution));
+    }
+
+    @Override
+    public Future<Void> processBatch(List<Execution> executions) {
+        if (executions.isEmpty() || processorList.isEmpty()) {
+            return Future.succeededFuture();
+        }
+
+        logger.debug("Publishing batch of {} executions to the ring buffer", executions.size());
+
+        return backpressure.track(STAGE, executions.size(), () -> {
+            RoutingIndex<Processor<?>> async = asyncIndex;
+            if (async.isEmpty()) {
+                return publish(executions);
+            }
+            List<Future> futures = new ArrayList<>();
+            if (!pipelineProcessors.isEmpty()) {
+                futures.add(publish(executions));
+            }
+            List<Processor<?>> routed = new ArrayList<>();
+            for (Execution execution : executions) {
+                routed.clear();
+                async.route(execution, routed);
+                for (Processor<?> processor : routed) {
+                    futures.add(backpressure.track(
+                            PROCESSOR_STAGE_PREFIX + processor.getProcessorType(),
+                            () -> isolated(processor, () -> processor.process(execution)))
+                        .onFailure(err -> logger.error("Processor {} failed for execution {}",
+                            processor.getProcessorType(), execution.getId(), err))
+                        .recover(err -> Future.failedFuture(
+                            new BatchProcessingException(List.of(execution), err))));
+                }
+            }
+            return BatchProcessingException.join(futures);
+        });
+    }
+
+    /**
+     * Run a processor call in the processor's bulkhead, if bulkheads are enabled
+     */
+    private <T> Future<T> isolated(Processor<?> processor, Supplier<Future<T>> call) {
+        Bulkhead bulkhead = processorBulkheads.get(processor.getProcessorType());
+        return bulkhead != null ? bulkhead.execute(call) : call.get();
+    }
+
+    /**
+     * Publish executions to the ring buffer without blocking
+     * What does not fit waits behind the batches already waiting, and ingestion is paused
+     *
+     * @return Future failing with a BatchProcessingException naming the failed executions
+     */
+    private Future<Void> publish(List<Execution> executions) {
+        if (closed) {
+            return closedFailure(executions);
+        }
+        RingBuffer<ExecutionEvent> ring = ensureStarted();
+        BatchCompletion completion = new BatchCompletion(vertx.getOrCreateContext(), executions.size());
+        PendingBatch batch = new PendingBatch(executions, completion);
+        synchronized (waiting) {
+            if (closed) {
+                return closedFailure(executions);
+            }
+            if (!waiting.isEmpty() || !publishAvailable(ring, batch)) {
+                waiting.add(batch);
+                if (waiting.size() == 1) {
+                    logger.warn("Ring buffer full, holding ingestion until the pipeline catches up");
+                    backpressure.setPressure(PRESSURE_SOURCE, true);
+                    vertx.setTimer(PUBLISH_RETRY_MS, id -> publishWaiting(ring));
+                }
+            }
+        }
+        return completion.future().recover(err -> Future.failedFuture(
+                new BatchProcessingException(completion.getFailedExecutions(), err)));
+    }
+
+    private static Future<Void> closedFailure(List<Execution> executions) {
+        return Future.failedFuture(new BatchProcessingException(executions,
+                new IllegalStateException("Ring buffer pipeline closed")));
+    }
+
+    /**
+     * Publish waiting batches as room frees up, in order; release ingestion once none is left
+     */
+    private void publishWaiting(RingBuffer<ExecutionEvent> ring) {
+        synchronized (waiting) {
+            while (!waiting.isEmpty()) {
+                if (!publishAvailable(ring, waiting.peek())) {
+                    vertx.setTimer(PUBLISH_RETRY_MS, id -> publishWaiting(ring));
+                    return;
+                }
+                waiting.poll();
+            }
+            backpressure.setPressure(PRESSURE_SOURCE, false);
+        }
+    }
+
+    /**
+     * Publish as much of a batch as the ring has room for (called holding the waiting lock,
+     * so this registry is the ring's only producer at a time)
+     *
+     * @return true once the whole batch is published
+     */
+    private boolean publishAvailable(RingBuffer<ExecutionEvent> ring, PendingBatch batch) {
+        List<Execution> executions = batch.executions;
+        while (batch.published < executions.size()) {
+            int n = Math.min(executions.size() - batch.published, ring.remainingCapacity());
+            long hi = n > 0 ? ring.tryNext(n) : -1;
+            if (hi < 0) {
+                return false;
+            }
+            long lo = hi - n + 1;
+            for (long sequence = lo; sequence <= hi; sequence++) {
+                ring.get(sequence).set(executions.get(batch.published++), batch.completion);
+            }
+            ring.publish(lo, hi);
+        }
+        return true;
+    }
+
+    /**
+     * Build and start the pipeline on first use (every processor is registered by then)
+     */
+    private RingBuffer<ExecutionEvent> ensureStarted() {
+        RingBuffer<ExecutionEvent> ring = ringBuffer;
+        if (ring != null) {
+            return ring;
+        }
+        synchronized (this) {
+            if (ringBuffer == null) {
+                ringBuffer = start();
+            }
+            return ringBuffer;
+        }
+    }
+
+    private RingBuffer<ExecutionEvent> start() {
+        int stages = pipelineProcessors.size();
+        RingBuffer<ExecutionEvent> ring = new RingBuffer<>(ringSize,
+                () -> new ExecutionEvent(stages), WaitStrategies.forName(waitStrategy));
+
+        Sequence[] aggregated = new Sequence[stages];
+        for (int i = 0; i < stages; i++) {
+            SyncProcessor<?> processor = pipelineProcessors.get(i);
+            String type = processor.getProcessorType();
+            int index = i;
+
+            BatchEventProcessor<ExecutionEvent> transform = new BatchEventProcessor<>(
+                    THREAD_NAME_PREFIX + "processor-" + type, ring, ring.newBarrier(),
+                    (event, sequence, endOfBatch) -> {
+                        if (!processor.getInterest().matches(event.getExecution())) {
+                            return;
+                        }
+                        try {
+                            event.setResult(index, processor.transform(event.getExecution()));
+                        } catch (Exception e) {
+                            logger.error("Processor {} failed for execution {}",
+                                type, event.getExecution().getId(), e);
+                            event.setFailure(index, e);
+                        }
+                    });
+            BatchEventProcessor<ExecutionEvent> aggregate = new BatchEventProcessor<>(
+                    THREAD_NAME_PREFIX + "aggregator-" + type, ring, ring.newBarrier(transform.getSequence()),
+                    (event, sequence, endOfBatch) -> {
+                        Object result = event.getResult(index);
+                        if (result == null) {
+                            return;
+                        }
+                        try {
+                            aggregate(processor, result);
+                        } catch (RuntimeException e) {
+                            logger.error("Aggregation of {} failed for execution {}",
+                                type, event.getExecution().getId(), e);
+                            event.setFailure(index, e);
+                        }
+                    });
+            consumers.add(transform);
+            consumers.add(aggregate);
+            aggregated[i] = aggregate.getSequence();
+        }
+
+        BatchEventProcessor<ExecutionEvent> completion = new BatchEventProcessor<>(
+                THREAD_NAME_PREFIX + "completion", ring, ring.newBarrier(aggregated),
+                (event, sequence, endOfBatch) -> {
+                    BatchCompletion batch = event.getCompletion();
+                    Execution execution = event.getExecution();
+                    Throwable failure = event.getFailure();
+                    event.clear();
+                    batch.done(execution, failure);
+                });
+        consumers.add(completion);
+        completionStage = completion;
+        ring.addGatingSequences(completion.getSequence());
+
+        for (BatchEventProcessor<ExecutionEvent> consumer : consumers) {
+            Thread thread = new Thread(consumer, consumer.getName());
+            thread.setDaemon(true);
+            thread.start();
+            consumerThreads.add(thread);
+        }
+        logger.info("Ring buffer pipeline started: {} slots, {} consumer threads", ringSize, consumers.size());
+        return ring;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void aggregate(SyncProcessor<T> processor, Object result) {
+        processor.aggregate((T) result);
+    }
+
+    /**
+     * Stop publishing, fail the executions still waiting for room, drain the ring (up to
+     * CLOSE_DRAIN_MS) and stop the consumer threads; events the drain did not reach fail
+     * their batches, so every published batch completes
+     */
+    @Override
+    public synchronized void close() {
+        IllegalStateException closedFailure = new IllegalStateException("Ring buffer pipeline closed");
+        synchronized (waiting) {
+            closed = true;
+            for (PendingBatch batch : waiting) {
+                for (int i = batch.published; i < batch.executions.size(); i++) {
+                    batch.completion.done(batch.executions.get(i), closedFailure);
+                }
+            }
+            waiting.clear();
+        }
+        RingBuffer<ExecutionEvent> ring = ringBuffer;
+        if (ring == null) {
+            return;
+        }
+        // Every claim was published under the waiting lock: the cursor is the last published event
+        long published = ring.getCursor().get();
+        Sequence completed = completionStage.getSequence();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_DRAIN_MS);
+        while (completed.get() < published && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        consumers.forEach(BatchEventProcessor::halt);
+        for (Thread thread : consumerThreads) {
+            try {
+                thread.join(CLOSE_DRAIN_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        long undrained = published - completed.get();
+        if (undrained > 0) {
+            logger.warn("Ring buffer pipeline closed with {} events not drained, failing their batches", undrained);
+        }
+        for (long sequence = completed.get() + 1; sequence <= published; sequence++) {
+            ExecutionEvent event = ring.get(sequence);
+            BatchCompletion batch = event.getCompletion();
+            if (batch != null) {
+                Execution execution = event.getExecution();
+                event.clear();
+                batch.done(execution, closedFailure);
+            }
+        }
+    }
+
+    /**
+     * Number of published executions not yet through the pipeline
+     */
+    public long getBacklog() {
+        RingBuffer<ExecutionEvent> ring = ringBuffer;
+        return ring == null ? 0 : ring.getBacklog();
+    }
+
+    @Override
+    public List<Processor<?>> getProcessors() {
+        return new ArrayList<>(processorList);
+    }
+
+    @Override
+    public Processor<?> getProcessorByType(String type) {
+        return processors.get(type);
+    }
+
+    /**
+     * Batch not yet fully published, and how far it got
+     */
+    private static final class PendingBatch {
+        final List<Execution> executions;
+        final BatchCompletion completion;
+        int published;
+
+        PendingBatch(List<Execution> executions, BatchCompletion completion) {
+            this.executions = executions;
+            this.completion = completion;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.margin.api.registry;
+
+import com.margin.api.model.Execution;
+import com.margin.api.processor.Processor;
+import com.margin.api.processor.ProcessorInterest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Dispatch index compiled from the interests of a set of processors (immutable)
+ *
+ * Each processor is filed under one primary dimension of its interest, the most selective
+ * one it declares: symbol (exact or product prefix), then account, then execution type;
+ * processors without a filter receive everything. Routing an execution looks up its symbol,
+ * account and type buckets and checks the remaining dimensions of those candidates only,
+ * so the cost is O(matching processors), not O(registered processors).
+ *
+ * Symbol candidates are resolved once per distinct symbol (exact symbols and prefixes alike)
+ * and cached; the cache is reset when it reaches MAX_CACHED_SYMBOLS.
+ */
+public class RoutingIndex<P extends Processor<?>> {
+
+    private static final int MAX_CACHED_SYMBOLS = 100_000;
+
+    private final List<P> processors;
+    private final List<P> unfiltered = new ArrayList<>();
+    private final List<P> bySymbolFilter = new ArrayList<>();
+    private final Map<String, List<P>> byAccount = new HashMap<>();
+    private final Map<Execution.ExecutionType, List<P>> byType = new EnumMap<>(Execution.ExecutionType.class);
+    private final Map<String, List<P>> symbolCandidates = new ConcurrentHashMap<>();
+    private final Function<String, List<P>> resolveSymbol = this::resolveSymbol;
+
+    public RoutingIndex(List<P> processors) {
+        this.processors = List.copyOf(processors);
+        for (P processor : this.processors) {
+            ProcessorInterest interest = processor.getInterest();
+            if (interest.isUnfiltered()) {
+                unfiltered.add(processor);
+            } else if (interest.hasSymbolFilter()) {
+                bySymbolFilter.add(processor);
+            } else if (!interest.getAccounts().isEmpty()) {
+                for (String account : interest.getAccounts()) {
+                    byAccount.computeIfAbsent(account, a -> new ArrayList<>()).add(processor);
+                }
+            } else {
+                for (Execution.ExecutionType type : interest.getExecutionTypes()) {
+                    byType.computeIfAbsent(type, t -> new ArrayList<>()).add(processor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Append the processors interested in an execution to a list
+     *
+     * @param execution The execution to route
+     * @param matches Receives the matching processors
+     * @return Number of matching processors appended
+     */
+    public int route(Execution execution, List<P> matches) {
+        int before = matches.size();
+        // Indexed loops: routing runs per execution and must not allocate (addAll copies to an array)
+        for (int i = 0; i < unfiltered.size(); i++) {
+            matches.add(unfiltered.get(i));
+        }
+        if (!bySymbolFilter.isEmpty() && execution.getSymbol() != null) {
+            addMatching(symbolCandidates(execution.getSymbol()), execution, matches);
+        }
+        if (!byAccount.isEmpty()) {
+            List<P> candidates = byAccount.get(execution.getAccountId());
+            if (candidates != null) {
+                addMatching(candidates, execution, matches);
+            }
+        }
+        if (!byType.isEmpty()) {
+            List<P> candidates = byType.get(execution.getType());
+            if (candidates != null) {
+                addMatching(candidates, execution, matches);
+            }
+        }
+        return matches.size() - before;
+    }
+
+    /**
+     * Check whether any processor is interested in an execution, without collecting them
+     */
+    public boolean matchesAny(Execution execution) {
+        if (!unfiltered.isEmpty()) {
+            return true;
+        }
+        if (!bySymbolFilter.isEmpty() && execution.getSymbol() != null
+                && anyMatching(symbolCandidates(execution.getSymbol()), execution)) {
+            return true;
+        }
+        if (!byAccount.isEmpty() && anyMatching(byAccount.get(execution.getAccountId()), execution)) {
+            return true;
+        }
+        return !byType.isEmpty() && anyMatching(byType.get(execution.getType()), execution);
+    }
+
+    /**
+     * Get the processors interested in an execution
+     */
+    public List<P> route(Execution execution) {
+        List<P> matches = new ArrayList<>();
+        route(execution, matches);
+        return matches;
+    }
+
+    public boolean isEmpty() {
+        return processors.isEmpty();
+    }
+
+    public List<P> getProcessors() {
+        return processors;
+    }
+
+    private List<P> symbolCandidates(String symbol) {
+        List<P> candidates = symbolCandidates.get(symbol);
+        if (candidates != null) {
+            return candidates;
+        }
+        if (symbolCandidates.size() >= MAX_CACHED_SYMBOLS) {
+            symbolCandidates.clear();
+        }
+        return symbolCandidates.computeIfAbsent(symbol, resolveSymbol);
+    }
+
+    private List<P> resolveSymbol(String symbol) {
+        List<P> candidates = new ArrayList<>();
+        for (P processor : bySymbolFilter) {
+            if (processor.getInterest().matchesSymbol(symbol)) {
+                candidates.add(processor);
+            }
+        }
+        return candidates.isEmpty() ? List.of() : candidates;
+    }
+
+    private static <P extends Processor<?>> boolean anyMatching(List<P> candidates, Execution execution) {
+        if (candidates == null) {
+            return false;
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            if (candidates.get(i).getInterest().matches(execution)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <P extends Processor<?>> void addMatching(List<P> candidates, Execution execution, List<P> matches) {
+        for (int i = 0; i < candidates.size(); i++) {
+            P candidate = candidates.get(i);
+            if (candidate.getInterest().matches(execution)) {
+                matches.add(candidate);
+            }
+        }
+    }
+}
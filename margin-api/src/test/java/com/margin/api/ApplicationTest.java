@@ -1,5 +1,15 @@
 package com.margin.api;
 
+import com.margin.api.aggregator.MarginAggregator;
+import com.margin.api.aggregator.PositionAggregator;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.bulkhead.Bulkheads;
+import com.margin.api.dedup.MessageDeduplicator;
+import com.margin.api.lane.ExecutionLanes;
+import com.margin.api.loader.PartitionOwnership;
+import com.margin.api.position.MarkToMarketEngine;
+import com.margin.api.refdata.AccountRiskTable;
+import com.margin.api.refdata.DefaultRefDataService;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
@@ -32,7 +42,7 @@ class ApplicationTest {
                 .put("http.port", 8081)
                 .put("http.host", "localhost");
         
-        MainVerticle verticle = new MainVerticle(config);
+        MainVerticle verticle = mainVerticle(vertx, config);
         
         vertx.deployVerticle(verticle, testContext.succeeding(id -> {
             testContext.completeNow();
@@ -45,7 +55,7 @@ class ApplicationTest {
                 .put("http.port", 8082)
                 .put("http.host", "localhost");
         
-        MainVerticle verticle = new MainVerticle(config);
+        MainVerticle verticle = mainVerticle(vertx, config);
         WebClient client = WebClient.create(vertx);
         
         vertx.deployVerticle(verticle, testContext.succeeding(id -> {
@@ -60,5 +70,40 @@ class ApplicationTest {
                 }));
         }));
     }
-}
 
+    @Test
+    void testCacheStatsEndpoint(Vertx vertx, VertxTestContext testContext) {
+        JsonObject config = new JsonObject()
+                .put("http.port", 8083)
+                .put("http.host", "localhost");
+
+        MainVerticle verticle = mainVerticle(vertx, config);
+        WebClient client = WebClient.create(vertx);
+
+        vertx.deployVerticle(verticle, testContext.succeeding(id -> {
+            client.get(8083, "localhost", "/api/cache/stats")
+                .send(testContext.succeeding(response -> {
+                    testContext.verify(() -> {
+                        assertEquals(200, response.statusCode());
+                        JsonObject position = response.bodyAsJsonObject().getJsonObject("position");
+                        assertEquals(0L, position.getLong("size"));
+                        assertEquals(0L, position.getLong("missCount"));
+                        assertEquals(10_000, position.getInteger("maxSize"));
+                        testContext.completeNow();
+                    });
+                }));
+        }));
+    }
+
+    private static MainVerticle mainVerticle(Vertx vertx, JsonObject config) {
+        BackpressureController backpressure = new BackpressureController(config);
+        ExecutionLanes lanes = new ExecutionLanes(vertx, config);
+        MarkToMarketEngine markToMarket = new MarkToMarketEngine(vertx, lanes, config);
+        MarginAggregator marginAggregator = new MarginAggregator(lanes, backpressure);
+        PositionAggregator positionAggregator = new PositionAggregator(lanes, backpressure, markToMarket, config);
+        PartitionOwnership ownership = new PartitionOwnership(vertx, config, marginAggregator, positionAggregator);
+        return new MainVerticle(config, backpressure, new MessageDeduplicator(config), ownership,
+                new Bulkheads(vertx, backpressure, config), markToMarket,
+                new AccountRiskTable(vertx, new DefaultRefDataService(), config), marginAggregator, positionAggregator);
+    }
+}
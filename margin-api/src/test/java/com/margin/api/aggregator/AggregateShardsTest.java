@@ -0,0 +1,146 @@
+package com.margin.api.aggregator;
+
+import com.margin.api.lane.ExecutionLanes;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AggregateShards
+ */
+class AggregateShardsTest {
+
+    private static final long TTL_MS = 60_000;
+
+    private final List<Value> removed = new ArrayList<>();
+    private Vertx vertx;
+    private ExecutionLanes lanes;
+    private AggregateShards<Value> shards;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        lanes = new ExecutionLanes(vertx, new JsonObject().put("execution.lanes", 2));
+        // Two entries per shard
+        shards = new AggregateShards<>(lanes, 4, TTL_MS, Value::new, value -> value.updated, value -> !value.pinned, removed::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        lanes.close();
+        vertx.close();
+    }
+
+    @Test
+    void testLookupsExpiryAndEviction() {
+        String account = accountOnLane(0, 0);
+        Value value = shards.getOrCreate(account + ":AAPL", account, "AAPL");
+        assertSame(value, shards.getOrCreate(account + ":AAPL", account, "AAPL"));
+        assertSame(value, shards.get(account + ":AAPL"));
+        assertSame(value, shards.get(account + ":AAPL", account));
+        assertEquals(1, shards.getStats().hitCount);
+        assertEquals(1, shards.getStats().missCount);
+
+        // Expired entries are gone for readers and recreated by the lane
+        value.updated -= TTL_MS;
+        assertNull(shards.get(account + ":AAPL"));
+        assertTrue(shards.getAll().isEmpty());
+        Value recreated = shards.getOrCreate(account + ":AAPL", account, "AAPL");
+        assertNotSame(value, recreated);
+        assertEquals(List.of(value), removed);
+
+        String other = accountOnLane(1, 0);
+        shards.getOrCreate(other + ":AAPL", other, "AAPL");
+        assertEquals(1, shards.evict(v -> v.accountId.equals(other)));
+        assertNull(shards.get(other + ":AAPL"));
+        assertEquals(1, shards.getAll().size());
+    }
+
+    @Test
+    void testFullShardDropsLeastRecentlyUpdated() {
+        String first = accountOnLane(0, 0);
+        String second = accountOnLane(0, 1);
+        String third = accountOnLane(0, 2);
+        Value oldest = shards.getOrCreate(first + ":AAPL", first, "AAPL");
+        oldest.updated -= 1_000;
+        Value kept = shards.getOrCreate(second + ":AAPL", second, "AAPL");
+
+        shards.getOrCreate(third + ":AAPL", third, "AAPL");
+        assertEquals(List.of(oldest), removed);
+        assertSame(kept, shards.get(second + ":AAPL"));
+        assertEquals(2, shards.getStats().size);
+
+        // The other lane's shard has its own share
+        String elsewhere = accountOnLane(1, 0);
+        shards.getOrCreate(elsewhere + ":AAPL", elsewhere, "AAPL");
+        assertEquals(3, shards.getStats().size);
+    }
+
+    @Test
+    void testEntriesThatAreNotEvictableAreKept() {
+        String first = accountOnLane(0, 0);
+        String second = accountOnLane(0, 1);
+        String third = accountOnLane(0, 2);
+        Value open = shards.getOrCreate(first + ":AAPL", first, "AAPL");
+        open.pinned = true;
+        open.updated -= TTL_MS;
+        assertSame(open, shards.get(first + ":AAPL"));
+        assertSame(open, shards.getOrCreate(first + ":AAPL", first, "AAPL"));
+
+        // A full shard drops the evictable entries only, then grows
+        Value flat = shards.getOrCreate(second + ":AAPL", second, "AAPL");
+        flat.updated -= 1_000;
+        shards.getOrCreate(third + ":AAPL", third, "AAPL").pinned = true;
+        assertEquals(List.of(flat), removed);
+        String fourth = accountOnLane(0, 3);
+        shards.getOrCreate(fourth + ":AAPL", fourth, "AAPL");
+        assertEquals(3, shards.getStats().size);
+        assertSame(open, shards.get(first + ":AAPL"));
+    }
+
+    @Test
+    void testExecuteOnLaneRunsInPlaceOnTheLane() throws Exception {
+        String account = accountOnLane(1, 0);
+        Future<Boolean> inPlace = lanes.<Boolean>executeBlocking(account, promise -> {
+            Thread lane = Thread.currentThread();
+            Future<Thread> nested = lanes.executeOnLane(account, inner -> inner.complete(Thread.currentThread()));
+            promise.complete(nested.succeeded() && nested.result() == lane);
+        });
+        assertTrue(inPlace.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS));
+
+        Thread caller = Thread.currentThread();
+        Thread ran = lanes.<Thread>executeOnLane(account, promise -> promise.complete(Thread.currentThread()))
+                .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertNotSame(caller, ran);
+    }
+
+    /**
+     * The index-th account (ACC0, ACC1, ...) owned by a lane
+     */
+    private String accountOnLane(int lane, int index) {
+        for (int i = 0; ; i++) {
+            if (lanes.laneOf("ACC" + i) == lane && index-- == 0) {
+                return "ACC" + i;
+            }
+        }
+    }
+
+    private static final class Value {
+        final String accountId;
+        long updated = System.currentTimeMillis();
+        boolean pinned;
+
+        Value(String accountId, String symbol) {
+            this.accountId = accountId;
+        }
+    }
+}
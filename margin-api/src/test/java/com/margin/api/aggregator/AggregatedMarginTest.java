@@ -0,0 +1,69 @@
+package com.margin.api.aggregator;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AggregatedMargin totals read while their lane writes them
+ */
+class AggregatedMarginTest {
+
+    @Test
+    void testAddsAreExactAndSnapshotsConsistentWhileRead() throws Exception {
+        int readers = 4;
+        int adds = 400_000;
+        FixedSum sum = new FixedSum(2);
+        AggregatedMargin margin = new AggregatedMargin("ACC1", "SYM1");
+        AtomicBoolean torn = new AtomicBoolean();
+        AtomicBoolean done = new AtomicBoolean();
+
+        // Every add keeps initial = 2 x maintenance = requirement = 0.10 x count
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            Thread reader = new Thread(() -> {
+                while (!done.get()) {
+                    AggregatedMargin.Snapshot snapshot = margin.snapshot();
+                    BigDecimal initial = snapshot.getTotalInitialMargin();
+                    if (initial.compareTo(snapshot.getTotalMaintenanceMargin().multiply(BigDecimal.valueOf(2))) != 0
+                            || initial.compareTo(snapshot.getTotalMarginRequirement()) != 0
+                            || initial.compareTo(new BigDecimal("0.10").multiply(BigDecimal.valueOf(snapshot.getCount()))) != 0) {
+                        torn.set(true);
+                    }
+                    // A total read alone is exact at any time, past the long range too
+                    BigDecimal total = sum.get();
+                    if (total.remainder(BigDecimal.valueOf(Long.MAX_VALUE / 4, 2)).signum() != 0) {
+                        torn.set(true);
+                    }
+                }
+            });
+            threads.add(reader);
+            reader.start();
+        }
+
+        // One writer, as on the account's lane
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < adds; i++) {
+                // Totals beyond the long range: units overflow into the remainder
+                sum.add(Long.MAX_VALUE / 4, 2);
+                margin.add(10, 5, 10, 2);
+            }
+        });
+        writer.start();
+        writer.join();
+        done.set(true);
+        for (Thread reader : threads) {
+            reader.join();
+        }
+
+        assertEquals(BigDecimal.valueOf(Long.MAX_VALUE / 4, 2).multiply(BigDecimal.valueOf(adds)), sum.get());
+        assertEquals(new BigDecimal("0.10").multiply(BigDecimal.valueOf(adds)), margin.getTotalInitialMargin());
+        assertEquals(adds, margin.getCount());
+        assertFalse(torn.get(), "read with an add half applied");
+    }
+}
@@ -0,0 +1,124 @@
+package com.margin.api.backpressure;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BackpressureController
+ */
+class BackpressureControllerTest {
+
+    private Vertx vertx;
+    private Context context;
+    private BackpressureController backpressure;
+    private final List<Boolean> states = new ArrayList<>();
+    private final Handler<Boolean> listener = states::add;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+        backpressure = new BackpressureController(new JsonObject()
+                .put("backpressure.high.watermark", 4)
+                .put("backpressure.low.watermark", 2));
+        backpressure.onStateChange(context, listener);
+    }
+
+    @AfterEach
+    void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    void testWatermarkTransitions() throws Exception {
+        Promise<Void> batch = Promise.promise();
+        Promise<Void> single = Promise.promise();
+        backpressure.track("processor:MARGIN", 3, batch::future);
+        assertFalse(backpressure.isPressured());
+
+        backpressure.track("processor:MARGIN", single::future);
+        assertTrue(backpressure.isPressured());
+        drain();
+        assertEquals(List.of(true), states);
+
+        // Above the low watermark: still paused
+        single.complete();
+        assertTrue(backpressure.isPressured());
+        batch.complete();
+        assertFalse(backpressure.isPressured());
+        drain();
+        assertEquals(List.of(true, false), states);
+
+        // A pressure source holds ingestion paused whatever the stages do
+        backpressure.setPressure("bulkhead-MARGIN", true);
+        backpressure.track("registry", Promise.<Void>promise()::future);
+        backpressure.setPressure("bulkhead-MARGIN", false);
+        drain();
+        assertEquals(List.of(true, false, true, false), states);
+        assertEquals(2, backpressure.toJson().getLong("pauseCount"));
+    }
+
+    @Test
+    void testListenersFollowTheCurrentStateWhateverTheNotificationOrder() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String source = "source-" + t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    backpressure.setPressure(source, ThreadLocalRandom.current().nextBoolean());
+                }
+                backpressure.setPressure(source, false);
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        drain();
+        assertFalse(backpressure.isPressured());
+        assertFalse(states.get(states.size() - 1));
+        // Only changes are delivered: states alternate, starting with a pause
+        for (int i = 0; i < states.size(); i++) {
+            assertEquals(i % 2 == 0, states.get(i));
+        }
+    }
+
+    @Test
+    void testRegistrationWhilePausedAndRemoval() throws Exception {
+        backpressure.setPressure("bulkhead-POSITION", true);
+        List<Boolean> late = new ArrayList<>();
+        Handler<Boolean> lateListener = late::add;
+        backpressure.onStateChange(context, lateListener);
+        drain();
+        assertEquals(List.of(true), late);
+
+        backpressure.removeStateChangeListener(lateListener);
+        backpressure.setPressure("bulkhead-POSITION", false);
+        drain();
+        assertEquals(List.of(true), late);
+        assertEquals(List.of(true, false), states);
+    }
+
+    /**
+     * Wait until every notification scheduled so far has run on the listeners' context
+     */
+    private void drain() throws Exception {
+        CompletableFuture<Void> drained = new CompletableFuture<>();
+        context.runOnContext(v -> drained.complete(null));
+        drained.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,129 @@
+package com.margin.api.bulkhead;
+
+import com.margin.api.backpressure.BackpressureController;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Bulkhead
+ */
+class BulkheadTest {
+
+    private Vertx vertx;
+    private BackpressureController backpressure;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        backpressure = new BackpressureController(new JsonObject());
+    }
+
+    @AfterEach
+    void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    void testOverflowPolicies() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Bulkhead reject = new Bulkhead("REJECT", vertx, backpressure, 1, 1, 10_000, Bulkhead.OverflowPolicy.REJECT);
+        Future<String> running = reject.execute(() -> blockUntil(release, "first"));
+        Future<String> queued = reject.execute(() -> Future.succeededFuture("second"));
+        Future<String> rejected = reject.execute(() -> Future.succeededFuture("third"));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> await(rejected));
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+        assertEquals(1, reject.getQueueDepth());
+
+        // Shedding drops the oldest queued call for the new one, and fails it
+        Bulkhead shed = new Bulkhead("SHED", vertx, backpressure, 1, 1, 10_000, Bulkhead.OverflowPolicy.SHED);
+        Future<String> shedRunning = shed.execute(() -> blockUntil(release, "kept"));
+        Future<String> stale = shed.execute(() -> Future.succeededFuture("stale"));
+        Future<String> fresh = shed.execute(() -> Future.succeededFuture("fresh"));
+        ExecutionException dropped = assertThrows(ExecutionException.class, () -> await(stale));
+        assertInstanceOf(RejectedExecutionException.class, dropped.getCause());
+
+        Bulkhead pause = new Bulkhead("PAUSE", vertx, backpressure, 1, 1, 10_000, Bulkhead.OverflowPolicy.PAUSE);
+        Future<String> pauseRunning = pause.execute(() -> blockUntil(release, "slow"));
+        Future<String> pauseQueued = pause.execute(() -> Future.succeededFuture("queued"));
+        assertTrue(backpressure.isPressured());
+
+        release.countDown();
+        assertEquals("first", await(running));
+        assertEquals("second", await(queued));
+        assertEquals("kept", await(shedRunning));
+        assertEquals("fresh", await(fresh));
+        assertEquals("slow", await(pauseRunning));
+        assertEquals("queued", await(pauseQueued));
+        assertFalse(backpressure.isPressured());
+
+        JsonObject metrics = reject.toJson();
+        assertEquals(2, metrics.getLong("completed"));
+        assertEquals(1, metrics.getLong("rejected"));
+        assertEquals(1, metrics.getInteger("peakQueueDepth"));
+        assertEquals(1, shed.toJson().getLong("shed"));
+    }
+
+    @Test
+    void testCallsTimeOut() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("SLOW", vertx, backpressure, 1, 10, 100, Bulkhead.OverflowPolicy.REJECT);
+        Promise<String> never = Promise.promise();
+        Future<String> slow = bulkhead.execute(never::future);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> await(slow));
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        // The timed-out call gave its slot back
+        assertEquals("late", await(bulkhead.execute(() -> Future.succeededFuture("late"))));
+        assertEquals(1, bulkhead.toJson().getLong("timedOut"));
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    @Test
+    void testCallHoldsItsSlotUntilItsWorkCompletes() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("ASYNC", vertx, backpressure, 1, 10, 10_000, Bulkhead.OverflowPolicy.REJECT);
+        Promise<String> handedOff = Promise.promise();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+        Future<String> first = bulkhead.execute(handedOff::future);
+        Future<String> second = bulkhead.execute(() -> {
+            secondStarted.set(true);
+            return Future.succeededFuture("second");
+        });
+
+        // The first call's thread is free, but its work is still in flight
+        Thread.sleep(200);
+        assertFalse(secondStarted.get());
+        assertEquals(1, bulkhead.getQueueDepth());
+
+        handedOff.complete("first");
+        assertEquals("first", await(first));
+        assertEquals("second", await(second));
+        assertEquals(0, bulkhead.getActive());
+    }
+
+    private static Future<String> blockUntil(CountDownLatch latch, String result) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Future.succeededFuture(result);
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,119 @@
+package com.margin.api.dedup;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MessageDeduplicator
+ */
+class MessageDeduplicatorTest {
+
+    @Test
+    void testDetectsDuplicates() {
+        MessageDeduplicator deduplicator = new MessageDeduplicator(config(60_000L, 4, 1_000));
+        for (int i = 0; i < 1_000; i++) {
+            assertFalse(deduplicator.isDuplicate("msg-" + i));
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(deduplicator.isDuplicate("msg-" + i));
+        }
+        assertFalse(deduplicator.isDuplicate(null));
+        assertFalse(deduplicator.isDuplicate(null));
+
+        JsonObject metrics = deduplicator.toJson();
+        assertEquals(2_000, metrics.getLong("checks"));
+        assertEquals(1_000, metrics.getLong("hits"));
+        assertEquals(1_000, metrics.getLong("misses"));
+    }
+
+    @Test
+    void testCapacityEvictsOldestBucket() {
+        MessageDeduplicator deduplicator = new MessageDeduplicator(config(60_000L, 2, 100));
+        for (int i = 0; i < 300; i++) {
+            assertFalse(deduplicator.isDuplicate("msg-" + i));
+        }
+        // Bucket 0 (msg-0..99) was recycled, the last two buckets are still remembered
+        assertTrue(deduplicator.isDuplicate("msg-150"));
+        assertTrue(deduplicator.isDuplicate("msg-299"));
+        assertFalse(deduplicator.isDuplicate("msg-0"));
+        assertTrue(deduplicator.toJson().getLong("capacityRotations") >= 1);
+    }
+
+    @Test
+    void testWindowExpiry() throws InterruptedException {
+        MessageDeduplicator deduplicator = new MessageDeduplicator(config(50L, 5, 100));
+        assertFalse(deduplicator.isDuplicate("msg-1"));
+        assertTrue(deduplicator.isDuplicate("msg-1"));
+        Thread.sleep(80);
+        assertFalse(deduplicator.isDuplicate("msg-1"));
+    }
+
+    @Test
+    void testDisabled() {
+        MessageDeduplicator deduplicator = new MessageDeduplicator(config(60_000L, 4, 100)
+                .put("dedup.enabled", false));
+        assertFalse(deduplicator.isDuplicate("msg-1"));
+        assertFalse(deduplicator.isDuplicate("msg-1"));
+        assertEquals(0, deduplicator.toJson().getLong("memoryBytes"));
+    }
+
+    @Test
+    void testReleasedIdsAreProcessedAgain() {
+        MessageDeduplicator deduplicator = new MessageDeduplicator(config(60_000L, 2, 1_000));
+        for (int i = 0; i < 500; i++) {
+            assertFalse(deduplicator.isDuplicate("msg-" + i));
+        }
+        // Processing of the even ids failed: their redeliveries go through, once
+        for (int i = 0; i < 500; i += 2) {
+            deduplicator.release("msg-" + i);
+        }
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i % 2 == 1, deduplicator.isDuplicate("msg-" + i), "msg-" + i);
+        }
+        for (int i = 0; i < 500; i++) {
+            assertTrue(deduplicator.isDuplicate("msg-" + i));
+        }
+        assertEquals(250, deduplicator.toJson().getLong("released"));
+    }
+
+    @Test
+    void testConcurrentClaimsAcrossStripes() throws InterruptedException {
+        MessageDeduplicator deduplicator = new MessageDeduplicator(config(60_000L, 4, 100_000)
+                .put("dedup.stripes", 16));
+        int threads = 4;
+        int perThread = 20_000;
+        AtomicInteger claimed = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Thread(() -> {
+                // Every thread offers every id: each is claimed exactly once
+                for (int i = 0; i < perThread; i++) {
+                    if (!deduplicator.isDuplicate("msg-" + i)) {
+                        claimed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(perThread, claimed.get());
+        assertEquals((long) perThread * (threads - 1), deduplicator.getDuplicates());
+        assertEquals(16, deduplicator.toJson().getInteger("stripes"));
+    }
+
+    private static JsonObject config(long windowMs, int buckets, int capacity) {
+        return new JsonObject()
+                .put("dedup.window.ms", windowMs)
+                .put("dedup.buckets", buckets)
+                .put("dedup.bucket.capacity", capacity)
+                .put("dedup.stripes", 1);
+    }
+}
@@ -0,0 +1,42 @@
+package com.margin.api.loader;
+
+import com.margin.api.model.Execution;
+import com.margin.api.model.TradeExecutionWrapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Field-by-field assertions for decoded wrappers, shared by the decoder and codec tests
+ */
+final class ExecutionAssertions {
+
+    private ExecutionAssertions() {
+    }
+
+    static void assertWrapperEquals(TradeExecutionWrapper expected, TradeExecutionWrapper actual) {
+        assertEquals(expected.getMessageId(), actual.getMessageId());
+        assertEquals(expected.getTopic(), actual.getTopic());
+        assertEquals(expected.getOffset(), actual.getOffset());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertExecutionEquals(expected.getExecution(), actual.getExecution());
+    }
+
+    static void assertExecutionEquals(Execution expected, Execution actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getAccountId(), actual.getAccountId());
+        assertEquals(expected.getSymbol(), actual.getSymbol());
+        assertEquals(expected.getOrderId(), actual.getOrderId());
+        assertEquals(expected.getPrice(), actual.getPrice());
+        assertEquals(expected.getQuantity(), actual.getQuantity());
+        assertEquals(expected.getSide(), actual.getSide());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getExecutionTime(), actual.getExecutionTime());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+    }
+}
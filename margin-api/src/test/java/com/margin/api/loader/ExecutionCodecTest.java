@@ -0,0 +1,114 @@
+package com.margin.api.loader;
+
+import com.margin.api.model.Execution;
+import com.margin.api.model.TradeExecutionWrapper;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static com.margin.api.loader.ExecutionAssertions.assertWrapperEquals;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ExecutionCodec implementations and codec resolution
+ */
+class ExecutionCodecTest {
+
+    private final BinaryExecutionCodec binary = new BinaryExecutionCodec();
+    private final JsonExecutionCodec json = new JsonExecutionCodec();
+
+    @Test
+    void testBinaryRoundTrip() throws IOException {
+        TradeExecutionWrapper wrapper = wrapper(new Execution("e-1", "ACC1", "AAPL", "o-1",
+                new BigDecimal("150.2500"), new BigDecimal("-100"), Execution.ExecutionSide.SELL,
+                Execution.ExecutionType.LIMIT, Instant.parse("2024-01-02T10:15:30.123456789Z"),
+                Instant.parse("1969-12-31T23:59:59.5Z"), null));
+
+        assertWrapperEquals(wrapper, binary.decode(binary.encode(wrapper)));
+    }
+
+    @Test
+    void testBinaryNulls() throws IOException {
+        TradeExecutionWrapper wrapper = new TradeExecutionWrapper(null, null, 0, 0, null);
+        TradeExecutionWrapper decoded = binary.decode(binary.encode(wrapper));
+        assertNull(decoded.getMessageId());
+        assertNull(decoded.getTopic());
+        assertNull(decoded.getExecution());
+
+        Execution execution = new Execution("e-2", "ACC2", "MSFT", null, null, null, null, null,
+                Instant.EPOCH, null, null);
+        Execution decodedExecution = binary.decode(binary.encode(wrapper(execution))).getExecution();
+        assertNull(decodedExecution.getOrderId());
+        assertNull(decodedExecution.getPrice());
+        assertNull(decodedExecution.getSide());
+        assertEquals(Execution.ExecutionType.MARKET, decodedExecution.getType());
+    }
+
+    @Test
+    void testBinarySmallerThanJson() throws IOException {
+        TradeExecutionWrapper wrapper = wrapper(sampleExecution());
+        assertTrue(binary.encode(wrapper).length * 2 < json.encode(wrapper).length);
+    }
+
+    @Test
+    void testJsonRoundTrip() throws IOException {
+        TradeExecutionWrapper wrapper = wrapper(sampleExecution());
+        assertWrapperEquals(wrapper, json.decode(json.encode(wrapper)));
+    }
+
+    @Test
+    void testBinaryRejectsMalformedPayload() throws IOException {
+        byte[] encoded = binary.encode(wrapper(sampleExecution()));
+        assertThrows(IOException.class, () -> binary.decode(Arrays.copyOf(encoded, encoded.length - 3)));
+
+        encoded[0] = 2;
+        assertThrows(IOException.class, () -> binary.decode(encoded));
+
+        TradeExecutionWrapper tooPrecise = wrapper(new Execution("e-3", "ACC3", "IBM", null,
+                new BigDecimal("1e-200"), BigDecimal.ONE, Execution.ExecutionSide.BUY, null, null, null, null));
+        assertThrows(IOException.class, () -> binary.encode(tooPrecise));
+    }
+
+    @Test
+    void testCodecResolution() throws IOException {
+        ExecutionCodecs codecs = new ExecutionCodecs(new JsonObject()
+                .put("kafka.codec.default", "json")
+                .put("kafka.codec.topics", "executions-bin=binary"));
+
+        assertEquals("json", codecs.forTopic("trade-executions").getCodecName());
+        assertEquals("binary", codecs.forTopic("executions-bin").getCodecName());
+        assertEquals("binary", codecs.forRecord("trade-executions", bytes("binary")).getCodecName());
+        assertEquals("binary", codecs.forRecord("trade-executions", bytes("Binary")).getCodecName());
+        assertEquals("binary", codecs.byName("BINARY").getCodecName());
+        assertEquals("json", codecs.forRecord("executions-bin", bytes("json")).getCodecName());
+        assertEquals("binary", codecs.forRecord("executions-bin", bytes("avro")).getCodecName());
+        assertEquals("binary", codecs.forRecord("executions-bin", null).getCodecName());
+
+        TradeExecutionWrapper wrapper = wrapper(sampleExecution());
+        assertEquals("binary", codecs.forPayload("trade-executions", binary.encode(wrapper)).getCodecName());
+        assertEquals("json", codecs.forPayload("executions-bin", json.encode(wrapper)).getCodecName());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExecutionCodecs(new JsonObject().put("kafka.codec.default", "avro")));
+    }
+
+    private static Execution sampleExecution() {
+        return new Execution("e-1", "ACC1", "AAPL", "o-1", new BigDecimal("150.25"), new BigDecimal("100"),
+                Execution.ExecutionSide.BUY, Execution.ExecutionType.MARKET,
+                Instant.parse("2024-01-02T10:15:30.123Z"), Instant.parse("2024-01-02T10:15:30Z"),
+                Instant.parse("2024-01-02T10:15:31Z"));
+    }
+
+    private static TradeExecutionWrapper wrapper(Execution execution) {
+        return new TradeExecutionWrapper("m-1", "trade-executions", 42, 1700000000000L, execution);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
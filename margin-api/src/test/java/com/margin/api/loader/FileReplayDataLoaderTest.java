@@ -0,0 +1,193 @@
+package com.margin.api.loader;
+
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.dedup.MessageDeduplicator;
+import com.margin.api.model.Execution;
+import com.margin.api.model.TradeExecutionWrapper;
+import com.margin.api.processor.Processor;
+import com.margin.api.registry.ProcessorRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FileReplayDataLoader
+ */
+class FileReplayDataLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Vertx vertx;
+    private RecordingRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        registry = new RecordingRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    void testReplayNdjsonAcrossMapWindows() throws Exception {
+        JsonExecutionCodec codec = new JsonExecutionCodec();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            content.append(new String(codec.encode(wrapper(i, Instant.EPOCH)))).append(i % 2 == 0 ? "\n" : "\r\n");
+            if (i == 10) {
+                content.append("\n");
+            }
+        }
+        // Duplicate of message 0 and no trailing newline
+        content.append(new String(codec.encode(wrapper(0, Instant.EPOCH))));
+        Path file = Files.writeString(tempDir.resolve("executions.ndjson"), content);
+
+        assertEquals(50, replay(file, new JsonObject().put("replay.map.window.bytes", 1024L)));
+        assertEquals(50, registry.executions.size());
+        assertEquals("e-0", registry.executions.get(0).getId());
+        assertEquals("e-49", registry.executions.get(49).getId());
+    }
+
+    @Test
+    void testReplayBinaryFrames() throws Exception {
+        BinaryExecutionCodec codec = new BinaryExecutionCodec();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int i = 0; i < 20; i++) {
+            byte[] payload = codec.encode(wrapper(i, Instant.EPOCH));
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+        Path file = Files.write(tempDir.resolve("executions.bin"), bytes.toByteArray());
+
+        assertEquals(20, replay(file, new JsonObject()
+                .put("replay.format", "binary")
+                .put("replay.map.window.bytes", 256L)));
+        assertEquals("e-19", registry.executions.get(19).getId());
+    }
+
+    @Test
+    void testTimeScaledPacing() throws Exception {
+        JsonExecutionCodec codec = new JsonExecutionCodec();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            content.append(new String(codec.encode(wrapper(i, Instant.EPOCH.plusSeconds(i))))).append('\n');
+        }
+        Path file = Files.writeString(tempDir.resolve("paced.ndjson"), content);
+
+        long started = System.nanoTime();
+        assertEquals(3, replay(file, new JsonObject().put("replay.speed", 20.0)));
+        // 2s of execution time at 20x
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void testRecordLargerThanWindowFails() throws Exception {
+        Path file = Files.write(tempDir.resolve("large.ndjson"), new JsonExecutionCodec().encode(wrapper(0, Instant.EPOCH)));
+        FileReplayDataLoader loader = loader(new JsonObject().put("replay.map.window.bytes", 16L));
+        Future<Long> result = loader.replay(file);
+        assertThrows(Exception.class, () -> result.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testFailedBatchFailsTheReplayAfterEveryBatchCompleted() throws Exception {
+        JsonExecutionCodec codec = new JsonExecutionCodec();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            content.append(new String(codec.encode(wrapper(i, Instant.EPOCH)))).append('\n');
+        }
+        Path file = Files.writeString(tempDir.resolve("failing.ndjson"), content);
+        registry.failBatchesFrom = 1;
+
+        JsonObject config = new JsonObject().put("replay.batch.size", 3);
+        Future<Long> result = loader(config).replay(file);
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> result.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS));
+        assertEquals("batch 1 failed", failure.getCause().getMessage());
+        assertEquals(4, registry.batches.get());
+    }
+
+    @Test
+    void testUnknownFormatIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> loader(new JsonObject().put("replay.format", "auto")));
+    }
+
+    private long replay(Path file, JsonObject config) throws Exception {
+        return loader(config).replay(file).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    private FileReplayDataLoader loader(JsonObject config) {
+        return new FileReplayDataLoader(vertx, registry, new ExecutionCodecs(config),
+                new MessageDeduplicator(config), new BackpressureController(config), config);
+    }
+
+    private static TradeExecutionWrapper wrapper(int i, Instant executionTime) {
+        return new TradeExecutionWrapper("m-" + i, "trade-executions", i, 0L,
+                new Execution("e-" + i, "ACC" + (i % 3), "AAPL", "o-" + i, new BigDecimal("150.25"),
+                        BigDecimal.TEN, Execution.ExecutionSide.BUY, Execution.ExecutionType.MARKET,
+                        executionTime, executionTime, executionTime));
+    }
+
+    /**
+     * Registry recording the executions it receives
+     */
+    private static class RecordingRegistry implements ProcessorRegistry {
+        final List<Execution> executions = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger batches = new AtomicInteger();
+        int failBatchesFrom = Integer.MAX_VALUE;
+
+        @Override
+        public void register(Processor<?> processor) {
+        }
+
+        @Override
+        public Future<Void> process(Execution execution) {
+            executions.add(execution);
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public Future<Void> processBatch(List<Execution> batch) {
+            int index = batches.getAndIncrement();
+            if (index >= failBatchesFrom) {
+                return Future.failedFuture(new IllegalStateException("batch " + index + " failed"));
+            }
+            executions.addAll(batch);
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public List<Processor<?>> getProcessors() {
+            return List.of();
+        }
+
+        @Override
+        public Processor<?> getProcessorByType(String type) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.margin.api.loader;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PartitionOffsetTracker
+ */
+class PartitionOffsetTrackerTest {
+
+    @Test
+    void testNothingTracked() {
+        PartitionOffsetTracker tracker = new PartitionOffsetTracker();
+        assertEquals(-1, tracker.committableOffset());
+        assertEquals(0, tracker.pending());
+    }
+
+    @Test
+    void testOutOfOrderCompletionCommitsOnlyContiguousOffsets() {
+        PartitionOffsetTracker tracker = new PartitionOffsetTracker();
+        for (long offset = 100; offset < 105; offset++) {
+            tracker.track(offset);
+        }
+
+        tracker.complete(101);
+        tracker.complete(103);
+        assertEquals(100, tracker.committableOffset());
+
+        tracker.complete(100);
+        assertEquals(102, tracker.committableOffset());
+
+        tracker.complete(102);
+        assertEquals(104, tracker.committableOffset());
+        assertEquals(1, tracker.pending());
+
+        tracker.complete(104);
+        assertEquals(105, tracker.committableOffset());
+        assertEquals(0, tracker.pending());
+    }
+
+    @Test
+    void testGapsInOffsetsAreSkipped() {
+        PartitionOffsetTracker tracker = new PartitionOffsetTracker();
+        tracker.track(10);
+        tracker.track(13);
+
+        tracker.complete(10);
+        assertEquals(13, tracker.committableOffset());
+
+        tracker.complete(13);
+        assertEquals(14, tracker.committableOffset());
+    }
+
+    @Test
+    void testGrowsBeyondInitialCapacityAcrossRingWrap() {
+        PartitionOffsetTracker tracker = new PartitionOffsetTracker(64);
+        for (long offset = 0; offset < 50; offset++) {
+            tracker.track(offset);
+            tracker.complete(offset);
+        }
+        assertEquals(50, tracker.committableOffset());
+
+        // Head is now mid-ring; keep 200 offsets in flight with the oldest one slow
+        for (long offset = 50; offset < 250; offset++) {
+            tracker.track(offset);
+        }
+        for (long offset = 249; offset > 50; offset--) {
+            tracker.complete(offset);
+        }
+        assertEquals(50, tracker.committableOffset());
+        assertEquals(200, tracker.pending());
+
+        tracker.complete(50);
+        assertEquals(250, tracker.committableOffset());
+    }
+
+    @Test
+    void testDuplicateAndStaleOffsetsAreIgnored() {
+        PartitionOffsetTracker tracker = new PartitionOffsetTracker();
+        tracker.track(5);
+        tracker.track(6);
+        tracker.complete(5);
+        tracker.complete(5);
+        tracker.complete(4);
+        tracker.track(6);
+        assertEquals(6, tracker.committableOffset());
+    }
+
+    @Test
+    void testOffsetsBeyondTheWindowAreRefusedUntilTheRefusedOneIsTracked() {
+        PartitionOffsetTracker tracker = new PartitionOffsetTracker(64, 128);
+        for (long offset = 0; offset < 128; offset++) {
+            assertTrue(tracker.track(offset));
+        }
+        // Offset 0 is slow: the window is full
+        assertFalse(tracker.track(128));
+        assertFalse(tracker.track(129));
+        assertEquals(128, tracker.refusedOffset());
+        assertEquals(128, tracker.pending());
+
+        for (long offset = 0; offset < 128; offset++) {
+            tracker.complete(offset);
+        }
+        // Records fetched after the refused one must wait for it, or it would be skipped as a gap
+        assertFalse(tracker.track(130));
+        assertTrue(tracker.track(128));
+        assertEquals(-1, tracker.refusedOffset());
+        assertTrue(tracker.track(129));
+        tracker.complete(128);
+        tracker.complete(129);
+        assertEquals(130, tracker.committableOffset());
+    }
+
+    @Test
+    void testGapBeyondTheWindowIsJumpedWhenNothingIsInFlight() {
+        PartitionOffsetTracker tracker = new PartitionOffsetTracker(64, 128);
+        tracker.track(0);
+        tracker.complete(0);
+
+        assertTrue(tracker.track(1_000));
+        assertEquals(1_000, tracker.committableOffset());
+        tracker.complete(1_000);
+        assertEquals(1_001, tracker.committableOffset());
+    }
+}
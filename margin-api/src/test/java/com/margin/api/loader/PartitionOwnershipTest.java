@@ -0,0 +1,104 @@
+package com.margin.api.loader;
+
+import com.margin.api.aggregator.MarginAggregator;
+import com.margin.api.aggregator.PositionAggregator;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.lane.ExecutionLanes;
+import com.margin.api.model.Margin;
+import com.margin.api.position.MarkToMarketEngine;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.kafka.client.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PartitionOwnership
+ */
+class PartitionOwnershipTest {
+
+    private static final String TOPIC = "trade-executions";
+
+    private Vertx vertx;
+    private MarginAggregator marginAggregator;
+    private PartitionOwnership ownership;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        JsonObject config = new JsonObject().put("execution.lanes", 2).put("ingestion.handoff.grace.ms", 60_000L);
+        BackpressureController backpressure = new BackpressureController(config);
+        ExecutionLanes lanes = new ExecutionLanes(vertx, config);
+        marginAggregator = new MarginAggregator(lanes, backpressure);
+        PositionAggregator positionAggregator = new PositionAggregator(lanes, backpressure,
+                new MarkToMarketEngine(vertx, lanes, config), config);
+        ownership = new PartitionOwnership(vertx, config, marginAggregator, positionAggregator);
+    }
+
+    @AfterEach
+    void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    void testHandoffBetweenLocalInstances() {
+        String account = "ACC1";
+        TopicPartition partition = new TopicPartition(TOPIC, 2);
+        ownership.recordAccount(partition, account);
+
+        ownership.assigned("ingestion-0", List.of(partition));
+        assertTrue(ownership.ownsAccount(account));
+
+        // Eager rebalance: new local owner assigned before the old one's revoke is processed
+        ownership.assigned("ingestion-1", List.of(partition));
+        ownership.revoked("ingestion-0", List.of(partition));
+        assertEquals("ingestion-1", ownership.ownerOf(partition));
+        assertTrue(ownership.ownsAccount(account));
+
+        ownership.releaseAll("ingestion-1");
+        assertNull(ownership.ownerOf(partition));
+        assertFalse(ownership.ownsAccount(account));
+    }
+
+    @Test
+    void testEvictsAccountsOwnedElsewhere() throws Exception {
+        TopicPartition first = new TopicPartition(TOPIC, 0);
+        TopicPartition second = new TopicPartition(TOPIC, 1);
+        // Accounts are evicted by the partition they were read from, whatever the record key
+        String kept = "ACC1";
+        String moved = "ACC2";
+        String shared = "ACC3";
+        String unrecorded = "ACC4";
+        ownership.recordAccount(first, kept);
+        ownership.recordAccount(second, moved);
+        ownership.recordAccount(first, shared);
+        ownership.recordAccount(second, shared);
+        for (String account : List.of(kept, moved, shared, unrecorded)) {
+            add(account);
+        }
+        ownership.assigned("ingestion-0", List.of(first, second));
+
+        ownership.revoked("ingestion-0", List.of(second));
+        ownership.evictUnowned();
+
+        assertNotNull(marginAggregator.get(kept + ":AAPL"));
+        assertNull(marginAggregator.get(moved + ":AAPL"));
+        assertNotNull(marginAggregator.get(shared + ":AAPL"));
+        assertNotNull(marginAggregator.get(unrecorded + ":AAPL"));
+        assertFalse(ownership.ownsAccount(moved));
+        assertTrue(ownership.ownsAccount(shared));
+    }
+
+    private void add(String account) throws Exception {
+        marginAggregator.add(new Margin("m-" + account, account, "e-" + account, "AAPL", BigDecimal.ONE,
+                BigDecimal.ONE, BigDecimal.ONE, BigDecimal.ONE, null, null))
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,75 @@
+package com.margin.api.loader;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.margin.api.model.Execution;
+import com.margin.api.model.TradeExecutionWrapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static com.margin.api.loader.ExecutionAssertions.assertWrapperEquals;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TradeExecutionWrapperDecoder, checked against the ObjectMapper binding it replaces
+ */
+class TradeExecutionWrapperDecoderTest {
+
+    private final TradeExecutionWrapperDecoder decoder = new TradeExecutionWrapperDecoder();
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    @Test
+    void testDecodeMatchesObjectMapper() throws IOException {
+        String json = "{\"messageId\":\"m-1\",\"topic\":\"trade-executions\",\"offset\":42,\"timestamp\":1700000000000,"
+                + "\"execution\":{\"id\":\"e-1\",\"accountId\":\"ACC1\",\"symbol\":\"AAPL\",\"orderId\":\"o-1\","
+                + "\"price\":150.2500,\"quantity\":\"100\",\"side\":\"SELL\",\"type\":\"LIMIT\","
+                + "\"executionTime\":\"2024-01-02T10:15:30.123456Z\",\"createdAt\":1700000000.5,"
+                + "\"updatedAt\":1700000001,\"venue\":{\"mic\":\"XNAS\"}}}";
+
+        TradeExecutionWrapper decoded = decode(json);
+        assertWrapperEquals(objectMapper.readValue(json, TradeExecutionWrapper.class), decoded);
+        // Fractional epoch seconds and the price scale are kept as written
+        assertEquals(Instant.ofEpochSecond(1700000000L, 500_000_000L), decoded.getExecution().getCreatedAt());
+        assertEquals(new BigDecimal("150.2500"), decoded.getExecution().getPrice());
+    }
+
+    @Test
+    void testDefaultsForMissingAndNullFields() throws IOException {
+        String json = "{\"messageId\":\"m-2\",\"offset\":null,\"execution\":{\"id\":\"e-2\",\"accountId\":\"ACC2\","
+                + "\"symbol\":\"MSFT\",\"price\":1,\"quantity\":2,\"side\":\"BUY\",\"type\":null}}";
+
+        TradeExecutionWrapper wrapper = decode(json);
+        assertEquals(0, wrapper.getOffset());
+        assertNull(wrapper.getTopic());
+        assertEquals(Execution.ExecutionType.MARKET, wrapper.getExecution().getType());
+        assertNotNull(wrapper.getExecution().getExecutionTime());
+    }
+
+    @Test
+    void testNullExecution() throws IOException {
+        assertNull(decode("{\"messageId\":\"m-3\",\"execution\":null}").getExecution());
+    }
+
+    @Test
+    void testMalformedPayloadFails() {
+        assertThrows(IOException.class, () -> decode("[1,2,3]"));
+        assertThrows(IOException.class, () -> decode("{\"execution\":{\"price\":[1]}}"));
+    }
+
+    @Test
+    void testDecodeSlice() throws IOException {
+        byte[] line = "xx{\"messageId\":\"m-4\"}yy".getBytes(StandardCharsets.UTF_8);
+        assertEquals("m-4", decoder.decode(line, 2, line.length - 4).getMessageId());
+    }
+
+    private TradeExecutionWrapper decode(String json) throws IOException {
+        return decoder.decode(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
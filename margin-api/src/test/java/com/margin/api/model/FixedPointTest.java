@@ -0,0 +1,70 @@
+package com.margin.api.model;
+
+import com.margin.api.aggregator.FixedSum;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FixedPoint and FixedSum
+ */
+class FixedPointTest {
+
+    @Test
+    void testMultiplyMatchesBigDecimalHalfUp() {
+        String[][] cases = {
+                {"100.005", "1", "0.50"}, {"0.01", "1", "0.5"}, {"0.03", "1", "0.5"},
+                {"-0.03", "1", "0.5"}, {"-100.005", "3", "0.25"}, {"123.4567", "0.001", "0.5"},
+                {"0", "100", "0.25"}, {"99999.99", "1000000", "0.50"}
+        };
+        for (String[] c : cases) {
+            assertMultiply(new BigDecimal(c[0]), new BigDecimal(c[1]), new BigDecimal(c[2]));
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal price = BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, random.nextInt(5));
+            BigDecimal quantity = BigDecimal.valueOf(random.nextInt(100_000), random.nextInt(3));
+            BigDecimal rate = BigDecimal.valueOf(random.nextInt(100), 2 + random.nextInt(2));
+            assertMultiply(price, quantity, rate);
+        }
+
+        assertThrows(ArithmeticException.class, () -> FixedPoint.multiply(Long.MAX_VALUE, 0, 2, 0, 0));
+        assertFalse(FixedPoint.isRepresentable(new BigDecimal("1E+3")));
+        assertFalse(FixedPoint.isRepresentable(new BigDecimal("12345678901234567890")));
+    }
+
+    @Test
+    void testSumMatchesBigDecimalAddition() {
+        FixedSum sum = new FixedSum(4);
+        BigDecimal expected = BigDecimal.ZERO;
+        assertEquals(expected, sum.get());
+
+        // Fixed-point values, values beyond the internal scale, and values beyond the long range
+        String[] values = {"1.5", "-2.25", "0.001", "3", "1.123456", "12345678901234567890.1", "-7.10"};
+        for (String value : values) {
+            sum.add(new BigDecimal(value));
+            expected = expected.add(new BigDecimal(value));
+            assertEquals(expected, sum.get(), "same value and scale after adding " + value);
+        }
+        sum.add(Long.MAX_VALUE / 2, 0);
+        expected = expected.add(BigDecimal.valueOf(Long.MAX_VALUE / 2));
+        assertEquals(expected, sum.get(), "overflowing total");
+
+        FixedSum total = new FixedSum(2);
+        total.add(5, 1);
+        total.addAll(sum);
+        assertEquals(expected.add(new BigDecimal("0.5")), total.get());
+    }
+
+    private static void assertMultiply(BigDecimal price, BigDecimal quantity, BigDecimal rate) {
+        BigDecimal expected = price.multiply(quantity).multiply(rate).setScale(2, RoundingMode.HALF_UP);
+        long units = FixedPoint.multiply(FixedPoint.unscaled(price), price.scale(),
+                FixedPoint.unscaled(quantity), quantity.scale(), FixedPoint.unscaled(rate), rate.scale(), 2);
+        assertEquals(expected, FixedPoint.toBigDecimal(units, 2), price + " x " + quantity + " x " + rate);
+    }
+}
@@ -0,0 +1,137 @@
+package com.margin.api.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RingBuffer, SequenceBarrier and BatchEventProcessor
+ */
+class RingBufferTest {
+
+    private static class Slot {
+        int producer;
+        long value;
+        long doubled;
+    }
+
+    @Test
+    void testMultiProducerOrderPerProducer() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        RingBuffer<Slot> ring = new RingBuffer<>(64, Slot::new, WaitStrategies.forName("sleeping"));
+        long[] lastSeen = new long[producers];
+        Arrays.fill(lastSeen, -1);
+        int[] outOfOrder = new int[1];
+        CountDownLatch done = new CountDownLatch(producers * perProducer);
+
+        BatchEventProcessor<Slot> consumer = new BatchEventProcessor<>("test", ring, ring.newBarrier(),
+                (slot, sequence, endOfBatch) -> {
+                    if (slot.value != lastSeen[slot.producer] + 1) {
+                        outOfOrder[0]++;
+                    }
+                    lastSeen[slot.producer] = slot.value;
+                    done.countDown();
+                });
+        ring.addGatingSequences(consumer.getSequence());
+        Thread consumerThread = new Thread(consumer);
+        consumerThread.start();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; ) {
+                    // Mixed claim sizes, including claims that wrap the ring
+                    int n = Math.min(1 + i % 7, perProducer - i);
+                    long hi = ring.next(n);
+                    for (long sequence = hi - n + 1; sequence <= hi; sequence++) {
+                        Slot slot = ring.get(sequence);
+                        slot.producer = producer;
+                        slot.value = i++;
+                    }
+                    ring.publish(hi - n + 1, hi);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS), "all events consumed");
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        consumer.halt();
+        consumerThread.join(5_000);
+        assertFalse(consumerThread.isAlive());
+
+        assertEquals(0, outOfOrder[0]);
+        for (int p = 0; p < producers; p++) {
+            assertEquals(perProducer - 1, lastSeen[p]);
+        }
+        assertEquals(producers * perProducer - 1, ring.getCursor().get());
+        assertEquals(0, ring.getBacklog());
+    }
+
+    @Test
+    void testDependentConsumerSeesUpstreamResults() throws Exception {
+        int events = 50_000;
+        RingBuffer<Slot> ring = new RingBuffer<>(128, Slot::new, WaitStrategies.forName("blocking"));
+        BatchEventProcessor<Slot> upstream = new BatchEventProcessor<>("double", ring, ring.newBarrier(),
+                (slot, sequence, endOfBatch) -> slot.doubled = slot.value * 2);
+        long[] mismatches = new long[1];
+        CountDownLatch done = new CountDownLatch(events);
+        BatchEventProcessor<Slot> downstream = new BatchEventProcessor<>("check", ring,
+                ring.newBarrier(upstream.getSequence()),
+                (slot, sequence, endOfBatch) -> {
+                    if (slot.doubled != slot.value * 2) {
+                        mismatches[0]++;
+                    }
+                    slot.doubled = -1;
+                    done.countDown();
+                });
+        ring.addGatingSequences(downstream.getSequence());
+        new Thread(upstream).start();
+        new Thread(downstream).start();
+
+        for (int i = 0; i < events; i++) {
+            long sequence = ring.next(1);
+            ring.get(sequence).value = i;
+            ring.publish(sequence, sequence);
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS), "all events consumed");
+        upstream.halt();
+        downstream.halt();
+        assertEquals(0, mismatches[0]);
+        assertThrows(IllegalArgumentException.class, () -> ring.next(129));
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(100, Slot::new, WaitStrategies.forName("sleeping")));
+    }
+
+    @Test
+    void testTryNextFailsInsteadOfWaiting() {
+        RingBuffer<Slot> ring = new RingBuffer<>(4, Slot::new, WaitStrategies.forName("sleeping"));
+        Sequence consumer = new Sequence();
+        ring.addGatingSequences(consumer);
+
+        assertEquals(4, ring.remainingCapacity());
+        long hi = ring.tryNext(3);
+        assertEquals(2, hi);
+        ring.publish(0, hi);
+        assertEquals(-1, ring.tryNext(2));
+        assertEquals(1, ring.remainingCapacity());
+
+        // The consumer frees two slots
+        consumer.set(1);
+        assertEquals(3, ring.remainingCapacity());
+        assertEquals(5, ring.tryNext(3));
+        assertEquals(-1, ring.tryNext(1));
+        assertThrows(IllegalArgumentException.class, () -> ring.tryNext(5));
+    }
+}
@@ -0,0 +1,232 @@
+package com.margin.api.position;
+
+import com.margin.api.aggregator.AggregatedPosition;
+import com.margin.api.aggregator.PositionTotals;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LotBook
+ */
+class LotBookTest {
+
+    @Test
+    void testFifoMatchesOldestLotsFirst() {
+        LotBook book = new LotBook(LotMatching.FIFO);
+        assertEquals(0, book.fill(units("10"), units("100")));
+        assertEquals(0, book.fill(units("10"), units("110")));
+
+        // 10 @ 100 then 5 @ 110 closed at 120: 200 + 50
+        assertEquals(units("250"), book.fill(units("-15"), units("120")));
+        assertEquals(1, book.getOpenLots());
+        assertEquals(units("5"), book.getOpenQuantity());
+        assertEquals(units("110"), book.getLotPrice(0));
+        assertEquals(units("50"), book.unrealizedPnl(units("120")));
+    }
+
+    @Test
+    void testLifoMatchesNewestLotsFirst() {
+        LotBook book = new LotBook(LotMatching.LIFO);
+        book.fill(units("10"), units("100"));
+        book.fill(units("10"), units("110"));
+
+        // 10 @ 110 then 5 @ 100 closed at 120: 100 + 100
+        assertEquals(units("200"), book.fill(units("-15"), units("120")));
+        assertEquals(1, book.getOpenLots());
+        assertEquals(units("5"), book.getLotQuantity(0));
+        assertEquals(units("100"), book.getLotPrice(0));
+    }
+
+    @Test
+    void testAverageCostKeepsOneLot() {
+        LotBook book = new LotBook(LotMatching.AVERAGE_COST);
+        book.fill(units("10"), units("100"));
+        book.fill(units("30"), units("110"));
+        assertEquals(1, book.getOpenLots());
+        assertEquals(units("107.5"), book.getLotPrice(0));
+
+        assertEquals(units("-150"), book.fill(units("-20"), units("100")));
+        assertEquals(units("20"), book.getOpenQuantity());
+        assertEquals(units("107.5"), book.getLotPrice(0));
+        assertEquals(units("-150"), book.unrealizedPnl(units("100")));
+    }
+
+    @Test
+    void testShortLotsAndCrossingZero() {
+        LotBook book = new LotBook(LotMatching.FIFO);
+        book.fill(units("-10"), units("50"));
+
+        // Short 10 @ 50 covered at 40, the remaining 5 open long @ 40
+        assertEquals(units("100"), book.fill(units("15"), units("40")));
+        assertEquals(1, book.getOpenLots());
+        assertEquals(units("5"), book.getOpenQuantity());
+        assertEquals(units("40"), book.getLotPrice(0));
+    }
+
+    @Test
+    void testProductsBeyondLongRange() {
+        LotBook book = new LotBook(LotMatching.FIFO);
+        book.fill(units("100000"), units("250.5"));
+
+        assertEquals(units("-5050000"), book.fill(units("-100000"), units("200")));
+        assertEquals(0, book.getOpenCost());
+        book.fill(units("100000"), units("250.5"));
+        assertEquals(units("25050000"), book.getOpenCost());
+        assertEquals(units("-50000"), book.unrealizedPnl(units("250")));
+    }
+
+    @Test
+    void testManyOpenLots() {
+        LotBook book = new LotBook(LotMatching.FIFO);
+        int lots = 200_000;
+        for (int i = 0; i < lots; i++) {
+            book.fill(units("1"), units("100") + i);
+        }
+        assertEquals(lots, book.getOpenLots());
+        assertEquals(units("100"), book.getLotPrice(0));
+
+        // Each closed lot realizes (101 - 100) minus its price offset in units
+        long realized = book.fill(-units("1") * (lots - 1), units("101"));
+        long expected = 0;
+        for (int i = 0; i < lots - 1; i++) {
+            expected += units("1") - i;
+        }
+        assertEquals(expected, realized);
+        assertEquals(1, book.getOpenLots());
+        assertEquals(units("100") + lots - 1, book.getLotPrice(0));
+    }
+
+    @Test
+    void testFillThatDoesNotFitChangesNothing() {
+        LotBook book = new LotBook(LotMatching.FIFO);
+        book.fill(units("10"), units("100"));
+        book.fill(units("1000000"), units("1"));
+        long openQuantity = book.getOpenQuantity();
+        long openCost = book.getOpenCost();
+
+        // The first lot closes, the second one's PnL overflows: neither is applied
+        assertThrows(ArithmeticException.class, () -> book.fill(units("-2000000"), units("100000")));
+        assertEquals(2, book.getOpenLots());
+        assertEquals(units("10"), book.getLotQuantity(0));
+        assertEquals(openQuantity, book.getOpenQuantity());
+        assertEquals(openCost, book.getOpenCost());
+        assertThrows(IllegalStateException.class, book::commit);
+
+        // A prepared fill is only applied by commit
+        assertEquals(units("10"), book.prepare(units("-1"), units("110")));
+        assertEquals(openQuantity, book.getOpenQuantity());
+        book.commit();
+        assertEquals(units("9"), book.getLotQuantity(0));
+
+        AggregatedPosition position = new AggregatedPosition("ACC1", "SYM1", LotMatching.FIFO);
+        position.add(new BigDecimal("10"), new BigDecimal("100"), BigDecimal.ZERO, BigDecimal.ZERO);
+        position.add(1000000, 0, 1, 0);
+        position.markToMarket(units("100"));
+        AggregatedPosition.Snapshot before = position.snapshot();
+        assertThrows(ArithmeticException.class, () -> position.add(-2000000, 0, 100000, 0));
+        assertThrows(ArithmeticException.class, () -> position.add(
+                new BigDecimal("-2000000"), new BigDecimal("100000"), BigDecimal.ZERO, BigDecimal.ZERO));
+        AggregatedPosition.Snapshot after = position.snapshot();
+        assertEquals(before.getCount(), after.getCount());
+        assertEquals(before.getNetQuantity(), after.getNetQuantity());
+        assertEquals(before.getRealizedPnl(), after.getRealizedPnl());
+        assertEquals(before.getUnrealizedPnl(), after.getUnrealizedPnl());
+        assertEquals(2, position.getLots().getOpenLots());
+        assertFalse(position.isFlat());
+    }
+
+    @Test
+    void testRollbackUndoesFillsSinceTheCheckpoint() {
+        for (LotMatching matching : LotMatching.values()) {
+            LotBook book = new LotBook(matching);
+            for (int i = 0; i < 3; i++) {
+                book.fill(units("10"), units("100") + i);
+            }
+            List<Long> lots = lotsOf(book);
+            long openQuantity = book.getOpenQuantity();
+            long openCost = book.getOpenCost();
+
+            book.checkpoint();
+            book.fill(units("-15"), units("120"));
+            book.fill(units("4"), units("90"));
+            // Grows the arrays: only the slots written before are in the undo log
+            for (int i = 0; i < 8; i++) {
+                book.fill(units("1"), units("95"));
+            }
+            book.fill(units("-50"), units("80"));
+            book.rollback();
+
+            assertEquals(lots, lotsOf(book), matching.name());
+            assertEquals(openQuantity, book.getOpenQuantity());
+            assertEquals(openCost, book.getOpenCost());
+            assertThrows(IllegalStateException.class, book::rollback);
+
+            // Released fills stay
+            book.checkpoint();
+            book.fill(units("-5"), units("120"));
+            book.release();
+            assertEquals(openQuantity - units("5"), book.getOpenQuantity());
+        }
+    }
+
+    @Test
+    void testBatchThatDoesNotFitChangesNothing() {
+        AggregatedPosition position = new AggregatedPosition("ACC1", "SYM1", LotMatching.FIFO);
+        position.add(new BigDecimal("10"), new BigDecimal("100"), BigDecimal.ZERO, BigDecimal.ZERO);
+        position.add(1000000, 0, 1, 0);
+        AggregatedPosition.Snapshot before = position.snapshot();
+
+        // The first fill fits, the second one's PnL overflows: neither is applied
+        PositionTotals totals = new PositionTotals("ACC1:SYM1", "ACC1", "SYM1");
+        totals.add(-1, 0, 110, 0);
+        totals.add(-2000000, 0, 100000, 0);
+        assertThrows(ArithmeticException.class, () -> position.addAll(totals));
+
+        AggregatedPosition.Snapshot after = position.snapshot();
+        assertEquals(before.getCount(), after.getCount());
+        assertEquals(before.getNetQuantity(), after.getNetQuantity());
+        assertEquals(before.getRealizedPnl(), after.getRealizedPnl());
+        assertEquals(2, position.getLots().getOpenLots());
+        assertEquals(units("10"), position.getLots().getLotQuantity(0));
+
+        PositionTotals fits = new PositionTotals("ACC1:SYM1", "ACC1", "SYM1");
+        fits.add(-1, 0, 110, 0);
+        position.addAll(fits);
+        assertEquals(units("9"), position.getLots().getLotQuantity(0));
+        assertEquals(0, new BigDecimal("10").compareTo(position.getRealizedPnl()));
+    }
+
+    @Test
+    void testAggregatedPositionRealizesPnl() {
+        AggregatedPosition position = new AggregatedPosition("ACC1", "SYM1", LotMatching.of(new JsonObject()));
+        position.add(1000, 0, 10000, 2);
+        position.add(new BigDecimal("-400"), new BigDecimal("101.50"), BigDecimal.ZERO, BigDecimal.ZERO);
+
+        assertEquals(0, new BigDecimal("600").compareTo(position.getNetQuantity()));
+        assertEquals(0, new BigDecimal("600").compareTo(position.getRealizedPnl()));
+        // Cost basis of the remaining lot: 600 @ 100
+        assertEquals(new BigDecimal("100.00"), position.getAveragePrice());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> LotMatching.of(new JsonObject().put("position.lot.matching", "hifo")));
+    }
+
+    private static List<Long> lotsOf(LotBook book) {
+        List<Long> lots = new ArrayList<>();
+        for (int i = 0; i < book.getOpenLots(); i++) {
+            lots.add(book.getLotQuantity(i));
+            lots.add(book.getLotPrice(i));
+        }
+        return lots;
+    }
+
+    private static long units(String value) {
+        return LotBook.units(new BigDecimal(value));
+    }
+}
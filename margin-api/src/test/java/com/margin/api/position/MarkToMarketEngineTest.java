@@ -0,0 +1,100 @@
+package com.margin.api.position;
+
+import com.margin.api.aggregator.AggregatedPosition;
+import com.margin.api.aggregator.PositionAggregator;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.lane.ExecutionLanes;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MarkToMarketEngine
+ */
+class MarkToMarketEngineTest {
+
+    private Vertx vertx;
+    private ExecutionLanes lanes;
+    private MarkToMarketEngine engine;
+    private PositionAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        JsonObject config = new JsonObject().put("execution.lanes", 2).put("mtm.tick.window.ms", 3_600_000L);
+        lanes = new ExecutionLanes(vertx, config);
+        engine = new MarkToMarketEngine(vertx, lanes, config);
+        aggregator = new PositionAggregator(lanes, new BackpressureController(config), engine, config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        lanes.close();
+        vertx.close();
+    }
+
+    @Test
+    void testRevaluesPositionsOfTickedSymbol() throws Exception {
+        AggregatedPosition long1 = fill("ACC1", "SYM1", "10", "100");
+        AggregatedPosition short1 = fill("ACC2", "SYM1", "-5", "100");
+        AggregatedPosition other = fill("ACC1", "SYM2", "10", "50");
+
+        // Conflated: only the window's latest price is applied (windows closed by hand)
+        engine.onPrice("SYM1", new BigDecimal("101"));
+        engine.onPrice("SYM1", new BigDecimal("102"));
+        engine.flush();
+        awaitRevaluations(2);
+        assertEquals(new BigDecimal("102.00000000"), engine.getMark("SYM1"));
+
+        assertPnl("20", long1.getUnrealizedPnl());
+        assertPnl("-10", short1.getUnrealizedPnl());
+        assertPnl("0", other.getUnrealizedPnl());
+        assertEquals(2, engine.toJson().getLong("ticks"));
+        assertEquals(1, engine.toJson().getLong("conflated"));
+
+        // Fills reprice at the current mark, and new positions start marked
+        fill("ACC1", "SYM1", "-4", "105");
+        assertPnl("12", long1.getUnrealizedPnl());
+        assertPnl("20", long1.getRealizedPnl());
+        assertPnl("-20", fill("ACC3", "SYM1", "10", "104").getUnrealizedPnl());
+    }
+
+    @Test
+    void testDisabledEngineTracksNothingAndRefusesPrices() throws Exception {
+        JsonObject config = new JsonObject().put("mtm.enabled", false);
+        engine = new MarkToMarketEngine(vertx, lanes, config);
+        aggregator = new PositionAggregator(lanes, new BackpressureController(config), engine, config);
+        fill("ACC1", "SYM1", "10", "100");
+
+        assertFalse(engine.isEnabled());
+        assertEquals(0, engine.toJson().getLong("tracked"));
+        assertThrows(IllegalStateException.class, () -> engine.onPrice("SYM1", new BigDecimal("101")));
+    }
+
+    private AggregatedPosition fill(String accountId, String symbol, String quantity, String price) throws Exception {
+        return lanes.<AggregatedPosition>executeBlocking(accountId, promise -> {
+            AggregatedPosition position = aggregator.getOrCreate(accountId + ":" + symbol, accountId, symbol);
+            position.add(new BigDecimal(quantity), new BigDecimal(price), BigDecimal.ZERO, BigDecimal.ZERO);
+            promise.complete(position);
+        }).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    private void awaitRevaluations(long revaluations) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (engine.toJson().getLong("revaluations") < revaluations) {
+            assertTrue(System.currentTimeMillis() < deadline, "positions revalued");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void assertPnl(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
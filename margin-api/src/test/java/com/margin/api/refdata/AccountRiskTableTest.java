@@ -0,0 +1,146 @@
+package com.margin.api.refdata;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AccountRiskTable and AccountRisk
+ */
+class AccountRiskTableTest {
+
+    private static final RefDataService.MarginRate RATE = new RefDataService.MarginRate(
+            new BigDecimal("0.50"), new BigDecimal("0.25"), new BigDecimal("2.0"));
+
+    private final Map<String, RefDataService.AccountRiskCategory> categories = new HashMap<>();
+    private Vertx vertx;
+    private AccountRiskTable table;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        table = new AccountRiskTable(vertx, new StubRefDataService(), new JsonObject()
+                .put("risk.tier.multipliers", "LOW=0.90,HIGH=1.50")
+                .put("risk.refresh.interval.ms", 3_600_000L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    void testTierMultipliersAndLeverageCap() {
+        category("LOW1", RefDataService.RiskTier.LOW, "10");
+        category("HIGH1", RefDataService.RiskTier.HIGH, "1.2");
+        category("MED1", RefDataService.RiskTier.MEDIUM, "5.0");
+
+        RefDataService.MarginRate low = table.get("LOW1").adjust(RATE);
+        assertRate("0.45", "0.225", low);
+        assertFalse(low.isLeverageCapped());
+        assertTrue(low.isFixedPoint());
+
+        // 0.50 x 1.50 = 0.75 allows 1.33x leverage: raised to 1 / 1.2
+        RefDataService.MarginRate high = table.get("HIGH1").adjust(RATE);
+        assertRate("0.83333333", "0.375", high);
+        assertTrue(high.isLeverageCapped());
+        assertEquals(0, new BigDecimal("1.2").compareTo(high.getLeverage()));
+
+        // Tiers without a configured multiplier keep the symbol rates
+        assertRate("0.50", "0.25", table.get("MED1").adjust(RATE));
+        assertSame(table.get("MED1").adjust(RATE), table.get("MED1").adjust(RATE));
+        // Cached by value: an equal rate (e.g. reloaded by ref data) reuses the adjusted one
+        RefDataService.MarginRate reloaded = new RefDataService.MarginRate(
+                new BigDecimal("0.50"), new BigDecimal("0.25"), new BigDecimal("2.0"));
+        assertNotSame(RATE, reloaded);
+        assertEquals(RATE, reloaded);
+        assertSame(low, table.get("LOW1").adjust(reloaded));
+    }
+
+    @Test
+    void testBulkRefresh() {
+        category("ACC1", RefDataService.RiskTier.LOW, "5.0");
+        AccountRisk before = table.get("ACC1");
+        assertEquals(RefDataService.RiskTier.LOW, before.getTier());
+        assertEquals(1, table.toJson().getInteger("pending"));
+
+        // Resolved values are kept until the next bulk refresh
+        category("ACC1", RefDataService.RiskTier.HIGH, "5.0");
+        category("ACC2", RefDataService.RiskTier.LOW, "5.0");
+        assertSame(before, table.get("ACC1"));
+
+        table.refresh();
+        assertEquals(RefDataService.RiskTier.HIGH, table.get("ACC1").getTier());
+        assertEquals(0, table.toJson().getInteger("pending"));
+        // Accounts sharing tier and max leverage share their parameters
+        assertSame(before, table.get("ACC2"));
+
+        for (int i = 0; i < 10_000; i++) {
+            category("A" + i, RefDataService.RiskTier.values()[i % 4], "5.0");
+            table.get("A" + i);
+        }
+        table.refresh();
+        assertEquals(10_002, table.size());
+        assertEquals(RefDataService.RiskTier.HIGH, table.get("A9998").getTier());
+    }
+
+    @Test
+    void testAccountsNotLookedUpAreDropped() {
+        category("ACC1", RefDataService.RiskTier.LOW, "5.0");
+        category("ACC2", RefDataService.RiskTier.HIGH, "5.0");
+        table.get("ACC1");
+        table.get("ACC2");
+        table.refresh();
+        assertEquals(2, table.size());
+
+        // ACC2 closed: not looked up during the interval, dropped by the next refresh
+        table.get("ACC1");
+        table.refresh();
+        assertEquals(1, table.size());
+        assertEquals(1, table.toJson().getLong("dropped"));
+
+        // Back in the table once it trades again
+        assertEquals(RefDataService.RiskTier.HIGH, table.get("ACC2").getTier());
+        assertEquals(2, table.size());
+    }
+
+    private void category(String account, RefDataService.RiskTier tier, String maxLeverage) {
+        categories.put(account, new RefDataService.AccountRiskCategory(account, tier, new BigDecimal(maxLeverage)));
+    }
+
+    private static void assertRate(String initial, String maintenance, RefDataService.MarginRate rate) {
+        assertEquals(0, new BigDecimal(initial).compareTo(rate.getInitialMarginRate()), "initial " + rate.getInitialMarginRate());
+        assertEquals(0, new BigDecimal(maintenance).compareTo(rate.getMaintenanceMarginRate()),
+                "maintenance " + rate.getMaintenanceMarginRate());
+    }
+
+    private class StubRefDataService implements RefDataService {
+
+        @Override
+        public MarginRate getMarginRate(String symbol) {
+            return RATE;
+        }
+
+        @Override
+        public MarketData getMarketData(String symbol) {
+            return new MarketData(symbol, new BigDecimal("100.00"), System.currentTimeMillis());
+        }
+
+        @Override
+        public AccountRiskCategory getAccountRiskCategory(String account) throws RefDataException {
+            AccountRiskCategory category = categories.get(account);
+            if (category == null) {
+                throw new RefDataException("Unknown account: " + account, account, RefDataException.ErrorType.NOT_FOUND);
+            }
+            return category;
+        }
+    }
+}
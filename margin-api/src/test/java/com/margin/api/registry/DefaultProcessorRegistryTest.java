@@ -0,0 +1,425 @@
+package com.margin.api.registry;
+
+import com.margin.api.aggregator.AccountSymbolSlots;
+import com.margin.api.aggregator.AggregatedMargin;
+import com.margin.api.aggregator.AggregatedPosition;
+import com.margin.api.aggregator.MarginAggregator;
+import com.margin.api.aggregator.PositionAggregator;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.bulkhead.Bulkheads;
+import com.margin.api.lane.CoarseClock;
+import com.margin.api.lane.ExecutionLanes;
+import com.margin.api.lane.LaneIds;
+import com.margin.api.model.Execution;
+import com.margin.api.position.MarkToMarketEngine;
+import com.margin.api.processor.BatchProcessingException;
+import com.margin.api.processor.MarginProcessor;
+import com.margin.api.processor.PositionProcessor;
+import com.margin.api.processor.Processor;
+import com.margin.api.processor.ProcessorInterest;
+import com.margin.api.processor.SyncProcessor;
+import com.margin.api.refdata.AccountRiskTable;
+import com.margin.api.refdata.DefaultRefDataService;
+import com.margin.api.refdata.RefDataException;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for DefaultProcessorRegistry
+ */
+class DefaultProcessorRegistryTest {
+
+    private Vertx vertx;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @AfterEach
+    void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    void testProcessingModesProduceSameAggregates() throws Exception {
+        List<Execution> executions = executions();
+
+        String batch = aggregate(executions, new JsonObject());
+        String fused = aggregate(executions, new JsonObject().put("processors.batch.enabled", false));
+        String inline = aggregate(executions, new JsonObject()
+                .put("processors.batch.enabled", false).put("processors.fused.enabled", false));
+        String async = aggregate(executions, new JsonObject()
+                .put("processors.batch.enabled", false).put("processors.inline.enabled", false));
+        assertEquals(async, inline);
+        assertEquals(async, fused);
+        assertEquals(async, batch);
+        assertTrue(fused.contains("ACC4:SYM2"));
+    }
+
+    @Test
+    void testMicroBatchFetchesMarginRatesOncePerSymbol() throws Exception {
+        List<Execution> executions = executions();
+        CountingRefDataService batchRefData = new CountingRefDataService();
+        CountingRefDataService fusedRefData = new CountingRefDataService();
+
+        String batch = aggregateBatches(List.of(executions), new JsonObject(), false, true, batchRefData);
+        String fused = aggregateBatches(List.of(executions),
+                new JsonObject().put("processors.batch.enabled", false), false, true, fusedRefData);
+
+        // Each lane's keys are updated through the fused batch path: 3 symbols, one fetch each
+        assertEquals(fused, batch);
+        assertEquals(3, batchRefData.marginRateCalls.get());
+        assertEquals(executions.size(), fusedRefData.marginRateCalls.get());
+    }
+
+    @Test
+    void testInlineProcessorsRunSynchronouslyOnTheLane() throws Exception {
+        List<Execution> executions = executions();
+        JsonObject config = new JsonObject().put("execution.lanes", 3).put("processors.batch.enabled", false);
+        ExecutionLanes lanes = new ExecutionLanes(vertx, config);
+        BackpressureController backpressure = new BackpressureController(config);
+        DefaultProcessorRegistry registry = new DefaultProcessorRegistry(vertx, lanes, backpressure,
+                null, new Bulkheads(vertx, backpressure, config), config);
+        RecordingProcessor recording = new RecordingProcessor(lanes);
+        registry.register(recording);
+
+        for (Execution execution : executions) {
+            registry.process(execution).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            // Aggregated (on the account's own lane) by the time the registry's future completes
+            assertEquals(execution.getId(), recording.aggregated.get(recording.aggregated.size() - 1));
+        }
+        assertEquals(executions.size(), recording.aggregated.size());
+        assertEquals(0, recording.offLane);
+        assertEquals(0, recording.asyncCalls);
+        lanes.close();
+
+        // Inline aggregates are final when the registry completes: no lane drain, unlike async
+        String inline = aggregate(executions, new JsonObject()
+                .put("processors.batch.enabled", false).put("processors.fused.enabled", false), false);
+        String async = aggregate(executions, new JsonObject()
+                .put("processors.batch.enabled", false).put("processors.inline.enabled", false), true);
+        assertEquals(async, inline);
+    }
+
+    @Test
+    void testOverlappingBatchesKeepAccountOrder() throws Exception {
+        // Fills of one account: lot matching makes its position and PnL depend on their order
+        List<List<Execution>> batches = new ArrayList<>();
+        for (int b = 0; b < 40; b++) {
+            List<Execution> batch = new ArrayList<>();
+            for (int i = 0; i < 25; i++) {
+                int n = b * 25 + i;
+                batch.add(new Execution("E" + n, "ACC1", "SYM1", "O" + n,
+                        BigDecimal.valueOf(10_000 + n % 13 * 7, 2), BigDecimal.valueOf(1 + n % 5),
+                        n % 3 == 2 ? Execution.ExecutionSide.SELL : Execution.ExecutionSide.BUY,
+                        Execution.ExecutionType.LIMIT, Instant.now(), null, null));
+            }
+            batches.add(batch);
+        }
+
+        for (JsonObject config : List.of(
+                new JsonObject(),
+                new JsonObject().put("processors.inline.enabled", false),
+                new JsonObject().put("processors.batch.enabled", false))) {
+            String sequential = aggregateBatches(batches, config.copy(), false, true);
+            String overlapping = aggregateBatches(batches, config.copy(), true, true);
+            assertEquals(sequential, overlapping, config.encode());
+        }
+    }
+
+    @Test
+    void testMicroBatchReachesAsyncProcessorsThroughTheirInterest() throws Exception {
+        List<Execution> executions = executions();
+        JsonObject config = new JsonObject().put("execution.lanes", 3);
+        ExecutionLanes lanes = new ExecutionLanes(vertx, config);
+        BackpressureController backpressure = new BackpressureController(config);
+        DefaultProcessorRegistry registry = new DefaultProcessorRegistry(vertx, lanes, backpressure,
+                null, new Bulkheads(vertx, backpressure, config), config);
+        BatchRecordingProcessor sym1 = new BatchRecordingProcessor("SYM1",
+                ProcessorInterest.builder().symbols("SYM1").build());
+        BatchRecordingProcessor acc2 = new BatchRecordingProcessor("ACC2",
+                ProcessorInterest.builder().accounts("ACC2").build());
+        BatchRecordingProcessor none = new BatchRecordingProcessor("NONE",
+                ProcessorInterest.builder().symbols("UNKNOWN").build());
+        registry.register(sym1);
+        registry.register(acc2);
+        registry.register(none);
+
+        registry.processBatch(executions).toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+
+        // One call each, with exactly the executions of its interest, in batch order
+        assertEquals(List.of(filter(executions, e -> e.getSymbol().equals("SYM1"))), sym1.batches);
+        assertEquals(List.of(filter(executions, e -> e.getAccountId().equals("ACC2"))), acc2.batches);
+        assertTrue(none.batches.isEmpty());
+        lanes.close();
+    }
+
+    @Test
+    void testMicroBatchFailureNamesOnlyTheFailedExecutions() throws Exception {
+        List<Execution> executions = executions();
+        List<Execution> failing = filter(executions, e -> e.getId().endsWith("7"));
+        for (JsonObject config : List.of(
+                new JsonObject(),
+                new JsonObject().put("processors.inline.enabled", false),
+                new JsonObject().put("processors.batch.enabled", false))) {
+            config.put("execution.lanes", 3);
+            ExecutionLanes lanes = new ExecutionLanes(vertx, config);
+            BackpressureController backpressure = new BackpressureController(config);
+            DefaultProcessorRegistry registry = new DefaultProcessorRegistry(vertx, lanes, backpressure,
+                    null, new Bulkheads(vertx, backpressure, config), config);
+            FailingProcessor processor = new FailingProcessor(lanes, "7");
+            registry.register(processor);
+
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> registry.processBatch(executions)
+                    .toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS));
+            BatchProcessingException batchFailure = assertInstanceOf(BatchProcessingException.class, failure.getCause());
+            assertEquals(failing.size(), batchFailure.getFailedExecutions().size(), config.encode());
+            assertTrue(failing.stream().allMatch(batchFailure::hasFailed), config.encode());
+            // Reported once every other execution went through
+            assertEquals(executions.size() - failing.size(), processor.aggregated.get(), config.encode());
+            lanes.close();
+        }
+    }
+
+    @Test
+    void testVirtualExecutionModeProducesSameAggregates() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        List<Execution> executions = executions();
+
+        String virtual = aggregate(executions, new JsonObject().put("execution.mode", "virtual"));
+        String virtualAsync = aggregate(executions, new JsonObject()
+                .put("execution.mode", "virtual").put("processors.batch.enabled", false));
+        assertEquals(aggregate(executions, new JsonObject()), virtual);
+        assertEquals(virtual, virtualAsync);
+    }
+
+    private static List<Execution> filter(List<Execution> executions, Predicate<Execution> filter) {
+        return executions.stream().filter(filter).collect(Collectors.toList());
+    }
+
+    private static List<Execution> executions() {
+        List<Execution> executions = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            executions.add(new Execution("E" + i, "ACC" + (i % 5), "SYM" + (i % 3), "O" + i,
+                    new BigDecimal("100.25").add(BigDecimal.valueOf(i % 11, 2)), BigDecimal.valueOf(1 + i % 7),
+                    i % 4 == 3 ? Execution.ExecutionSide.SELL : Execution.ExecutionSide.BUY,
+                    Execution.ExecutionType.LIMIT, Instant.now(), null, null));
+        }
+        return executions;
+    }
+
+    private String aggregate(List<Execution> executions, JsonObject config) throws Exception {
+        return aggregate(executions, config, true);
+    }
+
+    private String aggregate(List<Execution> executions, JsonObject config, boolean drainLanes) throws Exception {
+        return aggregateBatches(List.of(executions), config, false, drainLanes);
+    }
+
+    /**
+     * Process batches of executions with a fresh pipeline and render the resulting aggregates
+     *
+     * @param overlapping Submit every batch before waiting for any (otherwise one after the other)
+     * @param drainLanes Wait for the lane tasks queued by asynchronous processors before rendering
+     */
+    private String aggregateBatches(List<List<Execution>> batches, JsonObject config,
+                                    boolean overlapping, boolean drainLanes) throws Exception {
+        return aggregateBatches(batches, config, overlapping, drainLanes, new DefaultRefDataService());
+    }
+
+    private String aggregateBatches(List<List<Execution>> batches, JsonObject config, boolean overlapping,
+                                    boolean drainLanes, DefaultRefDataService refData) throws Exception {
+        config.put("execution.lanes", 3);
+        ExecutionLanes lanes = new ExecutionLanes(vertx, config);
+        BackpressureController backpressure = new BackpressureController(config);
+        MarginAggregator marginAggregator = new MarginAggregator(lanes, backpressure);
+        PositionAggregator positionAggregator = new PositionAggregator(lanes, backpressure,
+                new MarkToMarketEngine(vertx, lanes, config), config);
+        LaneIds ids = new LaneIds(lanes);
+        CoarseClock clock = new CoarseClock(vertx, config);
+        DefaultProcessorRegistry registry = new DefaultProcessorRegistry(vertx, lanes, backpressure,
+                new AccountSymbolSlots(marginAggregator, positionAggregator, clock),
+                new Bulkheads(vertx, backpressure, config), config);
+        registry.register(new MarginProcessor(lanes, marginAggregator, refData,
+                new AccountRiskTable(vertx, refData, config), ids, clock));
+        registry.register(new PositionProcessor(lanes, positionAggregator, ids, clock));
+
+        List<Future<Void>> submitted = new ArrayList<>();
+        for (List<Execution> batch : batches) {
+            submitted.add(registry.processBatch(batch));
+            if (!overlapping) {
+                submitted.get(submitted.size() - 1).toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+            }
+        }
+        for (Future<Void> batch : submitted) {
+            batch.toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        }
+        // Asynchronous processors push to their aggregators in a further (already queued) lane task
+        for (int i = 0; drainLanes && i < batches.size(); i++) {
+            for (Execution execution : batches.get(i)) {
+                lanes.executeBlocking(execution.getAccountId(), promise -> promise.complete())
+                    .toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        StringBuilder rendered = new StringBuilder();
+        new TreeMap<>(marginAggregator.getAll()).forEach((key, margin) -> rendered.append(render(key, margin)));
+        new TreeMap<>(positionAggregator.getAll()).forEach((key, position) -> rendered.append(render(key, position)));
+        lanes.close();
+        return rendered.toString();
+    }
+
+    private static String render(String key, AggregatedMargin margin) {
+        return key + " " + margin.getTotalInitialMargin() + " " + margin.getTotalMaintenanceMargin()
+                + " " + margin.getTotalMarginRequirement() + " " + margin.getCount() + "\n";
+    }
+
+    private static String render(String key, AggregatedPosition position) {
+        return key + " " + position.getNetQuantity() + " " + position.getAveragePrice()
+                + " " + position.getTotalPnl() + " " + position.getCount() + "\n";
+    }
+
+    /**
+     * Sync processor recording where its steps run (and whether its asynchronous path is used)
+     */
+    private static final class RecordingProcessor implements SyncProcessor<Execution> {
+        private final ExecutionLanes lanes;
+        private final List<String> aggregated = new CopyOnWriteArrayList<>();
+        private volatile int offLane;
+        private volatile int asyncCalls;
+
+        RecordingProcessor(ExecutionLanes lanes) {
+            this.lanes = lanes;
+        }
+
+        @Override
+        public Execution transform(Execution execution) {
+            return execution;
+        }
+
+        @Override
+        public void aggregate(Execution execution) {
+            // Completed in place only when called on the account's lane
+            if (!lanes.executeOnLane(execution.getAccountId(), promise -> promise.complete()).succeeded()) {
+                offLane++;
+            }
+            aggregated.add(execution.getId());
+        }
+
+        @Override
+        public Future<Execution> process(Execution execution) {
+            asyncCalls++;
+            return Future.succeededFuture(execution);
+        }
+
+        @Override
+        public String getProcessorType() {
+            return "RECORDING";
+        }
+    }
+
+    /**
+     * Sync processor failing the executions whose id ends with a suffix, counting the others
+     */
+    private static final class FailingProcessor implements SyncProcessor<Execution> {
+        private final ExecutionLanes lanes;
+        private final String failingSuffix;
+        private final AtomicInteger aggregated = new AtomicInteger();
+
+        FailingProcessor(ExecutionLanes lanes, String failingSuffix) {
+            this.lanes = lanes;
+            this.failingSuffix = failingSuffix;
+        }
+
+        @Override
+        public Execution transform(Execution execution) {
+            if (execution.getId().endsWith(failingSuffix)) {
+                throw new IllegalArgumentException("Unprocessable execution " + execution.getId());
+            }
+            return execution;
+        }
+
+        @Override
+        public void aggregate(Execution execution) {
+            aggregated.incrementAndGet();
+        }
+
+        @Override
+        public Future<Execution> process(Execution execution) {
+            return lanes.executeStaged(execution.getAccountId(), () -> transform(execution), this::aggregate);
+        }
+
+        @Override
+        public String getProcessorType() {
+            return "FAILING";
+        }
+    }
+
+    /**
+     * Reference data counting the margin rates fetched
+     */
+    private static final class CountingRefDataService extends DefaultRefDataService {
+        private final AtomicInteger marginRateCalls = new AtomicInteger();
+
+        @Override
+        public MarginRate getMarginRate(String symbol) throws RefDataException {
+            marginRateCalls.incrementAndGet();
+            return super.getMarginRate(symbol);
+        }
+    }
+
+    /**
+     * Asynchronous processor recording the batches it receives
+     */
+    private static final class BatchRecordingProcessor implements Processor<Void> {
+        private final String type;
+        private final ProcessorInterest interest;
+        private final List<List<Execution>> batches = new CopyOnWriteArrayList<>();
+
+        BatchRecordingProcessor(String type, ProcessorInterest interest) {
+            this.type = type;
+            this.interest = interest;
+        }
+
+        @Override
+        public Future<Void> process(Execution execution) {
+            return Future.failedFuture("Only batches are expected");
+        }
+
+        @Override
+        public Future<Void> processBatch(List<Execution> executions) {
+            batches.add(List.copyOf(executions));
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public ProcessorInterest getInterest() {
+            return interest;
+        }
+
+        @Override
+        public String getProcessorType() {
+            return type;
+        }
+    }
+}
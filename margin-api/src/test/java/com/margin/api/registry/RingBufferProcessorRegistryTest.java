@@ -0,0 +1,236 @@
+package com.margin.api.registry;
+
+import com.margin.api.ApplicationModule;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.bulkhead.Bulkheads;
+import com.margin.api.model.Execution;
+import com.margin.api.processor.BatchProcessingException;
+import com.margin.api.processor.SyncProcessor;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RingBufferProcessorRegistry
+ */
+class RingBufferProcessorRegistryTest {
+
+    private Vertx vertx;
+    private BackpressureController backpressure;
+    private RingBufferProcessorRegistry registry;
+    private RecordingProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        JsonObject config = new JsonObject().put("pipeline.ring.size", 256)
+                .put("backpressure.high.watermark", 256).put("backpressure.low.watermark", 128);
+        backpressure = new BackpressureController(config);
+        registry = new RingBufferProcessorRegistry(vertx, backpressure, new Bulkheads(vertx, backpressure, config), config);
+        processor = new RecordingProcessor();
+        registry.register(processor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+        vertx.close();
+    }
+
+    @Test
+    void testBatchesAggregatedInOrderPerAccount() throws Exception {
+        List<Future<Void>> futures = new ArrayList<>();
+        int sequence = 0;
+        for (int batch = 0; batch < 20; batch++) {
+            // Batches larger than the ring are published in several claims
+            List<Execution> executions = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                executions.add(execution(sequence++, "ACC" + (i % 7)));
+            }
+            futures.add(registry.processBatch(executions));
+        }
+        for (Future<Void> future : futures) {
+            future.toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        }
+
+        int total = 0;
+        for (List<Integer> seen : processor.aggregated.values()) {
+            for (int i = 1; i < seen.size(); i++) {
+                assertTrue(seen.get(i) > seen.get(i - 1), "order within an account");
+            }
+            total += seen.size();
+        }
+        assertEquals(sequence, total);
+        assertEquals(0, registry.getBacklog());
+        assertThrows(IllegalStateException.class, () -> registry.register(new RecordingProcessor()));
+    }
+
+    @Test
+    void testFailureFailsBatchButNotOtherExecutions() throws Exception {
+        List<Execution> executions = List.of(
+                execution(1, "ACC1"), execution(RecordingProcessor.FAILING, "ACC1"), execution(3, "ACC1"));
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> registry.processBatch(executions)
+                .toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS));
+        BatchProcessingException batchFailure = assertInstanceOf(BatchProcessingException.class, failure.getCause());
+        assertTrue(batchFailure.getCause() instanceof IllegalArgumentException);
+        assertEquals(Set.of(executions.get(1)), batchFailure.getFailedExecutions());
+        assertEquals(List.of(1, 3), processor.aggregated.get("ACC1"));
+
+        // The pipeline keeps going
+        registry.process(execution(4, "ACC1")).toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        assertEquals(List.of(1, 3, 4), processor.aggregated.get("ACC1"));
+    }
+
+    @Test
+    void testFullRingHoldsIngestionInsteadOfBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        processor.blockOn = release;
+        List<Execution> executions = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            executions.add(execution(i, "ACC" + (i % 3)));
+        }
+
+        // Returns right away although the ring (256 slots) cannot take the batch
+        Future<Void> first = registry.processBatch(executions.subList(0, 400));
+        Future<Void> second = registry.processBatch(executions.subList(400, 600));
+        assertFalse(first.isComplete());
+        assertTrue(backpressure.isPressured());
+
+        release.countDown();
+        first.toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        second.toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        for (List<Integer> seen : processor.aggregated.values()) {
+            for (int i = 1; i < seen.size(); i++) {
+                assertTrue(seen.get(i) > seen.get(i - 1), "order within an account");
+            }
+        }
+        assertEquals(600, processor.aggregated.values().stream().mapToInt(List::size).sum());
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (backpressure.isPressured() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(backpressure.isPressured());
+    }
+
+    @Test
+    void testCloseDrainsPublishedBatches() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        processor.blockOn = release;
+        List<Execution> executions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            executions.add(execution(i, "ACC" + (i % 3)));
+        }
+        Future<Void> published = registry.processBatch(executions);
+        assertFalse(published.isComplete());
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        }).start();
+        registry.close();
+
+        published.toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        assertEquals(100, processor.aggregated.values().stream().mapToInt(List::size).sum());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> registry.process(execution(100, "ACC1"))
+                .toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS));
+        assertInstanceOf(BatchProcessingException.class, failure.getCause());
+    }
+
+    @Test
+    void testRingSmallerThanHighWatermarkIsRejected() {
+        JsonObject config = new JsonObject().put("pipeline.ring.size", 256);
+        BackpressureController defaults = new BackpressureController(config);
+        assertThrows(IllegalArgumentException.class, () -> new RingBufferProcessorRegistry(vertx, defaults,
+                new Bulkheads(vertx, defaults, config), config));
+    }
+
+    @Test
+    void testRingTransportRequiresMarkToMarketDisabled() {
+        JsonObject config = new JsonObject().put("pipeline.transport", "ring");
+        ApplicationModule module = new ApplicationModule(config);
+        assertThrows(IllegalArgumentException.class,
+                () -> module.provideTransportRegistry(config, () -> null, () -> registry));
+        config.put("mtm.enabled", false);
+        assertSame(registry, module.provideTransportRegistry(config, () -> null, () -> registry));
+    }
+
+    private static Execution execution(int sequence, String accountId) {
+        Instant now = Instant.now();
+        return new Execution(String.valueOf(sequence), accountId, "AAPL", "O" + sequence,
+                new BigDecimal("100.00"), BigDecimal.ONE, Execution.ExecutionSide.BUY,
+                Execution.ExecutionType.MARKET, now, now, now);
+    }
+
+    /**
+     * Transforms an execution into its sequence and records aggregation order per account
+     */
+    private static class RecordingProcessor implements SyncProcessor<Recorded> {
+        static final int FAILING = -1;
+        final Map<String, List<Integer>> aggregated = new ConcurrentHashMap<>();
+        volatile CountDownLatch blockOn;
+
+        @Override
+        public Recorded transform(Execution execution) {
+            int sequence = Integer.parseInt(execution.getId());
+            if (sequence == FAILING) {
+                throw new IllegalArgumentException("Unprocessable execution");
+            }
+            return new Recorded(execution.getAccountId(), sequence);
+        }
+
+        @Override
+        public void aggregate(Recorded result) {
+            CountDownLatch latch = blockOn;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            // Single writer (the aggregate stage), so plain lists are fine
+            aggregated.computeIfAbsent(result.accountId, k -> new ArrayList<>()).add(result.sequence);
+        }
+
+        @Override
+        public Future<Recorded> process(Execution execution) {
+            return Future.failedFuture("Only the ring buffer stages are used");
+        }
+
+        @Override
+        public String getProcessorType() {
+            return "RECORDING";
+        }
+    }
+
+    private static class Recorded {
+        final String accountId;
+        final int sequence;
+
+        Recorded(String accountId, int sequence) {
+            this.accountId = accountId;
+            this.sequence = sequence;
+        }
+    }
+}
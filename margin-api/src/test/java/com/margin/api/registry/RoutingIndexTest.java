@@ -0,0 +1,88 @@
+package com.margin.api.registry;
+
+import com.margin.api.model.Execution;
+import com.margin.api.processor.Processor;
+import com.margin.api.processor.ProcessorInterest;
+import io.vertx.core.Future;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RoutingIndex
+ */
+class RoutingIndexTest {
+
+    private final InterestProcessor all = new InterestProcessor("all", ProcessorInterest.ALL);
+    private final InterestProcessor apple = new InterestProcessor("apple",
+            ProcessorInterest.builder().symbols("AAPL").build());
+    private final InterestProcessor futures = new InterestProcessor("futures",
+            ProcessorInterest.builder().symbolPrefixes("ES", "NQ").accounts("ACC1").build());
+    private final InterestProcessor account = new InterestProcessor("account",
+            ProcessorInterest.builder().accounts("ACC2").build());
+    private final InterestProcessor limits = new InterestProcessor("limits",
+            ProcessorInterest.builder().executionTypes(Execution.ExecutionType.LIMIT).build());
+
+    private final RoutingIndex<InterestProcessor> index =
+            new RoutingIndex<>(List.of(all, apple, futures, account, limits));
+
+    @Test
+    void testRoutesToMatchingProcessorsOnly() {
+        assertEquals(List.of(all, apple), index.route(execution("ACC1", "AAPL", Execution.ExecutionType.MARKET)));
+        assertEquals(List.of(all, futures), index.route(execution("ACC1", "ESZ6", Execution.ExecutionType.MARKET)));
+        assertEquals(List.of(all), index.route(execution("ACC3", "ESZ6", Execution.ExecutionType.MARKET)));
+        assertEquals(List.of(all, apple, account, limits),
+                index.route(execution("ACC2", "AAPL", Execution.ExecutionType.LIMIT)));
+    }
+
+    @Test
+    void testMatchesAnyWithoutUnfilteredProcessors() {
+        RoutingIndex<InterestProcessor> filtered = new RoutingIndex<>(List.of(apple, futures, limits));
+
+        assertTrue(filtered.matchesAny(execution("ACC9", "AAPL", Execution.ExecutionType.MARKET)));
+        assertTrue(filtered.matchesAny(execution("ACC1", "NQH7", Execution.ExecutionType.MARKET)));
+        assertTrue(filtered.matchesAny(execution("ACC9", "MSFT", Execution.ExecutionType.LIMIT)));
+        assertFalse(filtered.matchesAny(execution("ACC9", "NQH7", Execution.ExecutionType.MARKET)));
+        assertTrue(new RoutingIndex<InterestProcessor>(List.of()).route(
+                execution("ACC1", "AAPL", Execution.ExecutionType.MARKET)).isEmpty());
+    }
+
+    private static Execution execution(String accountId, String symbol, Execution.ExecutionType type) {
+        Instant now = Instant.now();
+        return new Execution("E1", accountId, symbol, "O1",
+                new BigDecimal("100.00"), BigDecimal.ONE, Execution.ExecutionSide.BUY,
+                type, now, now, now);
+    }
+
+    /**
+     * Processor declaring a fixed interest
+     */
+    private static class InterestProcessor implements Processor<Void> {
+        private final String type;
+        private final ProcessorInterest interest;
+
+        InterestProcessor(String type, ProcessorInterest interest) {
+            this.type = type;
+            this.interest = interest;
+        }
+
+        @Override
+        public Future<Void> process(Execution execution) {
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public String getProcessorType() {
+            return type;
+        }
+
+        @Override
+        public ProcessorInterest getInterest() {
+            return interest;
+        }
+    }
+}
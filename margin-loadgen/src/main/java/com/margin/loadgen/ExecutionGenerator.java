@@ -0,0 +1,83 @@
+package com.margin.loadgen;
+
+import com.margin.api.model.Execution;
+import com.margin.api.model.TradeExecutionWrapper;
+import io.vertx.core.json.JsonObject;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a synthetic, reproducible stream of trade executions
+ * Accounts and symbols are drawn from Zipf distributions (loadgen.accounts, loadgen.symbols,
+ * loadgen.zipf.exponent), sides follow loadgen.buy.ratio and prices random-walk per symbol.
+ * Execution ids are the sequence number, so completions can be matched back to send times.
+ */
+public class ExecutionGenerator {
+
+    public static final String TOPIC = "trade-executions";
+    private static final String ID_PREFIX = "E";
+
+    private final SplittableRandom random;
+    private final ZipfDistribution accounts;
+    private final ZipfDistribution symbols;
+    private final double buyRatio;
+    private final double limitRatio;
+    private final String[] accountIds;
+    private final String[] symbolIds;
+    private final double[] prices;
+    private long sequence;
+
+    public ExecutionGenerator(JsonObject config) {
+        this.random = new SplittableRandom(config.getLong("loadgen.seed", 42L));
+        double exponent = config.getDouble("loadgen.zipf.exponent", 1.0);
+        this.accounts = new ZipfDistribution(config.getInteger("loadgen.accounts", 10_000), exponent);
+        this.symbols = new ZipfDistribution(config.getInteger("loadgen.symbols", 500), exponent);
+        this.buyRatio = config.getDouble("loadgen.buy.ratio", 0.5);
+        this.limitRatio = config.getDouble("loadgen.limit.ratio", 0.3);
+        if (buyRatio < 0 || buyRatio > 1 || limitRatio < 0 || limitRatio > 1) {
+            throw new IllegalArgumentException("loadgen.buy.ratio and loadgen.limit.ratio must be within [0, 1]");
+        }
+        this.accountIds = new String[accounts.size()];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = String.format("ACC%06d", i);
+        }
+        this.symbolIds = new String[symbols.size()];
+        this.prices = new double[symbols.size()];
+        for (int i = 0; i < symbolIds.length; i++) {
+            symbolIds[i] = String.format("SYM%04d", i);
+            prices[i] = 10 + random.nextDouble() * 490;
+        }
+    }
+
+    /**
+     * Generate the next execution, wrapped as it would arrive from Kafka
+     */
+    public TradeExecutionWrapper next() {
+        long seq = sequence++;
+        int symbol = symbols.sample(random);
+        // +/- 10bp random walk, floored at one cent
+        prices[symbol] = Math.max(0.01, prices[symbol] * (1 + (random.nextDouble() - 0.5) * 0.002));
+        Instant now = Instant.now();
+        Execution execution = new Execution(
+                ID_PREFIX + seq,
+                accountIds[accounts.sample(random)],
+                symbolIds[symbol],
+                "O" + seq,
+                BigDecimal.valueOf(prices[symbol]).setScale(2, RoundingMode.HALF_UP),
+                BigDecimal.valueOf(10L * (1 + random.nextInt(100))),
+                random.nextDouble() < buyRatio ? Execution.ExecutionSide.BUY : Execution.ExecutionSide.SELL,
+                random.nextDouble() < limitRatio ? Execution.ExecutionType.LIMIT : Execution.ExecutionType.MARKET,
+                now, now, now);
+        return new TradeExecutionWrapper("M" + seq, TOPIC, seq, now.toEpochMilli(), execution);
+    }
+
+    /**
+     * Sequence number of a generated execution id
+     */
+    public static long sequenceOf(String executionId) {
+        return Long.parseLong(executionId, ID_PREFIX.length(), executionId.length(), 10);
+    }
+}
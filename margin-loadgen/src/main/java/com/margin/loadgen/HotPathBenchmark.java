@@ -0,0 +1,167 @@
+package com.margin.loadgen;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.margin.api.ApplicationModule;
+import com.margin.api.aggregator.AccountSymbolSlot;
+import com.margin.api.aggregator.AccountSymbolSlots;
+import com.margin.api.model.Execution;
+import com.margin.api.processor.FusedProcessor;
+import com.margin.api.processor.MarginProcessor;
+import com.margin.api.processor.PositionProcessor;
+import com.margin.api.registry.ProcessorRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-benchmark of the processing hot path over generated executions
+ * Reports the time and the bytes allocated per execution after a warm-up, in one of two modes
+ * (benchmark.mode):
+ * - registry (default): the path ingestion runs, ProcessorRegistry.processBatch in batches of
+ *   kafka.max.poll.records, one batch at a time, across the execution lanes. Allocation is
+ *   summed over every live thread, so it includes routing, lane grouping and Vert.x dispatch
+ *   (a few objects per batch and lane), but not what the loaders allocate to decode records.
+ * - lane: the lane work of one execution under fused processing (resolve the account/symbol
+ *   slot, then apply every fused processor) on the calling thread, without dispatch. Its
+ *   steady state is expected to allocate 0 bytes per execution.
+ *
+ * Usage: HotPathBenchmark [key=value ...] with any application or loadgen key plus
+ * - benchmark.mode: registry or lane (default registry)
+ * - benchmark.executions: distinct generated executions, replayed in a loop (default 100000)
+ * - benchmark.warmup: warm-up executions (default 2000000)
+ * - benchmark.iterations: measured executions (default 10000000)
+ * Accounts and symbols default to 500 x 10 (loadgen.accounts, loadgen.symbols): the working set
+ * must fit the aggregators' capacity, or the benchmark measures eviction churn instead.
+ */
+public class HotPathBenchmark {
+
+    private static final String MODE_REGISTRY = "registry";
+    private static final String MODE_LANE = "lane";
+
+    public static void main(String[] args) throws Exception {
+        JsonObject config = new ApplicationModule().provideConfig()
+                .put("loadgen.accounts", 500)
+                .put("loadgen.symbols", 10);
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected key=value argument: " + arg);
+            }
+            config.put(parts[0], LoadGenerator.parseValue(parts[1]));
+        }
+
+        JsonObject report = run(config);
+        System.out.println(report.encodePrettily());
+        System.exit(0);
+    }
+
+    /**
+     * Run the benchmark and return its report
+     */
+    public static JsonObject run(JsonObject config) throws Exception {
+        String mode = config.getString("benchmark.mode", MODE_REGISTRY);
+        int distinct = config.getInteger("benchmark.executions", 100_000);
+        long warmup = config.getLong("benchmark.warmup", 2_000_000L);
+        long iterations = config.getLong("benchmark.iterations", 10_000_000L);
+        if (!MODE_REGISTRY.equals(mode) && !MODE_LANE.equals(mode)) {
+            throw new IllegalArgumentException("Unknown benchmark.mode: " + mode + " (expected registry or lane)");
+        }
+
+        Injector injector = Guice.createInjector(new ApplicationModule(config));
+        ExecutionGenerator generator = new ExecutionGenerator(config);
+        Execution[] executions = new Execution[distinct];
+        for (int i = 0; i < distinct; i++) {
+            executions[i] = generator.next().getExecution();
+        }
+        Workload workload = MODE_LANE.equals(mode)
+                ? laneWorkload(injector, executions)
+                : registryWorkload(injector, executions, config.getInteger("kafka.max.poll.records", 500));
+
+        workload.run(warmup);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = allocatedBytes(threads, mode);
+        long start = System.nanoTime();
+        workload.run(iterations);
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes(threads, mode) - allocatedBefore;
+
+        injector.getInstance(ProcessorRegistry.class).close();
+        injector.getInstance(Vertx.class).close();
+        return new JsonObject()
+                .put("mode", mode)
+                .put("executions", iterations)
+                .put("distinctExecutions", distinct)
+                .put("nanosPerExecution", (double) elapsed / iterations)
+                .put("executionsPerSecond", iterations * 1_000_000_000.0 / elapsed)
+                .put("bytesAllocated", allocated)
+                .put("bytesPerExecution", (double) allocated / iterations);
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread (lane mode) or by every live thread
+     */
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads, String mode) {
+        if (MODE_LANE.equals(mode)) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            // -1 for threads that ended meanwhile
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    /**
+     * Batches of the generated executions through the registry, one batch at a time
+     */
+    private static Workload registryWorkload(Injector injector, Execution[] executions, int batchSize) {
+        ProcessorRegistry registry = injector.getInstance(ProcessorRegistry.class);
+        List<List<Execution>> batches = new ArrayList<>();
+        for (int from = 0; from < executions.length; from += batchSize) {
+            batches.add(List.of(executions).subList(from, Math.min(from + batchSize, executions.length)));
+        }
+        return count -> {
+            for (long done = 0, i = 0; done < count; i++) {
+                List<Execution> batch = batches.get((int) (i % batches.size()));
+                registry.processBatch(batch).toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+                done += batch.size();
+            }
+        };
+    }
+
+    /**
+     * Fused lane work of each execution on the calling thread
+     */
+    private static Workload laneWorkload(Injector injector, Execution[] executions) {
+        AccountSymbolSlots slots = injector.getInstance(AccountSymbolSlots.class);
+        List<FusedProcessor<?>> processors = List.of(
+                injector.getInstance(MarginProcessor.class),
+                injector.getInstance(PositionProcessor.class));
+        // One lane's slot: the benchmark thread plays a single lane owning every account
+        AccountSymbolSlot slot = new AccountSymbolSlot();
+        return count -> {
+            for (long i = 0; i < count; i++) {
+                Execution execution = executions[(int) (i % executions.length)];
+                slots.resolve(execution, slot);
+                for (int p = 0; p < processors.size(); p++) {
+                    processors.get(p).processFused(execution, slot);
+                }
+                slot.clear();
+            }
+        };
+    }
+
+    /**
+     * Benchmarked work, run for a number of executions
+     */
+    private interface Workload {
+        void run(long count) throws Exception;
+    }
+}
@@ -0,0 +1,118 @@
+package com.margin.loadgen;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records send time per generated execution and end-to-end latency at completion
+ * Latencies go into a log-linear histogram (32 sub-buckets per power of two, ~3% precision)
+ * so recording is allocation-free and safe from any lane thread.
+ */
+public class LatencyRecorder {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final long[] sentAt;
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private volatile long firstSentNanos;
+    private volatile long lastCompletedNanos;
+
+    public LatencyRecorder(int capacity) {
+        this.sentAt = new long[capacity];
+    }
+
+    /**
+     * Record the send time of an execution (generator thread)
+     */
+    public void sent(long sequence) {
+        long now = System.nanoTime();
+        if (sequence == 0) {
+            firstSentNanos = now;
+        }
+        sentAt[(int) sequence] = now;
+    }
+
+    /**
+     * Record the completion of an execution
+     */
+    public void completed(long sequence, boolean success) {
+        long now = System.nanoTime();
+        long latency = now - sentAt[(int) sequence];
+        histogram.incrementAndGet(bucketOf(latency));
+        maxNanos.accumulateAndGet(latency, Math::max);
+        if (!success) {
+            failed.incrementAndGet();
+        }
+        lastCompletedNanos = now;
+        completed.incrementAndGet();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * Latency at a percentile, in nanoseconds (upper bound of its bucket)
+     */
+    public long percentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += histogram.get(i);
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBoundOf(i), maxNanos.get());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Throughput and latency report
+     */
+    public JsonObject report() {
+        long count = completed.get();
+        double seconds = Math.max(1, lastCompletedNanos - firstSentNanos) / 1e9;
+        return new JsonObject()
+                .put("completed", count)
+                .put("failed", failed.get())
+                .put("elapsedSeconds", seconds)
+                .put("throughputPerSecond", count / seconds)
+                .put("latencyMicros", new JsonObject()
+                        .put("p50", percentile(50) / 1e3)
+                        .put("p90", percentile(90) / 1e3)
+                        .put("p99", percentile(99) / 1e3)
+                        .put("p99.9", percentile(99.9) / 1e3)
+                        .put("max", maxNanos.get() / 1e3));
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) Math.max(0, value);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width - 1;
+    }
+}
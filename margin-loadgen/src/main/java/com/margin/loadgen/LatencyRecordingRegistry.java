@@ -0,0 +1,58 @@
+package com.margin.loadgen;
+
+import com.margin.api.model.Execution;
+import com.margin.api.processor.Processor;
+import com.margin.api.registry.ProcessorRegistry;
+import io.vertx.core.Future;
+
+import java.util.List;
+
+/**
+ * ProcessorRegistry decorator recording end-to-end latency of generated executions
+ * An execution completes when every processor and aggregator has handled it
+ */
+public class LatencyRecordingRegistry implements ProcessorRegistry {
+
+    private final ProcessorRegistry delegate;
+    private final LatencyRecorder recorder;
+
+    public LatencyRecordingRegistry(ProcessorRegistry delegate, LatencyRecorder recorder) {
+        this.delegate = delegate;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void register(Processor<?> processor) {
+        delegate.register(processor);
+    }
+
+    @Override
+    public Future<Void> process(Execution execution) {
+        return delegate.process(execution)
+            .onComplete(ar -> recorder.completed(ExecutionGenerator.sequenceOf(execution.getId()), ar.succeeded()));
+    }
+
+    @Override
+    public Future<Void> processBatch(List<Execution> executions) {
+        return delegate.processBatch(executions).onComplete(ar -> {
+            for (Execution execution : executions) {
+                recorder.completed(ExecutionGenerator.sequenceOf(execution.getId()), ar.succeeded());
+            }
+        });
+    }
+
+    @Override
+    public List<Processor<?>> getProcessors() {
+        return delegate.getProcessors();
+    }
+
+    @Override
+    public Processor<?> getProcessorByType(String type) {
+        return delegate.getProcessorByType(type);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,52 @@
+package com.margin.loadgen;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.margin.api.loader.KafkaConsumerFactory;
+import com.margin.api.loader.KafkaProducerFactory;
+import com.margin.api.processor.MarginProcessor;
+import com.margin.api.processor.PositionProcessor;
+import com.margin.api.registry.ProcessorRegistry;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Guice overrides for load tests (applied on top of ApplicationModule)
+ * Swaps Kafka for the MockKafkaCluster and wraps the registry to record latency
+ */
+public class LoadGenModule extends AbstractModule {
+
+    private final JsonObject config;
+    private final MockKafkaCluster cluster;
+    private final LatencyRecorder recorder;
+
+    public LoadGenModule(JsonObject config, MockKafkaCluster cluster, LatencyRecorder recorder) {
+        this.config = config;
+        this.cluster = cluster;
+        this.recorder = recorder;
+    }
+
+    @Override
+    protected void configure() {
+        bind(KafkaConsumerFactory.class).toInstance(cluster);
+        bind(KafkaProducerFactory.class).toInstance(cluster.producers());
+    }
+
+    @Provides
+    @Singleton
+    public JsonObject provideConfig() {
+        return config;
+    }
+
+    @Provides
+    @Singleton
+    public ProcessorRegistry provideRecordingRegistry(
+            @Named("pipeline.transport") ProcessorRegistry registry,
+            MarginProcessor marginProcessor,
+            PositionProcessor positionProcessor) {
+        registry.register(marginProcessor);
+        registry.register(positionProcessor);
+        return new LatencyRecordingRegistry(registry, recorder);
+    }
+}
@@ -0,0 +1,155 @@
+package com.margin.loadgen;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import com.margin.api.ApplicationModule;
+import com.margin.api.KafkaIngestionVerticle;
+import com.margin.api.backpressure.BackpressureController;
+import com.margin.api.journal.ExecutionJournal;
+import com.margin.api.loader.ExecutionCodec;
+import com.margin.api.loader.ExecutionCodecs;
+import com.margin.api.model.TradeExecutionWrapper;
+import com.margin.api.registry.ProcessorRegistry;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Offline load test: synthetic executions through the full ingestion pipeline
+ * MockKafkaCluster → KafkaDataLoader (ingestion.instances) → ProcessorRegistry → Processors → Aggregators
+ *
+ * Usage: LoadGenerator [key=value ...] with any application key plus
+ * - loadgen.count: executions to send (default 200000)
+ * - loadgen.rate: target executions/s, 0 = as fast as possible (default 20000)
+ * - loadgen.accounts, loadgen.symbols, loadgen.zipf.exponent, loadgen.buy.ratio, loadgen.seed
+ * - loadgen.codec: json or binary wire format (default json)
+ * - loadgen.partitions: mock topic partitions (default 16)
+ * Prints a throughput and latency report (JSON) when every execution has completed.
+ */
+public class LoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    public static void main(String[] args) throws Exception {
+        JsonObject config = new ApplicationModule().provideConfig()
+                .put("journal.path", "data/loadgen-journal");
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected key=value argument: " + arg);
+            }
+            config.put(parts[0], parseValue(parts[1]));
+        }
+
+        JsonObject report = run(config);
+        System.out.println(report.encodePrettily());
+        System.exit(0);
+    }
+
+    /**
+     * Run a load test and return its report
+     */
+    public static JsonObject run(JsonObject config) throws Exception {
+        int count = config.getInteger("loadgen.count", 200_000);
+        double rate = config.getDouble("loadgen.rate", 20_000.0);
+        int instances = config.getInteger("ingestion.instances", 1);
+        String codecName = config.getString("loadgen.codec", "json");
+        long timeoutSeconds = config.getLong("loadgen.timeout.seconds", 300L);
+        config.put("kafka.topics", ExecutionGenerator.TOPIC);
+
+        LatencyRecorder recorder = new LatencyRecorder(count);
+        MockKafkaCluster cluster = new MockKafkaCluster(ExecutionGenerator.TOPIC,
+                config.getInteger("loadgen.partitions", 16), instances, codecName);
+        Injector injector = Guice.createInjector(Modules.override(new ApplicationModule())
+                .with(new LoadGenModule(config, cluster, recorder)));
+        Vertx vertx = injector.getInstance(Vertx.class);
+        ExecutionCodec codec = injector.getInstance(ExecutionCodecs.class).byName(codecName);
+
+        // Opened outside the ingestion verticles so the shared journal outlives them
+        injector.getInstance(ExecutionJournal.class).open();
+        String deploymentId = vertx.deployVerticle(() -> injector.getInstance(KafkaIngestionVerticle.class),
+                new DeploymentOptions().setInstances(instances))
+            .toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        while (!cluster.isReady()) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        logger.info("Sending {} executions at {} ({} codec, {} ingestion instance(s))",
+                count, rate > 0 ? rate + "/s" : "full speed", codecName, instances);
+        ExecutionGenerator generator = new ExecutionGenerator(config);
+        long started = System.nanoTime();
+        long nextProgress = started + PROGRESS_INTERVAL_NANOS;
+        for (int i = 0; i < count; i++) {
+            TradeExecutionWrapper wrapper = generator.next();
+            if (rate > 0) {
+                long due = started + (long) (i * 1e9 / rate);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            byte[] value = codec.encode(wrapper);
+            recorder.sent(i);
+            cluster.publish(wrapper.getExecution().getAccountId(), value);
+            if (System.nanoTime() >= nextProgress) {
+                logger.info("Sent {} / completed {}", i + 1, recorder.getCompleted());
+                nextProgress += PROGRESS_INTERVAL_NANOS;
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (recorder.getCompleted() < count && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        JsonObject report = recorder.report()
+                .put("sent", count)
+                .put("targetRatePerSecond", rate)
+                .put("codec", codecName)
+                .put("ingestionInstances", instances)
+                .put("accounts", config.getInteger("loadgen.accounts", 10_000))
+                .put("symbols", config.getInteger("loadgen.symbols", 500))
+                .put("zipfExponent", config.getDouble("loadgen.zipf.exponent", 1.0))
+                .put("backpressure", injector.getInstance(BackpressureController.class).toJson()
+                        .getLong("pauseCount"));
+        if (recorder.getCompleted() < count) {
+            report.put("timedOut", true);
+        }
+
+        vertx.undeploy(deploymentId)
+            .eventually(v -> {
+                injector.getInstance(ProcessorRegistry.class).close();
+                return injector.getInstance(ExecutionJournal.class).close();
+            })
+            .toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        Promise<Void> closed = Promise.promise();
+        vertx.close(closed);
+        closed.future().toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+        return report;
+    }
+
+    static Object parseValue(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            // Not an integer
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            // Not a number
+        }
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return Boolean.parseBoolean(value);
+        }
+        return value;
+    }
+}
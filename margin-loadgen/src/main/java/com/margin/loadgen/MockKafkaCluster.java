@@ -0,0 +1,165 @@
+package com.margin.loadgen;
+
+import com.margin.api.loader.ExecutionCodecs;
+import com.margin.api.loader.KafkaConsumerFactory;
+import com.margin.api.loader.KafkaProducerFactory;
+import com.margin.api.loader.PartitionOwnership;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process broker stand-in built on Kafka's MockConsumer
+ * Every consumer created by KafkaDataLoader gets a static share of the topic's partitions
+ * (round-robin by creation order), and published records are routed to the consumer owning
+ * their partition, keyed by accountId like the real producers.
+ * Dead-lettered records go to auto-completing MockProducers (and are dropped).
+ */
+public class MockKafkaCluster implements KafkaConsumerFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockKafkaCluster.class);
+    private static final long IDLE_POLL_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String topic;
+    private final int partitionCount;
+    private final int expectedConsumers;
+    private final List<IdleWaitingMockConsumer> consumers = new CopyOnWriteArrayList<>();
+    private final IdleWaitingMockConsumer[] partitionOwners;
+    private final long[] nextOffsets;
+    private final byte[] codecHeader;
+
+    /**
+     * @param topic The topic to serve
+     * @param partitionCount Number of partitions
+     * @param expectedConsumers Number of consumers that will be created (ingestion instances)
+     * @param codecName Codec named in each record's execution-codec header, or null for none
+     */
+    public MockKafkaCluster(String topic, int partitionCount, int expectedConsumers, String codecName) {
+        if (partitionCount < expectedConsumers) {
+            throw new IllegalArgumentException("Need at least one partition per consumer: partitions="
+                    + partitionCount + ", consumers=" + expectedConsumers);
+        }
+        this.topic = topic;
+        this.partitionCount = partitionCount;
+        this.expectedConsumers = expectedConsumers;
+        this.partitionOwners = new IdleWaitingMockConsumer[partitionCount];
+        this.nextOffsets = new long[partitionCount];
+        this.codecHeader = codecName != null ? codecName.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    @Override
+    public synchronized Consumer<String, byte[]> create(Map<String, String> config) {
+        int index = consumers.size();
+        if (index >= expectedConsumers) {
+            throw new IllegalStateException("MockKafkaCluster was sized for " + expectedConsumers + " consumers");
+        }
+        IdleWaitingMockConsumer consumer = new IdleWaitingMockConsumer();
+        List<PartitionInfo> infos = new ArrayList<>(partitionCount);
+        List<TopicPartition> assignment = new ArrayList<>();
+        Map<TopicPartition, Long> beginningOffsets = new HashMap<>();
+        Node node = new Node(0, "localhost", 9092);
+        for (int p = 0; p < partitionCount; p++) {
+            infos.add(new PartitionInfo(topic, p, node, new Node[] {node}, new Node[] {node}));
+            if (p % expectedConsumers == index) {
+                TopicPartition partition = new TopicPartition(topic, p);
+                assignment.add(partition);
+                beginningOffsets.put(partition, 0L);
+                partitionOwners[p] = consumer;
+            }
+        }
+        consumer.updatePartitions(topic, infos);
+        consumer.updateBeginningOffsets(beginningOffsets);
+        // Assign on the first poll, once KafkaDataLoader has subscribed with its rebalance listener
+        consumer.schedulePollTask(() -> consumer.rebalance(assignment));
+        consumers.add(consumer);
+        logger.info("Mock consumer {} created with partitions {}", index, assignment);
+        return consumer;
+    }
+
+    /**
+     * Producers for dead-lettered records: auto-completing MockProducers
+     */
+    public KafkaProducerFactory producers() {
+        return config -> new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+    }
+
+    /**
+     * Publish a record to the partition of its key
+     */
+    public void publish(String key, byte[] value) {
+        int partition = PartitionOwnership.partitionOf(key, partitionCount);
+        IdleWaitingMockConsumer owner = partitionOwners[partition];
+        if (owner == null) {
+            throw new IllegalStateException("No consumer owns partition " + partition + " yet");
+        }
+        long offset;
+        synchronized (nextOffsets) {
+            offset = nextOffsets[partition]++;
+        }
+        RecordHeaders headers = new RecordHeaders();
+        if (codecHeader != null) {
+            headers.add(new RecordHeader(ExecutionCodecs.HEADER, codecHeader));
+        }
+        owner.addRecord(new ConsumerRecord<>(topic, partition, offset, System.currentTimeMillis(),
+                TimestampType.CREATE_TIME, key.length(), value.length, key, value, headers, Optional.empty()));
+    }
+
+    /**
+     * Check that every expected consumer has been created and assigned its partitions
+     */
+    public boolean isReady() {
+        if (consumers.size() < expectedConsumers) {
+            return false;
+        }
+        for (IdleWaitingMockConsumer consumer : consumers) {
+            if (consumer.assignment().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * MockConsumer that parks briefly on an empty poll instead of returning at once,
+     * like a real consumer waiting for its poll timeout (avoids a busy poll loop)
+     */
+    private static class IdleWaitingMockConsumer extends MockConsumer<String, byte[]> {
+
+        IdleWaitingMockConsumer() {
+            super(OffsetResetStrategy.EARLIEST);
+        }
+
+        @Override
+        public ConsumerRecords<String, byte[]> poll(Duration timeout) {
+            ConsumerRecords<String, byte[]> records = super.poll(timeout);
+            if (records.isEmpty()) {
+                LockSupport.parkNanos(Math.min(timeout.toNanos(), IDLE_POLL_PARK_NANOS));
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.margin.loadgen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distribution over ranks 0..n-1: P(rank k) is proportional to 1 / (k + 1)^exponent
+ * Exponent 0 is uniform; around 1 a few hot ranks dominate, as with account and symbol activity
+ */
+public class ZipfDistribution {
+
+    private final double[] cdf;
+
+    public ZipfDistribution(int n, double exponent) {
+        if (n < 1 || exponent < 0) {
+            throw new IllegalArgumentException("Invalid Zipf distribution: n=" + n + ", exponent=" + exponent);
+        }
+        this.cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    /**
+     * Draw a rank
+     */
+    public int sample(SplittableRandom random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+
+    public int size() {
+        return cdf.length;
+    }
+}
@@ -0,0 +1,60 @@
+package com.margin.loadgen;
+
+import com.margin.api.model.Execution;
+import com.margin.api.model.TradeExecutionWrapper;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ExecutionGenerator, ZipfDistribution and LatencyRecorder
+ */
+class ExecutionGeneratorTest {
+
+    @Test
+    void testZipfSkew() {
+        ZipfDistribution zipf = new ZipfDistribution(1000, 1.0);
+        SplittableRandom random = new SplittableRandom(7);
+        int[] counts = new int[zipf.size()];
+        for (int i = 0; i < 100_000; i++) {
+            counts[zipf.sample(random)]++;
+        }
+        // Rank 1 gets ~1/H(1000) = 13% of the samples, twice rank 2
+        assertTrue(counts[0] > 11_000 && counts[0] < 15_000, "rank 1 count " + counts[0]);
+        assertTrue(counts[0] > counts[1] * 1.7, "rank 1 vs rank 2");
+        assertTrue(counts[1] > counts[99], "rank 2 vs rank 100");
+    }
+
+    @Test
+    void testGeneratorIsDeterministic() {
+        JsonObject config = new JsonObject().put("loadgen.accounts", 100).put("loadgen.symbols", 10);
+        ExecutionGenerator first = new ExecutionGenerator(config);
+        ExecutionGenerator second = new ExecutionGenerator(config);
+        Map<Execution.ExecutionSide, Integer> sides = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            TradeExecutionWrapper a = first.next();
+            TradeExecutionWrapper b = second.next();
+            assertEquals(a.getExecution().getAccountId(), b.getExecution().getAccountId());
+            assertEquals(a.getExecution().getPrice(), b.getExecution().getPrice());
+            assertEquals(i, ExecutionGenerator.sequenceOf(a.getExecution().getId()));
+            sides.merge(a.getExecution().getSide(), 1, Integer::sum);
+        }
+        assertTrue(sides.get(Execution.ExecutionSide.BUY) > 400);
+        assertTrue(sides.get(Execution.ExecutionSide.SELL) > 400);
+    }
+
+    @Test
+    void testLatencyBuckets() {
+        for (long value : new long[] {0, 1, 63, 64, 1000, 123_456_789L, Long.MAX_VALUE / 2}) {
+            long upper = LatencyRecorder.upperBoundOf(LatencyRecorder.bucketOf(value));
+            assertTrue(upper >= value, "upper bound of " + value);
+            // Relative error within 1/32
+            assertTrue(upper - value <= Math.max(1, value / 32), "precision at " + value);
+        }
+    }
+}